@@ -43,6 +43,7 @@ import org.availlang.plugin.ui.dialogs.MessageDialog;
 import org.availlang.plugin.ui.dialogs.ResolvedModuleNameOptionDialog;
 import org.availlang.plugin.ui.dialogs.TextInputDialog;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 
@@ -62,8 +63,10 @@ extends DisplayAndBuildModules
 		final @NotNull ProgressManager manager,
 		final @NotNull AnActionEvent event)
 	{
-		RunEntryPoint.
-			runEntryPoint(getAvailComponent(event), manager, entryPointCommand);
+		final ResolvedModuleName name = moduleName;
+		assert name != null;
+		RunEntryPoint.runIfLoaded(
+			getAvailComponent(event), manager, name, entryPointCommand);
 	}
 
 	@Override
@@ -83,6 +86,11 @@ extends DisplayAndBuildModules
 	 */
 	private @NotNull String entryPointCommand = "";
 
+	/**
+	 * The {@link ResolvedModuleName} of the module whose entry point is run.
+	 */
+	private @Nullable ResolvedModuleName moduleName;
+
 	@Override
 	public void firstThen (
 		final @NotNull Project project,
@@ -128,6 +136,7 @@ extends DisplayAndBuildModules
 						if (command != null && !command.isEmpty())
 						{
 							entryPointCommand = command;
+							moduleName = name;
 							next.value();
 						}
 						else
@@ -37,13 +37,13 @@ import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.DialogWrapper;
 import org.availlang.plugin.build.BuildModule;
+import org.availlang.plugin.core.AvailTaskQueue.Priority;
 import org.availlang.plugin.file.psi.AvailPsiFile;
 import org.availlang.plugin.stream.StreamStyle;
 import org.availlang.plugin.ui.dialogs.ResolvedModuleNameOptionDialog;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -104,14 +104,11 @@ extends AvailAction
 				dialog,
 				() ->
 				{
-					final Iterator<ResolvedModuleName> toBuildList =
-						dialog.getChosenElements().iterator();
-
 					BuildModule.buildModules(
 						false,
 						false,
-						toBuildList,
-						manager,
+						Priority.FOREGROUND,
+						dialog.getChosenElements(),
 						getAvailComponent(event),
 						() ->
 						{
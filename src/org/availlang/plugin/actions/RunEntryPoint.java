@@ -31,7 +31,6 @@
  */
 package org.availlang.plugin.actions;
 
-import com.avail.builder.AvailBuilder.LoadedModule;
 import com.avail.builder.ResolvedModuleName;
 import com.avail.linking.EntryPoint;
 import com.intellij.openapi.actionSystem.AnAction;
@@ -42,6 +41,7 @@ import com.intellij.openapi.progress.Task.Backgroundable;
 import com.intellij.openapi.progress.util.ProgressWindow;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.DialogWrapper;
+import org.availlang.plugin.build.BuildModule;
 import org.availlang.plugin.core.AvailComponent;
 import org.availlang.plugin.file.psi.AvailPsiFile;
 import org.availlang.plugin.stream.StreamStyle;
@@ -103,7 +103,24 @@ extends AvailAction
 				final String command = dialog.getInputString();
 				if (command != null && !command.isEmpty())
 				{
-					runEntryPoint(component, manager, command);
+					if (component.isLoaded(resolvedModuleName))
+					{
+						runEntryPoint(component, manager, command);
+					}
+					else
+					{
+						// Build only what this module needs, then run.
+						BuildModule.build(
+							true,
+							component,
+							true,
+							resolvedModuleName,
+							() -> runIfLoaded(
+								component,
+								manager,
+								resolvedModuleName,
+								command));
+					}
 				}
 				else
 				{
@@ -140,7 +157,44 @@ extends AvailAction
 	}
 
 	/**
-	 * Run the provided entry point.
+	 * Run the provided entry point once its module has been built, but only
+	 * if the build succeeded and left the module loaded. Otherwise report on
+	 * the console that the build failed.
+	 *
+	 * @param component
+	 *        The {@link AvailComponent} for the current {@link Project}.
+	 * @param manager
+	 *        The {@link ProgressManager} to report progress to the user.
+	 * @param resolvedModuleName
+	 *        The {@link ResolvedModuleName} of the module that was built.
+	 * @param command
+	 *        The Avail {@link EntryPoint} to run.
+	 */
+	static void runIfLoaded (
+		final @NotNull AvailComponent component,
+		final @NotNull ProgressManager manager,
+		final @NotNull ResolvedModuleName resolvedModuleName,
+		final @NotNull String command)
+	{
+		if (component.isLoaded(resolvedModuleName))
+		{
+			runEntryPoint(component, manager, command);
+		}
+		else
+		{
+			component.outputStream.writeText(
+				String.format(
+					"Build of %s failed; not running: %s\n",
+					resolvedModuleName.qualifiedName(),
+					command),
+				StreamStyle.ERR);
+		}
+	}
+
+	/**
+	 * Run the provided entry point. Runs do not go through the {@linkplain
+	 * AvailComponent#taskQueue() task queue}, so that a long-running command
+	 * never holds up builds or repository maintenance.
 	 *
 	 * @param component
 	 *        The {@link AvailComponent} for the current {@link Project}.
@@ -185,8 +239,13 @@ extends AvailAction
 							assert cleanup != null;
 							cleanup.value(done::release);
 						},
-						() -> System.err.println("[Failed] Run: "
-							+ command));
+						() ->
+						{
+							component.outputStream.writeText(
+								"Failed to run: " + command + "\n",
+								StreamStyle.ERR);
+							done.release();
+						});
 					done.acquireUninterruptibly();
 				}
 			},
@@ -202,15 +261,16 @@ extends AvailAction
 		{
 			return false;
 		}
-		final LoadedModule loadedModule =
-			AvailComponent.getInstance(
-				psiFile.getProject()).loadedModule(psiFile);
-		if (loadedModule == null)
+		final ResolvedModuleName resolvedModuleName =
+			psiFile.resolvedModuleName();
+		if (resolvedModuleName == null)
 		{
 			return false;
 		}
-		this.name = psiFile.resolvedModuleName();
-		this.entryPoints = loadedModule.entryPoints();
+		this.name = resolvedModuleName;
+		this.entryPoints =
+			AvailComponent.getInstance(psiFile.getProject())
+				.entryPoints(resolvedModuleName);
 		return !entryPoints.isEmpty();
 	}
 
@@ -0,0 +1,168 @@
+/*
+ * ShowEditImpact.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.actions;
+import com.avail.builder.ResolvedModuleName;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task.Backgroundable;
+import com.intellij.openapi.util.text.StringUtil;
+import org.availlang.plugin.core.AvailComponent;
+import org.availlang.plugin.core.ReverseDependencyIndex;
+import org.availlang.plugin.core.ReverseDependencyIndex.Impact;
+import org.availlang.plugin.file.psi.AvailPsiFile;
+import org.availlang.plugin.ui.dialogs.MessageDialog;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A {@code ShowEditImpact} is an {@link AvailAction} that reports how much
+ * work an edit to a module would cause: how many modules depend on it,
+ * directly or indirectly, how much source would have to be recompiled, and
+ * how long that took the last time.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class ShowEditImpact
+extends AvailAction
+{
+	/**
+	 * The maximum number of invalidated modules to list in the report.
+	 */
+	private static final int maximumListed = 20;
+
+	/**
+	 * The {@link ResolvedModuleName} of the module whose edit impact is to be
+	 * reported.
+	 */
+	private @Nullable ResolvedModuleName name;
+
+	@Override
+	public void actionPerformed (final AnActionEvent event)
+	{
+		final AvailComponent component = getAvailComponent(event);
+		final ResolvedModuleName resolvedModuleName = this.name;
+		assert resolvedModuleName != null;
+		ProgressManager.getInstance().run(
+			new Backgroundable(
+				component.getProject(),
+				"Analyzing Impact: " + resolvedModuleName.localName(),
+				false)
+			{
+				@Override
+				public void run (final @NotNull ProgressIndicator indicator)
+				{
+					indicator.setIndeterminate(true);
+					final ReverseDependencyIndex index =
+						component.reverseDependencyIndex();
+					index.ensureBuilt();
+					final String report =
+						report(resolvedModuleName, index.impactOf(
+							resolvedModuleName));
+					ApplicationManager.getApplication().invokeLater(
+						() -> new MessageDialog(
+							"Impact of Editing "
+								+ resolvedModuleName.localName(),
+							report).show());
+				}
+			});
+	}
+
+	/**
+	 * Answer a human-readable report of an {@link Impact}.
+	 *
+	 * @param resolvedModuleName
+	 *        The {@link ResolvedModuleName} of the edited module.
+	 * @param impact
+	 *        The {@code Impact} of editing it.
+	 * @return The report.
+	 */
+	private static @NotNull String report (
+		final @NotNull ResolvedModuleName resolvedModuleName,
+		final @NotNull Impact impact)
+	{
+		final StringBuilder builder = new StringBuilder();
+		builder.append("Editing ")
+			.append(resolvedModuleName.qualifiedName())
+			.append(" invalidates ")
+			.append(impact.modules.size())
+			.append(impact.modules.size() == 1 ? " module" : " modules")
+			.append(" (")
+			.append(StringUtil.formatFileSize(impact.sourceBytes))
+			.append(" of source).\nLast compile time of those modules: ")
+			.append(StringUtil.formatDuration(impact.compileMillis));
+		if (impact.untimedModules > 0)
+		{
+			builder.append(" (")
+				.append(impact.untimedModules)
+				.append(" not timed)");
+		}
+		builder.append(".\n");
+		final int listed = Math.min(impact.modules.size(), maximumListed);
+		for (int i = 0; i < listed; i++)
+		{
+			builder.append("\n    ").append(impact.modules.get(i));
+		}
+		if (listed < impact.modules.size())
+		{
+			builder.append("\n    … and ")
+				.append(impact.modules.size() - listed)
+				.append(" more");
+		}
+		return builder.toString();
+	}
+
+	@Override
+	protected boolean customVisibilityCheck (
+		final @NotNull AnActionEvent event,
+		final @Nullable AvailPsiFile psiFile)
+	{
+		if (psiFile == null
+			|| !AvailComponent.getInstance(psiFile.getProject())
+				.isBuilderReady())
+		{
+			return false;
+		}
+		this.name = psiFile.resolvedModuleName();
+		return name != null;
+	}
+
+	@NotNull
+	@Override
+	protected String customMenuItem (final @Nullable AvailPsiFile psiFile)
+	{
+		assert psiFile != null;
+		return "Show Impact of Editing '"
+			+ psiFile.getVirtualFile().getNameWithoutExtension() + "'";
+	}
+}
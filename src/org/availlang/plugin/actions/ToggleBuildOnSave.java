@@ -0,0 +1,73 @@
+/*
+ * ToggleBuildOnSave.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.actions;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.ToggleAction;
+import com.intellij.openapi.project.Project;
+import org.availlang.plugin.build.BuildOnSave;
+import org.availlang.plugin.core.AvailComponent;
+
+/**
+ * A {@code ToggleBuildOnSave} is a {@link ToggleAction} that turns {@linkplain
+ * BuildOnSave build-on-save} on or off for the current {@link Project}.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class ToggleBuildOnSave
+extends ToggleAction
+{
+	@Override
+	public boolean isSelected (final AnActionEvent event)
+	{
+		final Project project = event.getProject();
+		return project != null
+			&& AvailComponent.getInstance(project).buildOnSave().isEnabled();
+	}
+
+	@Override
+	public void setSelected (final AnActionEvent event, final boolean state)
+	{
+		final Project project = event.getProject();
+		if (project != null)
+		{
+			AvailComponent.getInstance(project).buildOnSave()
+				.setEnabled(state);
+		}
+	}
+
+	@Override
+	public void update (final AnActionEvent event)
+	{
+		super.update(event);
+		event.getPresentation().setEnabled(event.getProject() != null);
+	}
+}
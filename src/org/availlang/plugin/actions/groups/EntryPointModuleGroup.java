@@ -61,7 +61,11 @@ extends ActionGroup
 	{
 		final AvailComponent component =
 			AvailComponent.getInstance(Nulls.stripNull(e.getProject()));
-		component.refresh();
+		if (!component.isBuilderReady())
+		{
+			// The Avail builder is still starting in the background.
+			return AnAction.EMPTY_ARRAY;
+		}
 		final ModuleRoots roots =
 			component.moduleRoots();
 		final DisplayAndBuildModules[] displayAndBuildModules =
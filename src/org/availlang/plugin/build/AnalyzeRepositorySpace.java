@@ -0,0 +1,263 @@
+/*
+ * AnalyzeRepositorySpace.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.build;
+import com.avail.builder.ModuleName;
+import com.avail.builder.ModuleRoot;
+import com.avail.builder.ResolvedModuleName;
+import com.avail.builder.UnresolvedDependencyException;
+import com.avail.persistence.IndexedRepositoryManager;
+import com.avail.persistence.IndexedRepositoryManager.ModuleVersionKey;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task.Backgroundable;
+import com.intellij.openapi.util.text.StringUtil;
+import org.availlang.plugin.actions.AvailAction;
+import org.availlang.plugin.core.AvailComponent;
+import org.availlang.plugin.core.AvailTaskQueue.Priority;
+import org.availlang.plugin.core.utility.RepositoryArchives;
+import org.availlang.plugin.file.psi.AvailPsiFile;
+import org.availlang.plugin.stream.StreamStyle;
+import org.availlang.plugin.ui.dialogs.RepositorySpaceDialog;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An {@code AnalyzeRepositorySpace} is an {@link AvailAction} that measures
+ * how the space of every {@link ModuleRoot}'s {@link
+ * IndexedRepositoryManager} is used, and shows the {@link RepositorySpace}
+ * per root, package, module, and compiled version in a sortable table.
+ *
+ * <p>
+ * Every archive in each repository is measured, including those of modules
+ * that have since been deleted or renamed, and those of roots without
+ * sources. The archives are read one module at a time, and only each version's
+ * recorded size is kept, so the compilations themselves are never read.
+ * The analysis runs in the task queue and may be canceled, in which case
+ * what has been measured so far is shown.
+ * </p>
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class AnalyzeRepositorySpace
+extends AvailAction
+{
+	@Override
+	public void actionPerformed (final AnActionEvent event)
+	{
+		final AvailComponent component = getAvailComponent(event);
+		final RepositorySpace space = new RepositorySpace();
+		component.taskQueue().submit(
+			"analyze space",
+			Priority.FOREGROUND,
+			false,
+			new Backgroundable(
+				component.getProject(),
+				"Analyzing Avail repository space",
+				true)
+			{
+				@Override
+				public void run (final @NotNull ProgressIndicator indicator)
+				{
+					final List<ModuleRoot> roots =
+						new ArrayList<>(component.moduleRoots().roots());
+					for (int i = 0; i < roots.size(); i++)
+					{
+						final ModuleRoot root = roots.get(i);
+						indicator.setText(root.name());
+						analyzeRoot(
+							component,
+							root,
+							indicator,
+							(double) i / roots.size(),
+							1.0 / roots.size(),
+							space);
+					}
+				}
+
+				@Override
+				public void onSuccess ()
+				{
+					report(component, space, "Avail Repository Space");
+				}
+
+				@Override
+				public void onCancel ()
+				{
+					report(
+						component,
+						space,
+						"Avail Repository Space (canceled)");
+				}
+			});
+	}
+
+	/**
+	 * Add the space used by one {@link ModuleRoot}'s repository to the
+	 * {@link RepositorySpace}.
+	 *
+	 * @param component
+	 *        The {@link AvailComponent} that knows the root's modules.
+	 * @param root
+	 *        The {@code ModuleRoot}.
+	 * @param indicator
+	 *        The {@link ProgressIndicator} of the analysis.
+	 * @param startFraction
+	 *        The fraction of the analysis done before this root.
+	 * @param rootFraction
+	 *        The fraction of the analysis that this root accounts for.
+	 * @param space
+	 *        The {@code RepositorySpace} to add to.
+	 */
+	private static void analyzeRoot (
+		final @NotNull AvailComponent component,
+		final @NotNull ModuleRoot root,
+		final @NotNull ProgressIndicator indicator,
+		final double startFraction,
+		final double rootFraction,
+		final @NotNull RepositorySpace space)
+	{
+		final IndexedRepositoryManager repository = root.repository();
+		if (repository == null)
+		{
+			return;
+		}
+		final File file = component.repositoryFile(root.name());
+		space.addRoot(
+			root.name(),
+			file != null && file.isFile() ? file.length() : null);
+		// Packages precede their modules in the sorted archive names, as
+		// RepositorySpace requires.
+		final List<String> archiveNames =
+			RepositoryArchives.archiveNames(repository);
+		if (archiveNames != null)
+		{
+			for (int i = 0; i < archiveNames.size(); i++)
+			{
+				indicator.checkCanceled();
+				final String archiveName = archiveNames.get(i);
+				final String qualifiedName =
+					"/" + root.name() + "/" + archiveName;
+				indicator.setText2(qualifiedName);
+				indicator.setFraction(
+					startFraction + rootFraction * i / archiveNames.size());
+				ResolvedModuleName name;
+				try
+				{
+					name = component.resolver().resolve(
+						new ModuleName(qualifiedName), null);
+				}
+				catch (final UnresolvedDependencyException e)
+				{
+					// Its source is gone; it has no current version.
+					name = null;
+				}
+				final byte[] digest =
+					name == null ? null : component.sourceDigest(name);
+				space.addModule(
+					qualifiedName,
+					name != null
+						? name.isPackage()
+						: RepositoryArchives.hasMembers(
+							archiveName, archiveNames),
+					repository.getArchive(archiveName).getAllKnownVersions(),
+					name == null || digest == null
+						? null
+						: new ModuleVersionKey(name, digest));
+			}
+			return;
+		}
+		// The archives cannot be enumerated, so measure those of the modules
+		// on disk, in the module tree's order.
+		final List<ResolvedModuleName> names =
+			component.moduleTree().allResolvedNames(root);
+		for (int i = 0; i < names.size(); i++)
+		{
+			indicator.checkCanceled();
+			final ResolvedModuleName name = names.get(i);
+			indicator.setText2(name.qualifiedName());
+			indicator.setFraction(
+				startFraction + rootFraction * i / names.size());
+			space.addModule(
+				name,
+				repository.getArchive(name.rootRelativeName())
+					.getAllKnownVersions(),
+				component.sourceDigest(name));
+		}
+	}
+
+	/**
+	 * Summarize the {@link RepositorySpace} of each root on the console, and
+	 * show all of it in a {@link RepositorySpaceDialog}.
+	 *
+	 * @param component
+	 *        The {@link AvailComponent} whose repositories were analyzed.
+	 * @param space
+	 *        The {@code RepositorySpace}.
+	 * @param title
+	 *        The dialog title.
+	 */
+	private static void report (
+		final @NotNull AvailComponent component,
+		final @NotNull RepositorySpace space,
+		final @NotNull String title)
+	{
+		for (final RepositorySpace.Entry root : space.roots())
+		{
+			component.outputStream.writeText(
+				String.format(
+					"%s: %d compiled versions of %s source, "
+						+ "%s current, %s on disk\n",
+					root.name,
+					root.versions(),
+					StringUtil.formatFileSize(root.sourceBytes()),
+					StringUtil.formatFileSize(root.currentBytes()),
+					root.fileBytes == null
+						? "?"
+						: StringUtil.formatFileSize(root.fileBytes)),
+				StreamStyle.INFO);
+		}
+		new RepositorySpaceDialog(component.getProject(), title, space)
+			.show();
+	}
+
+	@Override
+	protected boolean customVisibilityCheck (
+		final @NotNull AnActionEvent event,
+		final @Nullable AvailPsiFile psiFile)
+	{
+		return getAvailComponent(event).isBuilderReady();
+	}
+}
@@ -0,0 +1,337 @@
+/*
+ * BuildEstimate.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.build;
+import com.avail.builder.ResolvedModuleName;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.IndexNotReadyException;
+import org.availlang.plugin.build.BuildProgress.ModuleProgress;
+import org.availlang.plugin.core.AvailComponent;
+import org.availlang.plugin.core.utility.CompileTimeStore;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@code BuildEstimate} predicts how long a build will take from the
+ * {@linkplain CompileTimeStore recorded compile times} of the modules it is
+ * expected to compile: the modules in the targets' dependency closures, as
+ * read from their indexed headers, that are neither loaded nor up to date.
+ *
+ * <p>
+ * The estimate also knows each module's critical path: the longest chain of
+ * predicted compile times from it down through its imports. Independent
+ * targets are best started longest-chain first, since a long chain cannot
+ * be shortened by more processors.
+ * </p>
+ *
+ * <p>
+ * Modules compile in parallel, so the sum of their compile times overstates
+ * the wall-clock time. Once some predicted modules have finished, the
+ * remaining time is scaled by how the elapsed time compares to the
+ * predictions for the modules finished so far.
+ * </p>
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class BuildEstimate
+{
+	/**
+	 * The {@link Map} from the qualified name of each module expected to be
+	 * compiled to its predicted compile time, in milliseconds.
+	 */
+	private final @NotNull Map<String, Long> predictions;
+
+	/**
+	 * The sum of the {@link #predictions}, in milliseconds.
+	 */
+	private final long totalMillis;
+
+	/**
+	 * The {@link Map} from the qualified name of each module that was
+	 * visited to the qualified names of the modules it imports. Loaded
+	 * modules are not expanded.
+	 */
+	private final @NotNull Map<String, List<String>> importsMap;
+
+	/**
+	 * The {@link Map} from qualified module name to the length, in
+	 * milliseconds, of its critical path, filled in as needed.
+	 */
+	private final @NotNull Map<String, Long> criticalPaths = new HashMap<>();
+
+	/**
+	 * Answer a {@link BuildEstimate} for building the given targets. The
+	 * closures are walked in a single read action over the header index;
+	 * whether each module is up to date is then decided from the digests its
+	 * root has already cached, so nothing is hashed. A module whose cached
+	 * digest is missing or stale has changed since it was last hashed, so it
+	 * is expected to be compiled.
+	 *
+	 * @param component
+	 *        The {@link AvailComponent} that will build them.
+	 * @param targets
+	 *        The {@link ResolvedModuleName}s of the targets.
+	 * @return The estimate, which is empty if the closures could not be read
+	 *         because the IDE is indexing.
+	 */
+	public static @NotNull BuildEstimate forTargets (
+		final @NotNull AvailComponent component,
+		final @NotNull Collection<ResolvedModuleName> targets)
+	{
+		final Map<String, List<String>> importsMap = new HashMap<>();
+		final List<ResolvedModuleName> unloaded = new ArrayList<>();
+		try
+		{
+			ApplicationManager.getApplication().runReadAction(() ->
+			{
+				final Set<String> visited = new HashSet<>();
+				final Deque<ResolvedModuleName> queue =
+					new ArrayDeque<>(targets);
+				while (!queue.isEmpty())
+				{
+					final ResolvedModuleName name = queue.removeFirst();
+					if (!visited.add(name.qualifiedName())
+						|| component.isLoaded(name))
+					{
+						// A loaded module's whole closure is loaded too.
+						continue;
+					}
+					unloaded.add(name);
+					final List<ResolvedModuleName> imports =
+						component.moduleImports(name);
+					final List<String> importNames =
+						new ArrayList<>(imports.size());
+					imports.forEach(i -> importNames.add(i.qualifiedName()));
+					importsMap.put(name.qualifiedName(), importNames);
+					queue.addAll(imports);
+				}
+			});
+		}
+		catch (final IndexNotReadyException e)
+		{
+			return new BuildEstimate(
+				Collections.emptyMap(), Collections.emptyMap());
+		}
+		final Map<String, Long> predictions = new HashMap<>();
+		for (final ResolvedModuleName name : unloaded)
+		{
+			final byte[] digest = component.cachedSourceDigest(name);
+			if (digest == null || !component.isUpToDate(name, digest))
+			{
+				predictions.put(
+					name.qualifiedName(),
+					component.predictedCompileMillis(name, digest));
+			}
+		}
+		return new BuildEstimate(predictions, importsMap);
+	}
+
+	/**
+	 * Answer the predicted length, in milliseconds, of the critical path of
+	 * the named module: its own predicted compile time plus the longest
+	 * critical path among its imports.
+	 *
+	 * @param qualifiedName
+	 *        The qualified name of the module.
+	 * @return The critical path length.
+	 */
+	public long criticalPathMillis (final @NotNull String qualifiedName)
+	{
+		final Long known = criticalPaths.get(qualifiedName);
+		if (known != null)
+		{
+			return known;
+		}
+		// Guard against import cycles, which the compiler will reject.
+		criticalPaths.put(qualifiedName, 0L);
+		long longest = 0;
+		for (final String anImport : importsMap.getOrDefault(
+			qualifiedName, Collections.emptyList()))
+		{
+			longest = Math.max(longest, criticalPathMillis(anImport));
+		}
+		final long length =
+			predictions.getOrDefault(qualifiedName, 0L) + longest;
+		criticalPaths.put(qualifiedName, length);
+		return length;
+	}
+
+	/**
+	 * Answer the given targets ordered longest critical path first, so that
+	 * the longest dependency chains start as early as possible. Targets with
+	 * equal critical paths keep their relative order.
+	 *
+	 * @param targets
+	 *        The {@link ResolvedModuleName}s of the targets.
+	 * @return The targets in build order.
+	 */
+	public @NotNull List<ResolvedModuleName> criticalPathOrder (
+		final @NotNull List<ResolvedModuleName> targets)
+	{
+		final List<ResolvedModuleName> ordered = new ArrayList<>(targets);
+		ordered.sort(Comparator.comparingLong(
+			(ResolvedModuleName t) -> criticalPathMillis(t.qualifiedName()))
+			.reversed());
+		return ordered;
+	}
+
+	/**
+	 * Answer the predicted length, in milliseconds, of the longest critical
+	 * path among the given targets.
+	 *
+	 * @param targets
+	 *        The {@link ResolvedModuleName}s of the targets.
+	 * @return The longest critical path.
+	 */
+	public long longestCriticalPathMillis (
+		final @NotNull Collection<ResolvedModuleName> targets)
+	{
+		long longest = 0;
+		for (final ResolvedModuleName target : targets)
+		{
+			longest = Math.max(
+				longest, criticalPathMillis(target.qualifiedName()));
+		}
+		return longest;
+	}
+
+	/**
+	 * Answer the predicted optimal makespan, in milliseconds, of building the
+	 * given targets: no build can finish sooner than its longest critical
+	 * path, nor sooner than its total work spread over every processor.
+	 *
+	 * @param targets
+	 *        The {@link ResolvedModuleName}s of the targets.
+	 * @return The lower bound on the build time.
+	 */
+	public long optimalMakespanMillis (
+		final @NotNull Collection<ResolvedModuleName> targets)
+	{
+		return Math.max(
+			longestCriticalPathMillis(targets),
+			totalMillis / Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Answer the number of modules expected to be compiled.
+	 *
+	 * @return The count.
+	 */
+	public int moduleCount ()
+	{
+		return predictions.size();
+	}
+
+	/**
+	 * Answer whether the estimate can predict anything.
+	 *
+	 * @return {@code true} if it has recorded times to go on; {@code false}
+	 *         otherwise.
+	 */
+	public boolean isUseful ()
+	{
+		return totalMillis > 0;
+	}
+
+	/**
+	 * Answer the predicted time, in milliseconds, until the build finishes.
+	 *
+	 * @param progress
+	 *        The {@link BuildProgress} of the build.
+	 * @return The predicted remaining time.
+	 */
+	public long remainingMillis (final @NotNull BuildProgress progress)
+	{
+		long remaining = 0;
+		long finished = 0;
+		for (final Map.Entry<String, Long> entry : predictions.entrySet())
+		{
+			final String name = entry.getKey();
+			final long predicted = entry.getValue();
+			if (progress.isFinished(name))
+			{
+				finished += predicted;
+				continue;
+			}
+			final ModuleProgress active = progress.activeModule(name);
+			remaining += active == null
+				? predicted
+				: Math.max(0, predicted - active.elapsedMillis());
+		}
+		final long elapsed = progress.elapsedMillis();
+		if (finished > 0 && elapsed < finished)
+		{
+			// Parallel compilation; scale down, but never below one module
+			// per processor.
+			final double scale = Math.max(
+				(double) elapsed / finished,
+				1.0d / Runtime.getRuntime().availableProcessors());
+			remaining = (long) (remaining * scale);
+		}
+		return remaining;
+	}
+
+	/**
+	 * Construct a {@link BuildEstimate} from predictions already made;
+	 * {@link #forTargets} makes them for a build.
+	 *
+	 * @param predictions
+	 *        The {@link Map} from the qualified name of each module expected
+	 *        to be compiled to its predicted compile time.
+	 * @param importsMap
+	 *        The {@link Map} from the qualified name of each visited module
+	 *        to the qualified names of its imports.
+	 */
+	BuildEstimate (
+		final @NotNull Map<String, Long> predictions,
+		final @NotNull Map<String, List<String>> importsMap)
+	{
+		this.predictions = predictions;
+		this.importsMap = importsMap;
+		long total = 0;
+		for (final long millis : predictions.values())
+		{
+			total += millis;
+		}
+		this.totalMillis = total;
+	}
+}
@@ -38,18 +38,24 @@ import com.intellij.icons.AllIcons.Welcome.Project;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.progress.ProgressIndicator;
-import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task.Backgroundable;
 import com.intellij.openapi.progress.util.ProgressWindow;
+import com.intellij.openapi.util.text.StringUtil;
 import org.availlang.plugin.actions.AvailAction;
 import org.availlang.plugin.core.AvailComponent;
+import org.availlang.plugin.core.AvailTaskQueue;
+import org.availlang.plugin.core.AvailTaskQueue.Priority;
 import org.availlang.plugin.language.AvailLanguage;
 import org.availlang.plugin.file.psi.AvailPsiFile;
 import org.availlang.plugin.stream.StreamStyle;
 import org.jetbrains.annotations.NotNull;
 
 import javax.annotation.Nullable;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 /**
  * A {@code BuildModule} is {@link AnAction} that causes an {@link
@@ -63,7 +69,6 @@ extends AvailAction
 	@Override
 	public void actionPerformed (final AnActionEvent event)
 	{
-		final ProgressManager manager = ProgressManager.getInstance();
 		final AvailPsiFile psiFile = psiFile(event);
 		assert psiFile != null;
 		final ResolvedModuleName resolvedModuleName =
@@ -74,7 +79,6 @@ extends AvailAction
 				false,
 				false,
 				getAvailComponent(event),
-				manager,
 				resolvedModuleName);
 		}
 	}
@@ -90,8 +94,6 @@ extends AvailAction
 	 *        background.
 	 * @param component
 	 *        The {@link AvailComponent} used by this {@link Project}.
-	 * @param manager
-	 *        The {@link ProgressManager} that reports progress to the user.
 	 * @param resolvedModuleName
 	 *        The {@code ResolvedModuleName} to build.
 	 */
@@ -99,14 +101,12 @@ extends AvailAction
 		final boolean loadingOnly,
 		final boolean startInBackground,
 		final @NotNull AvailComponent component,
-		final @NotNull ProgressManager manager,
 		final @NotNull ResolvedModuleName resolvedModuleName)
 	{
 		final long start = System.currentTimeMillis();
 		build(
 			loadingOnly,
 			component,
-			manager,
 			startInBackground,
 			resolvedModuleName,
 			() ->
@@ -123,8 +123,18 @@ extends AvailAction
 	}
 
 	/**
-	 * Build all the {@link ResolvedModuleName}s in the provided {@link
-	 * Iterator}.
+	 * Build all the provided {@link ResolvedModuleName}s as a single
+	 * background task with one aggregate progress indicator.
+	 *
+	 * <p>
+	 * Targets that are already loaded are skipped, and so is any target that
+	 * was loaded as part of the dependency closure of an earlier target. The
+	 * {@link AvailBuilder} can only build one target at a time, but it
+	 * compiles the independent modules of each target's closure concurrently,
+	 * so the targets are started longest critical path first, using the
+	 * compile times recorded by earlier builds. When the build finishes, its
+	 * makespan is reported alongside the predicted optimum.
+	 * </p>
 	 *
 	 * @param loadingOnly
 	 *        Indicates whether or not this build is to load modules or build
@@ -132,10 +142,10 @@ extends AvailAction
 	 * @param startInBackground
 	 *        Indicates whether or not this build should be done in the
 	 *        background.
-	 * @param toBuildIterator
-	 *        The {@code Iterator} of {@code ResolvedModuleName}s to build.
-	 * @param manager
-	 *        The {@link ProgressManager}.
+	 * @param priority
+	 *        The {@link Priority} of the build in the {@link AvailTaskQueue}.
+	 * @param targets
+	 *        The {@link Collection} of {@code ResolvedModuleName}s to build.
 	 * @param component
 	 *        The {@link AvailComponent} held on to by the {@link Project}
 	 *        requesting the build.
@@ -145,45 +155,32 @@ extends AvailAction
 	public static void buildModules (
 		final boolean loadingOnly,
 		final boolean startInBackground,
-		final @NotNull Iterator<ResolvedModuleName> toBuildIterator,
-		final @NotNull ProgressManager manager,
+		final @NotNull Priority priority,
+		final @NotNull Collection<ResolvedModuleName> targets,
 		final @NotNull AvailComponent component,
 		final @NotNull Continuation0 done)
 	{
-		if (toBuildIterator.hasNext())
-		{
-			final ResolvedModuleName name = toBuildIterator.next();
-			if (component.builder().getLoadedModule(name) == null)
-			{
-				build(
-					loadingOnly,
-					component,
-					manager,
-					startInBackground,
-					name,
-					() -> buildModules(
-						loadingOnly,
-						startInBackground,
-						toBuildIterator,
-						manager,
-						component,
-						done));
-			}
-			else
-			{
-				buildModules(
-					loadingOnly,
-					startInBackground,
-					toBuildIterator,
-					manager,
-					component,
-					done);
-			}
-		}
-		else
+		final List<ResolvedModuleName> toBuild =
+			new ArrayList<>(new LinkedHashSet<>(targets));
+		toBuild.removeIf(component::isLoaded);
+		if (toBuild.isEmpty())
 		{
 			done.value();
+			return;
 		}
+		final String label = toBuild.size() == 1
+			? buildLabel(loadingOnly, toBuild.get(0))
+			: String.format(
+				loadingOnly ? "Loading %d modules" : "Building %d modules",
+				toBuild.size());
+		runBuild(
+			component,
+			startInBackground,
+			priority,
+			toBuild,
+			loadingOnly,
+			label,
+			done);
 	}
 
 	/**
@@ -195,8 +192,6 @@ extends AvailAction
 	 * @param component
 	 *        The {@link AvailComponent} held on to by the {@link Project}
 	 *        requesting the build.
-	 * @param manager
-	 *        The {@link ProgressManager}.
 	 * @param startInBackground
 	 *        Indicates whether or not this build should be done in the
 	 *        background.
@@ -210,20 +205,86 @@ extends AvailAction
 	public static void build (
 		final boolean loadingOnly,
 		final @NotNull AvailComponent component,
-		final @NotNull ProgressManager manager,
 		final boolean startInBackground,
 		final @NotNull ResolvedModuleName resolvedModuleName,
 		final @NotNull Continuation0 onSuccess)
 	{
-		final AvailBuilder builder = component.builder();
-		final String label = loadingOnly
+		runBuild(
+			component,
+			startInBackground,
+			Priority.FOREGROUND,
+			Collections.singletonList(resolvedModuleName),
+			loadingOnly,
+			buildLabel(loadingOnly, resolvedModuleName),
+			onSuccess);
+	}
+
+	/**
+	 * Answer the progress label for building a single {@link
+	 * ResolvedModuleName}.
+	 *
+	 * @param loadingOnly
+	 *        Indicates whether or not this build is to load modules or build
+	 *        and load them. {@code true} indicates loading only.
+	 * @param resolvedModuleName
+	 *        The {@code ResolvedModuleName} to build.
+	 * @return A {@code String}.
+	 */
+	private static @NotNull String buildLabel (
+		final boolean loadingOnly,
+		final @NotNull ResolvedModuleName resolvedModuleName)
+	{
+		return loadingOnly
 			? String.format(
 				"Loading %s",
 				resolvedModuleName.qualifiedName())
 			: String.format(
 				"Building %s",
 				resolvedModuleName.qualifiedName());
-		manager.runProcessWithProgressAsynchronously(
+	}
+
+	/**
+	 * Build the provided {@link ResolvedModuleName}s in a single {@link
+	 * Backgroundable} task whose progress covers all of them. The task is
+	 * submitted to the {@link AvailTaskQueue}, where it is coalesced with any
+	 * pending build of the same targets. The targets are built in {@linkplain
+	 * BuildEstimate#criticalPathOrder(List) critical path order}.
+	 *
+	 * @param component
+	 *        The {@link AvailComponent} held on to by the {@link Project}
+	 *        requesting the build.
+	 * @param startInBackground
+	 *        Indicates whether or not this build should be done in the
+	 *        background.
+	 * @param priority
+	 *        The {@link Priority} of the build in the {@code AvailTaskQueue}.
+	 * @param targets
+	 *        The {@link List} of {@code ResolvedModuleName}s to build.
+	 * @param loadingOnly
+	 *        Indicates whether or not this build is to load modules or build
+	 *        and load them. {@code true} indicates loading only.
+	 * @param label
+	 *        The title of the progress indicator.
+	 * @param onSuccess
+	 *        The {@link Continuation0} to call upon successful completion of
+	 *        the build.
+	 */
+	private static void runBuild (
+		final @NotNull AvailComponent component,
+		final boolean startInBackground,
+		final @NotNull Priority priority,
+		final @NotNull List<ResolvedModuleName> targets,
+		final boolean loadingOnly,
+		final @NotNull String label,
+		final @NotNull Continuation0 onSuccess)
+	{
+		final StringBuilder key = new StringBuilder(
+			loadingOnly ? "load" : "build");
+		targets.forEach(target ->
+			key.append(' ').append(target.qualifiedName()));
+		component.taskQueue().submit(
+			key.toString(),
+			priority,
 			new Backgroundable(
 				component.getProject(),
 				label,
@@ -246,34 +307,158 @@ extends AvailAction
 				{
 					final ProgressWindow window = (ProgressWindow) progress;
 					window.setTitle(label);
-					builder.buildTarget(
-						resolvedModuleName,
-						(moduleName, moduleSize, position) -> {},
-						(position, globalCodeSize) ->
+					// Wait here, off the UI thread, if the builder is still
+					// starting.
+					final AvailBuilder builder = component.builder();
+					final BuildProgress buildProgress =
+						component.buildProgress();
+					buildProgress.buildStarted(label);
+					final BuildEstimate estimate =
+						BuildEstimate.forTargets(component, targets);
+					final List<ResolvedModuleName> ordered =
+						estimate.criticalPathOrder(targets);
+					try
+					{
+						buildTargets(
+							component, builder, window, ordered, estimate);
+					}
+					finally
+					{
+						buildProgress.buildFinished();
+					}
+					component.saveEntryPointIndexes();
+					component.saveCompileTimes();
+					if (ordered.size() > 1
+						&& estimate.isUseful()
+						&& !window.isCanceled())
+					{
+						reportMakespan(component, ordered, estimate);
+					}
+				}
+			});
+	}
+
+	/**
+	 * Report on the console how long a multi-target build took compared to
+	 * the predicted optimal makespan and the longest critical path.
+	 *
+	 * @param component
+	 *        The {@link AvailComponent} that built the targets.
+	 * @param targets
+	 *        The {@link ResolvedModuleName}s of the targets.
+	 * @param estimate
+	 *        The {@link BuildEstimate} of the build.
+	 */
+	private static void reportMakespan (
+		final @NotNull AvailComponent component,
+		final @NotNull List<ResolvedModuleName> targets,
+		final @NotNull BuildEstimate estimate)
+	{
+		final long makespan = component.buildProgress().elapsedMillis();
+		final long optimal = estimate.optimalMakespanMillis(targets);
+		component.outputStream.writeText(
+			String.format(
+				"Built %d targets, longest critical path first, in %s "
+					+ "(predicted optimum %s, %.0f%%; "
+					+ "longest critical path %s)\n",
+				targets.size(),
+				StringUtil.formatDuration(makespan),
+				StringUtil.formatDuration(optimal),
+				optimal == 0 ? 0.0d : makespan * 100.0d / optimal,
+				StringUtil.formatDuration(
+					estimate.longestCriticalPathMillis(targets))),
+			StreamStyle.INFO);
+	}
+
+	/**
+	 * Build the provided {@link ResolvedModuleName}s, in order, reporting
+	 * progress to the given {@link ProgressWindow} and the component's
+	 * {@link BuildProgress}. The progress text, which includes the estimated
+	 * time remaining, is only reformatted when the displayed percentage
+	 * changes.
+	 *
+	 * @param component
+	 *        The {@link AvailComponent} held on to by the {@link Project}
+	 *        requesting the build.
+	 * @param builder
+	 *        The {@link AvailBuilder} to build with.
+	 * @param window
+	 *        The {@code ProgressWindow} of the build.
+	 * @param targets
+	 *        The {@link List} of {@code ResolvedModuleName}s to build.
+	 * @param estimate
+	 *        The {@link BuildEstimate} of the build.
+	 */
+	private static void buildTargets (
+		final @NotNull AvailComponent component,
+		final @NotNull AvailBuilder builder,
+		final @NotNull ProgressWindow window,
+		final @NotNull List<ResolvedModuleName> targets,
+		final @NotNull BuildEstimate estimate)
+	{
+		final BuildProgress buildProgress = component.buildProgress();
+		final int count = targets.size();
+		for (int i = 0; i < count && !window.isCanceled(); i++)
+		{
+			final ResolvedModuleName target = targets.get(i);
+			if (count > 1 && component.isLoaded(target))
+			{
+				// Already loaded as part of the closure of an
+				// earlier target.
+				continue;
+			}
+			final int targetIndex = i;
+			final long[] lastPerThousand = {-1};
+			window.setText2(target.qualifiedName());
+			builder.buildTarget(
+				target,
+				(moduleName, moduleSize, position) ->
+				{
+					assert moduleName != null;
+					assert moduleSize != null;
+					assert position != null;
+					buildProgress.moduleProgress(
+						moduleName, moduleSize, position);
+				},
+				(position, globalCodeSize) ->
+				{
+					assert position != null;
+					assert globalCodeSize != null;
+					buildProgress.globalProgress(position, globalCodeSize);
+					if (window.isCanceled())
+					{
+						builder.cancel();
+					}
+					else
+					{
+						final long perThousand =
+							(position * 1000L) / globalCodeSize;
+						if (perThousand == lastPerThousand[0])
 						{
-							assert position != null;
-							assert globalCodeSize != null;
-							if (window.isCanceled())
-							{
-								builder.cancel();
-							}
-							else
-							{
-								final long perThousand =
-									(position * 1000L) / globalCodeSize;
-								final double percent =
-									perThousand / 1000.0d;
-								progress.setText(String.format(
-									"%,dB (%3.1f%%)",
-									position,
-									percent * 100.d));
-								progress.setFraction(percent);
-							}
+							return;
 						}
-					);
+						lastPerThousand[0] = perThousand;
+						final double percent =
+							perThousand / 1000.0d;
+						window.setText(String.format(
+							"%,dB (%3.1f%%)%s",
+							position,
+							percent * 100.d,
+							estimate.isUseful()
+								? ", about " + StringUtil.formatDuration(
+									estimate.remainingMillis(buildProgress))
+									+ " left"
+								: ""));
+						window.setFraction(
+							(targetIndex + percent) / count);
+					}
 				}
-			},
-			new ProgressWindow(true, component.getProject()));
+			);
+			if (!window.isCanceled() && !component.isLoaded(target))
+			{
+				component.moduleStatusService().buildFailed(target);
+			}
+		}
 	}
 
 	@Override
@@ -34,7 +34,6 @@ import com.avail.builder.ModuleRoot;
 import com.avail.builder.ResolvedModuleName;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
-import com.intellij.openapi.progress.ProgressManager;
 import org.availlang.plugin.actions.AvailAction;
 import org.availlang.plugin.file.psi.AvailPsiFile;
 import org.jetbrains.annotations.NotNull;
@@ -73,7 +72,6 @@ extends AvailAction
 		BuildModule.build(
 			false, false,
 			getAvailComponent(event),
-			ProgressManager.getInstance(),
 			resolvedModuleName);
 	}
 
@@ -0,0 +1,417 @@
+/*
+ * BuildOnSave.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.build;
+import com.avail.builder.AvailBuilder;
+import com.avail.builder.ResolvedModuleName;
+import com.intellij.ide.util.PropertiesComponent;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileEditor.FileDocumentManagerAdapter;
+import com.intellij.openapi.fileEditor.FileDocumentManagerListener;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.util.Alarm;
+import org.availlang.plugin.core.AvailComponent;
+import org.availlang.plugin.file.psi.AvailPsiFile;
+import org.availlang.plugin.stream.StreamStyle;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@code BuildOnSave} rebuilds an Avail module in the background whenever
+ * its document is saved, if the user has turned the feature on. Saves are
+ * debounced, so a burst of saves causes a single build, and a save of a
+ * module that is already being rebuilt cancels that build and starts it
+ * again. Builds requested by the user always take precedence: a background
+ * rebuild is canceled when one starts and is resumed when it finishes.
+ *
+ * <p>
+ * No progress dialog is shown; each rebuild writes a single line to the
+ * console when it finishes.
+ * </p>
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class BuildOnSave
+{
+	/**
+	 * The project {@link PropertiesComponent} key that records whether
+	 * build-on-save is enabled.
+	 */
+	private static final @NotNull String enabledKey =
+		"avail.buildOnSave.enabled";
+
+	/**
+	 * The time, in milliseconds, to wait after the last save before
+	 * rebuilding.
+	 */
+	private static final int debounceDelay = 500;
+
+	/**
+	 * The {@link AvailComponent} whose modules are rebuilt.
+	 */
+	private final @NotNull AvailComponent component;
+
+	/**
+	 * The {@link Alarm} that debounces saves.
+	 */
+	private final @NotNull Alarm alarm;
+
+	/**
+	 * The modules waiting to be rebuilt, keyed by {@linkplain
+	 * ResolvedModuleName#qualifiedName() qualified name}, in save order.
+	 * Guarded by {@code this}.
+	 */
+	private final @NotNull Map<String, ResolvedModuleName> pending =
+		new LinkedHashMap<>();
+
+	/**
+	 * The module being rebuilt, or {@code null} if none is. Guarded by
+	 * {@code this}.
+	 */
+	private @Nullable ResolvedModuleName inFlight;
+
+	/**
+	 * Whether the {@linkplain #inFlight in-flight} rebuild has been asked to
+	 * stop.
+	 */
+	private volatile boolean cancelRequested = false;
+
+	/**
+	 * Whether a thread is currently draining {@link #pending}. Guarded by
+	 * {@code this}.
+	 */
+	private boolean draining = false;
+
+	/**
+	 * The number of user-requested builds currently running. Background
+	 * rebuilds wait until it is zero. Guarded by {@code this}.
+	 */
+	private int foregroundBuilds = 0;
+
+	/**
+	 * Answer whether build-on-save is enabled for the project.
+	 *
+	 * @return {@code true} if it is; {@code false} otherwise.
+	 */
+	public boolean isEnabled ()
+	{
+		return PropertiesComponent.getInstance(component.getProject())
+			.getBoolean(enabledKey, false);
+	}
+
+	/**
+	 * Enable or disable build-on-save for the project. Disabling it discards
+	 * any rebuilds that have not yet started.
+	 *
+	 * @param enabled
+	 *        {@code true} to enable it; {@code false} to disable it.
+	 */
+	public void setEnabled (final boolean enabled)
+	{
+		PropertiesComponent.getInstance(component.getProject())
+			.setValue(enabledKey, enabled, false);
+		if (!enabled)
+		{
+			alarm.cancelAllRequests();
+			synchronized (this)
+			{
+				pending.clear();
+			}
+		}
+	}
+
+	/**
+	 * Answer the {@link FileDocumentManagerListener} that reports saves to
+	 * this {@code BuildOnSave}.
+	 *
+	 * @return A {@code FileDocumentManagerListener}.
+	 */
+	public @NotNull FileDocumentManagerListener listener ()
+	{
+		return new FileDocumentManagerAdapter()
+		{
+			@Override
+			public void beforeDocumentSaving (final @NotNull Document document)
+			{
+				documentSaving(document);
+			}
+		};
+	}
+
+	/**
+	 * A {@link Document} is about to be saved. If it is the source of an
+	 * Avail module in this project, schedule that module to be rebuilt once
+	 * the saves stop.
+	 *
+	 * @param document
+	 *        The {@code Document}.
+	 */
+	private void documentSaving (final @NotNull Document document)
+	{
+		if (component.getProject().isDisposed() || !isEnabled())
+		{
+			return;
+		}
+		final VirtualFile file =
+			FileDocumentManager.getInstance().getFile(document);
+		if (file == null || !"avail".equals(file.getExtension()))
+		{
+			return;
+		}
+		final PsiFile psiFile =
+			PsiManager.getInstance(component.getProject()).findFile(file);
+		if (!(psiFile instanceof AvailPsiFile))
+		{
+			return;
+		}
+		final ResolvedModuleName name =
+			((AvailPsiFile) psiFile).resolvedModuleName();
+		if (name == null)
+		{
+			return;
+		}
+		synchronized (this)
+		{
+			pending.put(name.qualifiedName(), name);
+			if (inFlight != null && inFlight.equals(name))
+			{
+				// The build in progress is of the old source; restart it.
+				cancelInFlight();
+			}
+		}
+		alarm.cancelAllRequests();
+		alarm.addRequest(this::drain, debounceDelay);
+	}
+
+	/**
+	 * Ask the {@linkplain #inFlight in-flight} rebuild to stop. The caller
+	 * must hold the monitor.
+	 */
+	private void cancelInFlight ()
+	{
+		cancelRequested = true;
+		final AvailBuilder builder = component.builderFuture().getNow(null);
+		if (builder != null)
+		{
+			builder.cancel();
+		}
+	}
+
+	/**
+	 * Rebuild the {@linkplain #pending pending} modules one at a time until
+	 * none remain or a user-requested build starts.
+	 */
+	private void drain ()
+	{
+		synchronized (this)
+		{
+			if (draining)
+			{
+				return;
+			}
+			draining = true;
+		}
+		try
+		{
+			while (!component.getProject().isDisposed())
+			{
+				final ResolvedModuleName target;
+				synchronized (this)
+				{
+					if (foregroundBuilds > 0 || pending.isEmpty())
+					{
+						return;
+					}
+					final Iterator<ResolvedModuleName> iterator =
+						pending.values().iterator();
+					target = iterator.next();
+					iterator.remove();
+					inFlight = target;
+					cancelRequested = false;
+				}
+				try
+				{
+					rebuild(target);
+				}
+				finally
+				{
+					synchronized (this)
+					{
+						inFlight = null;
+						notifyAll();
+					}
+				}
+			}
+		}
+		finally
+		{
+			synchronized (this)
+			{
+				draining = false;
+			}
+		}
+	}
+
+	/**
+	 * Rebuild the target module and report the result on the console.
+	 *
+	 * @param target
+	 *        The {@link ResolvedModuleName} to rebuild.
+	 */
+	private void rebuild (final @NotNull ResolvedModuleName target)
+	{
+		final AvailBuilder builder = component.builder();
+		final BuildProgress buildProgress = component.buildProgress();
+		final long start = System.currentTimeMillis();
+		buildProgress.buildStarted("Build on save: " + target.qualifiedName());
+		try
+		{
+			builder.buildTarget(
+				target,
+				(moduleName, moduleSize, position) ->
+				{
+					assert moduleName != null;
+					assert moduleSize != null;
+					assert position != null;
+					buildProgress.moduleProgress(
+						moduleName, moduleSize, position);
+				},
+				(position, globalCodeSize) ->
+				{
+					assert position != null;
+					assert globalCodeSize != null;
+					buildProgress.globalProgress(position, globalCodeSize);
+					if (cancelRequested)
+					{
+						builder.cancel();
+					}
+				});
+		}
+		finally
+		{
+			buildProgress.buildFinished();
+		}
+		final long runTime = System.currentTimeMillis() - start;
+		final String outcome;
+		if (cancelRequested)
+		{
+			outcome = "canceled";
+		}
+		else if (component.isLoaded(target))
+		{
+			outcome = "ok";
+		}
+		else
+		{
+			outcome = "failed";
+			component.moduleStatusService().buildFailed(target);
+		}
+		component.saveEntryPointIndexes();
+		component.saveCompileTimes();
+		component.outputStream.writeText(
+			String.format(
+				"Build on save: %s %s (%d ms)\n",
+				target.qualifiedName(),
+				outcome,
+				runTime),
+			outcome.equals("failed") ? StreamStyle.ERR : StreamStyle.INFO);
+	}
+
+	/**
+	 * A user-requested build is about to start. Cancel any background
+	 * rebuild, requeue it, and wait for it to stop, so that the user's build
+	 * has the {@link AvailBuilder} to itself. Must be balanced by a call to
+	 * {@link #foregroundBuildFinished()}.
+	 */
+	public void foregroundBuildStarting ()
+	{
+		synchronized (this)
+		{
+			foregroundBuilds++;
+			final ResolvedModuleName current = inFlight;
+			if (current != null)
+			{
+				pending.putIfAbsent(current.qualifiedName(), current);
+				cancelInFlight();
+			}
+			while (inFlight != null)
+			{
+				try
+				{
+					wait();
+				}
+				catch (final InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * A user-requested build has finished. Resume the background rebuilds if
+	 * no other user-requested build is running.
+	 */
+	public void foregroundBuildFinished ()
+	{
+		final boolean resume;
+		synchronized (this)
+		{
+			foregroundBuilds--;
+			resume = foregroundBuilds == 0 && !pending.isEmpty();
+		}
+		if (resume)
+		{
+			alarm.addRequest(this::drain, debounceDelay);
+		}
+	}
+
+	/**
+	 * Construct a {@link BuildOnSave}.
+	 *
+	 * @param component
+	 *        The {@link AvailComponent} whose modules are rebuilt.
+	 */
+	public BuildOnSave (final @NotNull AvailComponent component)
+	{
+		this.component = component;
+		this.alarm = new Alarm(
+			Alarm.ThreadToUse.POOLED_THREAD, component.getProject());
+	}
+}
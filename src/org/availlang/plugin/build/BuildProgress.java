@@ -0,0 +1,508 @@
+/*
+ * BuildProgress.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.build;
+import com.avail.builder.AvailBuilder;
+import com.avail.builder.ModuleName;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A {@code BuildProgress} records the progress of the current Avail build
+ * module by module, as reported by the per-module callback of {@link
+ * AvailBuilder#buildTarget}. Recording is cheap enough to do on every
+ * callback; views {@linkplain #activeModules() sample} it at their own rate.
+ *
+ * <p>
+ * The slowest modules of the most recent build are kept after it finishes.
+ * Modules that were actually compiled, rather than loaded from a repository,
+ * are reported to a listener when they finish so that their compile times
+ * can be recorded. A module counts as compiled if any progress within it,
+ * other than its start and end, was reported.
+ * </p>
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class BuildProgress
+{
+	/**
+	 * The number of slowest modules to keep.
+	 */
+	private static final int slowestCount = 10;
+
+	/**
+	 * A {@code ModuleProgress} is the progress of one module of a build.
+	 */
+	public static final class ModuleProgress
+	{
+		/**
+		 * The {@link ModuleName} of the module.
+		 */
+		public final @NotNull ModuleName moduleName;
+
+		/**
+		 * The qualified name of the module.
+		 */
+		public final @NotNull String name;
+
+		/**
+		 * The size of the module's source, in bytes.
+		 */
+		public final long size;
+
+		/**
+		 * The {@link System#nanoTime()} at which the module was first
+		 * reported.
+		 */
+		final long start = System.nanoTime();
+
+		/**
+		 * The position, in bytes, that compilation of the module has
+		 * reached.
+		 */
+		volatile long position;
+
+		/**
+		 * The {@link System#nanoTime()} at which the module finished, or
+		 * {@code 0} if it has not.
+		 */
+		volatile long end;
+
+		/**
+		 * Whether progress within the module was reported, indicating that
+		 * it was compiled rather than loaded from a repository.
+		 */
+		volatile boolean compiled;
+
+		/**
+		 * Answer whether the module was compiled rather than loaded from a
+		 * repository.
+		 *
+		 * @return {@code true} if it was compiled; {@code false} otherwise.
+		 */
+		public boolean compiled ()
+		{
+			return compiled;
+		}
+
+		/**
+		 * Answer the position, in bytes, that compilation of the module has
+		 * reached.
+		 *
+		 * @return The position.
+		 */
+		public long position ()
+		{
+			return position;
+		}
+
+		/**
+		 * Answer the time, in milliseconds, spent on the module so far, or in
+		 * total if it has finished.
+		 *
+		 * @return The elapsed time.
+		 */
+		public long elapsedMillis ()
+		{
+			final long finish = end;
+			return ((finish == 0 ? System.nanoTime() : finish) - start)
+				/ 1_000_000L;
+		}
+
+		/**
+		 * Construct a {@link ModuleProgress}.
+		 *
+		 * @param moduleName
+		 *        The {@link ModuleName} of the module.
+		 * @param size
+		 *        The size of the module's source, in bytes.
+		 */
+		ModuleProgress (final @NotNull ModuleName moduleName, final long size)
+		{
+			this.moduleName = moduleName;
+			this.name = moduleName.qualifiedName();
+			this.size = size;
+		}
+	}
+
+	/**
+	 * The modules of the current build that have started but not finished,
+	 * by qualified name.
+	 */
+	private final @NotNull Map<String, ModuleProgress> active =
+		new ConcurrentHashMap<>();
+
+	/**
+	 * The qualified names of the modules of the current or most recent build
+	 * that have finished.
+	 */
+	private final @NotNull Set<String> finished =
+		ConcurrentHashMap.newKeySet();
+
+	/**
+	 * The {@link Consumer} told about each module that finishes compiling.
+	 */
+	private final @NotNull Consumer<ModuleProgress> compiledListener;
+
+	/**
+	 * The slowest finished modules of the current or most recent build,
+	 * slowest first. Guarded by itself.
+	 */
+	private final @NotNull List<ModuleProgress> slowest = new ArrayList<>();
+
+	/**
+	 * The number of modules of the current build that have finished.
+	 */
+	private final @NotNull AtomicLong completedModules = new AtomicLong();
+
+	/**
+	 * The number of source bytes of the finished modules of the current
+	 * build.
+	 */
+	private final @NotNull AtomicLong completedBytes = new AtomicLong();
+
+	/**
+	 * The title of the current or most recent build.
+	 */
+	private volatile @NotNull String label = "";
+
+	/**
+	 * The {@link System#nanoTime()} at which the current or most recent
+	 * build started.
+	 */
+	private volatile long buildStart = 0;
+
+	/**
+	 * The {@link System#nanoTime()} at which the most recent build
+	 * finished, or {@code 0} if a build is running.
+	 */
+	private volatile long buildEnd = 0;
+
+	/**
+	 * Whether a build is running.
+	 */
+	private volatile boolean isBuilding = false;
+
+	/**
+	 * The global position, in bytes, of the current build.
+	 */
+	private volatile long globalPosition = 0;
+
+	/**
+	 * The global size, in bytes, of the current build.
+	 */
+	private volatile long globalSize = 0;
+
+	/**
+	 * A build is starting. Forget the previous build.
+	 *
+	 * @param label
+	 *        The title of the build.
+	 */
+	public void buildStarted (final @NotNull String label)
+	{
+		active.clear();
+		finished.clear();
+		synchronized (slowest)
+		{
+			slowest.clear();
+		}
+		completedModules.set(0);
+		completedBytes.set(0);
+		globalPosition = 0;
+		globalSize = 0;
+		this.label = label;
+		buildStart = System.nanoTime();
+		buildEnd = 0;
+		isBuilding = true;
+	}
+
+	/**
+	 * Record the progress of a module.
+	 *
+	 * @param moduleName
+	 *        The {@link ModuleName} of the module.
+	 * @param size
+	 *        The size of the module's source, in bytes.
+	 * @param position
+	 *        The position, in bytes, that compilation has reached.
+	 */
+	public void moduleProgress (
+		final @NotNull ModuleName moduleName,
+		final long size,
+		final long position)
+	{
+		final String name = moduleName.qualifiedName();
+		ModuleProgress progress = active.get(name);
+		if (progress == null)
+		{
+			progress = active.computeIfAbsent(
+				name, k -> new ModuleProgress(moduleName, size));
+		}
+		progress.position = position;
+		if (position > 0 && position < size)
+		{
+			progress.compiled = true;
+		}
+		else if (position >= size && active.remove(name, progress))
+		{
+			progress.end = System.nanoTime();
+			finished.add(name);
+			completedModules.incrementAndGet();
+			completedBytes.addAndGet(size);
+			recordFinished(progress);
+			if (progress.compiled)
+			{
+				compiledListener.accept(progress);
+			}
+		}
+	}
+
+	/**
+	 * Answer whether the named module has finished in the current or most
+	 * recent build.
+	 *
+	 * @param qualifiedName
+	 *        The qualified name of the module.
+	 * @return {@code true} if it has; {@code false} otherwise.
+	 */
+	public boolean isFinished (final @NotNull String qualifiedName)
+	{
+		return finished.contains(qualifiedName);
+	}
+
+	/**
+	 * Answer the {@link ModuleProgress} of the named module if it is being
+	 * compiled.
+	 *
+	 * @param qualifiedName
+	 *        The qualified name of the module.
+	 * @return The {@code ModuleProgress}, or {@code null} if the module is
+	 *         not active.
+	 */
+	public @Nullable ModuleProgress activeModule (
+		final @NotNull String qualifiedName)
+	{
+		return active.get(qualifiedName);
+	}
+
+	/**
+	 * Record a finished module if it is among the slowest.
+	 *
+	 * @param progress
+	 *        The {@link ModuleProgress} of the finished module.
+	 */
+	private void recordFinished (final @NotNull ModuleProgress progress)
+	{
+		final long elapsed = progress.elapsedMillis();
+		synchronized (slowest)
+		{
+			if (slowest.size() == slowestCount
+				&& slowest.get(slowestCount - 1).elapsedMillis() >= elapsed)
+			{
+				return;
+			}
+			int index = 0;
+			while (index < slowest.size()
+				&& slowest.get(index).elapsedMillis() >= elapsed)
+			{
+				index++;
+			}
+			slowest.add(index, progress);
+			if (slowest.size() > slowestCount)
+			{
+				slowest.remove(slowestCount);
+			}
+		}
+	}
+
+	/**
+	 * Record the global progress of the build.
+	 *
+	 * @param position
+	 *        The number of bytes processed.
+	 * @param size
+	 *        The total number of bytes to process.
+	 */
+	public void globalProgress (final long position, final long size)
+	{
+		globalPosition = position;
+		globalSize = size;
+	}
+
+	/**
+	 * The build has finished.
+	 */
+	public void buildFinished ()
+	{
+		buildEnd = System.nanoTime();
+		isBuilding = false;
+		active.clear();
+	}
+
+	/**
+	 * Answer whether a build is running.
+	 *
+	 * @return {@code true} if one is; {@code false} otherwise.
+	 */
+	public boolean isBuilding ()
+	{
+		return isBuilding;
+	}
+
+	/**
+	 * Answer the title of the current or most recent build.
+	 *
+	 * @return The title.
+	 */
+	public @NotNull String label ()
+	{
+		return label;
+	}
+
+	/**
+	 * Answer the modules being compiled, in name order.
+	 *
+	 * @return A snapshot of the active {@link ModuleProgress}es.
+	 */
+	public @NotNull List<ModuleProgress> activeModules ()
+	{
+		final List<ModuleProgress> modules = new ArrayList<>(active.values());
+		modules.sort(Comparator.comparing(m -> m.name));
+		return modules;
+	}
+
+	/**
+	 * Answer the slowest finished modules of the current or most recent
+	 * build, slowest first.
+	 *
+	 * @return A snapshot of their {@link ModuleProgress}es.
+	 */
+	public @NotNull List<ModuleProgress> slowestModules ()
+	{
+		synchronized (slowest)
+		{
+			return new ArrayList<>(slowest);
+		}
+	}
+
+	/**
+	 * Answer the number of modules of the current or most recent build that
+	 * have finished.
+	 *
+	 * @return The count.
+	 */
+	public long completedModules ()
+	{
+		return completedModules.get();
+	}
+
+	/**
+	 * Answer the number of source bytes of the finished modules.
+	 *
+	 * @return The byte count.
+	 */
+	public long completedBytes ()
+	{
+		return completedBytes.get();
+	}
+
+	/**
+	 * Answer the global position, in bytes, of the build.
+	 *
+	 * @return The position.
+	 */
+	public long globalPosition ()
+	{
+		return globalPosition;
+	}
+
+	/**
+	 * Answer the global size, in bytes, of the build.
+	 *
+	 * @return The size.
+	 */
+	public long globalSize ()
+	{
+		return globalSize;
+	}
+
+	/**
+	 * Answer the time, in milliseconds, that the current or most recent
+	 * build has taken.
+	 *
+	 * @return The elapsed time.
+	 */
+	public long elapsedMillis ()
+	{
+		if (buildStart == 0)
+		{
+			return 0;
+		}
+		final long finish = buildEnd;
+		return ((finish == 0 ? System.nanoTime() : finish) - buildStart)
+			/ 1_000_000L;
+	}
+
+	/**
+	 * Answer the throughput of the current or most recent build, in source
+	 * bytes of finished modules per second.
+	 *
+	 * @return The throughput.
+	 */
+	public long bytesPerSecond ()
+	{
+		final long elapsed = elapsedMillis();
+		return elapsed == 0 ? 0 : completedBytes.get() * 1000L / elapsed;
+	}
+
+	/**
+	 * Construct a {@link BuildProgress}.
+	 *
+	 * @param compiledListener
+	 *        The {@link Consumer} told about each module that finishes
+	 *        compiling.
+	 */
+	public BuildProgress (
+		final @NotNull Consumer<ModuleProgress> compiledListener)
+	{
+		this.compiledListener = compiledListener;
+	}
+}
@@ -37,16 +37,27 @@ import com.avail.persistence.IndexedRepositoryManager;
 import com.avail.utility.evaluation.Continuation0;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.progress.ProgressIndicator;
-import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task.Backgroundable;
 import com.intellij.openapi.progress.util.ProgressWindow;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.availlang.plugin.actions.AvailAction;
 import org.availlang.plugin.core.AvailComponent;
+import org.availlang.plugin.core.AvailTaskQueue.Priority;
 import org.availlang.plugin.exceptions.AvailPluginException;
+import org.availlang.plugin.stream.StreamStyle;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A {@link ClearRepo} is an {@link AvailAction} for {@linkplain
@@ -80,9 +91,11 @@ extends AvailAction
 		final @NotNull AvailComponent component,
 		final @NotNull Continuation0 onSuccess)
 	{
-		final ProgressManager manager = ProgressManager.getInstance();
 		final String label = String.format("Clearing %s", root.name());
-		manager.runProcessWithProgressAsynchronously(
+		// The queue never runs a clear alongside a build.
+		component.taskQueue().submit(
+			"clear " + root.name(),
+			Priority.FOREGROUND,
 			new Backgroundable(
 				component.getProject(),
 				label,
@@ -111,7 +124,150 @@ extends AvailAction
 						.show();
 					}
 				}
-			},
-			new ProgressWindow(true, component.getProject()));
+			});
+	}
+
+	/**
+	 * Clear the {@link IndexedRepositoryManager}s of all the provided {@link
+	 * ModuleRoot}s concurrently, as a single task in the {@link
+	 * AvailComponent}'s task queue with one progress indicator that counts
+	 * the bytes of the repository files cleared so far. Canceling stops any
+	 * root that has not yet started. Failures do not interrupt the other
+	 * roots; they are collected and reported together on the console once
+	 * every root is done.
+	 *
+	 * @param roots
+	 *        The {@link Map} from each {@code ModuleRoot} to clear to its
+	 *        repository {@link File}, used to measure progress.
+	 * @param component
+	 *        The {@code AvailComponent} held by this {@link Project}.
+	 * @param onSuccess
+	 *        The {@link Continuation0} to run after every root that was
+	 *        started has been cleared or has failed.
+	 */
+	public static void clearRepositories (
+		final @NotNull Map<ModuleRoot, File> roots,
+		final @NotNull AvailComponent component,
+		final @NotNull Continuation0 onSuccess)
+	{
+		final String label =
+			String.format("Clearing %d Avail repositories", roots.size());
+		final List<String> failures =
+			Collections.synchronizedList(new ArrayList<>());
+		final List<String> skipped =
+			Collections.synchronizedList(new ArrayList<>());
+		component.taskQueue().submit(
+			"clear all",
+			Priority.FOREGROUND,
+			new Backgroundable(component.getProject(), label, true)
+			{
+				@Override
+				public void run (@NotNull final ProgressIndicator progress)
+				{
+					progress.setIndeterminate(false);
+					long sizes = 0;
+					for (final File file : roots.values())
+					{
+						sizes += file.length();
+					}
+					final String totalSize = StringUtil.formatFileSize(sizes);
+					final long total = Math.max(1, sizes);
+					final AtomicLong cleared = new AtomicLong();
+					final List<Future<?>> futures = new ArrayList<>();
+					roots.forEach((root, file) ->
+					{
+						final long size = file.length();
+						futures.add(AppExecutorUtil.getAppExecutorService()
+							.submit(() ->
+							{
+								if (progress.isCanceled())
+								{
+									skipped.add(root.name());
+									return;
+								}
+								try
+								{
+									root.repository().clear();
+								}
+								catch (
+									final @NotNull IOException
+										| IndexedFileException e)
+								{
+									failures.add(String.format(
+										"%s: %s",
+										root.name(),
+										e.getMessage()));
+								}
+								final long done = cleared.addAndGet(size);
+								progress.setFraction((double) done / total);
+								progress.setText(String.format(
+									"Cleared %s of %s",
+									StringUtil.formatFileSize(done),
+									totalSize));
+							}));
+					});
+					for (final Future<?> future : futures)
+					{
+						try
+						{
+							future.get();
+						}
+						catch (final InterruptedException e)
+						{
+							Thread.currentThread().interrupt();
+							return;
+						}
+						catch (final ExecutionException e)
+						{
+							failures.add(String.valueOf(e.getCause()));
+						}
+					}
+				}
+
+				@Override
+				public void onSuccess ()
+				{
+					report();
+					onSuccess.value();
+				}
+
+				@Override
+				public void onCancel ()
+				{
+					report();
+				}
+
+				/**
+				 * Write a summary of the failed and skipped roots, if any, to
+				 * the console.
+				 */
+				private void report ()
+				{
+					component.moduleStatusService().invalidateAll();
+					component.reverseDependencyIndex().clear();
+					final int clearedCount =
+						roots.size() - failures.size() - skipped.size();
+					final StringBuilder summary = new StringBuilder(
+						String.format(
+							"Cleared %d of %d Avail repositories\n",
+							clearedCount,
+							roots.size()));
+					if (!skipped.isEmpty())
+					{
+						summary.append("  Canceled before clearing: ")
+							.append(String.join(", ", skipped))
+							.append('\n');
+					}
+					failures.forEach(failure ->
+						summary.append("  Failed: ")
+							.append(failure)
+							.append('\n'));
+					component.outputStream.writeText(
+						summary.toString(),
+						failures.isEmpty()
+							? StreamStyle.INFO
+							: StreamStyle.ERR);
+				}
+			});
 	}
 }
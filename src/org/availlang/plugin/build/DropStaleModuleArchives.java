@@ -0,0 +1,383 @@
+/*
+ * DropStaleModuleArchives.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.build;
+import com.avail.builder.ModuleRoot;
+import com.avail.builder.ResolvedModuleName;
+import com.avail.persistence.IndexedRepositoryManager;
+import com.avail.persistence.IndexedRepositoryManager.ModuleArchive;
+import com.avail.persistence.IndexedRepositoryManager.ModuleCompilation;
+import com.avail.persistence.IndexedRepositoryManager.ModuleVersion;
+import com.avail.persistence.IndexedRepositoryManager.ModuleVersionKey;
+import com.intellij.ide.IdeEventQueue;
+import com.intellij.ide.util.PropertiesComponent;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task.Backgroundable;
+import com.intellij.openapi.util.text.StringUtil;
+import org.availlang.plugin.actions.AvailAction;
+import org.availlang.plugin.core.AvailComponent;
+import org.availlang.plugin.core.AvailTaskQueue;
+import org.availlang.plugin.core.AvailTaskQueue.Priority;
+import org.availlang.plugin.file.psi.AvailPsiFile;
+import org.availlang.plugin.stream.StreamStyle;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A {@code DropStaleModuleArchives} is an {@link AvailAction} that drops the
+ * archives of stale modules from the {@link IndexedRepositoryManager}s of the
+ * {@link ModuleRoot}s that have sources. A module is stale when none of its
+ * compiled versions matches its current source; those versions can never be
+ * used again, and the next build must recompile the module regardless.
+ * Modules that are loaded are left alone, as are package representatives.
+ *
+ * <p>
+ * A module that is not stale keeps only its newest {@link #keepVersions}
+ * versions, ranked by their latest compilation time, and always including
+ * the version that matches its current source. The older versions are
+ * dropped by cleaning the module's archive and putting the kept versions
+ * back. The number kept is the project {@link PropertiesComponent} value
+ * {@value #keepVersionsKey}, which defaults to {@link #defaultKeepVersions}.
+ * </p>
+ *
+ * <p>
+ * The repository files are append-only, and {@link IndexedRepositoryManager}
+ * offers no way to copy its records into a fresh file, so dropping versions
+ * does not shrink them; it only stops the dropped versions from being
+ * indexed and considered. The sizes of the repository files before and after
+ * are reported as they are.
+ * </p>
+ *
+ * <p>
+ * The same action runs {@linkplain #idleListener(AvailComponent) in the
+ * background} once the IDE has been idle for a while.
+ * </p>
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class DropStaleModuleArchives
+extends AvailAction
+{
+	/**
+	 * The time, in milliseconds, that the IDE must be idle before stale
+	 * archives are dropped in the background.
+	 */
+	public static final int idleDelay = 5 * 60 * 1000;
+
+	/**
+	 * The minimum time, in milliseconds, between background runs.
+	 */
+	private static final long backgroundInterval = 60 * 60 * 1000L;
+
+	/**
+	 * The project {@link PropertiesComponent} key of the number of versions
+	 * kept for each module.
+	 */
+	public static final @NotNull String keepVersionsKey =
+		"avail.repositories.keepVersions";
+
+	/**
+	 * The number of versions kept for each module when none is configured.
+	 */
+	public static final int defaultKeepVersions = 3;
+
+	@Override
+	public void actionPerformed (final AnActionEvent event)
+	{
+		dropStale(getAvailComponent(event), Priority.FOREGROUND);
+	}
+
+	/**
+	 * Answer a {@link Runnable} to register with {@link
+	 * IdeEventQueue#addIdleListener(Runnable, int)} that drops stale module
+	 * archives in the background, at most once per hour, when no other Avail
+	 * task is pending.
+	 *
+	 * @param component
+	 *        The {@link AvailComponent} whose repositories are cleaned.
+	 * @return The idle listener.
+	 */
+	public static @NotNull Runnable idleListener (
+		final @NotNull AvailComponent component)
+	{
+		final long[] lastRun = {System.currentTimeMillis()};
+		return () ->
+		{
+			final AvailTaskQueue queue = component.taskQueue();
+			final long now = System.currentTimeMillis();
+			if (component.getProject().isDisposed()
+				|| !component.isBuilderReady()
+				|| queue.isBusy()
+				|| queue.depth() > 0
+				|| now - lastRun[0] < backgroundInterval)
+			{
+				return;
+			}
+			lastRun[0] = now;
+			dropStale(component, Priority.BACKGROUND);
+		};
+	}
+
+	/**
+	 * Drop the stale module archives of every root that has sources, as a
+	 * task in the {@link AvailComponent}'s task queue, and report the result,
+	 * including the sizes of the repository files, on the console.
+	 *
+	 * @param component
+	 *        The {@code AvailComponent} whose repositories are cleaned.
+	 * @param priority
+	 *        The {@link Priority} of the task.
+	 */
+	public static void dropStale (
+		final @NotNull AvailComponent component,
+		final @NotNull Priority priority)
+	{
+		final int keepVersions = Math.max(
+			1,
+			PropertiesComponent.getInstance(component.getProject()).getInt(
+				keepVersionsKey, defaultKeepVersions));
+		final int[] counts = new int[3];
+		final long[] fileBytes = new long[2];
+		component.taskQueue().submit(
+			"drop stale archives",
+			priority,
+			new Backgroundable(
+				component.getProject(),
+				"Dropping stale Avail module archives",
+				true)
+			{
+				@Override
+				public boolean shouldStartInBackground ()
+				{
+					return true;
+				}
+
+				@Override
+				public void run (final @NotNull ProgressIndicator indicator)
+				{
+					final List<ModuleRoot> roots =
+						new ArrayList<>(component.moduleRoots().roots());
+					for (int i = 0; i < roots.size(); i++)
+					{
+						indicator.checkCanceled();
+						final ModuleRoot root = roots.get(i);
+						indicator.setText(root.name());
+						indicator.setFraction((double) i / roots.size());
+						dropStaleInRoot(
+							component,
+							root,
+							keepVersions,
+							indicator,
+							counts,
+							fileBytes);
+					}
+				}
+
+				@Override
+				public void onSuccess ()
+				{
+					component.outputStream.writeText(
+						String.format(
+							"Dropped stale Avail module archives: %d modules, "
+								+ "%d compiled versions, and %d older "
+								+ "versions of current modules; repository "
+								+ "files were %s, now %s\n",
+							counts[0],
+							counts[1],
+							counts[2],
+							StringUtil.formatFileSize(fileBytes[0]),
+							StringUtil.formatFileSize(fileBytes[1])),
+						StreamStyle.INFO);
+				}
+			});
+	}
+
+	/**
+	 * Drop the archives of the stale modules of one {@link ModuleRoot}'s
+	 * repository, and the versions of its other modules beyond the newest
+	 * few.
+	 *
+	 * @param component
+	 *        The {@link AvailComponent} whose repositories are cleaned.
+	 * @param root
+	 *        The {@code ModuleRoot}.
+	 * @param keepVersions
+	 *        The number of versions to keep for each module that is not
+	 *        stale.
+	 * @param indicator
+	 *        The {@link ProgressIndicator} of the task.
+	 * @param counts
+	 *        The running counts of stale modules, their versions, and the
+	 *        older versions dropped from the other modules, updated in
+	 *        place.
+	 * @param fileBytes
+	 *        The running sizes of the repository files before and after,
+	 *        updated in place.
+	 */
+	private static void dropStaleInRoot (
+		final @NotNull AvailComponent component,
+		final @NotNull ModuleRoot root,
+		final int keepVersions,
+		final @NotNull ProgressIndicator indicator,
+		final @NotNull int[] counts,
+		final @NotNull long[] fileBytes)
+	{
+		final IndexedRepositoryManager repository = root.repository();
+		if (repository == null || root.sourceDirectory() == null)
+		{
+			// Without sources, nothing can be known to be stale.
+			return;
+		}
+		final File file = component.repositoryFile(root.name());
+		final long before = file == null ? 0 : file.length();
+		boolean changed = false;
+		for (final ResolvedModuleName name :
+			component.moduleTree().allResolvedNames(root))
+		{
+			indicator.checkCanceled();
+			// Cleaning a package would clean every module in it, so only
+			// modules are considered.
+			if (name.isPackage() || component.isLoaded(name))
+			{
+				continue;
+			}
+			final Map<ModuleVersionKey, ModuleVersion> versions =
+				repository.getArchive(name.rootRelativeName())
+					.getAllKnownVersions();
+			final byte[] digest = component.sourceDigest(name);
+			if (versions.isEmpty() || digest == null)
+			{
+				continue;
+			}
+			final ModuleVersionKey current = new ModuleVersionKey(name, digest);
+			if (versions.containsKey(current))
+			{
+				if (versions.size() > keepVersions)
+				{
+					counts[2] += keepNewest(
+						repository, name, versions, current, keepVersions);
+					changed = true;
+				}
+				continue;
+			}
+			counts[0]++;
+			counts[1] += versions.size();
+			repository.cleanModulesUnderPackage(name);
+			changed = true;
+		}
+		if (changed)
+		{
+			repository.commit();
+		}
+		fileBytes[0] += before;
+		fileBytes[1] += file == null ? 0 : file.length();
+	}
+
+	/**
+	 * Drop all but the newest of a module's versions, always keeping the one
+	 * that matches its current source. Versions are ranked by the time of
+	 * their latest compilation; versions that were never compiled rank
+	 * oldest.
+	 *
+	 * @param repository
+	 *        The module's {@link IndexedRepositoryManager}.
+	 * @param name
+	 *        The module's {@link ResolvedModuleName}.
+	 * @param versions
+	 *        The module's versions.
+	 * @param current
+	 *        The {@link ModuleVersionKey} of its current source.
+	 * @param keepVersions
+	 *        The number of versions to keep.
+	 * @return The number of versions dropped.
+	 */
+	private static int keepNewest (
+		final @NotNull IndexedRepositoryManager repository,
+		final @NotNull ResolvedModuleName name,
+		final @NotNull Map<ModuleVersionKey, ModuleVersion> versions,
+		final @NotNull ModuleVersionKey current,
+		final int keepVersions)
+	{
+		final List<Entry<ModuleVersionKey, ModuleVersion>> ranked =
+			new ArrayList<>(versions.entrySet());
+		ranked.sort(Comparator.comparingLong(
+			(Entry<ModuleVersionKey, ModuleVersion> entry) ->
+				entry.getKey().equals(current)
+					? Long.MAX_VALUE
+					: latestCompilation(entry.getValue()))
+			.reversed());
+		final List<Entry<ModuleVersionKey, ModuleVersion>> kept =
+			ranked.subList(0, keepVersions);
+		repository.cleanModulesUnderPackage(name);
+		final ModuleArchive archive =
+			repository.getArchive(name.rootRelativeName());
+		for (final Entry<ModuleVersionKey, ModuleVersion> entry : kept)
+		{
+			archive.putVersion(entry.getKey(), entry.getValue());
+		}
+		return versions.size() - kept.size();
+	}
+
+	/**
+	 * Answer the time of the latest compilation of a {@link ModuleVersion}.
+	 *
+	 * @param version
+	 *        The {@code ModuleVersion}.
+	 * @return The time, in milliseconds since the epoch, or {@link
+	 *         Long#MIN_VALUE} if it was never compiled.
+	 */
+	private static long latestCompilation (
+		final @NotNull ModuleVersion version)
+	{
+		long latest = Long.MIN_VALUE;
+		for (final ModuleCompilation compilation : version.allCompilations())
+		{
+			latest = Math.max(latest, compilation.compilationTime);
+		}
+		return latest;
+	}
+
+	@Override
+	protected boolean customVisibilityCheck (
+		final @NotNull AnActionEvent event,
+		final @Nullable AvailPsiFile psiFile)
+	{
+		return getAvailComponent(event).isBuilderReady();
+	}
+}
@@ -0,0 +1,358 @@
+/*
+ * InvalidateModules.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.build;
+import com.avail.builder.AvailBuilder;
+import com.avail.builder.ModuleName;
+import com.avail.builder.ModuleRoot;
+import com.avail.builder.ResolvedModuleName;
+import com.avail.builder.UnresolvedDependencyException;
+import com.avail.persistence.IndexedRepositoryManager;
+import com.avail.persistence.IndexedRepositoryManager.ModuleArchive;
+import com.avail.persistence.IndexedRepositoryManager.ModuleVersion;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task.Backgroundable;
+import com.intellij.openapi.util.text.StringUtil;
+import org.availlang.plugin.actions.AvailAction;
+import org.availlang.plugin.core.AvailComponent;
+import org.availlang.plugin.core.AvailTaskQueue.Priority;
+import org.availlang.plugin.core.ReverseDependencyIndex;
+import org.availlang.plugin.file.psi.AvailPsiFile;
+import org.availlang.plugin.stream.StreamStyle;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * An {@code InvalidateModules} is an {@link AvailAction} that removes the
+ * compiled versions of chosen modules — and, for a package, every module in
+ * it — from their roots' {@link IndexedRepositoryManager}s, along with those
+ * of every module that depends on them. Only those modules are recompiled by
+ * the next build, unlike after a {@linkplain ClearRepo whole repository
+ * clear}.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class InvalidateModules
+extends AvailAction
+{
+	/**
+	 * A {@code Result} summarizes what an invalidation removed.
+	 */
+	public static final class Result
+	{
+		/**
+		 * The number of modules whose compiled versions were removed.
+		 */
+		public final int modules;
+
+		/**
+		 * The number of compiled {@link ModuleVersion}s removed.
+		 */
+		public final int versions;
+
+		/**
+		 * The total source size, in bytes, of the removed versions.
+		 */
+		public final long sourceBytes;
+
+		/**
+		 * Construct a {@link Result}.
+		 *
+		 * @param modules
+		 *        The number of modules invalidated.
+		 * @param versions
+		 *        The number of versions removed.
+		 * @param sourceBytes
+		 *        The source size of the removed versions.
+		 */
+		Result (final int modules, final int versions, final long sourceBytes)
+		{
+			this.modules = modules;
+			this.versions = versions;
+			this.sourceBytes = sourceBytes;
+		}
+	}
+
+	/**
+	 * The {@link ResolvedModuleName} of the module the action invalidates.
+	 */
+	private @Nullable ResolvedModuleName name;
+
+	@Override
+	public void actionPerformed (final AnActionEvent event)
+	{
+		final ResolvedModuleName resolvedModuleName = this.name;
+		assert resolvedModuleName != null;
+		invalidate(
+			getAvailComponent(event),
+			Collections.singletonList(resolvedModuleName),
+			true,
+			result -> {});
+	}
+
+	/**
+	 * Remove the compiled versions of the given modules from their
+	 * repositories, in the {@link AvailComponent}'s task queue so that no
+	 * build runs meanwhile. A package stands for every module in it. Any of
+	 * the modules that are loaded are unloaded first. The result is written
+	 * to the console.
+	 *
+	 * @param component
+	 *        The {@code AvailComponent} whose repositories are changed.
+	 * @param names
+	 *        The {@link ResolvedModuleName}s of the modules and packages to
+	 *        invalidate.
+	 * @param includeDependents
+	 *        Whether to also invalidate every module that depends, directly
+	 *        or indirectly, on those modules.
+	 * @param done
+	 *        The {@link Consumer} to give the {@link Result} to once the
+	 *        invalidation has succeeded.
+	 */
+	public static void invalidate (
+		final @NotNull AvailComponent component,
+		final @NotNull Collection<ResolvedModuleName> names,
+		final boolean includeDependents,
+		final @NotNull Consumer<Result> done)
+	{
+		final String label = names.size() == 1
+			? "Invalidating " + names.iterator().next().qualifiedName()
+			: String.format("Invalidating %d modules", names.size());
+		final Result[] result = new Result[1];
+		component.taskQueue().submit(
+			null,
+			Priority.FOREGROUND,
+			new Backgroundable(component.getProject(), label, false)
+			{
+				@Override
+				public void run (final @NotNull ProgressIndicator indicator)
+				{
+					indicator.setIndeterminate(true);
+					result[0] = invalidateNow(
+						component, names, includeDependents, indicator);
+				}
+
+				@Override
+				public void onSuccess ()
+				{
+					final Result removed = result[0];
+					component.outputStream.writeText(
+						String.format(
+							"Invalidated %d modules: %d compiled versions "
+								+ "removed (%s of source)\n",
+							removed.modules,
+							removed.versions,
+							StringUtil.formatFileSize(removed.sourceBytes)),
+						StreamStyle.INFO);
+					done.accept(removed);
+				}
+			});
+	}
+
+	/**
+	 * Remove the compiled versions of the given modules from their
+	 * repositories. This must run in the {@link AvailComponent}'s task queue.
+	 *
+	 * @param component
+	 *        The {@code AvailComponent} whose repositories are changed.
+	 * @param names
+	 *        The {@link ResolvedModuleName}s of the modules and packages to
+	 *        invalidate.
+	 * @param includeDependents
+	 *        Whether to also invalidate their dependents.
+	 * @param indicator
+	 *        The {@link ProgressIndicator} to report to.
+	 * @return The {@link Result}.
+	 */
+	private static @NotNull Result invalidateNow (
+		final @NotNull AvailComponent component,
+		final @NotNull Collection<ResolvedModuleName> names,
+		final boolean includeDependents,
+		final @NotNull ProgressIndicator indicator)
+	{
+		final Map<String, ResolvedModuleName> modules = new LinkedHashMap<>();
+		for (final ResolvedModuleName name : names)
+		{
+			modules.put(name.qualifiedName(), name);
+			if (name.isPackage())
+			{
+				final ModuleRoot root =
+					component.moduleRoots().moduleRootFor(name.rootName());
+				if (root != null)
+				{
+					final String prefix = name.qualifiedName() + "/";
+					for (final ResolvedModuleName member :
+						component.moduleTree().allResolvedNames(root))
+					{
+						if (member.qualifiedName().startsWith(prefix))
+						{
+							modules.put(member.qualifiedName(), member);
+						}
+					}
+				}
+			}
+		}
+		if (includeDependents)
+		{
+			indicator.setText("Finding dependent modules");
+			final ReverseDependencyIndex index =
+				component.reverseDependencyIndex();
+			index.ensureBuilt();
+			for (final ResolvedModuleName name :
+				modules.values().toArray(new ResolvedModuleName[0]))
+			{
+				for (final String dependent : index.transitiveDependents(name))
+				{
+					if (!modules.containsKey(dependent))
+					{
+						try
+						{
+							modules.put(
+								dependent,
+								component.resolver().resolve(
+									new ModuleName(dependent), null));
+						}
+						catch (final UnresolvedDependencyException e)
+						{
+							// It no longer exists; nothing to invalidate.
+						}
+					}
+				}
+			}
+		}
+		final AvailBuilder builder = component.builder();
+		int versions = 0;
+		long sourceBytes = 0;
+		// Tally every module's versions before anything is cleaned, since
+		// cleaning a package also removes the archives of its members.
+		for (final ResolvedModuleName module : modules.values())
+		{
+			indicator.setText(module.qualifiedName());
+			if (component.isLoaded(module))
+			{
+				// Unloading also unloads everything that depends on it.
+				builder.unloadTarget(module);
+			}
+			final ModuleArchive archive =
+				module.repository().getArchive(module.rootRelativeName());
+			for (final ModuleVersion version :
+				archive.getAllKnownVersions().values())
+			{
+				versions++;
+				sourceBytes += version.getModuleSize();
+			}
+		}
+		final Set<String> packages = new LinkedHashSet<>();
+		for (final ResolvedModuleName module : modules.values())
+		{
+			if (module.isPackage())
+			{
+				packages.add(module.qualifiedName());
+			}
+		}
+		final Set<IndexedRepositoryManager> changed = new LinkedHashSet<>();
+		for (final ResolvedModuleName module : modules.values())
+		{
+			if (isCovered(module.qualifiedName(), packages))
+			{
+				// Cleaning its package removes it.
+				continue;
+			}
+			final IndexedRepositoryManager repository = module.repository();
+			repository.cleanModulesUnderPackage(module);
+			changed.add(repository);
+		}
+		changed.forEach(IndexedRepositoryManager::commit);
+		component.moduleStatusService().invalidateAll();
+		return new Result(modules.size(), versions, sourceBytes);
+	}
+
+	/**
+	 * Is the module with the given qualified name a member, directly or
+	 * indirectly, of one of the given packages?
+	 *
+	 * @param qualifiedName
+	 *        The module's qualified name.
+	 * @param packages
+	 *        The qualified names of the packages.
+	 * @return {@code true} if it is; {@code false} otherwise.
+	 */
+	static boolean isCovered (
+		final @NotNull String qualifiedName,
+		final @NotNull Set<String> packages)
+	{
+		for (
+			int slash = qualifiedName.lastIndexOf('/');
+			slash > 0;
+			slash = qualifiedName.lastIndexOf('/', slash - 1))
+		{
+			if (packages.contains(qualifiedName.substring(0, slash)))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	protected boolean customVisibilityCheck (
+		final @NotNull AnActionEvent event,
+		final @Nullable AvailPsiFile psiFile)
+	{
+		if (psiFile == null
+			|| !AvailComponent.getInstance(psiFile.getProject())
+				.isBuilderReady())
+		{
+			return false;
+		}
+		this.name = psiFile.resolvedModuleName();
+		return name != null;
+	}
+
+	@Override
+	protected @NotNull String customMenuItem (
+		final @Nullable AvailPsiFile psiFile)
+	{
+		assert psiFile != null;
+		return "Invalidate Compiled '"
+			+ psiFile.getVirtualFile().getNameWithoutExtension()
+			+ "' and Dependents";
+	}
+}
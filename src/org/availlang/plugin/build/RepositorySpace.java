@@ -0,0 +1,427 @@
+/*
+ * RepositorySpace.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.build;
+import com.avail.builder.ModuleRoot;
+import com.avail.builder.ResolvedModuleName;
+import com.avail.persistence.IndexedRepositoryManager;
+import com.avail.persistence.IndexedRepositoryManager.ModuleVersion;
+import com.avail.persistence.IndexedRepositoryManager.ModuleVersionKey;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@code RepositorySpace} accumulates how the space of the {@link
+ * IndexedRepositoryManager}s is used: the number and the source size of the
+ * compiled {@linkplain ModuleVersion versions} of each {@link ModuleRoot},
+ * package, and module, and of each version itself.
+ *
+ * <p>
+ * Modules are {@linkplain #addModule(String, boolean, Map, ModuleVersionKey)
+ * added} one at a time, and only the totals are kept, so the space of a
+ * repository of any size can be measured without holding its archives in
+ * memory.
+ * </p>
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class RepositorySpace
+{
+	/**
+	 * The kinds of {@link Entry}.
+	 */
+	public enum Kind
+	{
+		/** The whole repository of a {@link ModuleRoot}. */
+		ROOT("Root"),
+
+		/** A package, including every module in it. */
+		PACKAGE("Package"),
+
+		/** A single module. */
+		MODULE("Module"),
+
+		/** A single compiled version of a module. */
+		VERSION("Version");
+
+		/**
+		 * The text shown for the kind.
+		 */
+		public final @NotNull String label;
+
+		/**
+		 * Construct a {@link Kind}.
+		 *
+		 * @param label
+		 *        The text shown for the kind.
+		 */
+		Kind (final @NotNull String label)
+		{
+			this.label = label;
+		}
+	}
+
+	/**
+	 * An {@code Entry} is the space used by one root, package, module, or
+	 * version.
+	 */
+	public static class Entry
+	{
+		/**
+		 * The {@link Kind} of the entry.
+		 */
+		public final @NotNull Kind kind;
+
+		/**
+		 * The qualified name of the root, package, or module, or the
+		 * qualified name and number of the version.
+		 */
+		public final @NotNull String name;
+
+		/**
+		 * The size in bytes of the repository file, for a {@link Kind#ROOT
+		 * root}, or {@code null}.
+		 */
+		public final @Nullable Long fileBytes;
+
+		/**
+		 * The number of compiled versions.
+		 */
+		int versions = 0;
+
+		/**
+		 * The total source size of the compiled versions.
+		 */
+		long sourceBytes = 0;
+
+		/**
+		 * The total source size of the compiled versions that match the
+		 * current sources, which is what loading costs.
+		 */
+		long currentBytes = 0;
+
+		/**
+		 * Answer the number of compiled versions.
+		 *
+		 * @return The count.
+		 */
+		public int versions ()
+		{
+			return versions;
+		}
+
+		/**
+		 * Answer the total source size of the compiled versions.
+		 *
+		 * @return The size in bytes.
+		 */
+		public long sourceBytes ()
+		{
+			return sourceBytes;
+		}
+
+		/**
+		 * Answer the total source size of the compiled versions that match
+		 * the current sources.
+		 *
+		 * @return The size in bytes.
+		 */
+		public long currentBytes ()
+		{
+			return currentBytes;
+		}
+
+		/**
+		 * Add the totals of another {@code Entry} to this one.
+		 *
+		 * @param other
+		 *        The {@code Entry} to add.
+		 */
+		void add (final @NotNull Entry other)
+		{
+			versions += other.versions;
+			sourceBytes += other.sourceBytes;
+			currentBytes += other.currentBytes;
+		}
+
+		/**
+		 * Construct an {@link Entry}.
+		 *
+		 * @param kind
+		 *        The {@link Kind} of the entry.
+		 * @param name
+		 *        The name of the entry.
+		 * @param fileBytes
+		 *        The size of the repository file, or {@code null}.
+		 */
+		Entry (
+			final @NotNull Kind kind,
+			final @NotNull String name,
+			final @Nullable Long fileBytes)
+		{
+			this.kind = kind;
+			this.name = name;
+			this.fileBytes = fileBytes;
+		}
+	}
+
+	/**
+	 * The {@link Entry}s in the order they were added.
+	 */
+	private final @NotNull List<Entry> entries = new ArrayList<>();
+
+	/**
+	 * The {@link Entry}s of the roots and packages, by qualified name, which
+	 * accumulate the totals of everything within them.
+	 */
+	private final @NotNull Map<String, Entry> aggregates = new HashMap<>();
+
+	/**
+	 * Answer the {@link Entry}s in the order they were added.
+	 *
+	 * @return An unmodifiable {@link List}.
+	 */
+	public @NotNull List<Entry> entries ()
+	{
+		return Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * Answer the {@link Entry}s of the {@link Kind#ROOT roots}.
+	 *
+	 * @return A {@link List}.
+	 */
+	public @NotNull List<Entry> roots ()
+	{
+		final List<Entry> roots = new ArrayList<>();
+		for (final Entry entry : entries)
+		{
+			if (entry.kind == Kind.ROOT)
+			{
+				roots.add(entry);
+			}
+		}
+		return roots;
+	}
+
+	/**
+	 * Add a {@link ModuleRoot}, whose modules are then added.
+	 *
+	 * @param rootName
+	 *        The {@link ModuleRoot#name()}.
+	 * @param fileBytes
+	 *        The size in bytes of the root's repository file, or {@code
+	 *        null} if it is not known.
+	 */
+	public void addRoot (
+		final @NotNull String rootName,
+		final @Nullable Long fileBytes)
+	{
+		final Entry entry = new Entry(Kind.ROOT, "/" + rootName, fileBytes);
+		entries.add(entry);
+		aggregates.put(entry.name, entry);
+	}
+
+	/**
+	 * Add a module or package, with its compiled versions, to the totals of
+	 * itself, of every package that contains it, and of its root. Packages
+	 * must be added before the modules within them.
+	 *
+	 * @param name
+	 *        The {@link ResolvedModuleName} of the module.
+	 * @param versions
+	 *        The module's compiled {@link ModuleVersion}s, by {@link
+	 *        ModuleVersionKey}.
+	 * @param currentDigest
+	 *        The digest of the module's current source, or {@code null} if
+	 *        it could not be read.
+	 */
+	public void addModule (
+		final @NotNull ResolvedModuleName name,
+		final @NotNull Map<ModuleVersionKey, ModuleVersion> versions,
+		final @Nullable byte[] currentDigest)
+	{
+		addModule(
+			name.qualifiedName(),
+			name.isPackage(),
+			versions,
+			currentDigest == null
+				? null
+				: new ModuleVersionKey(name, currentDigest));
+	}
+
+	/**
+	 * Add a module or package, with its compiled versions, to the totals of
+	 * itself, of every package that contains it, and of its root. Packages
+	 * must be added before the modules within them. The module need not
+	 * exist any longer.
+	 *
+	 * @param qualifiedName
+	 *        The qualified name of the module or package.
+	 * @param isPackage
+	 *        Whether it is a package.
+	 * @param versions
+	 *        The module's compiled {@link ModuleVersion}s, by {@link
+	 *        ModuleVersionKey}.
+	 * @param currentKey
+	 *        The {@code ModuleVersionKey} of the module's current source, or
+	 *        {@code null} if it has none.
+	 */
+	public void addModule (
+		final @NotNull String qualifiedName,
+		final boolean isPackage,
+		final @NotNull Map<ModuleVersionKey, ModuleVersion> versions,
+		final @Nullable ModuleVersionKey currentKey)
+	{
+		final Entry module = addModule(qualifiedName, isPackage);
+		for (final Map.Entry<ModuleVersionKey, ModuleVersion> pair :
+			versions.entrySet())
+		{
+			addVersion(
+				module,
+				pair.getValue().getModuleSize(),
+				pair.getKey().equals(currentKey));
+		}
+	}
+
+	/**
+	 * Add a module or package without any compiled versions. Packages must
+	 * be added before the modules within them.
+	 *
+	 * @param qualifiedName
+	 *        The qualified name of the module or package.
+	 * @param isPackage
+	 *        Whether it is a package.
+	 * @return The module's {@link Entry}, to which to {@linkplain
+	 *         #addVersion(Entry, long, boolean) add} its versions.
+	 */
+	@NotNull Entry addModule (
+		final @NotNull String qualifiedName,
+		final boolean isPackage)
+	{
+		final Entry module = new Entry(
+			isPackage ? Kind.PACKAGE : Kind.MODULE,
+			qualifiedName,
+			null);
+		entries.add(module);
+		if (isPackage)
+		{
+			aggregates.put(qualifiedName, module);
+		}
+		return module;
+	}
+
+	/**
+	 * Add a compiled version of a module to the totals of the module, of
+	 * every package that contains it, and of its root.
+	 *
+	 * @param module
+	 *        The module's {@link Entry}.
+	 * @param sourceBytes
+	 *        The source size of the version.
+	 * @param isCurrent
+	 *        Whether the version matches the module's current source.
+	 */
+	void addVersion (
+		final @NotNull Entry module,
+		final long sourceBytes,
+		final boolean isCurrent)
+	{
+		final Entry version = new Entry(
+			Kind.VERSION, module.name + " #" + (module.versions + 1), null);
+		version.versions = 1;
+		version.sourceBytes = sourceBytes;
+		if (isCurrent)
+		{
+			version.currentBytes = sourceBytes;
+		}
+		entries.add(version);
+		module.add(version);
+		String path = module.name;
+		int slash;
+		while ((slash = path.lastIndexOf('/')) > 0)
+		{
+			path = path.substring(0, slash);
+			final Entry aggregate = aggregates.get(path);
+			if (aggregate != null)
+			{
+				aggregate.add(version);
+			}
+		}
+	}
+
+	/**
+	 * Quote a value for a CSV file.
+	 *
+	 * @param value
+	 *        The value.
+	 * @return The quoted value.
+	 */
+	private static @NotNull String csv (final @NotNull String value)
+	{
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+
+	/**
+	 * Write every {@link Entry} as comma-separated values, one per line,
+	 * after a line of column names.
+	 *
+	 * @param out
+	 *        The {@link Appendable} to write to.
+	 * @throws IOException
+	 *         If writing fails.
+	 */
+	public void writeCsv (final @NotNull Appendable out)
+		throws IOException
+	{
+		out.append("kind,name,versions,")
+			.append("source_bytes,current_bytes,file_bytes\n");
+		for (final Entry entry : entries)
+		{
+			out.append(csv(entry.kind.label)).append(',')
+				.append(csv(entry.name)).append(',')
+				.append(String.valueOf(entry.versions)).append(',')
+				.append(String.valueOf(entry.sourceBytes)).append(',')
+				.append(String.valueOf(entry.currentBytes)).append(',')
+				.append(entry.fileBytes == null
+					? ""
+					: String.valueOf(entry.fileBytes))
+				.append('\n');
+		}
+	}
+}
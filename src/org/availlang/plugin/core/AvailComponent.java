@@ -34,50 +34,60 @@ import com.avail.AvailRuntime;
 import com.avail.builder.*;
 import com.avail.builder.AvailBuilder.LoadedModule;
 import com.avail.descriptor.ModuleDescriptor;
-import com.avail.environment.nodes.AbstractBuilderFrameTreeNode;
-import com.avail.environment.nodes.ModuleOrPackageNode;
-import com.avail.environment.nodes.ModuleRootNode;
 import com.avail.persistence.IndexedRepositoryManager;
 import com.avail.persistence.IndexedRepositoryManager.ModuleArchive;
 import com.avail.persistence.IndexedRepositoryManager.ModuleVersion;
 import com.avail.persistence.IndexedRepositoryManager.ModuleVersionKey;
-import com.avail.utility.Mutable;
 import com.avail.utility.evaluation.Continuation0;
+import com.intellij.AppTopics;
 import com.intellij.execution.impl.ConsoleViewImpl;
+import com.intellij.ide.IdeEventQueue;
 import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.ApplicationComponent;
 import com.intellij.openapi.components.ProjectComponent;
-import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.IndexNotReadyException;
 import com.intellij.openapi.project.Project;
-import com.intellij.ui.treeStructure.Tree;
-import org.availlang.plugin.actions.events.DummyEvent;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
 import org.availlang.plugin.build.BuildModule;
+import org.availlang.plugin.build.BuildOnSave;
+import org.availlang.plugin.build.BuildProgress;
+import org.availlang.plugin.build.BuildProgress.ModuleProgress;
 import org.availlang.plugin.build.ClearRepo;
+import org.availlang.plugin.build.DropStaleModuleArchives;
 import org.availlang.plugin.configuration.AvailPluginConfiguration;
+import org.availlang.plugin.core.AvailTaskQueue.Priority;
+import org.availlang.plugin.core.utility.CompileTimeStore;
+import org.availlang.plugin.core.utility.CompileTimeStore.Timing;
+import org.availlang.plugin.core.utility.EntryPointIndex;
 import org.availlang.plugin.core.utility.ModuleEntryPoints;
+import org.availlang.plugin.core.utility.SourceDigestCache;
 import org.availlang.plugin.exceptions.AvailPluginException;
 import org.availlang.plugin.exceptions.ConfigurationException;
 import org.availlang.plugin.execution.EntryPointExecutor;
 import org.availlang.plugin.file.psi.AvailPsiFile;
+import org.availlang.plugin.index.AvailModuleHeader;
+import org.availlang.plugin.index.AvailModuleHeaderIndex;
 import org.availlang.plugin.stream.AvailPluginTextStream;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
-import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.DefaultTreeModel;
-import javax.swing.tree.TreeNode;
 import java.io.File;
-import java.io.IOException;
-import java.nio.file.FileVisitOption;
-import java.nio.file.FileVisitResult;
-import java.nio.file.FileVisitor;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 
 import static com.avail.utility.Nulls.stripNull;
 
@@ -91,6 +101,12 @@ import static com.avail.utility.Nulls.stripNull;
 public class AvailComponent
 implements ProjectComponent
 {
+	/**
+	 * The {@link Logger} used to record the phases of start up.
+	 */
+	private static final @NotNull Logger log =
+		Logger.getInstance(AvailComponent.class);
+
 	/**
 	 * The {@link Project} holding onto this {@link AvailComponent}.
 	 */
@@ -190,19 +206,20 @@ implements ProjectComponent
 	}
 
 	/**
-	 * Clear the provided {@link ModuleRoot}'s {@link IndexedRepositoryManager}.
+	 * Clear every registered {@link ModuleRoot}'s {@link
+	 * IndexedRepositoryManager}, {@linkplain ClearRepo#clearRepositories(Map,
+	 * AvailComponent, Continuation0) concurrently}.
 	 *
 	 * @param event
 	 *        The {@link AnActionEvent} that prompted this clearing.
 	 * @param onSuccess
-	 *        The {@link Continuation0} to run after clearing the repository.
+	 *        The {@link Continuation0} to run after clearing the repositories.
 	 */
 	public void clearAllRootRepositories (
 		final @NotNull AnActionEvent event,
 		final @NotNull Continuation0 onSuccess)
 	{
-		final Iterator<ModuleRoot> roots = moduleRootMap.values().iterator();
-		if (!roots.hasNext())
+		if (moduleRootMap.isEmpty())
 		{
 			AvailPluginException.dialog(
 				"There are no registered Avail roots, so there is nothing to "
@@ -210,7 +227,10 @@ implements ProjectComponent
 		}
 		else
 		{
-			clearNextRepository(roots, onSuccess);
+			final Map<ModuleRoot, File> roots = new LinkedHashMap<>();
+			moduleRootMap.forEach((name, root) -> roots.put(
+				root, new File(configuration.rootMap.get(name).repository)));
+			ClearRepo.clearRepositories(roots, this, onSuccess);
 		}
 	}
 
@@ -230,88 +250,182 @@ implements ProjectComponent
 		{
 			return;
 		}
-		buildAllRoots(
-			true,
-			sdkRootMap.values().iterator(),
-			new DummyEvent());
+		buildAllRoots(true, sdkRootMap.values());
 	}
 
+	/**
+	 * Load the top-level modules of all the provided {@link ModuleRoot}s in a
+	 * single build.
+	 *
+	 * @param startInBackground
+	 *        Indicates whether or not this build should be done in the
+	 *        background.
+	 * @param roots
+	 *        The {@link Collection} of {@code ModuleRoot}s to load.
+	 */
 	private void buildAllRoots (
 		final boolean startInBackground,
-		final @NotNull Iterator<ModuleRoot> roots,
-		final @NotNull AnActionEvent event)
+		final @NotNull Collection<ModuleRoot> roots)
 	{
-		if (!roots.hasNext())
-		{
-			return;
-		}
-		final ModuleRoot root = roots.next();
+		final List<ResolvedModuleName> targets = new ArrayList<>();
+		roots.forEach(root -> targets.addAll(topLevelResolvedNames(root)));
 		BuildModule.buildModules(
 			true,
 			startInBackground,
-			topLevelResolvedNames(root).iterator(),
-			ProgressManager.getInstance(),
+			Priority.BACKGROUND,
+			targets,
 			this,
-			() -> buildAllRoots(startInBackground, roots, event));
+			() -> {});
 	}
 
 	/**
-	 * Clear the {@link Iterator#next() next} {@link ModuleRoot} in the provided
-	 * {@link Iterator}. If the {@linkplain Iterator#hasNext() is empty}, run
-	 * the provided {@link Continuation0}.
+	 * The active {@link ModuleNameResolver}.
+	 */
+	private @Nullable ModuleNameResolver resolver;
+
+	/**
+	 * The active {@link AvailRuntime}.
+	 */
+	private volatile @Nullable AvailRuntime runtime;
+
+	/**
+	 * The active {@link AvailBuilder}.
+	 */
+	private volatile @Nullable AvailBuilder builder;
+
+	/**
+	 * The {@link CompletableFuture} that is completed with the {@link
+	 * #builder} once the {@link AvailRuntime} and {@code AvailBuilder} have
+	 * been created in the background.
+	 */
+	private final @NotNull CompletableFuture<AvailBuilder> builderFuture =
+		new CompletableFuture<>();
+
+	/**
+	 * The {@link Map} from {@link ResolvedModuleName} to the {@link
+	 * LoadedModule} for every module currently loaded by the {@link #builder}.
+	 * It is kept current by the builder's module load and unload events, so
+	 * lookups never have to copy or scan the builder's list of loaded modules.
+	 */
+	private final @NotNull Map<ResolvedModuleName, LoadedModule>
+		loadedModuleMap = new ConcurrentHashMap<>();
+
+	/**
+	 * The {@link Map} from the {@link ModuleRoot#name()} to the {@link
+	 * EntryPointIndex} of the root.
+	 */
+	private final @NotNull Map<String, EntryPointIndex> entryPointIndexMap =
+		new ConcurrentHashMap<>();
+
+	/**
+	 * The {@link Map} from the {@link ModuleRoot#name()} to the {@link
+	 * SourceDigestCache} of the root.
+	 */
+	private final @NotNull Map<String, SourceDigestCache> sourceDigestCacheMap =
+		new ConcurrentHashMap<>();
+
+	/**
+	 * The {@link Map} from the {@link ModuleRoot#name()} to the {@link
+	 * CompileTimeStore} of the root.
+	 */
+	private final @NotNull Map<String, CompileTimeStore> compileTimeStoreMap =
+		new ConcurrentHashMap<>();
+
+	/**
+	 * The {@link ModuleStatusService} that tracks whether each module is up
+	 * to date.
+	 */
+	private final @NotNull ModuleStatusService moduleStatusService;
+
+	/**
+	 * Answer the {@link ModuleStatusService}.
 	 *
-	 * @param roots
-	 *        An {@link Iterator} containing the roots to clear.
-	 * @param onSuccess
-	 *        The {@code Continuation0} to run after clearing the repository.
+	 * @return A {@code ModuleStatusService}.
 	 */
-	private void clearNextRepository (
-		final @NotNull Iterator<ModuleRoot> roots,
-		final @NotNull Continuation0 onSuccess)
+	public @NotNull ModuleStatusService moduleStatusService ()
 	{
-		ClearRepo.clearRepository(
-			roots.next(),
-			this,
-			() ->
-			{
-				if (roots.hasNext())
-				{
-					clearNextRepository(roots, onSuccess);
-				}
-				else
-				{
-					onSuccess.value();
-				}
-			});
+		return moduleStatusService;
 	}
 
 	/**
-	 * The active {@link ModuleNameResolver}.
+	 * The {@link AvailTaskQueue} that runs builds and repository maintenance
+	 * one at a time.
 	 */
-	private @Nullable ModuleNameResolver resolver;
+	private final @NotNull AvailTaskQueue taskQueue = new AvailTaskQueue(this);
 
 	/**
-	 * The active {@link AvailRuntime}.
+	 * Answer the {@link AvailTaskQueue} that runs builds and repository
+	 * maintenance one at a time.
+	 *
+	 * @return An {@code AvailTaskQueue}.
 	 */
-	private @Nullable AvailRuntime runtime;
+	public @NotNull AvailTaskQueue taskQueue ()
+	{
+		return taskQueue;
+	}
 
 	/**
-	 * The active {@link AvailBuilder}.
+	 * The {@link Runnable} registered with the {@link IdeEventQueue} to
+	 * {@linkplain DropStaleModuleArchives drop stale module archives} when
+	 * the IDE is idle.
+	 */
+	private final @NotNull Runnable dropStaleWhenIdle =
+		DropStaleModuleArchives.idleListener(this);
+
+	/**
+	 * The {@link BuildProgress} of the current or most recent build.
+	 */
+	private final @NotNull BuildProgress buildProgress =
+		new BuildProgress(this::moduleCompiled);
+
+	/**
+	 * Answer the {@link BuildProgress} of the current or most recent build.
+	 *
+	 * @return A {@code BuildProgress}.
 	 */
-	private @Nullable AvailBuilder builder;
+	public @NotNull BuildProgress buildProgress ()
+	{
+		return buildProgress;
+	}
 
 	/**
-	 * The {@link Map} from the {@link ModuleRoot#name()} to all of its {@link
-	 * ModuleEntryPoints}.
+	 * The {@link BuildOnSave} that rebuilds modules when they are saved.
 	 */
-	private @NotNull Map<String, List<ModuleEntryPoints>> rootEntryPointMap =
-		new HashMap<>();
+	private final @NotNull BuildOnSave buildOnSave;
 
 	/**
-	 * The {@linkplain ModuleDescriptor module} {@linkplain JTree tree}.
+	 * Answer the {@link BuildOnSave} that rebuilds modules when they are
+	 * saved.
+	 *
+	 * @return A {@code BuildOnSave}.
 	 */
-	private final Tree moduleTree = new Tree(
-		new DefaultMutableTreeNode("(packages hidden root)"));
+	public @NotNull BuildOnSave buildOnSave ()
+	{
+		return buildOnSave;
+	}
+
+	/**
+	 * The {@link ReverseDependencyIndex} of the compiled modules.
+	 */
+	private final @NotNull ReverseDependencyIndex reverseDependencyIndex =
+		new ReverseDependencyIndex(this);
+
+	/**
+	 * Answer the {@link ReverseDependencyIndex} of the compiled modules. It
+	 * is empty until {@link ReverseDependencyIndex#ensureBuilt()} is called.
+	 *
+	 * @return A {@code ReverseDependencyIndex}.
+	 */
+	public @NotNull ReverseDependencyIndex reverseDependencyIndex ()
+	{
+		return reverseDependencyIndex;
+	}
+
+	/**
+	 * The {@link AvailModuleTree} of all the {@link ModuleRoot}s.
+	 */
+	private final @NotNull AvailModuleTree moduleTree =
+		new AvailModuleTree(this::resolver, this::builder);
 
 	/**
 	 * Answer the {@link ModuleNameResolver}.
@@ -324,28 +438,113 @@ implements ProjectComponent
 	}
 
 	/**
-	 * Answer the {@link AvailBuilder}.
+	 * Answer the source directories of every configured {@link ModuleRoot}
+	 * that has one.
+	 *
+	 * @return The directories, empty if the roots have not been configured.
+	 */
+	public @NotNull List<File> sourceDirectories ()
+	{
+		final ModuleNameResolver currentResolver = resolver;
+		if (currentResolver == null)
+		{
+			return Collections.emptyList();
+		}
+		final List<File> directories = new ArrayList<>();
+		for (final ModuleRoot root : currentResolver.moduleRoots().roots())
+		{
+			final File sourceDirectory = root.sourceDirectory();
+			if (sourceDirectory != null)
+			{
+				directories.add(sourceDirectory);
+			}
+		}
+		return directories;
+	}
+
+	/**
+	 * Answer the {@link AvailBuilder}, waiting for it to be created if it is
+	 * not yet {@linkplain #isBuilderReady() ready}. Code that runs on the UI
+	 * thread should check {@link #isBuilderReady()} or use the {@link
+	 * #builderFuture()} instead of waiting.
 	 *
 	 * @return An {@code AvailBuilder}.
 	 */
 	public @NotNull AvailBuilder builder ()
 	{
-		return  stripNull(builder);
+		final AvailBuilder availBuilder = builder;
+		return availBuilder != null ? availBuilder : awaitBuilder();
+	}
+
+	/**
+	 * Answer the {@link CompletableFuture} that is completed with the {@link
+	 * AvailBuilder} once it has been created.
+	 *
+	 * @return A {@code CompletableFuture}.
+	 */
+	public @NotNull CompletableFuture<AvailBuilder> builderFuture ()
+	{
+		return builderFuture;
+	}
+
+	/**
+	 * Have the {@link AvailRuntime} and {@link AvailBuilder} been created?
+	 *
+	 * @return {@code true} if they have; {@code false} otherwise.
+	 */
+	public boolean isBuilderReady ()
+	{
+		return builder != null;
+	}
+
+	/**
+	 * Wait for the {@link #builderFuture} to complete.
+	 *
+	 * @return The {@link AvailBuilder}.
+	 */
+	private @NotNull AvailBuilder awaitBuilder ()
+	{
+		try
+		{
+			return builderFuture.get();
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new AvailPluginException(
+				"Interrupted while waiting for the Avail builder", e);
+		}
+		catch (final ExecutionException e)
+		{
+			throw new AvailPluginException(
+				"The Avail builder failed to start", e.getCause());
+		}
 	}
 
 	/**
-	 * Answer the {@link AvailRuntime}.
+	 * Answer the {@link AvailRuntime}, waiting for it to be created if it is
+	 * not yet {@linkplain #isBuilderReady() ready}.
 	 *
 	 * @return The {@code AvailRuntime}.
 	 */
 	public @NotNull AvailRuntime runtime ()
 	{
-		return  stripNull(runtime);
+		if (runtime == null)
+		{
+			awaitBuilder();
+		}
+		return stripNull(runtime);
 	}
 
 	/**
 	 * Answer the {@link List} of {@link ModuleEntryPoints} for the provided
-	 * {@link ModuleRoot#name()}.
+	 * {@link ModuleRoot#name()}, directly from the root's {@link
+	 * EntryPointIndex}, so nothing has to be built first and no source,
+	 * header, or repository is read. Until the index of a root with a source
+	 * directory has been {@linkplain #fillEntryPointIndexes() populated} for
+	 * the first time, the entry points are read from the {@code Entries}
+	 * sections of its modules' {@linkplain
+	 * #indexedEntryPoints(ResolvedModuleName) indexed headers} instead.
 	 *
 	 * @param rootName
 	 *        The name of the root to retrieve the list for.
@@ -354,13 +553,164 @@ implements ProjectComponent
 	public @NotNull List<ModuleEntryPoints> moduleEntryPoints (
 		final @NotNull String rootName)
 	{
-		return rootEntryPointMap.getOrDefault(
-			rootName, Collections.emptyList());
+		final ModuleRoot root = moduleRoots().moduleRootFor(rootName);
+		if (root == null)
+		{
+			return Collections.emptyList();
+		}
+		final EntryPointIndex index = entryPointIndexMap.get(rootName);
+		if (index != null
+			&& (index.isComplete() || root.sourceDirectory() == null))
+		{
+			return index.moduleEntryPoints(this::resolveQualifiedName);
+		}
+		final List<ModuleEntryPoints> moduleEntryPoints = new ArrayList<>();
+		if (root.sourceDirectory() != null)
+		{
+			final List<ResolvedModuleName> names =
+				moduleTree.allResolvedNames(root);
+			ApplicationManager.getApplication().runReadAction(() ->
+			{
+				for (final ResolvedModuleName name : names)
+				{
+					final List<String> entryPoints = indexedEntryPoints(name);
+					if (entryPoints != null && !entryPoints.isEmpty())
+					{
+						moduleEntryPoints.add(
+							new ModuleEntryPoints(entryPoints, name));
+					}
+				}
+			});
+			return moduleEntryPoints;
+		}
+		for (final LoadedModule loadedModule : loadedModuleMap.values())
+		{
+			if (loadedModule.name.rootName().equals(rootName)
+				&& !loadedModule.entryPoints().isEmpty())
+			{
+				moduleEntryPoints.add(new ModuleEntryPoints(
+					loadedModule.entryPoints(), loadedModule.name));
+			}
+		}
+		return moduleEntryPoints;
+	}
+
+	/**
+	 * Answer the {@link ResolvedModuleName} of the module with the given
+	 * qualified name.
+	 *
+	 * @param qualifiedName
+	 *        The {@linkplain ResolvedModuleName#qualifiedName() qualified
+	 *        module name}.
+	 * @return The resolved name, or {@code null} if the module no longer
+	 *         exists.
+	 */
+	private @Nullable ResolvedModuleName resolveQualifiedName (
+		final @NotNull String qualifiedName)
+	{
+		try
+		{
+			return resolver().resolve(new ModuleName(qualifiedName), null);
+		}
+		catch (final UnresolvedDependencyException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Answer the {@link AvailModuleHeader} of the named module from the
+	 * {@link AvailModuleHeaderIndex}, without compiling the module. This must
+	 * be called within a read action while the IDE is not indexing.
+	 *
+	 * @param resolvedModuleName
+	 *        The {@link ResolvedModuleName} of the module.
+	 * @return The header, or {@code null} if the module's source could not be
+	 *         found or has no header.
+	 */
+	public @Nullable AvailModuleHeader moduleHeader (
+		final @NotNull ResolvedModuleName resolvedModuleName)
+	{
+		final VirtualFile file = LocalFileSystem.getInstance().findFileByIoFile(
+			resolvedModuleName.sourceReference());
+		return file == null
+			? null
+			: AvailModuleHeaderIndex.header(project, file);
+	}
+
+	/**
+	 * Answer the {@link ResolvedModuleName}s of the modules that the named
+	 * module {@code Extends} or {@code Uses}, according to its {@linkplain
+	 * #moduleHeader(ResolvedModuleName) indexed header}. Imports that cannot
+	 * be resolved are omitted. This must be called within a read action while
+	 * the IDE is not indexing.
+	 *
+	 * @param resolvedModuleName
+	 *        The {@code ResolvedModuleName} of the module.
+	 * @return The imported modules, in header order.
+	 */
+	public @NotNull List<ResolvedModuleName> moduleImports (
+		final @NotNull ResolvedModuleName resolvedModuleName)
+	{
+		final AvailModuleHeader header = moduleHeader(resolvedModuleName);
+		if (header == null)
+		{
+			return Collections.emptyList();
+		}
+		final List<ResolvedModuleName> imports = new ArrayList<>();
+		for (final String importName : header.importedModuleNames())
+		{
+			try
+			{
+				imports.add(resolver().resolve(
+					resolvedModuleName.asSibling(importName),
+					resolvedModuleName));
+			}
+			catch (final UnresolvedDependencyException e)
+			{
+				// The import is broken; the compiler will report it.
+			}
+		}
+		return imports;
+	}
+
+	/**
+	 * Answer the entry points declared by the {@linkplain
+	 * #moduleHeader(ResolvedModuleName) indexed header} of the named module.
+	 * While the IDE is indexing, answer those of the module if it is loaded.
+	 * This must be called within a read action.
+	 *
+	 * @param resolvedModuleName
+	 *        The {@link ResolvedModuleName} of the module.
+	 * @return The entry point names, or {@code null} if the module has no
+	 *         indexed header and is not loaded.
+	 */
+	private @Nullable List<String> indexedEntryPoints (
+		final @NotNull ResolvedModuleName resolvedModuleName)
+	{
+		try
+		{
+			final AvailModuleHeader header = moduleHeader(resolvedModuleName);
+			if (header != null)
+			{
+				return header.entries;
+			}
+		}
+		catch (final IndexNotReadyException e)
+		{
+			// The IDE is indexing; fall back on what the builder knows.
+		}
+		final LoadedModule loadedModule =
+			loadedModuleMap.get(resolvedModuleName);
+		return loadedModule == null ? null : loadedModule.entryPoints();
 	}
 
 	/**
 	 * Answer the {@link List} of {@code String} entry points for the given
-	 * {@link ResolvedModuleName}.
+	 * {@link ResolvedModuleName}, from its root's {@link EntryPointIndex} if
+	 * they were indexed from the current source, otherwise from its
+	 * {@linkplain #indexedEntryPoints(ResolvedModuleName) indexed header} if
+	 * it has one, and otherwise from the module if it is loaded.
 	 *
 	 * @param resolvedModuleName
 	 *        The {@code ResolvedModuleName}.
@@ -369,32 +719,44 @@ implements ProjectComponent
 	public @NotNull List<String> entryPoints (
 		final @NotNull ResolvedModuleName resolvedModuleName)
 	{
-		final List<ModuleEntryPoints> mepList =
-			moduleEntryPoints(resolvedModuleName.rootName());
-		for (final ModuleEntryPoints mep : mepList)
+		final EntryPointIndex index =
+			entryPointIndexMap.get(resolvedModuleName.rootName());
+		if (index != null)
 		{
-			if (mep.resolvedModuleName().equals(resolvedModuleName))
+			final String qualifiedName = resolvedModuleName.qualifiedName();
+			final byte[] digest = index.digest(qualifiedName);
+			final ModuleRoot root =
+				moduleRoots().moduleRootFor(resolvedModuleName.rootName());
+			if (digest != null
+				&& (root == null
+					|| root.sourceDirectory() == null
+					|| Arrays.equals(
+						digest, cachedSourceDigest(resolvedModuleName))))
 			{
-				return mep.entryPoints();
+				return stripNull(index.entryPoints(qualifiedName));
 			}
 		}
-		return Collections.emptyList();
+		final List<String> entryPoints =
+			ApplicationManager.getApplication().runReadAction(
+				(Computable<List<String>>) () ->
+					indexedEntryPoints(resolvedModuleName));
+		return entryPoints == null ? Collections.emptyList() : entryPoints;
 	}
 
 	/**
-	 * Answer the available entry points.
+	 * Answer the entry points of every module of every {@link ModuleRoot},
+	 * whether or not it has been built.
 	 *
 	 * @return A {@code String} {@link List} of available entry points.
 	 */
 	public @NotNull List<String> availableEntryPoints ()
 	{
 		final List<String> entryPoints = new ArrayList<>();
-		for (final LoadedModule loadedModule : builder().loadedModulesCopy())
+		for (final ModuleRoot root : moduleRoots().roots())
 		{
-			if (!loadedModule.entryPoints().isEmpty())
-			{
-				entryPoints.addAll(loadedModule.entryPoints());
-			}
+			moduleEntryPoints(root.name()).forEach(
+				moduleEntryPoint ->
+					entryPoints.addAll(moduleEntryPoint.entryPoints()));
 		}
 		return entryPoints;
 	}
@@ -407,7 +769,20 @@ implements ProjectComponent
 	@SuppressWarnings("WeakerAccess")
 	public @NotNull List<LoadedModule> loadedModules ()
 	{
-		return builder().loadedModulesCopy();
+		return new ArrayList<>(loadedModuleMap.values());
+	}
+
+	/**
+	 * Determine if the {@link ResolvedModuleName named} module has been loaded.
+	 *
+	 * @param resolvedModuleName
+	 *        The {@code ResolvedModuleName} of the module to check.
+	 * @return {@code true} if it has; {@code false} otherwise.
+	 */
+	public boolean isLoaded (
+		final @NotNull ResolvedModuleName resolvedModuleName)
+	{
+		return loadedModuleMap.containsKey(resolvedModuleName);
 	}
 
 	/**
@@ -417,29 +792,99 @@ implements ProjectComponent
 	 */
 	public boolean isLoaded (final @NotNull AvailPsiFile psiFile)
 	{
-		for (final LoadedModule loadedModule : loadedModules())
+		final ResolvedModuleName name = psiFile.resolvedModuleName();
+		return name != null && loadedModuleMap.containsKey(name);
+	}
+
+	/**
+	 * Answer the {@link LoadedModule} for the provided {@link AvailPsiFile}.
+	 *
+	 * @param psiFile
+	 *        The {@code AvailPsiFile} to look up.
+	 * @return A {@code LoadedModule}, or {@code null} if the module is not
+	 *         loaded.
+	 */
+	public @Nullable LoadedModule loadedModule (
+		final @NotNull AvailPsiFile psiFile)
+	{
+		final ResolvedModuleName name = psiFile.resolvedModuleName();
+		return name == null ? null : loadedModuleMap.get(name);
+	}
+
+	/**
+	 * Record a module load or unload reported by the {@link #builder} in the
+	 * {@link #loadedModuleMap}.
+	 *
+	 * @param loadedModule
+	 *        The {@link LoadedModule} that was loaded or unloaded.
+	 * @param isLoaded
+	 *        {@code true} if the module was just loaded; {@code false} if it
+	 *        was just unloaded.
+	 */
+	private void moduleLoadingChanged (
+		final @NotNull LoadedModule loadedModule,
+		final boolean isLoaded)
+	{
+		if (isLoaded)
 		{
-			if (loadedModule.name.equals(psiFile.resolvedModuleName()))
+			loadedModuleMap.put(loadedModule.name, loadedModule);
+			final EntryPointIndex index =
+				entryPointIndexMap.get(loadedModule.name.rootName());
+			if (index != null)
 			{
-				return true;
+				index.put(
+					loadedModule.name.qualifiedName(),
+					loadedModule.sourceDigest,
+					loadedModule.entryPoints());
 			}
+			reverseDependencyIndex.moduleLoaded(loadedModule);
 		}
-		return false;
+		else
+		{
+			loadedModuleMap.remove(loadedModule.name, loadedModule);
+		}
+		moduleStatusService.loadingChanged(loadedModule.name, isLoaded);
 	}
 
 	/**
-	 * Calculate available entry points.
+	 * The {@link Map} from the {@link ModuleRoot#name()} to the {@link File}
+	 * of the root's {@link IndexedRepositoryManager}.
+	 */
+	private final @NotNull Map<String, File> repositoryFileMap =
+		new ConcurrentHashMap<>();
+
+	/**
+	 * Answer the {@link File} that keeps the {@link IndexedRepositoryManager}
+	 * of the named {@link ModuleRoot}.
 	 *
-	 * @return A {@code String} {@link List} of available entry points.
+	 * @param rootName
+	 *        The {@link ModuleRoot#name()}.
+	 * @return The {@code File}, or {@code null} if no such root is
+	 *         configured.
 	 */
-	public @Nullable LoadedModule loadedModule (
-		final @NotNull AvailPsiFile psiFile)
+	public @Nullable File repositoryFile (final @NotNull String rootName)
 	{
-		for (final LoadedModule loadedModule : loadedModules())
+		return repositoryFileMap.get(rootName);
+	}
+
+	/**
+	 * Answer the {@link ModuleRoot} whose {@link IndexedRepositoryManager} is
+	 * kept in the given file.
+	 *
+	 * @param file
+	 *        The repository {@link File}.
+	 * @return The {@code ModuleRoot}, or {@code null} if no configured root
+	 *         uses that file.
+	 */
+	public @Nullable ModuleRoot moduleRootForRepository (
+		final @NotNull File file)
+	{
+		final File absolute = file.getAbsoluteFile();
+		for (final Map.Entry<String, File> entry : repositoryFileMap.entrySet())
 		{
-			if (loadedModule.name.equals(psiFile.resolvedModuleName()))
+			if (entry.getValue().getAbsoluteFile().equals(absolute))
 			{
-				return loadedModule;
+				return moduleRoots().moduleRootFor(entry.getKey());
 			}
 		}
 		return null;
@@ -466,27 +911,17 @@ implements ProjectComponent
 	public @NotNull List<ResolvedModuleName> topLevelResolvedNames (
 		final @NotNull ModuleRoot moduleRoot)
 	{
-		final List<ResolvedModuleName> names = new ArrayList<>();
-		final File sourceDirectory = stripNull(moduleRoot.sourceDirectory());
-		for (final File fileEntry : stripNull(sourceDirectory.listFiles())) {
-			final String fullyQualifiedName = String.format(
-				"/%s/%s",
-				moduleRoot.name(),
-				fileEntry.getAbsolutePath()
-					.substring(sourceDirectory.getAbsolutePath().length() + 1)
-					.replace(".avail", ""));
-			final ModuleName moduleName =
-				new ModuleName(fullyQualifiedName);
-			try
-			{
-				names.add(resolver().resolve(moduleName, null));
-			}
-			catch (final UnresolvedDependencyException e)
-			{
-				// Nothing.
-			}
-		}
-		return names;
+		return moduleTree.topLevelResolvedNames(moduleRoot);
+	}
+
+	/**
+	 * Answer the {@link AvailModuleTree} of all the {@link ModuleRoot}s.
+	 *
+	 * @return An {@code AvailModuleTree}.
+	 */
+	public @NotNull AvailModuleTree moduleTree ()
+	{
+		return moduleTree;
 	}
 
 	/**
@@ -494,286 +929,525 @@ implements ProjectComponent
 	 */
 	public void refresh ()
 	{
-		resolver().clearCache();
-		final TreeNode modules = newModuleTree();
-		moduleTree.setModel(new DefaultTreeModel(modules));
-		refreshModuleEntryPoints();
+		moduleTree.rebuild();
 	}
 
 	/**
-	 * Answer a {@linkplain TreeNode tree node} that represents the (invisible)
-	 * root of the Avail module tree.
+	 * Get the {@linkplain ModuleVersion module version} for the {@linkplain
+	 * ResolvedModuleName named} {@linkplain ModuleDescriptor module}.
 	 *
-	 * @return The (invisible) root of the module tree.
+	 * @param moduleName
+	 *        A resolved module name.
+	 * @return A module version, or {@code null} if no version was
+	 *         available.
 	 */
-	private @NotNull TreeNode newModuleTree ()
+	private @Nullable ModuleVersion getModuleVersion (
+		final ResolvedModuleName moduleName)
 	{
-		final ModuleRoots roots = resolver().moduleRoots();
-		final DefaultMutableTreeNode treeRoot = new DefaultMutableTreeNode(
-			"(packages hidden root)");
-		// Put the invisible root onto the work stack.
-		final Deque<DefaultMutableTreeNode> stack = new ArrayDeque<>();
-		stack.add(treeRoot);
-		for (final ModuleRoot root : roots.roots())
+		return getModuleVersion(moduleName, sourceDigest(moduleName));
+	}
+
+	/**
+	 * Get the {@linkplain ModuleVersion module version} for the {@linkplain
+	 * ResolvedModuleName named} {@linkplain ModuleDescriptor module} whose
+	 * source has the given digest.
+	 *
+	 * @param moduleName
+	 *        A resolved module name.
+	 * @param digest
+	 *        The digest of the module's source, or {@code null} if it is
+	 *        unknown.
+	 * @return A module version, or {@code null} if no version was
+	 *         available.
+	 */
+	private @Nullable ModuleVersion getModuleVersion (
+		final ResolvedModuleName moduleName,
+		final @Nullable byte[] digest)
+	{
+		final IndexedRepositoryManager repository =
+			moduleName.repository();
+		final ModuleArchive archive = repository.getArchive(
+			moduleName.rootRelativeName());
+		if (digest == null)
 		{
-			// Obtain the path associated with the module root.
-			root.repository().reopenIfNecessary();
-			final File rootDirectory = stripNull(root.sourceDirectory());
-			try
-			{
-				Files.walkFileTree(
-					Paths.get(rootDirectory.getAbsolutePath()),
-					EnumSet.of(FileVisitOption.FOLLOW_LINKS),
-					Integer.MAX_VALUE,
-					moduleTreeVisitor(stack, root));
-			}
-			catch (final IOException e)
+			return null;
+		}
+		final ModuleVersionKey versionKey =
+			new ModuleVersionKey(moduleName, digest);
+		return archive.getVersion(versionKey);
+	}
+
+	/**
+	 * Answer the digest of the named module's source, from its root's {@link
+	 * SourceDigestCache} if the source has not changed since it was last
+	 * hashed.
+	 *
+	 * @param moduleName
+	 *        The {@link ResolvedModuleName} of the module.
+	 * @return The digest, or {@code null} if the source could not be read.
+	 */
+	public @Nullable byte[] sourceDigest (
+		final @NotNull ResolvedModuleName moduleName)
+	{
+		final SourceDigestCache cache =
+			sourceDigestCacheMap.get(moduleName.rootName());
+		if (cache == null)
+		{
+			return moduleName.repository()
+				.getArchive(moduleName.rootRelativeName())
+				.digestForFile(moduleName);
+		}
+		return cache.digest(moduleName.sourceReference());
+	}
+
+	/**
+	 * Answer the digest of the named module's source if its root's {@link
+	 * SourceDigestCache} already holds a current one, without hashing
+	 * anything.
+	 *
+	 * @param moduleName
+	 *        The {@link ResolvedModuleName} of the module.
+	 * @return The digest, or {@code null} if it is unknown or stale.
+	 */
+	public @Nullable byte[] cachedSourceDigest (
+		final @NotNull ResolvedModuleName moduleName)
+	{
+		final SourceDigestCache cache =
+			sourceDigestCacheMap.get(moduleName.rootName());
+		return cache == null
+			? null
+			: cache.cachedDigest(moduleName.sourceReference());
+	}
+
+	/**
+	 * Record the compile time of a module that has just been compiled in its
+	 * root's {@link CompileTimeStore}.
+	 *
+	 * @param progress
+	 *        The {@link ModuleProgress} of the module.
+	 */
+	private void moduleCompiled (final @NotNull ModuleProgress progress)
+	{
+		final ResolvedModuleName name;
+		try
+		{
+			name = progress.moduleName instanceof ResolvedModuleName
+				? (ResolvedModuleName) progress.moduleName
+				: resolver().resolve(progress.moduleName, null);
+		}
+		catch (final UnresolvedDependencyException e)
+		{
+			return;
+		}
+		final CompileTimeStore store =
+			compileTimeStoreMap.get(name.rootName());
+		final byte[] digest = sourceDigest(name);
+		if (store != null && digest != null)
+		{
+			store.record(
+				name.qualifiedName(),
+				digest,
+				progress.size,
+				progress.elapsedMillis());
+			moduleStatusService.compiled(name);
+		}
+	}
+
+	/**
+	 * Answer the {@link Timing} of the most recent compilation of the named
+	 * module.
+	 *
+	 * @param moduleName
+	 *        The {@link ResolvedModuleName} of the module.
+	 * @return The {@code Timing}, or {@code null} if the module has not been
+	 *         timed.
+	 */
+	public @Nullable Timing lastCompileTiming (
+		final @NotNull ResolvedModuleName moduleName)
+	{
+		final CompileTimeStore store =
+			compileTimeStoreMap.get(moduleName.rootName());
+		return store == null
+			? null
+			: store.lastTiming(moduleName.qualifiedName());
+	}
+
+	/**
+	 * Answer the predicted time, in milliseconds, to compile the named module
+	 * from its current source. This is the recorded time for the same source
+	 * if there is one; otherwise the last recorded time scaled by the change
+	 * in size; otherwise an estimate from its size and the root's average
+	 * compile rate.
+	 *
+	 * @param moduleName
+	 *        The {@link ResolvedModuleName} of the module.
+	 * @return The prediction, or {@code 0} if nothing is known.
+	 */
+	public long predictedCompileMillis (
+		final @NotNull ResolvedModuleName moduleName)
+	{
+		return predictedCompileMillis(moduleName, sourceDigest(moduleName));
+	}
+
+	/**
+	 * Answer the predicted time, in milliseconds, to compile the named module
+	 * from the source with the given digest.
+	 *
+	 * @param moduleName
+	 *        The {@link ResolvedModuleName} of the module.
+	 * @param digest
+	 *        The digest of the module's source, or {@code null} if it is
+	 *        unknown.
+	 * @return The prediction, or {@code 0} if nothing is known.
+	 * @see #predictedCompileMillis(ResolvedModuleName)
+	 */
+	public long predictedCompileMillis (
+		final @NotNull ResolvedModuleName moduleName,
+		final @Nullable byte[] digest)
+	{
+		final CompileTimeStore store =
+			compileTimeStoreMap.get(moduleName.rootName());
+		if (store == null)
+		{
+			return 0;
+		}
+		final String key = moduleName.qualifiedName();
+		if (digest != null)
+		{
+			final Long exact = store.compileTime(key, digest);
+			if (exact != null)
 			{
-				e.printStackTrace();
-				stack.clear();
-				stack.add(treeRoot);
+				return exact;
 			}
 		}
-		@SuppressWarnings("unchecked")
-		final Enumeration<AbstractBuilderFrameTreeNode> enumeration =
-			treeRoot.preorderEnumeration();
-		// Skip the invisible root.
-		enumeration.nextElement();
-		while (enumeration.hasMoreElements())
+		final long size = moduleName.sourceReference().length();
+		final Timing timing = store.lastTiming(key);
+		if (timing != null && timing.size > 0)
 		{
-			enumeration.nextElement().sortChildren();
+			return timing.millis * size / timing.size;
 		}
-		return treeRoot;
+		return (long) (size * store.millisPerByte());
 	}
 
 	/**
-	 * Refresh the {@link #rootEntryPointMap}.
+	 * Write every changed {@link EntryPointIndex} to disk.
 	 */
-	private void refreshModuleEntryPoints ()
+	public void saveEntryPointIndexes ()
 	{
-		rootEntryPointMap.clear();
-		builder().traceDirectories(
-			(resolvedName, moduleVersion) ->
-			{
-				assert resolvedName != null;
-				assert moduleVersion != null;
+		entryPointIndexMap.values().forEach(EntryPointIndex::save);
+	}
 
-				final List<String> entryPoints =
-					moduleVersion.getEntryPoints();
-				if (!entryPoints.isEmpty())
-				{
-					rootEntryPointMap.computeIfAbsent(
-							resolvedName.rootName(),
-							k -> new ArrayList<>())
-						.add(new ModuleEntryPoints(entryPoints, resolvedName));
-				}
-			});
+	/**
+	 * Bring the {@link EntryPointIndex} entry of each named module up to
+	 * date with its source, forgetting the modules that no longer exist.
+	 * This reads headers, so it must not run on the event dispatch thread.
+	 *
+	 * @param qualifiedNames
+	 *        The {@linkplain ResolvedModuleName#qualifiedName() qualified
+	 *        names} of the modules whose sources changed.
+	 */
+	private void refreshEntryPoints (
+		final @NotNull Collection<String> qualifiedNames)
+	{
+		for (final String qualifiedName : qualifiedNames)
+		{
+			final int slash = qualifiedName.indexOf('/', 1);
+			final EntryPointIndex index = entryPointIndexMap.get(
+				slash < 0
+					? qualifiedName.substring(1)
+					: qualifiedName.substring(1, slash));
+			if (index == null || project.isDisposed())
+			{
+				continue;
+			}
+			final ResolvedModuleName name =
+				resolveQualifiedName(qualifiedName);
+			if (name == null)
+			{
+				index.remove(qualifiedName);
+			}
+			else
+			{
+				indexEntryPoints(name, index);
+			}
+		}
 	}
 
 	/**
-	 * Answer a {@link FileVisitor} suitable for recursively exploring an
-	 * Avail root. A new {@code FileVisitor} should be obtained for each Avail
-	 * root.
+	 * Record the entry points declared by the {@linkplain
+	 * #moduleHeader(ResolvedModuleName) indexed header} of the named module
+	 * in the given {@link EntryPointIndex}, unless they were already indexed
+	 * from the current source. This waits for the IDE to finish indexing, so
+	 * it must not run on the event dispatch thread.
 	 *
-	 * @param stack
-	 *        The stack on which to place Avail rootDirs and packages.
-	 * @param moduleRoot
-	 *        The {@link ModuleRoot} within which to scan recursively.
-	 * @return A {@code FileVisitor}.
+	 * @param name
+	 *        The {@link ResolvedModuleName} of the module.
+	 * @param index
+	 *        The {@code EntryPointIndex} of the module's root.
+	 */
+	private void indexEntryPoints (
+		final @NotNull ResolvedModuleName name,
+		final @NotNull EntryPointIndex index)
+	{
+		final String qualifiedName = name.qualifiedName();
+		final byte[] digest = sourceDigest(name);
+		if (digest == null)
+		{
+			index.remove(qualifiedName);
+			return;
+		}
+		if (Arrays.equals(digest, index.digest(qualifiedName)))
+		{
+			return;
+		}
+		final AvailModuleHeader header = DumbService.getInstance(project)
+			.runReadActionInSmartMode(
+				(Computable<AvailModuleHeader>) () -> moduleHeader(name));
+		index.put(
+			qualifiedName,
+			digest,
+			header == null ? Collections.emptyList() : header.entries);
+	}
+
+	/**
+	 * Bring the {@link EntryPointIndex} of every {@link ModuleRoot} with a
+	 * source directory up to date with its sources, and then save the
+	 * indexes. Only modules whose {@linkplain SourceDigestCache digests} no
+	 * longer match their entries have their headers read. This runs in the
+	 * background after the {@linkplain #fillSourceDigests() source digests
+	 * are filled}. A root without sources is indexed as its modules are
+	 * loaded, since only the builder can read its entry points.
 	 */
-	private FileVisitor<Path> moduleTreeVisitor (
-		final Deque<DefaultMutableTreeNode> stack,
-		final ModuleRoot moduleRoot)
+	private void fillEntryPointIndexes ()
 	{
-		final String extension = ModuleNameResolver.availExtension;
-		final Mutable<Boolean> isRoot = new Mutable<>(true);
-		return new FileVisitor<Path>()
+		final long start = System.nanoTime();
+		int indexed = 0;
+		for (final ModuleRoot root : moduleRoots().roots())
 		{
-			@Override
-			public FileVisitResult preVisitDirectory (
-				final @Nullable Path dir,
-				final @Nullable BasicFileAttributes unused)
+			final EntryPointIndex index = entryPointIndexMap.get(root.name());
+			if (index == null || root.sourceDirectory() == null)
 			{
-				assert dir != null;
-				final DefaultMutableTreeNode parentNode = stack.peekFirst();
-				if (isRoot.value)
+				continue;
+			}
+			final Set<String> present = new HashSet<>();
+			for (final ResolvedModuleName name :
+				moduleTree.allResolvedNames(root))
+			{
+				if (project.isDisposed())
 				{
-					// Add a ModuleRoot.
-					isRoot.value = false;
-					assert stack.size() == 1;
-					final ModuleRootNode node =
-						new ModuleRootNode(builder(), moduleRoot);
-					parentNode.add(node);
-					stack.addFirst(node);
-					return FileVisitResult.CONTINUE;
+					return;
 				}
-				final String fileName = dir.getFileName().toString();
-				if (fileName.endsWith(extension))
+				present.add(name.qualifiedName());
+				indexEntryPoints(name, index);
+				indexed++;
+			}
+			for (final String qualifiedName : index.qualifiedNames())
+			{
+				if (!present.contains(qualifiedName))
 				{
-					final String localName = fileName.substring(
-						0, fileName.length() - extension.length());
-					final ModuleName moduleName;
-					if (parentNode instanceof ModuleRootNode)
-					{
-						// Add a top-level package.
-						final ModuleRootNode strongParentNode =
-							(ModuleRootNode) parentNode;
-						final ModuleRoot thisRoot =
-							strongParentNode.moduleRoot();
-						assert thisRoot == moduleRoot;
-						moduleName = new ModuleName(
-							"/" + moduleRoot.name() + "/" + localName);
-					}
-					else
-					{
-						// Add a non-top-level package.
-						assert parentNode instanceof ModuleOrPackageNode;
-						final ModuleOrPackageNode strongParentNode =
-							(ModuleOrPackageNode) parentNode;
-						assert strongParentNode.isPackage();
-						final ResolvedModuleName parentModuleName =
-							strongParentNode.resolvedModuleName();
-						// The (resolved) parent is a package representative
-						// module, so use its parent, the package itself.
-						moduleName = new ModuleName(
-							parentModuleName.packageName(), localName);
-					}
-					final ResolvedModuleName resolved;
-					try
-					{
-						resolved = resolver().resolve(moduleName, null);
-					}
-					catch (final UnresolvedDependencyException e)
-					{
-						// The directory didn't contain the necessary package
-						// representative, so simply skip the whole directory.
-						return FileVisitResult.SKIP_SUBTREE;
-					}
-					final ModuleOrPackageNode node = new ModuleOrPackageNode(
-						builder(), moduleName, resolved, true);
-					parentNode.add(node);
-					if (resolved.isRename())
-					{
-						// Don't examine modules inside a package which is the
-						// source of a rename.  They wouldn't have resolvable
-						// dependencies anyhow.
-						return FileVisitResult.SKIP_SUBTREE;
-					}
-					stack.addFirst(node);
-					return FileVisitResult.CONTINUE;
+					index.remove(qualifiedName);
 				}
-				return FileVisitResult.SKIP_SUBTREE;
 			}
+			index.markComplete();
+		}
+		saveEntryPointIndexes();
+		log.info(String.format(
+			"Avail entry point indexes filled: %d modules checked (%d ms)",
+			indexed,
+			(System.nanoTime() - start) / 1_000_000L));
+	}
 
-			@Override
-			public FileVisitResult postVisitDirectory (
-				final @Nullable Path dir,
-				final @Nullable IOException ex)
+	/**
+	 * Save every {@link CompileTimeStore} that has changed.
+	 */
+	public void saveCompileTimes ()
+	{
+		compileTimeStoreMap.values().forEach(CompileTimeStore::save);
+	}
+
+	/**
+	 * Does the repository hold a compiled version of the named module that
+	 * matches its current source?
+	 *
+	 * @param moduleName
+	 *        The {@link ResolvedModuleName} of the module.
+	 * @return {@code true} if it does; {@code false} otherwise.
+	 */
+	public boolean isUpToDate (final @NotNull ResolvedModuleName moduleName)
+	{
+		return getModuleVersion(moduleName) != null;
+	}
+
+	/**
+	 * Does the repository hold a compiled version of the named module whose
+	 * source has the given digest?
+	 *
+	 * @param moduleName
+	 *        The {@link ResolvedModuleName} of the module.
+	 * @param digest
+	 *        The digest of the module's source, or {@code null} if it is
+	 *        unknown.
+	 * @return {@code true} if it does; {@code false} otherwise.
+	 */
+	public boolean isUpToDate (
+		final @NotNull ResolvedModuleName moduleName,
+		final @Nullable byte[] digest)
+	{
+		return getModuleVersion(moduleName, digest) != null;
+	}
+
+	/**
+	 * Forget the {@linkplain SourceDigestCache cached digests} of Avail source
+	 * files affected by the given VFS events, and the {@linkplain
+	 * ModuleStatusService module statuses} that depend on them, and refresh
+	 * their {@linkplain EntryPointIndex indexed entry points} in the
+	 * background.
+	 *
+	 * @param events
+	 *        The {@link VFileEvent}s.
+	 */
+	private void invalidateSourceDigests (
+		final @NotNull List<? extends VFileEvent> events)
+	{
+		final Set<String> changed = new HashSet<>();
+		for (final VFileEvent event : events)
+		{
+			final List<String> paths = new ArrayList<>(2);
+			paths.add(event.getPath());
+			if (event instanceof VFileMoveEvent)
 			{
-				assert dir != null;
-				// Pop the node from the stack.
-				stack.removeFirst();
-				return FileVisitResult.CONTINUE;
+				paths.add(((VFileMoveEvent) event).getOldPath());
 			}
-
-			@Override
-			public FileVisitResult visitFile (
-				final @Nullable Path file,
-				final @Nullable BasicFileAttributes attrs)
-			throws IOException
+			else if (event instanceof VFilePropertyChangeEvent)
 			{
-				assert file != null;
-				final DefaultMutableTreeNode parentNode = stack.peekFirst();
-				if (isRoot.value)
-				{
-					throw new IOException("Avail root should be a directory");
-				}
-				final String fileName = file.getFileName().toString();
-				if (fileName.endsWith(extension))
+				paths.add(((VFilePropertyChangeEvent) event).getOldPath());
+			}
+			for (final String path : paths)
+			{
+				if (path.endsWith(".avail"))
 				{
-					final String localName = fileName.substring(
-						0, fileName.length() - extension.length());
-					final ModuleName moduleName;
-					if (parentNode instanceof ModuleRootNode)
-					{
-						// Add a top-level module (directly in a root).
-						final ModuleRootNode strongParentNode =
-							(ModuleRootNode) parentNode;
-						final ModuleRoot thisRoot =
-							strongParentNode.moduleRoot();
-						assert thisRoot == moduleRoot;
-						moduleName = new ModuleName(
-							"/" + moduleRoot.name() + "/" + localName);
-					}
-					else
-					{
-						// Add a non-top-level module.
-						assert parentNode instanceof ModuleOrPackageNode;
-						final ModuleOrPackageNode strongParentNode =
-							(ModuleOrPackageNode) parentNode;
-						assert strongParentNode.isPackage();
-						final ResolvedModuleName parentModuleName =
-							strongParentNode.resolvedModuleName();
-						moduleName = new ModuleName(
-							parentModuleName.packageName(), localName);
-					}
-					try
-					{
-						final ResolvedModuleName resolved =
-							resolver().resolve(moduleName, null);
-						final ModuleOrPackageNode node =
-							new ModuleOrPackageNode(
-								builder(), moduleName, resolved, false);
-						if (resolved.isRename() || !resolved.isPackage())
-						{
-							parentNode.add(node);
-						}
-					}
-					catch (final UnresolvedDependencyException e)
+					sourceDigestCacheMap.values().forEach(
+						cache -> cache.invalidate(path));
+					final String qualifiedName = qualifiedNameForPath(path);
+					if (qualifiedName != null)
 					{
-						// TODO MvG - Find a better way of reporting broken
-						// dependencies. Ignore for now (during directory scan).
-						throw new RuntimeException(e);
+						changed.add(qualifiedName);
+						moduleStatusService.sourceChanged(
+							qualifiedName, resolvedModuleNameForPath(path));
 					}
 				}
-				return FileVisitResult.CONTINUE;
 			}
+		}
+		if (!changed.isEmpty())
+		{
+			ApplicationManager.getApplication().executeOnPooledThread(
+				() -> refreshEntryPoints(changed));
+		}
+	}
 
-			@Override
-			public FileVisitResult visitFileFailed (
-				final @Nullable Path file,
-				final @Nullable IOException ex)
+	/**
+	 * Answer the fully qualified module name that the given path denotes,
+	 * according to the source directory of the {@link ModuleRoot} that
+	 * contains it. The module need not exist.
+	 *
+	 * @param path
+	 *        The path of an Avail source file or package directory.
+	 * @return The qualified name, or {@code null} if the path is not within
+	 *         the source directory of any root, or the roots are not yet
+	 *         configured. The source directory itself denotes its root.
+	 */
+	public @Nullable String qualifiedNameForPath (final @NotNull String path)
+	{
+		final ModuleNameResolver currentResolver = resolver;
+		if (currentResolver == null)
+		{
+			return null;
+		}
+		final String independentPath = FileUtil.toSystemIndependentName(path);
+		for (final ModuleRoot root : currentResolver.moduleRoots().roots())
+		{
+			final File sourceDirectory = root.sourceDirectory();
+			if (sourceDirectory != null)
 			{
-				return FileVisitResult.CONTINUE;
+				final String sourceDirectoryPath =
+					FileUtil.toSystemIndependentName(sourceDirectory.getPath());
+				if (independentPath.equals(sourceDirectoryPath))
+				{
+					return "/" + root.name();
+				}
+				// Require a separator after the source directory, so that a
+				// sibling whose name merely begins with it does not match.
+				if (independentPath.startsWith(sourceDirectoryPath + "/"))
+				{
+					return String.format(
+						"/%s/%s",
+						root.name(),
+						independentPath
+							.substring(sourceDirectoryPath.length() + 1)
+							.replace(".avail", ""));
+				}
 			}
-		};
+		}
+		return null;
 	}
 
 	/**
-	 * Get the {@linkplain ModuleVersion module version} for the {@linkplain
-	 * ResolvedModuleName named} {@linkplain ModuleDescriptor module}.
+	 * Answer the {@link ResolvedModuleName} of the module that the given path
+	 * denotes.
 	 *
-	 * @param moduleName
-	 *        A resolved module name.
-	 * @return A module version, or {@code null} if no version was
-	 *         available.
+	 * @param path
+	 *        The path of an Avail source file.
+	 * @return The resolved name, or {@code null} if the path does not denote
+	 *         a module of any root.
 	 */
-	private @Nullable ModuleVersion getModuleVersion (
-		final ResolvedModuleName moduleName)
+	public @Nullable ResolvedModuleName resolvedModuleNameForPath (
+		final @NotNull String path)
 	{
-		final IndexedRepositoryManager repository =
-			moduleName.repository();
-		final ModuleArchive archive = repository.getArchive(
-			moduleName.rootRelativeName());
-		final byte [] digest = archive.digestForFile(moduleName);
-		final ModuleVersionKey versionKey =
-			new ModuleVersionKey(moduleName, digest);
-		return archive.getVersion(versionKey);
+		final ResolvedModuleName known = moduleTree.resolvedModuleName(path);
+		if (known != null)
+		{
+			return known;
+		}
+		final String qualifiedName = qualifiedNameForPath(path);
+		return qualifiedName == null
+			? null
+			: resolveQualifiedName(qualifiedName);
+	}
+
+	/**
+	 * Hash, in parallel, every source file of every {@link ModuleRoot} whose
+	 * {@linkplain SourceDigestCache cached digest} is missing or stale, and
+	 * then save the caches. This runs in the background after start up, so
+	 * that later up-to-date checks need not read any source.
+	 */
+	private void fillSourceDigests ()
+	{
+		final long start = System.nanoTime();
+		int hashed = 0;
+		for (final ModuleRoot root : moduleRoots().roots())
+		{
+			final SourceDigestCache cache =
+				sourceDigestCacheMap.get(root.name());
+			if (cache == null || root.sourceDirectory() == null)
+			{
+				continue;
+			}
+			final List<File> files = new ArrayList<>();
+			moduleTree.allResolvedNames(root).forEach(
+				name -> files.add(name.sourceReference()));
+			hashed += cache.fill(files, project::isDisposed);
+			cache.save();
+		}
+		log.info(String.format(
+			"Avail source digests filled: %d files hashed (%d ms)",
+			hashed,
+			(System.nanoTime() - start) / 1_000_000L));
 	}
 
 	@Override
 	public void projectOpened ()
 	{
+		final long start = System.nanoTime();
 		try
 		{
 			final ModuleRoots roots = new ModuleRoots("");
@@ -782,26 +1456,68 @@ implements ProjectComponent
 				final ModuleRoot mr = sdk.moduleRoot();
 				roots.addRoot(mr);
 				sdkRootMap.put(name, mr);
+				entryPointIndexMap.put(
+					name, new EntryPointIndex(new File(sdk.repository)));
+				sourceDigestCacheMap.put(
+					name, new SourceDigestCache(new File(sdk.repository)));
+				compileTimeStoreMap.put(
+					name, new CompileTimeStore(new File(sdk.repository)));
+				repositoryFileMap.put(name, new File(sdk.repository));
 			});
 			configuration.rootMap.forEach((name, root) ->
 			{
 				final ModuleRoot mr = root.moduleRoot();
 				roots.addRoot(mr);
 				moduleRootMap.put(name, mr);
+				entryPointIndexMap.put(
+					name, new EntryPointIndex(new File(root.repository)));
+				sourceDigestCacheMap.put(
+					name, new SourceDigestCache(new File(root.repository)));
+				compileTimeStoreMap.put(
+					name, new CompileTimeStore(new File(root.repository)));
+				repositoryFileMap.put(name, new File(root.repository));
 			});
 			this.resolver = new ModuleNameResolver(roots);
 			configuration.renameMap.forEach((source, rename) ->
 				this.resolver.addRenameRule(source, rename.target));
-			this.runtime = new AvailRuntime(resolver);
-			this.builder = new AvailBuilder(runtime());
-			initializeAvailSDKs();
+			project.getMessageBus().connect(project).subscribe(
+				VirtualFileManager.VFS_CHANGES, moduleTree);
+			project.getMessageBus().connect(project).subscribe(
+				VirtualFileManager.VFS_CHANGES,
+				new BulkFileListener()
+				{
+					@Override
+					public void before (
+						final @NotNull List<? extends VFileEvent> events)
+					{
+						// Nothing to do until the change has happened.
+					}
+
+					@Override
+					public void after (
+						final @NotNull List<? extends VFileEvent> events)
+					{
+						invalidateSourceDigests(events);
+					}
+				});
+			project.getMessageBus().connect(project).subscribe(
+				AppTopics.FILE_DOCUMENT_SYNC, buildOnSave.listener());
+			IdeEventQueue.getInstance().addIdleListener(
+				dropStaleWhenIdle, DropStaleModuleArchives.idleDelay);
+			log.info(String.format(
+				"Avail module name resolver ready (%d ms)",
+				(System.nanoTime() - start) / 1_000_000L));
+			ApplicationManager.getApplication().executeOnPooledThread(
+				this::startBuilder);
 		}
 		catch (final @NotNull ConfigurationException ex)
 		{
+			builderFuture.completeExceptionally(ex);
 			ex.errorDialog();
 		}
 		catch (final Exception e)
 		{
+			builderFuture.completeExceptionally(e);
 			final AvailPluginException ex =
 				new AvailPluginException(
 					"AvailComponent failed to initialize", e);
@@ -809,9 +1525,70 @@ implements ProjectComponent
 		}
 	}
 
+	/**
+	 * Create the {@link AvailRuntime} and {@link AvailBuilder}, complete the
+	 * {@link #builderFuture}, and then schedule the {@linkplain
+	 * #initializeAvailSDKs() loading of the SDKs} for when the IDE is no
+	 * longer indexing. This runs on a pooled thread so that it does not delay
+	 * opening the project.
+	 */
+	private void startBuilder ()
+	{
+		try
+		{
+			long start = System.nanoTime();
+			final AvailRuntime newRuntime = new AvailRuntime(resolver());
+			log.info(String.format(
+				"Avail runtime created (%d ms)",
+				(System.nanoTime() - start) / 1_000_000L));
+			start = System.nanoTime();
+			final AvailBuilder newBuilder = new AvailBuilder(newRuntime);
+			newBuilder.subscribeToModuleLoading((loadedModule, isLoaded) ->
+			{
+				assert loadedModule != null;
+				assert isLoaded != null;
+				moduleLoadingChanged(loadedModule, isLoaded);
+			});
+			newBuilder.loadedModulesCopy().forEach(
+				loadedModule -> moduleLoadingChanged(loadedModule, true));
+			compileTimeStoreMap.values().forEach(CompileTimeStore::load);
+			this.runtime = newRuntime;
+			this.builder = newBuilder;
+			log.info(String.format(
+				"Avail builder created (%d ms)",
+				(System.nanoTime() - start) / 1_000_000L));
+			builderFuture.complete(newBuilder);
+			DumbService.getInstance(project).runWhenSmart(() ->
+			{
+				log.info("Loading Avail SDKs in the background");
+				initializeAvailSDKs();
+				ApplicationManager.getApplication().executeOnPooledThread(
+					() ->
+					{
+						fillSourceDigests();
+						fillEntryPointIndexes();
+					});
+			});
+		}
+		catch (final Throwable e)
+		{
+			builderFuture.completeExceptionally(e);
+			log.error("The Avail builder failed to start", e);
+		}
+	}
+
 	@Override
 	public void projectClosed ()
 	{
+		saveEntryPointIndexes();
+		sourceDigestCacheMap.values().forEach(cache ->
+		{
+			cache.dispose();
+			cache.save();
+		});
+		saveCompileTimes();
+		IdeEventQueue.getInstance().removeIdleListener(dropStaleWhenIdle);
+		moduleStatusService.dispose();
 		sdkRootMap.forEach((name, root) ->
 		{
 			final IndexedRepositoryManager repo = root.repository();
@@ -830,6 +1607,12 @@ implements ProjectComponent
 		});
 	}
 
+	@Override
+	public void disposeComponent ()
+	{
+		moduleTree.dispose();
+	}
+
 	@Override
 	public @NotNull String getComponentName ()
 	{
@@ -847,5 +1630,7 @@ implements ProjectComponent
 		this.project = project;
 		this.configuration =
 			project.getComponent(AvailPluginConfiguration.class);
+		this.moduleStatusService = new ModuleStatusService(this);
+		this.buildOnSave = new BuildOnSave(this);
 	}
 }
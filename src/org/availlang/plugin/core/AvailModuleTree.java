@@ -0,0 +1,1043 @@
+/*
+ * AvailModuleTree.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.core;
+import com.avail.builder.AvailBuilder;
+import com.avail.builder.ModuleName;
+import com.avail.builder.ModuleNameResolver;
+import com.avail.builder.ModuleRoot;
+import com.avail.builder.ResolvedModuleName;
+import com.avail.builder.UnresolvedDependencyException;
+import com.avail.descriptor.ModuleDescriptor;
+import com.avail.environment.nodes.AbstractBuilderFrameTreeNode;
+import com.avail.environment.nodes.ModuleOrPackageNode;
+import com.avail.environment.nodes.ModuleRootNode;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.ui.treeStructure.Tree;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.MutableTreeNode;
+import javax.swing.tree.TreeNode;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileVisitor;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+import static com.avail.utility.Nulls.stripNull;
+
+/**
+ * An {@code AvailModuleTree} is the persistent, in-memory {@linkplain
+ * ModuleDescriptor module} {@linkplain JTree tree} of all the {@link
+ * ModuleRoot}s known to an {@link AvailComponent}.
+ *
+ * <p>
+ * The tree is built from disk once, the first time it is needed. After that
+ * it is a {@link BulkFileListener} on the {@linkplain
+ * VirtualFileManager#VFS_CHANGES virtual file system}, applying only the node
+ * insertions, removals, and renames that correspond to the changed files.
+ * The listener only records which paths changed; the disk is read on the
+ * tree's own {@linkplain #changeExecutor thread}, never inside the VFS write
+ * action.
+ * </p>
+ *
+ * <p>
+ * Rebuilds and changes are serialized by the {@link #mutationLock}, which is
+ * held while the disk is read. The tree's own monitor is only held while
+ * finished nodes are swapped in and while readers enumerate them, so no
+ * reader ever waits for the builder or the disk.
+ * </p>
+ *
+ * <p>
+ * The tree only depends on the {@link ModuleNameResolver} and {@link
+ * AvailBuilder} that it is given. It obtains both once per {@linkplain
+ * #rebuild() rebuild}, before any scanning starts, so no scanning thread
+ * ever waits for them.
+ * </p>
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class AvailModuleTree
+implements BulkFileListener
+{
+	/**
+	 * The {@link Logger} used to report modules and directories that could
+	 * not be scanned.
+	 */
+	private static final @NotNull Logger log =
+		Logger.getInstance(AvailModuleTree.class);
+
+	/**
+	 * Supplies the {@link ModuleNameResolver} when the tree is {@linkplain
+	 * #rebuild() rebuilt}.
+	 */
+	private final @NotNull Supplier<ModuleNameResolver> resolverSupplier;
+
+	/**
+	 * Supplies the {@link AvailBuilder}, which the tree nodes refer to, when
+	 * the tree is {@linkplain #rebuild() rebuilt}.
+	 */
+	private final @NotNull Supplier<AvailBuilder> builderSupplier;
+
+	/**
+	 * The {@link ModuleNameResolver} that the tree was last built with, or
+	 * {@code null} if it has not been built.
+	 */
+	private volatile @Nullable ModuleNameResolver resolver;
+
+	/**
+	 * The {@link AvailBuilder} that the tree was last built with, or {@code
+	 * null} if it has not been built.
+	 */
+	private volatile @Nullable AvailBuilder builder;
+
+	/**
+	 * The {@linkplain ModuleDescriptor module} {@linkplain JTree tree}.
+	 */
+	private final Tree moduleTree = new Tree(
+		new DefaultMutableTreeNode("(packages hidden root)"));
+
+	/**
+	 * The {@link Map} from the system-independent path of each module root
+	 * directory, package directory, and module file to its node in the
+	 * {@link #moduleTree}. A {@linkplain #rebuild() rebuild} fills a new map
+	 * and then replaces this one.
+	 */
+	private volatile @NotNull Map<String, DefaultMutableTreeNode> nodeMap =
+		new ConcurrentHashMap<>();
+
+	/**
+	 * The lock that serializes {@linkplain #rebuild() rebuilds} and
+	 * {@linkplain #applyChanges(Set) changes}. It is held while the disk is
+	 * read, so readers of the tree never acquire it, except to build the
+	 * tree for the first time.
+	 */
+	private final @NotNull Object mutationLock = new Object();
+
+	/**
+	 * The single thread on which changes reported by the VFS are applied,
+	 * in order. It is shut down when the tree is {@linkplain #dispose()
+	 * disposed}.
+	 */
+	private final @NotNull ExecutorService changeExecutor =
+		Executors.newSingleThreadExecutor(runnable ->
+		{
+			final Thread thread =
+				new Thread(runnable, "Avail module tree changes");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+	/**
+	 * Has the {@link #moduleTree} been built from disk yet? {@code true}
+	 * indicates it has; {@code false} otherwise.
+	 */
+	private volatile boolean isBuilt = false;
+
+	/**
+	 * Answer the system-independent form of the provided {@link Path}, which
+	 * is the form used as a key in the {@link #nodeMap}.
+	 *
+	 * @param path
+	 *        A {@code Path}.
+	 * @return A {@code String}.
+	 */
+	private static @NotNull String key (final @NotNull Path path)
+	{
+		return path.toAbsolutePath().toString()
+			.replace(File.separatorChar, '/');
+	}
+
+	/**
+	 * Answer the key in the {@link #nodeMap} of the provided {@link
+	 * ModuleRoot}'s source directory.
+	 *
+	 * @param root
+	 *        A {@code ModuleRoot}.
+	 * @return A {@code String}.
+	 */
+	private static @NotNull String key (final @NotNull ModuleRoot root)
+	{
+		return key(Paths.get(
+			stripNull(root.sourceDirectory()).getAbsolutePath()));
+	}
+
+	/**
+	 * Answer the {@link Tree} of modules, building it first if necessary.
+	 *
+	 * @return A {@code Tree}.
+	 */
+	public @NotNull Tree tree ()
+	{
+		ensureBuilt();
+		return moduleTree;
+	}
+
+	/**
+	 * Build the {@link #moduleTree} from disk if it has not already been built.
+	 */
+	public void ensureBuilt ()
+	{
+		if (!isBuilt)
+		{
+			synchronized (mutationLock)
+			{
+				if (!isBuilt)
+				{
+					rebuild();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Re-parse the package structure of every {@link ModuleRoot} from scratch.
+	 * The new tree is scanned while the old one is still answering readers,
+	 * and then replaces it at once.
+	 */
+	public void rebuild ()
+	{
+		synchronized (mutationLock)
+		{
+			final ModuleNameResolver currentResolver = resolverSupplier.get();
+			this.builder = builderSupplier.get();
+			this.resolver = currentResolver;
+			currentResolver.clearCache();
+			final Map<String, DefaultMutableTreeNode> newNodeMap =
+				new ConcurrentHashMap<>();
+			final TreeNode modules = newModuleTree(newNodeMap);
+			synchronized (this)
+			{
+				nodeMap = newNodeMap;
+				moduleTree.setModel(new DefaultTreeModel(modules));
+				isBuilt = true;
+			}
+		}
+	}
+
+	/**
+	 * Answer the {@link ResolvedModuleName}s of every module and package
+	 * representative of the given {@link ModuleRoot}, at any depth.
+	 *
+	 * @param moduleRoot
+	 *        The {@code ModuleRoot}.
+	 * @return A {@code List}, in tree order.
+	 */
+	public @NotNull List<ResolvedModuleName> allResolvedNames (
+		final @NotNull ModuleRoot moduleRoot)
+	{
+		ensureBuilt();
+		final Map<String, ResolvedModuleName> names = new LinkedHashMap<>();
+		synchronized (this)
+		{
+			final DefaultMutableTreeNode rootNode =
+				nodeMap.get(key(moduleRoot));
+			if (rootNode != null)
+			{
+				final Enumeration<?> nodes = rootNode.preorderEnumeration();
+				while (nodes.hasMoreElements())
+				{
+					final Object node = nodes.nextElement();
+					if (node instanceof ModuleOrPackageNode)
+					{
+						final ResolvedModuleName name =
+							((ModuleOrPackageNode) node).resolvedModuleName();
+						names.putIfAbsent(name.qualifiedName(), name);
+					}
+				}
+			}
+		}
+		return new ArrayList<>(names.values());
+	}
+
+	/**
+	 * Answer the {@link List} of {@link ResolvedModuleName}s for the top level
+	 * Avail modules and packages of the given {@link ModuleRoot}.
+	 *
+	 * @param moduleRoot
+	 *        The {@code ModuleRoot}.
+	 * @return A {@code List}.
+	 */
+	public @NotNull List<ResolvedModuleName> topLevelResolvedNames (
+		final @NotNull ModuleRoot moduleRoot)
+	{
+		ensureBuilt();
+		final List<ResolvedModuleName> names = new ArrayList<>();
+		synchronized (this)
+		{
+			final DefaultMutableTreeNode rootNode =
+				nodeMap.get(key(moduleRoot));
+			if (rootNode != null)
+			{
+				for (int i = 0; i < rootNode.getChildCount(); i++)
+				{
+					final TreeNode child = rootNode.getChildAt(i);
+					if (child instanceof ModuleOrPackageNode)
+					{
+						names.add(((ModuleOrPackageNode) child)
+							.resolvedModuleName());
+					}
+				}
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * Answer the {@link ResolvedModuleName} of the module or package
+	 * representative at the given path, as recorded in the tree, without
+	 * consulting the resolver. The tree keeps these current as files change.
+	 *
+	 * @param path
+	 *        The system-independent path of an Avail source file.
+	 * @return The resolved name, or {@code null} if the tree has not been
+	 *         built or has no module at that path.
+	 */
+	public @Nullable ResolvedModuleName resolvedModuleName (
+		final @NotNull String path)
+	{
+		if (!isBuilt)
+		{
+			return null;
+		}
+		DefaultMutableTreeNode node = nodeMap.get(path);
+		if (node == null)
+		{
+			// A package representative is recorded under its package.
+			final int slash = path.lastIndexOf('/');
+			if (slash > 0)
+			{
+				final String parent = path.substring(0, slash);
+				if (parent.endsWith("/" + path.substring(slash + 1)))
+				{
+					node = nodeMap.get(parent);
+				}
+			}
+		}
+		return node instanceof ModuleOrPackageNode
+			? ((ModuleOrPackageNode) node).resolvedModuleName()
+			: null;
+	}
+
+	/**
+	 * The {@link ForkJoinPool} on which the {@link ModuleRoot}s and their
+	 * top-level packages are scanned concurrently. Its threads are only
+	 * started when a scan needs them, and it is shut down when the tree is
+	 * {@linkplain #dispose() disposed}.
+	 */
+	private final @NotNull ForkJoinPool scanPool;
+
+	/**
+	 * Shut down the {@link #scanPool} and the {@link #changeExecutor}. The
+	 * tree must not be rebuilt afterward.
+	 */
+	public void dispose ()
+	{
+		changeExecutor.shutdownNow();
+		scanPool.shutdownNow();
+	}
+
+	/**
+	 * Answer a {@linkplain TreeNode tree node} that represents the (invisible)
+	 * root of the Avail module tree.
+	 *
+	 * <p>
+	 * Each {@link ModuleRoot} is scanned by its own task on the {@link
+	 * #scanPool}, which in turn forks a subtask for each of the root's
+	 * top-level packages. The partial trees are merged as the tasks are
+	 * joined.
+	 * </p>
+	 *
+	 * @param map
+	 *        The {@link Map} to which the path of each new node is added.
+	 * @return The (invisible) root of the module tree.
+	 */
+	private @NotNull TreeNode newModuleTree (
+		final @NotNull Map<String, DefaultMutableTreeNode> map)
+	{
+		final DefaultMutableTreeNode treeRoot = new DefaultMutableTreeNode(
+			"(packages hidden root)");
+		final List<ForkJoinTask<ModuleRootNode>> rootTasks = new ArrayList<>();
+		for (final ModuleRoot root : stripNull(resolver).moduleRoots().roots())
+		{
+			rootTasks.add(scanPool.submit(() -> scanRoot(root, map)));
+		}
+		for (final ForkJoinTask<ModuleRootNode> rootTask : rootTasks)
+		{
+			final ModuleRootNode rootNode = rootTask.join();
+			if (rootNode != null)
+			{
+				treeRoot.add(rootNode);
+			}
+		}
+		return treeRoot;
+	}
+
+	/**
+	 * Scan the provided {@link ModuleRoot}, forking a subtask on the {@link
+	 * #scanPool} for each top-level package. This must run on the {@code
+	 * scanPool}.
+	 *
+	 * @param root
+	 *        The {@code ModuleRoot} to scan.
+	 * @param map
+	 *        The {@link Map} to which the path of each new node is added.
+	 * @return The sorted {@link ModuleRootNode} for the root, or {@code null}
+	 *         if its source directory could not be listed. A top-level module
+	 *         or package that fails to scan is left out, without affecting
+	 *         the rest of the root.
+	 */
+	private @Nullable ModuleRootNode scanRoot (
+		final @NotNull ModuleRoot root,
+		final @NotNull Map<String, DefaultMutableTreeNode> map)
+	{
+		// Obtain the path associated with the module root.
+		root.repository().reopenIfNecessary();
+		final Path rootPath = Paths.get(
+			stripNull(root.sourceDirectory()).getAbsolutePath());
+		final ModuleRootNode rootNode =
+			new ModuleRootNode(stripNull(builder), root);
+		final List<ForkJoinTask<ModuleRootNode>> packageTasks =
+			new ArrayList<>();
+		try (final DirectoryStream<Path> entries =
+			Files.newDirectoryStream(rootPath))
+		{
+			for (final Path entry : entries)
+			{
+				if (Files.isDirectory(entry))
+				{
+					packageTasks.add(ForkJoinTask.adapt(
+						() -> scanTopLevelEntry(root, entry, map)).fork());
+				}
+				else
+				{
+					// Top-level modules are cheap; add them directly.
+					try
+					{
+						walk(entry, rootNode, root, map);
+					}
+					catch (final IOException|RuntimeException e)
+					{
+						log.warn("Could not scan Avail module " + entry, e);
+					}
+				}
+			}
+		}
+		catch (final IOException|RuntimeException e)
+		{
+			log.warn("Could not scan Avail root " + root.name(), e);
+			packageTasks.forEach(task -> task.cancel(false));
+			return null;
+		}
+		for (final ForkJoinTask<ModuleRootNode> packageTask : packageTasks)
+		{
+			// Merge the partial tree into the real root node.
+			final ModuleRootNode partial = packageTask.join();
+			while (partial.getChildCount() > 0)
+			{
+				rootNode.add((MutableTreeNode) partial.getChildAt(0));
+			}
+		}
+		rootNode.sortChildren();
+		map.put(key(rootPath), rootNode);
+		return rootNode;
+	}
+
+	/**
+	 * Scan a top-level entry of a {@link ModuleRoot}'s source directory into
+	 * a private, partial tree. This must run on the {@link #scanPool}.
+	 *
+	 * @param root
+	 *        The {@code ModuleRoot} that contains the entry.
+	 * @param entry
+	 *        The {@link Path} of the top-level entry.
+	 * @param map
+	 *        The {@link Map} to which the path of each new node is added.
+	 * @return A detached {@link ModuleRootNode} whose children are the sorted
+	 *         nodes for the entry.
+	 */
+	private @NotNull ModuleRootNode scanTopLevelEntry (
+		final @NotNull ModuleRoot root,
+		final @NotNull Path entry,
+		final @NotNull Map<String, DefaultMutableTreeNode> map)
+	{
+		final ModuleRootNode partial =
+			new ModuleRootNode(stripNull(builder), root);
+		try
+		{
+			walk(entry, partial, root, map);
+		}
+		catch (final IOException|RuntimeException e)
+		{
+			log.warn("Could not scan Avail package " + entry, e);
+		}
+		sortSubtree(partial);
+		return partial;
+	}
+
+	/**
+	 * Walk the provided {@link Path}, adding the nodes for any modules and
+	 * packages found to the provided parent node.
+	 *
+	 * @param path
+	 *        The {@code Path} of the module file or package directory.
+	 * @param parentNode
+	 *        The node to which the new nodes should be added.
+	 * @param root
+	 *        The {@link ModuleRoot} that contains the path.
+	 * @param map
+	 *        The {@link Map} to which the path of each new node is added.
+	 * @throws IOException
+	 *         If the walk fails.
+	 */
+	private void walk (
+		final @NotNull Path path,
+		final @NotNull DefaultMutableTreeNode parentNode,
+		final @NotNull ModuleRoot root,
+		final @NotNull Map<String, DefaultMutableTreeNode> map)
+	throws IOException
+	{
+		final Deque<DefaultMutableTreeNode> stack = new ArrayDeque<>();
+		stack.add(parentNode);
+		Files.walkFileTree(
+			path,
+			EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+			Integer.MAX_VALUE,
+			moduleTreeVisitor(stack, root, map));
+	}
+
+	/**
+	 * Sort the children of every node below the provided node.
+	 *
+	 * @param node
+	 *        The {@link DefaultMutableTreeNode} whose subtree should be sorted.
+	 */
+	private static void sortSubtree (final @NotNull DefaultMutableTreeNode node)
+	{
+		@SuppressWarnings("unchecked")
+		final Enumeration<DefaultMutableTreeNode> enumeration =
+			node.preorderEnumeration();
+		while (enumeration.hasMoreElements())
+		{
+			final DefaultMutableTreeNode next = enumeration.nextElement();
+			if (next instanceof AbstractBuilderFrameTreeNode)
+			{
+				((AbstractBuilderFrameTreeNode) next).sortChildren();
+			}
+		}
+	}
+
+	@Override
+	public void before (final @NotNull List<? extends VFileEvent> events)
+	{
+		// Nothing to do until the changes have happened.
+	}
+
+	@Override
+	public void after (final @NotNull List<? extends VFileEvent> events)
+	{
+		if (!isBuilt)
+		{
+			// The tree will be built from disk when it is first needed.
+			return;
+		}
+		final Set<String> affected = new HashSet<>();
+		for (final VFileEvent event : events)
+		{
+			if (event instanceof VFileContentChangeEvent)
+			{
+				// Edits never change the shape of the tree.
+				continue;
+			}
+			if (event instanceof VFileMoveEvent)
+			{
+				addAffectedPath(
+					((VFileMoveEvent) event).getOldPath(), affected);
+			}
+			else if (event instanceof VFilePropertyChangeEvent)
+			{
+				final VFilePropertyChangeEvent propertyEvent =
+					(VFilePropertyChangeEvent) event;
+				if (!VirtualFile.PROP_NAME.equals(
+					propertyEvent.getPropertyName()))
+				{
+					continue;
+				}
+				addAffectedPath(propertyEvent.getOldPath(), affected);
+			}
+			addAffectedPath(event.getPath(), affected);
+		}
+		if (!affected.isEmpty() && !changeExecutor.isShutdown())
+		{
+			// Never read the disk inside the VFS write action.
+			changeExecutor.execute(() -> applyChanges(affected));
+		}
+	}
+
+	/**
+	 * If the provided path names an Avail module or package inside one of the
+	 * {@link ModuleRoot}s, add the path whose node must be recomputed to the
+	 * provided {@link Set}.
+	 *
+	 * @param path
+	 *        The system-independent path of a changed file.
+	 * @param affected
+	 *        The {@code Set} of paths whose nodes must be recomputed.
+	 */
+	private void addAffectedPath (
+		final @NotNull String path,
+		final @NotNull Set<String> affected)
+	{
+		final String extension = ModuleNameResolver.availExtension;
+		if (!path.endsWith(extension) || rootFor(path) == null)
+		{
+			return;
+		}
+		final int slash = path.lastIndexOf('/');
+		final String parent = path.substring(0, slash);
+		if (parent.endsWith(extension)
+			&& parent.substring(parent.lastIndexOf('/') + 1)
+				.equals(path.substring(slash + 1)))
+		{
+			// This is a package representative, so the whole package must be
+			// recomputed.
+			affected.add(parent);
+		}
+		else
+		{
+			affected.add(path);
+		}
+	}
+
+	/**
+	 * Answer the {@link ModuleRoot} whose source directory contains the
+	 * provided path.
+	 *
+	 * @param path
+	 *        A system-independent path.
+	 * @return A {@code ModuleRoot}, or {@code null} if the path is not inside
+	 *         any root.
+	 */
+	private @Nullable ModuleRoot rootFor (final @NotNull String path)
+	{
+		final ModuleNameResolver currentResolver = resolver;
+		if (currentResolver == null)
+		{
+			return null;
+		}
+		for (final ModuleRoot root : currentResolver.moduleRoots().roots())
+		{
+			if (root.sourceDirectory() != null
+				&& path.startsWith(key(root) + "/"))
+			{
+				return root;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Remove and then re-insert the nodes of the provided paths, which are
+	 * the only parts of the tree that changed. This runs on the {@link
+	 * #changeExecutor}. The changed paths are scanned into detached nodes
+	 * first, so the tree's monitor is only held while they are swapped in.
+	 *
+	 * @param affected
+	 *        The {@link Set} of system-independent paths to recompute.
+	 */
+	private void applyChanges (final @NotNull Set<String> affected)
+	{
+		synchronized (mutationLock)
+		{
+			final AvailBuilder currentBuilder = builder;
+			final ModuleNameResolver currentResolver = resolver;
+			if (currentBuilder == null || currentResolver == null)
+			{
+				return;
+			}
+			// Only recompute the outermost changed paths; their subtrees are
+			// recomputed along with them.
+			final List<String> paths = new ArrayList<>();
+			for (final String path : affected)
+			{
+				boolean nested = false;
+				for (final String other : affected)
+				{
+					if (path.startsWith(other + "/"))
+					{
+						nested = true;
+						break;
+					}
+				}
+				if (!nested)
+				{
+					paths.add(path);
+				}
+			}
+			final List<String> existing = new ArrayList<>();
+			for (final String path : paths)
+			{
+				if (Files.exists(Paths.get(path)))
+				{
+					existing.add(path);
+				}
+			}
+			// Avail's resolver can only forget all of its resolutions at
+			// once. Removed paths need nothing: their nodes are dropped below,
+			// and the tree answers resolutions by path itself. Only a path
+			// that exists now might have an earlier failed resolution cached.
+			if (!existing.isEmpty())
+			{
+				currentResolver.clearCache();
+			}
+			// Scan each existing path below a detached stand-in for its
+			// parent, recording the new nodes' paths separately.
+			final Map<String, DefaultMutableTreeNode> scannedMap =
+				new HashMap<>();
+			final Map<String, DefaultMutableTreeNode> scanned =
+				new LinkedHashMap<>();
+			for (final String path : existing)
+			{
+				final ModuleRoot root = rootFor(path);
+				final DefaultMutableTreeNode parentNode =
+					nodeMap.get(path.substring(0, path.lastIndexOf('/')));
+				if (root == null || parentNode == null)
+				{
+					continue;
+				}
+				final DefaultMutableTreeNode standIn =
+					parentNode instanceof ModuleOrPackageNode
+						? new ModuleOrPackageNode(
+							currentBuilder,
+							((ModuleOrPackageNode) parentNode)
+								.resolvedModuleName(),
+							((ModuleOrPackageNode) parentNode)
+								.resolvedModuleName(),
+							true)
+						: new ModuleRootNode(currentBuilder, root);
+				try
+				{
+					walk(Paths.get(path), standIn, root, scannedMap);
+				}
+				catch (final IOException|RuntimeException e)
+				{
+					log.warn("Could not scan changed Avail module " + path, e);
+				}
+				sortSubtree(standIn);
+				scanned.put(path, standIn);
+			}
+			final Set<TreeNode> changedParents = new HashSet<>();
+			synchronized (this)
+			{
+				for (final String path : paths)
+				{
+					final DefaultMutableTreeNode node = nodeMap.remove(path);
+					if (node != null)
+					{
+						final TreeNode parent = node.getParent();
+						node.removeFromParent();
+						nodeMap.keySet().removeIf(
+							k -> k.startsWith(path + "/"));
+						if (parent != null)
+						{
+							changedParents.add(parent);
+						}
+					}
+				}
+				scanned.forEach((path, standIn) ->
+				{
+					final DefaultMutableTreeNode parentNode =
+						nodeMap.get(path.substring(0, path.lastIndexOf('/')));
+					if (parentNode == null)
+					{
+						return;
+					}
+					while (standIn.getChildCount() > 0)
+					{
+						parentNode.add(
+							(MutableTreeNode) standIn.getChildAt(0));
+					}
+					if (parentNode instanceof AbstractBuilderFrameTreeNode)
+					{
+						((AbstractBuilderFrameTreeNode) parentNode)
+							.sortChildren();
+					}
+					changedParents.add(parentNode);
+				});
+				nodeMap.putAll(scannedMap);
+			}
+			if (!changedParents.isEmpty())
+			{
+				final DefaultTreeModel model =
+					(DefaultTreeModel) moduleTree.getModel();
+				ApplicationManager.getApplication().invokeLater(
+					() -> changedParents.forEach(model::nodeStructureChanged));
+			}
+		}
+	}
+
+	/**
+	 * Answer a {@link FileVisitor} suitable for recursively exploring a
+	 * module or package of an Avail root. A new {@code FileVisitor} should be
+	 * obtained for each walk.
+	 *
+	 * @param stack
+	 *        The stack on which to place Avail packages. It initially holds
+	 *        the node to which the walked module or package is added.
+	 * @param moduleRoot
+	 *        The {@link ModuleRoot} within which to scan recursively.
+	 * @param map
+	 *        The {@link Map} to which the path of each new node is added.
+	 * @return A {@code FileVisitor}.
+	 */
+	private FileVisitor<Path> moduleTreeVisitor (
+		final Deque<DefaultMutableTreeNode> stack,
+		final ModuleRoot moduleRoot,
+		final Map<String, DefaultMutableTreeNode> map)
+	{
+		final String extension = ModuleNameResolver.availExtension;
+		final ModuleNameResolver currentResolver = stripNull(resolver);
+		final AvailBuilder currentBuilder = stripNull(builder);
+		return new FileVisitor<Path>()
+		{
+			@Override
+			public FileVisitResult preVisitDirectory (
+				final @Nullable Path dir,
+				final @Nullable BasicFileAttributes unused)
+			{
+				assert dir != null;
+				final DefaultMutableTreeNode parentNode = stack.peekFirst();
+				final String fileName = dir.getFileName().toString();
+				if (fileName.endsWith(extension))
+				{
+					final String localName = fileName.substring(
+						0, fileName.length() - extension.length());
+					final ModuleName moduleName;
+					if (parentNode instanceof ModuleRootNode)
+					{
+						// Add a top-level package.
+						final ModuleRootNode strongParentNode =
+							(ModuleRootNode) parentNode;
+						final ModuleRoot thisRoot =
+							strongParentNode.moduleRoot();
+						assert thisRoot == moduleRoot;
+						moduleName = new ModuleName(
+							"/" + moduleRoot.name() + "/" + localName);
+					}
+					else
+					{
+						// Add a non-top-level package.
+						assert parentNode instanceof ModuleOrPackageNode;
+						final ModuleOrPackageNode strongParentNode =
+							(ModuleOrPackageNode) parentNode;
+						assert strongParentNode.isPackage();
+						final ResolvedModuleName parentModuleName =
+							strongParentNode.resolvedModuleName();
+						// The (resolved) parent is a package representative
+						// module, so use its parent, the package itself.
+						moduleName = new ModuleName(
+							parentModuleName.packageName(), localName);
+					}
+					final ResolvedModuleName resolved;
+					try
+					{
+						resolved = currentResolver.resolve(moduleName, null);
+					}
+					catch (final UnresolvedDependencyException e)
+					{
+						// The directory didn't contain the necessary package
+						// representative, so simply skip the whole directory.
+						return FileVisitResult.SKIP_SUBTREE;
+					}
+					final ModuleOrPackageNode node = new ModuleOrPackageNode(
+						currentBuilder, moduleName, resolved, true);
+					parentNode.add(node);
+					map.put(key(dir), node);
+					if (resolved.isRename())
+					{
+						// Don't examine modules inside a package which is the
+						// source of a rename.  They wouldn't have resolvable
+						// dependencies anyhow.
+						return FileVisitResult.SKIP_SUBTREE;
+					}
+					stack.addFirst(node);
+					return FileVisitResult.CONTINUE;
+				}
+				return FileVisitResult.SKIP_SUBTREE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory (
+				final @Nullable Path dir,
+				final @Nullable IOException ex)
+			{
+				assert dir != null;
+				// Pop the node from the stack.
+				stack.removeFirst();
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile (
+				final @Nullable Path file,
+				final @Nullable BasicFileAttributes attrs)
+			{
+				assert file != null;
+				final DefaultMutableTreeNode parentNode = stack.peekFirst();
+				final String fileName = file.getFileName().toString();
+				if (fileName.endsWith(extension))
+				{
+					final String localName = fileName.substring(
+						0, fileName.length() - extension.length());
+					final ModuleName moduleName;
+					if (parentNode instanceof ModuleRootNode)
+					{
+						// Add a top-level module (directly in a root).
+						final ModuleRootNode strongParentNode =
+							(ModuleRootNode) parentNode;
+						final ModuleRoot thisRoot =
+							strongParentNode.moduleRoot();
+						assert thisRoot == moduleRoot;
+						moduleName = new ModuleName(
+							"/" + moduleRoot.name() + "/" + localName);
+					}
+					else
+					{
+						// Add a non-top-level module.
+						assert parentNode instanceof ModuleOrPackageNode;
+						final ModuleOrPackageNode strongParentNode =
+							(ModuleOrPackageNode) parentNode;
+						assert strongParentNode.isPackage();
+						final ResolvedModuleName parentModuleName =
+							strongParentNode.resolvedModuleName();
+						moduleName = new ModuleName(
+							parentModuleName.packageName(), localName);
+					}
+					try
+					{
+						final ResolvedModuleName resolved =
+							currentResolver.resolve(moduleName, null);
+						final ModuleOrPackageNode node =
+							new ModuleOrPackageNode(
+								currentBuilder,
+								moduleName,
+								resolved,
+								false);
+						if (resolved.isRename() || !resolved.isPackage())
+						{
+							parentNode.add(node);
+							map.put(key(file), node);
+						}
+					}
+					catch (final UnresolvedDependencyException e)
+					{
+						// Leave out just this module, so that it does not
+						// hide the rest of its package.
+						log.info("Unresolvable Avail module " + file, e);
+					}
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed (
+				final @Nullable Path file,
+				final @Nullable IOException ex)
+			{
+				return FileVisitResult.CONTINUE;
+			}
+		};
+	}
+
+	/**
+	 * Construct an {@link AvailModuleTree}.
+	 *
+	 * @param resolverSupplier
+	 *        Supplies the {@link ModuleNameResolver} when the tree is built.
+	 * @param builderSupplier
+	 *        Supplies the {@link AvailBuilder} when the tree is built.
+	 */
+	AvailModuleTree (
+		final @NotNull Supplier<ModuleNameResolver> resolverSupplier,
+		final @NotNull Supplier<AvailBuilder> builderSupplier)
+	{
+		this(
+			resolverSupplier,
+			builderSupplier,
+			Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Construct an {@link AvailModuleTree} that scans with the given number
+	 * of threads. A single thread scans the roots and packages one after
+	 * another.
+	 *
+	 * @param resolverSupplier
+	 *        Supplies the {@link ModuleNameResolver} when the tree is built.
+	 * @param builderSupplier
+	 *        Supplies the {@link AvailBuilder} when the tree is built.
+	 * @param parallelism
+	 *        The number of threads of the {@link #scanPool}.
+	 */
+	AvailModuleTree (
+		final @NotNull Supplier<ModuleNameResolver> resolverSupplier,
+		final @NotNull Supplier<AvailBuilder> builderSupplier,
+		final int parallelism)
+	{
+		this.resolverSupplier = resolverSupplier;
+		this.builderSupplier = builderSupplier;
+		this.scanPool = new ForkJoinPool(parallelism);
+	}
+}
@@ -0,0 +1,511 @@
+/*
+ * AvailTaskQueue.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.core;
+import com.avail.builder.AvailBuilder;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task.Backgroundable;
+import com.intellij.openapi.progress.util.ProgressWindow;
+import org.availlang.plugin.build.BuildOnSave;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * An {@code AvailTaskQueue} runs the plugin's {@link Backgroundable} tasks
+ * that use the {@link AvailBuilder} or its repositories — builds and
+ * repository clears — one at a time, so that none of them can overlap
+ * another. In particular a repository is never cleared while a module of its
+ * root is being built. Entry point runs do not use the queue, so a long
+ * running command never holds up a build.
+ *
+ * <p>
+ * Pending tasks run in {@linkplain Priority priority} order, and in
+ * submission order within a priority. A task submitted with the same key as
+ * a task that is still pending is coalesced into it: it does not run again,
+ * but whatever callback the pending task receives — {@link
+ * Backgroundable#onSuccess() onSuccess}, {@link Backgroundable#onCancel()
+ * onCancel}, {@link Backgroundable#onThrowable(Throwable) onThrowable}, and
+ * finally {@link Backgroundable#onFinished() onFinished} — it receives too.
+ * </p>
+ *
+ * <p>
+ * The queue records how many tasks are pending and how long tasks wait
+ * before they start.
+ * </p>
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class AvailTaskQueue
+{
+	/**
+	 * The {@link Logger} for tasks that wait a long time.
+	 */
+	private static final @NotNull Logger log =
+		Logger.getInstance(AvailTaskQueue.class);
+
+	/**
+	 * A task that waits longer than this many milliseconds to start is
+	 * logged.
+	 */
+	private static final long longWait = 5_000L;
+
+	/**
+	 * A {@code Priority} orders the pending tasks of an {@link
+	 * AvailTaskQueue}.
+	 */
+	public enum Priority
+	{
+		/**
+		 * A task the user asked for and is waiting on.
+		 */
+		FOREGROUND,
+
+		/**
+		 * A task the plugin started on its own, such as loading the SDKs.
+		 */
+		BACKGROUND
+	}
+
+	/**
+	 * A {@code QueuedTask} is a submitted task that has not yet finished.
+	 */
+	private static final class QueuedTask
+	{
+		/**
+		 * The key used to coalesce submissions, or {@code null} if this task
+		 * may not be coalesced.
+		 */
+		final @Nullable String key;
+
+		/**
+		 * The {@link Backgroundable} to run.
+		 */
+		final @NotNull Backgroundable task;
+
+		/**
+		 * The {@code Backgroundable}s that were coalesced into this one.
+		 */
+		final @NotNull List<Backgroundable> coalesced = new ArrayList<>();
+
+		/**
+		 * The {@link Priority} of the task.
+		 */
+		@NotNull Priority priority;
+
+		/**
+		 * Whether the task builds modules or changes the repositories, and
+		 * so must not overlap a {@link BuildOnSave} rebuild.
+		 */
+		final boolean usesBuilder;
+
+		/**
+		 * The order in which this task was submitted.
+		 */
+		final long sequence;
+
+		/**
+		 * The {@link System#nanoTime()} at which this task was submitted.
+		 */
+		final long submitted = System.nanoTime();
+
+		/**
+		 * Construct a {@link QueuedTask}.
+		 *
+		 * @param key
+		 *        The coalescing key, or {@code null}.
+		 * @param task
+		 *        The {@link Backgroundable} to run.
+		 * @param priority
+		 *        The {@link Priority} of the task.
+		 * @param usesBuilder
+		 *        Whether the task builds modules or changes the
+		 *        repositories.
+		 * @param sequence
+		 *        The order in which the task was submitted.
+		 */
+		QueuedTask (
+			final @Nullable String key,
+			final @NotNull Backgroundable task,
+			final @NotNull Priority priority,
+			final boolean usesBuilder,
+			final long sequence)
+		{
+			this.key = key;
+			this.task = task;
+			this.priority = priority;
+			this.usesBuilder = usesBuilder;
+			this.sequence = sequence;
+		}
+	}
+
+	/**
+	 * The {@link AvailComponent} whose tasks are run.
+	 */
+	private final @NotNull AvailComponent component;
+
+	/**
+	 * The pending {@link QueuedTask}s. Guarded by {@code this}.
+	 */
+	private final @NotNull PriorityQueue<QueuedTask> pending =
+		new PriorityQueue<>(
+			Comparator.<QueuedTask, Priority>comparing(t -> t.priority)
+				.thenComparingLong(t -> t.sequence));
+
+	/**
+	 * The pending {@link QueuedTask}s that have a key, by key. Guarded by
+	 * {@code this}.
+	 */
+	private final @NotNull Map<String, QueuedTask> pendingByKey =
+		new HashMap<>();
+
+	/**
+	 * The {@link QueuedTask} that is running, or {@code null} if none is. It
+	 * is set when the task is handed to the {@link ProgressManager} and
+	 * cleared when the task {@linkplain Backgroundable#onFinished() finishes}.
+	 * Guarded by {@code this}.
+	 */
+	private @Nullable QueuedTask running;
+
+	/**
+	 * The number of tasks submitted so far, used to order tasks of equal
+	 * priority. Guarded by {@code this}.
+	 */
+	private long submissions = 0;
+
+	/**
+	 * The number of tasks that have started. Guarded by {@code this}.
+	 */
+	private long started = 0;
+
+	/**
+	 * The number of submissions that were coalesced into a pending task.
+	 * Guarded by {@code this}.
+	 */
+	private long coalescedCount = 0;
+
+	/**
+	 * The total time, in nanoseconds, that started tasks spent waiting.
+	 * Guarded by {@code this}.
+	 */
+	private long totalWait = 0;
+
+	/**
+	 * The longest time, in nanoseconds, that a started task spent waiting.
+	 * Guarded by {@code this}.
+	 */
+	private long maximumWait = 0;
+
+	/**
+	 * Submit a task that builds modules or changes the repositories, to run
+	 * when every task ahead of it has finished. It {@linkplain
+	 * BuildOnSave#foregroundBuildStarting() preempts} build-on-save while it
+	 * runs.
+	 *
+	 * @param key
+	 *        The key used to coalesce this task with an identical pending
+	 *        one, or {@code null} if it must always run.
+	 * @param priority
+	 *        The {@link Priority} of the task.
+	 * @param task
+	 *        The {@link Backgroundable} to run.
+	 */
+	public void submit (
+		final @Nullable String key,
+		final @NotNull Priority priority,
+		final @NotNull Backgroundable task)
+	{
+		submit(key, priority, true, task);
+	}
+
+	/**
+	 * Submit a task to run when every task ahead of it has finished.
+	 *
+	 * @param key
+	 *        The key used to coalesce this task with an identical pending
+	 *        one, or {@code null} if it must always run.
+	 * @param priority
+	 *        The {@link Priority} of the task.
+	 * @param usesBuilder
+	 *        Whether the task builds modules or changes the repositories, and
+	 *        so must preempt build-on-save while it runs.
+	 * @param task
+	 *        The {@link Backgroundable} to run.
+	 */
+	public void submit (
+		final @Nullable String key,
+		final @NotNull Priority priority,
+		final boolean usesBuilder,
+		final @NotNull Backgroundable task)
+	{
+		synchronized (this)
+		{
+			final QueuedTask existing =
+				key == null ? null : pendingByKey.get(key);
+			if (existing != null)
+			{
+				existing.coalesced.add(task);
+				coalescedCount++;
+				if (priority.compareTo(existing.priority) < 0)
+				{
+					pending.remove(existing);
+					existing.priority = priority;
+					pending.add(existing);
+				}
+				return;
+			}
+			final QueuedTask queued =
+				new QueuedTask(
+					key, task, priority, usesBuilder, submissions++);
+			pending.add(queued);
+			if (key != null)
+			{
+				pendingByKey.put(key, queued);
+			}
+		}
+		startNext();
+	}
+
+	/**
+	 * Start the next pending task, on the UI thread, if no task is running.
+	 */
+	private void startNext ()
+	{
+		// Progress windows are created on the UI thread. Nothing is claimed
+		// until then, so a project disposed in the meantime cannot leave the
+		// queue looking busy.
+		ApplicationManager.getApplication().invokeLater(this::launchNext);
+	}
+
+	/**
+	 * Hand the next pending task to the {@link ProgressManager} if no task is
+	 * running. This runs on the UI thread.
+	 */
+	private void launchNext ()
+	{
+		final QueuedTask next;
+		synchronized (this)
+		{
+			if (running != null || pending.isEmpty()
+				|| component.getProject().isDisposed())
+			{
+				return;
+			}
+			next = pending.remove();
+			if (next.key != null)
+			{
+				pendingByKey.remove(next.key);
+			}
+			running = next;
+			final long wait = System.nanoTime() - next.submitted;
+			started++;
+			totalWait += wait;
+			maximumWait = Math.max(maximumWait, wait);
+			if (wait / 1_000_000L > longWait)
+			{
+				log.info(String.format(
+					"Avail task \"%s\" waited %d ms to start",
+					next.task.getTitle(),
+					wait / 1_000_000L));
+			}
+		}
+		ProgressManager.getInstance().runProcessWithProgressAsynchronously(
+			wrap(next),
+			new ProgressWindow(true, component.getProject()));
+	}
+
+	/**
+	 * Answer a {@link Backgroundable} that runs the given {@link
+	 * QueuedTask}, forwards its callbacks, and starts the next task when it
+	 * has finished, whether it succeeded, failed, or was canceled.
+	 *
+	 * @param queued
+	 *        The {@code QueuedTask}.
+	 * @return A {@code Backgroundable}.
+	 */
+	private @NotNull Backgroundable wrap (final @NotNull QueuedTask queued)
+	{
+		final Backgroundable task = queued.task;
+		return new Backgroundable(
+			component.getProject(),
+			task.getTitle(),
+			task.isCancellable())
+		{
+			@Override
+			public boolean shouldStartInBackground ()
+			{
+				return task.shouldStartInBackground();
+			}
+
+			@Override
+			public void run (final @NotNull ProgressIndicator indicator)
+			{
+				if (!queued.usesBuilder)
+				{
+					task.run(indicator);
+					return;
+				}
+				final BuildOnSave buildOnSave = component.buildOnSave();
+				buildOnSave.foregroundBuildStarting();
+				try
+				{
+					task.run(indicator);
+				}
+				finally
+				{
+					buildOnSave.foregroundBuildFinished();
+				}
+			}
+
+			@Override
+			public void onSuccess ()
+			{
+				task.onSuccess();
+				queued.coalesced.forEach(Backgroundable::onSuccess);
+			}
+
+			@Override
+			public void onCancel ()
+			{
+				task.onCancel();
+				queued.coalesced.forEach(Backgroundable::onCancel);
+			}
+
+			@Override
+			public void onThrowable (final @NotNull Throwable error)
+			{
+				task.onThrowable(error);
+				queued.coalesced.forEach(
+					coalesced -> coalesced.onThrowable(error));
+			}
+
+			@Override
+			public void onFinished ()
+			{
+				try
+				{
+					task.onFinished();
+					queued.coalesced.forEach(Backgroundable::onFinished);
+				}
+				finally
+				{
+					synchronized (AvailTaskQueue.this)
+					{
+						running = null;
+					}
+					startNext();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Answer the number of tasks waiting to start.
+	 *
+	 * @return The queue depth.
+	 */
+	public synchronized int depth ()
+	{
+		return pending.size();
+	}
+
+	/**
+	 * Answer whether a task is running.
+	 *
+	 * @return {@code true} if one is; {@code false} otherwise.
+	 */
+	public synchronized boolean isBusy ()
+	{
+		return running != null;
+	}
+
+	/**
+	 * Answer the average time, in milliseconds, that started tasks waited
+	 * before starting.
+	 *
+	 * @return The average wait.
+	 */
+	private synchronized long averageWaitMillis ()
+	{
+		return started == 0 ? 0 : totalWait / started / 1_000_000L;
+	}
+
+	/**
+	 * Answer the longest time, in milliseconds, that a started task waited
+	 * before starting.
+	 *
+	 * @return The maximum wait.
+	 */
+	private synchronized long maximumWaitMillis ()
+	{
+		return maximumWait / 1_000_000L;
+	}
+
+	/**
+	 * Answer a one-line summary of the queue's metrics, for the Build
+	 * Progress tool window.
+	 *
+	 * @return A {@code String}.
+	 */
+	public synchronized @NotNull String metrics ()
+	{
+		return String.format(
+			"depth %d, %s, %d started, %d coalesced, "
+				+ "wait avg %d ms / max %d ms",
+			pending.size(),
+			running == null ? "idle" : "running \""
+				+ running.task.getTitle() + "\"",
+			started,
+			coalescedCount,
+			averageWaitMillis(),
+			maximumWaitMillis());
+	}
+
+	/**
+	 * Construct an {@link AvailTaskQueue}.
+	 *
+	 * @param component
+	 *        The {@link AvailComponent} whose tasks are run.
+	 */
+	AvailTaskQueue (final @NotNull AvailComponent component)
+	{
+		this.component = component;
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * ModuleStatus.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.core;
+import com.avail.builder.AvailBuilder;
+import com.avail.persistence.IndexedRepositoryManager.ModuleVersion;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@code ModuleStatus} describes the state of an Avail module relative to
+ * its repository and the running {@link AvailBuilder}.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public enum ModuleStatus
+{
+	/**
+	 * The repository holds a {@link ModuleVersion} for the module's current
+	 * source, so building it only loads it.
+	 */
+	UP_TO_DATE("up to date"),
+
+	/**
+	 * The repository holds no {@link ModuleVersion} for the module's current
+	 * source, so building it compiles it.
+	 */
+	STALE("stale"),
+
+	/**
+	 * The module is loaded in the {@link AvailBuilder}.
+	 */
+	LOADED("loaded"),
+
+	/**
+	 * The most recent attempt to build the module failed.
+	 */
+	FAILED("failed");
+
+	/**
+	 * The text shown next to modules with this status.
+	 */
+	public final @NotNull String label;
+
+	/**
+	 * Construct a {@link ModuleStatus}.
+	 *
+	 * @param label
+	 *        The text shown next to modules with this status.
+	 */
+	ModuleStatus (final @NotNull String label)
+	{
+		this.label = label;
+	}
+}
@@ -0,0 +1,620 @@
+/*
+ * ModuleStatusService.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.core;
+import com.avail.builder.ModuleNameResolver;
+import com.avail.builder.ResolvedModuleName;
+import com.intellij.ide.projectView.ProjectView;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileEditor.ex.FileEditorManagerEx;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vcs.FileStatusManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.Alarm;
+import org.availlang.plugin.core.utility.CompileTimeStore.Timing;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@code ModuleStatusService} computes the {@link ModuleStatus} of Avail
+ * modules on a single low-priority background thread, one module at a time,
+ * as they are asked about. Results are remembered until something that could
+ * change them happens: a module is loaded or unloaded, its source changes, or
+ * a build of it fails. Only the modules affected by a change are forgotten.
+ * Whenever statuses change, the project view nodes and editor tabs of just
+ * the affected files are repainted.
+ *
+ * <p>
+ * The service also remembers the {@link Decoration} of each {@link
+ * VirtualFile} that the views ask about, so that repainting them never
+ * resolves a module name or looks up a compile time.
+ * </p>
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class ModuleStatusService
+{
+	/**
+	 * The {@link Logger} for failures to compute a status.
+	 */
+	private static final @NotNull Logger log =
+		Logger.getInstance(ModuleStatusService.class);
+
+	/**
+	 * The delay, in milliseconds, used to coalesce repaints of the project
+	 * view.
+	 */
+	private static final int repaintDelay = 300;
+
+	/**
+	 * The {@link AvailComponent} whose modules are described.
+	 */
+	private final @NotNull AvailComponent component;
+
+	/**
+	 * A {@code Decoration} is what the views show for a {@link VirtualFile}
+	 * that represents an Avail module or package, apart from its {@link
+	 * ModuleStatus}.
+	 */
+	public static final class Decoration
+	{
+		/**
+		 * The {@link ResolvedModuleName} of the module, or of the package
+		 * representative.
+		 */
+		public final @NotNull ResolvedModuleName name;
+
+		/**
+		 * The {@link Timing} of the module's most recent compilation, or
+		 * {@code null} if it has not been timed.
+		 */
+		public final @Nullable Timing timing;
+
+		/**
+		 * Construct a {@link Decoration}.
+		 *
+		 * @param name
+		 *        The {@link ResolvedModuleName} of the module.
+		 * @param timing
+		 *        The {@link Timing} of its most recent compilation, or
+		 *        {@code null} if it has not been timed.
+		 */
+		Decoration (
+			final @NotNull ResolvedModuleName name,
+			final @Nullable Timing timing)
+		{
+			this.name = name;
+			this.timing = timing;
+		}
+	}
+
+	/**
+	 * The {@link Map} from each {@link VirtualFile} that the views have asked
+	 * about to its {@link Decoration}. An entry is forgotten when its module
+	 * changes, is compiled, or is loaded or unloaded.
+	 */
+	private final @NotNull Map<VirtualFile, Decoration> decorations =
+		new ConcurrentHashMap<>();
+
+	/**
+	 * The {@link Map} from {@linkplain ResolvedModuleName#qualifiedName()
+	 * qualified module name} to the computed {@link ModuleStatus}.
+	 */
+	private final @NotNull Map<String, ModuleStatus> statusMap =
+		new ConcurrentHashMap<>();
+
+	/**
+	 * The {@link Map} from the qualified names of the modules whose last
+	 * build failed to the digest of the source that failed, or an empty array
+	 * if that could not be read. A module stops being reported as failed once
+	 * its source digest changes.
+	 */
+	private final @NotNull Map<String, byte[]> failed =
+		new ConcurrentHashMap<>();
+
+	/**
+	 * The modules waiting for their status to be computed, in request order.
+	 * Guarded by itself.
+	 */
+	private final @NotNull Map<String, ResolvedModuleName> pending =
+		new LinkedHashMap<>();
+
+	/**
+	 * The single low-priority thread that computes statuses.
+	 */
+	private final @NotNull ExecutorService executor =
+		Executors.newSingleThreadExecutor(runnable ->
+		{
+			final Thread thread =
+				new Thread(runnable, "Avail module status");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+
+	/**
+	 * The {@link Alarm} that coalesces repaints of the views.
+	 */
+	private final @NotNull Alarm repaintAlarm;
+
+	/**
+	 * The {@link VirtualFile}s whose {@link Decoration}s were forgotten since
+	 * the views were last repainted.
+	 */
+	private final @NotNull Set<VirtualFile> dirtyFiles =
+		ConcurrentHashMap.newKeySet();
+
+	/**
+	 * The qualified names of the modules whose {@link ModuleStatus}es
+	 * changed since the views were last repainted.
+	 */
+	private final @NotNull Set<String> dirtyNames =
+		ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Whether the whole project view must be refreshed at the next repaint,
+	 * because every status was forgotten.
+	 */
+	private final @NotNull AtomicBoolean dirtyAll = new AtomicBoolean(false);
+
+	/**
+	 * Answer the {@link ModuleStatus} of the named module if it is known. If
+	 * it is not, schedule it to be computed; the views are repainted when it
+	 * is.
+	 *
+	 * @param name
+	 *        The {@link ResolvedModuleName} of the module.
+	 * @return The status, or {@code null} if it is not yet known.
+	 */
+	public @Nullable ModuleStatus status (
+		final @NotNull ResolvedModuleName name)
+	{
+		final String key = name.qualifiedName();
+		final ModuleStatus status = statusMap.get(key);
+		if (status == null)
+		{
+			schedule(name);
+		}
+		return status;
+	}
+
+	/**
+	 * Answer the {@link Decoration} of the Avail module or package that the
+	 * given file represents, computing it only the first time it is asked
+	 * for. A package directory is represented by its representative module.
+	 *
+	 * @param file
+	 *        The {@link VirtualFile}.
+	 * @return The {@code Decoration}, or {@code null} if the file does not
+	 *         represent an Avail module.
+	 */
+	public @Nullable Decoration decoration (final @Nullable VirtualFile file)
+	{
+		if (file == null || !file.isValid())
+		{
+			return null;
+		}
+		final Decoration known = decorations.get(file);
+		if (known != null)
+		{
+			return known;
+		}
+		final String fileName = file.getName();
+		if (!fileName.endsWith(ModuleNameResolver.availExtension))
+		{
+			return null;
+		}
+		if (file.isDirectory() && file.findChild(fileName) == null)
+		{
+			return null;
+		}
+		final ResolvedModuleName name = component.resolvedModuleNameForPath(
+			file.isDirectory()
+				? file.getPath() + "/" + fileName
+				: file.getPath());
+		if (name == null)
+		{
+			return null;
+		}
+		final Decoration decoration =
+			new Decoration(name, component.lastCompileTiming(name));
+		decorations.put(file, decoration);
+		return decoration;
+	}
+
+	/**
+	 * Forget the {@link Decoration}s of the named module, or of every module
+	 * in the named package, and mark their files as needing a repaint.
+	 *
+	 * @param qualifiedName
+	 *        The qualified name of the module or package.
+	 */
+	private void forgetDecorations (final @NotNull String qualifiedName)
+	{
+		final String prefix = qualifiedName + "/";
+		decorations.entrySet().removeIf(entry ->
+		{
+			final String key = entry.getValue().name.qualifiedName();
+			if (key.equals(qualifiedName) || key.startsWith(prefix))
+			{
+				dirtyFiles.add(entry.getKey());
+				return true;
+			}
+			return false;
+		});
+	}
+
+	/**
+	 * Record that the named module has just been compiled, so its {@link
+	 * Decoration} shows the new compile time.
+	 *
+	 * @param name
+	 *        The {@link ResolvedModuleName} of the module.
+	 */
+	void compiled (final @NotNull ResolvedModuleName name)
+	{
+		forgetDecorations(name.qualifiedName());
+	}
+
+	/**
+	 * Forget the status of the named module and compute it again.
+	 *
+	 * @param name
+	 *        The {@link ResolvedModuleName} of the module.
+	 */
+	public void invalidate (final @NotNull ResolvedModuleName name)
+	{
+		statusMap.remove(name.qualifiedName());
+		schedule(name);
+	}
+
+	/**
+	 * Forget every status, which will be recomputed as it is asked for.
+	 */
+	public void invalidateAll ()
+	{
+		statusMap.clear();
+		decorations.clear();
+		dirtyAll.set(true);
+		repaintLater();
+	}
+
+	/**
+	 * The source of a module, or a package directory, has changed. Forget
+	 * the status of that module, or of every module in that package, and
+	 * compute the module's status again if it still exists.
+	 *
+	 * @param qualifiedName
+	 *        The qualified name that the changed path denotes.
+	 * @param name
+	 *        The {@link ResolvedModuleName} of the changed module, or {@code
+	 *        null} if the path no longer denotes a module.
+	 */
+	public void sourceChanged (
+		final @NotNull String qualifiedName,
+		final @Nullable ResolvedModuleName name)
+	{
+		final String prefix = qualifiedName + "/";
+		final boolean removed = statusMap.keySet().removeIf(
+			key -> key.equals(qualifiedName) || key.startsWith(prefix));
+		// The file may have been renamed or moved, so its name is stale too.
+		forgetDecorations(qualifiedName);
+		if (name != null)
+		{
+			invalidate(name);
+		}
+		else if (removed)
+		{
+			repaintLater();
+		}
+	}
+
+	/**
+	 * Record that a build of the named module failed.
+	 *
+	 * @param name
+	 *        The {@link ResolvedModuleName} of the module.
+	 */
+	public void buildFailed (final @NotNull ResolvedModuleName name)
+	{
+		failed.put(name.qualifiedName(), digestOf(name));
+		update(name.qualifiedName(), ModuleStatus.FAILED);
+	}
+
+	/**
+	 * Record that the named module was loaded or unloaded.
+	 *
+	 * @param name
+	 *        The {@link ResolvedModuleName} of the module.
+	 * @param isLoaded
+	 *        {@code true} if it was loaded; {@code false} if it was unloaded.
+	 */
+	void loadingChanged (
+		final @NotNull ResolvedModuleName name,
+		final boolean isLoaded)
+	{
+		forgetDecorations(name.qualifiedName());
+		if (isLoaded)
+		{
+			failed.remove(name.qualifiedName());
+			update(name.qualifiedName(), ModuleStatus.LOADED);
+		}
+		else
+		{
+			invalidate(name);
+		}
+	}
+
+	/**
+	 * Add the named module to the {@link #pending} work, starting a task to
+	 * compute it unless it was already waiting.
+	 *
+	 * @param name
+	 *        The {@link ResolvedModuleName} of the module.
+	 */
+	private void schedule (final @NotNull ResolvedModuleName name)
+	{
+		synchronized (pending)
+		{
+			if (pending.putIfAbsent(name.qualifiedName(), name) != null)
+			{
+				return;
+			}
+		}
+		executor.execute(this::computeNext);
+	}
+
+	/**
+	 * Compute the status of the oldest {@link #pending} module.
+	 */
+	private void computeNext ()
+	{
+		final ResolvedModuleName name;
+		synchronized (pending)
+		{
+			if (pending.isEmpty())
+			{
+				return;
+			}
+			final String key = pending.keySet().iterator().next();
+			name = pending.remove(key);
+		}
+		if (component.getProject().isDisposed())
+		{
+			return;
+		}
+		final ModuleStatus status;
+		try
+		{
+			if (component.isLoaded(name))
+			{
+				status = ModuleStatus.LOADED;
+			}
+			else if (hasFailed(name))
+			{
+				status = ModuleStatus.FAILED;
+			}
+			else
+			{
+				status = component.isUpToDate(name)
+					? ModuleStatus.UP_TO_DATE
+					: ModuleStatus.STALE;
+			}
+		}
+		catch (final Exception e)
+		{
+			log.debug("Could not compute the status of " + name, e);
+			return;
+		}
+		update(name.qualifiedName(), status);
+	}
+
+	/**
+	 * Answer the digest of the named module's current source.
+	 *
+	 * @param name
+	 *        The {@link ResolvedModuleName} of the module.
+	 * @return The digest, or an empty array if the source could not be read.
+	 */
+	private @NotNull byte[] digestOf (final @NotNull ResolvedModuleName name)
+	{
+		final byte[] digest = component.sourceDigest(name);
+		return digest == null ? new byte[0] : digest;
+	}
+
+	/**
+	 * Answer whether the last build of the named module failed and its
+	 * source has not changed since. A module whose source has changed is no
+	 * longer considered failed.
+	 *
+	 * @param name
+	 *        The {@link ResolvedModuleName} of the module.
+	 * @return {@code true} if the failure still stands; {@code false}
+	 *         otherwise.
+	 */
+	private boolean hasFailed (final @NotNull ResolvedModuleName name)
+	{
+		final byte[] failedDigest = failed.get(name.qualifiedName());
+		if (failedDigest == null)
+		{
+			return false;
+		}
+		if (Arrays.equals(failedDigest, digestOf(name)))
+		{
+			return true;
+		}
+		failed.remove(name.qualifiedName(), failedDigest);
+		return false;
+	}
+
+	/**
+	 * Record a {@link ModuleStatus}, repainting the views if it changed.
+	 *
+	 * @param key
+	 *        The qualified module name.
+	 * @param status
+	 *        The new status.
+	 */
+	private void update (
+		final @NotNull String key,
+		final @NotNull ModuleStatus status)
+	{
+		if (statusMap.put(key, status) != status)
+		{
+			dirtyNames.add(key);
+			repaintLater();
+		}
+	}
+
+	/**
+	 * Repaint the project view nodes and editor tabs of the {@linkplain
+	 * #dirtyFiles dirty files} and of the {@linkplain #dirtyNames modules
+	 * whose statuses changed} soon, coalescing requests made in quick
+	 * succession. Each file is repainted through the {@link
+	 * FileStatusManager}, which updates just that file's node and tab; the
+	 * whole project view is only refreshed after {@link #invalidateAll()}.
+	 */
+	private void repaintLater ()
+	{
+		if (repaintAlarm.isDisposed())
+		{
+			return;
+		}
+		repaintAlarm.cancelAllRequests();
+		repaintAlarm.addRequest(
+			() ->
+			{
+				final Project project = component.getProject();
+				if (project.isDisposed())
+				{
+					return;
+				}
+				final FileEditorManagerEx editorManager =
+					FileEditorManagerEx.getInstanceEx(project);
+				if (dirtyAll.getAndSet(false))
+				{
+					dirtyFiles.clear();
+					dirtyNames.clear();
+					ProjectView.getInstance(project).refresh();
+					for (final VirtualFile file : editorManager.getOpenFiles())
+					{
+						editorManager.updateFilePresentation(file);
+					}
+					return;
+				}
+				final Set<VirtualFile> files = new LinkedHashSet<>();
+				drain(dirtyFiles, files);
+				final Set<String> names = new LinkedHashSet<>();
+				drain(dirtyNames, names);
+				if (!names.isEmpty())
+				{
+					decorations.forEach((file, decoration) ->
+					{
+						if (names.contains(decoration.name.qualifiedName()))
+						{
+							files.add(file);
+						}
+					});
+				}
+				final FileStatusManager statusManager =
+					FileStatusManager.getInstance(project);
+				for (final VirtualFile file : files)
+				{
+					if (file.isValid())
+					{
+						statusManager.fileStatusChanged(file);
+						if (editorManager.isFileOpen(file))
+						{
+							editorManager.updateFilePresentation(file);
+						}
+					}
+				}
+			},
+			repaintDelay);
+	}
+
+	/**
+	 * Move every element of a concurrent set into a collection. Elements
+	 * added meanwhile are either moved or left for the next drain.
+	 *
+	 * @param source
+	 *        The concurrent {@link Set} to empty.
+	 * @param target
+	 *        The {@link Collection} that receives the elements.
+	 * @param <T>
+	 *        The type of the elements.
+	 */
+	private static <T> void drain (
+		final @NotNull Set<T> source,
+		final @NotNull Collection<T> target)
+	{
+		for (final T element : source)
+		{
+			if (source.remove(element))
+			{
+				target.add(element);
+			}
+		}
+	}
+
+	/**
+	 * Stop computing statuses.
+	 */
+	void dispose ()
+	{
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Construct a {@link ModuleStatusService}.
+	 *
+	 * @param component
+	 *        The {@link AvailComponent} whose modules are described.
+	 */
+	ModuleStatusService (final @NotNull AvailComponent component)
+	{
+		this.component = component;
+		this.repaintAlarm = new Alarm(
+			Alarm.ThreadToUse.SWING_THREAD, component.getProject());
+	}
+}
@@ -0,0 +1,437 @@
+/*
+ * ReverseDependencyIndex.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.core;
+import com.avail.builder.AvailBuilder;
+import com.avail.builder.AvailBuilder.LoadedModule;
+import com.avail.builder.ModuleName;
+import com.avail.builder.ResolvedModuleName;
+import com.avail.builder.UnresolvedDependencyException;
+import com.avail.persistence.IndexedRepositoryManager.ModuleArchive;
+import com.avail.persistence.IndexedRepositoryManager.ModuleVersion;
+import com.avail.persistence.IndexedRepositoryManager.ModuleVersionKey;
+import org.availlang.plugin.core.utility.CompileTimeStore.Timing;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@code ReverseDependencyIndex} records, for every compiled Avail module,
+ * which modules import it, using the {@linkplain ModuleVersion#getImports()
+ * import data} stored in the repositories. It is populated by a single
+ * {@linkplain AvailBuilder#traceDirectories trace} the first time it is
+ * needed and kept current as modules are loaded by later builds.
+ *
+ * <p>
+ * The index answers which modules would have to be recompiled if a module's
+ * source changed, and how much source that represents, without building
+ * anything.
+ * </p>
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class ReverseDependencyIndex
+{
+	/**
+	 * An {@code Impact} summarizes the modules that an edit to a module would
+	 * invalidate.
+	 */
+	public static final class Impact
+	{
+		/**
+		 * The {@linkplain ResolvedModuleName#qualifiedName() qualified names}
+		 * of the invalidated modules, starting with the edited module itself
+		 * and proceeding outward through its dependents.
+		 */
+		public final @NotNull List<String> modules;
+
+		/**
+		 * The total size in bytes of the invalidated modules' source, as
+		 * recorded when they were compiled.
+		 */
+		public final long sourceBytes;
+
+		/**
+		 * The total time in milliseconds that the invalidated modules took to
+		 * compile the last time each was compiled.
+		 */
+		public final long compileMillis;
+
+		/**
+		 * The number of invalidated modules whose compile time is unknown.
+		 */
+		public final int untimedModules;
+
+		/**
+		 * Construct an {@link Impact}.
+		 *
+		 * @param modules
+		 *        The qualified names of the invalidated modules.
+		 * @param sourceBytes
+		 *        The total size of their source.
+		 * @param compileMillis
+		 *        Their total recorded compile time.
+		 * @param untimedModules
+		 *        The number of them whose compile time is unknown.
+		 */
+		Impact (
+			final @NotNull List<String> modules,
+			final long sourceBytes,
+			final long compileMillis,
+			final int untimedModules)
+		{
+			this.modules = Collections.unmodifiableList(modules);
+			this.sourceBytes = sourceBytes;
+			this.compileMillis = compileMillis;
+			this.untimedModules = untimedModules;
+		}
+	}
+
+	/**
+	 * The {@link AvailComponent} whose modules are indexed.
+	 */
+	private final @NotNull AvailComponent component;
+
+	/**
+	 * The {@link Map} from each module's qualified name to the qualified names
+	 * of the modules it imports.
+	 */
+	private final @NotNull Map<String, Set<String>> importsMap =
+		new ConcurrentHashMap<>();
+
+	/**
+	 * The {@link Map} from each module's qualified name to the qualified names
+	 * of the modules that import it.
+	 */
+	private final @NotNull Map<String, Set<String>> dependentsMap =
+		new ConcurrentHashMap<>();
+
+	/**
+	 * The {@link Map} from each module's qualified name to the size of its
+	 * source, in bytes.
+	 */
+	private final @NotNull Map<String, Long> sizeMap =
+		new ConcurrentHashMap<>();
+
+	/**
+	 * The {@link Map} from each module's qualified name to its {@link
+	 * ResolvedModuleName}.
+	 */
+	private final @NotNull Map<String, ResolvedModuleName> nameMap =
+		new ConcurrentHashMap<>();
+
+	/**
+	 * Has the index been populated from the repositories?
+	 */
+	private volatile boolean isBuilt = false;
+
+	/**
+	 * Has the index been populated from the repositories?
+	 *
+	 * @return {@code true} if it has; {@code false} otherwise.
+	 */
+	public boolean isBuilt ()
+	{
+		return isBuilt;
+	}
+
+	/**
+	 * Populate the index from the repositories if that has not already been
+	 * done. This traces every repository, so call it off the UI thread.
+	 */
+	public void ensureBuilt ()
+	{
+		if (isBuilt)
+		{
+			return;
+		}
+		synchronized (this)
+		{
+			if (isBuilt)
+			{
+				return;
+			}
+			component.builder().traceDirectories(
+				(resolvedName, moduleVersion) ->
+				{
+					assert resolvedName != null;
+					assert moduleVersion != null;
+					record(resolvedName, moduleVersion);
+				});
+			isBuilt = true;
+		}
+	}
+
+	/**
+	 * Forget everything, so that the next query traces the repositories
+	 * again.
+	 */
+	public synchronized void clear ()
+	{
+		importsMap.clear();
+		dependentsMap.clear();
+		nameMap.clear();
+		sizeMap.clear();
+		isBuilt = false;
+	}
+
+	/**
+	 * Update the index for a module that has just been loaded, if the index
+	 * has been built.
+	 *
+	 * @param loadedModule
+	 *        The {@link LoadedModule}.
+	 */
+	void moduleLoaded (final @NotNull LoadedModule loadedModule)
+	{
+		if (!isBuilt)
+		{
+			return;
+		}
+		final ResolvedModuleName name = loadedModule.name;
+		final ModuleArchive archive =
+			name.repository().getArchive(name.rootRelativeName());
+		final ModuleVersion version = archive.getVersion(
+			new ModuleVersionKey(name, loadedModule.sourceDigest));
+		if (version != null)
+		{
+			record(name, version);
+		}
+	}
+
+	/**
+	 * Record the imports and size of a compiled module, replacing whatever
+	 * was previously recorded for it.
+	 *
+	 * @param name
+	 *        The {@link ResolvedModuleName} of the module.
+	 * @param version
+	 *        Its {@link ModuleVersion}.
+	 */
+	private void record (
+		final @NotNull ResolvedModuleName name,
+		final @NotNull ModuleVersion version)
+	{
+		final String key = name.qualifiedName();
+		final Set<String> imports = new HashSet<>();
+		for (final String localName : version.getImports())
+		{
+			try
+			{
+				final ModuleName sibling = name.asSibling(localName);
+				imports.add(component.resolver().resolve(sibling, name)
+					.qualifiedName());
+			}
+			catch (final UnresolvedDependencyException e)
+			{
+				// The import no longer resolves; a build will report it.
+			}
+		}
+		replaceImports(key, imports, importsMap, dependentsMap);
+		sizeMap.put(key, version.getModuleSize());
+		nameMap.put(key, name);
+	}
+
+	/**
+	 * Record the imports of a module, replacing whatever was previously
+	 * recorded for it, and update the reverse edges to match.
+	 *
+	 * @param key
+	 *        The qualified name of the module.
+	 * @param imports
+	 *        The qualified names of the modules it imports.
+	 * @param importsMap
+	 *        The {@link Map} from each module to its imports.
+	 * @param dependentsMap
+	 *        The {@link Map} from each module to its direct dependents.
+	 */
+	static void replaceImports (
+		final @NotNull String key,
+		final @NotNull Set<String> imports,
+		final @NotNull Map<String, Set<String>> importsMap,
+		final @NotNull Map<String, Set<String>> dependentsMap)
+	{
+		final Set<String> oldImports = importsMap.put(key, imports);
+		if (oldImports != null)
+		{
+			for (final String oldImport : oldImports)
+			{
+				final Set<String> dependents = dependentsMap.get(oldImport);
+				if (dependents != null)
+				{
+					dependents.remove(key);
+				}
+			}
+		}
+		for (final String anImport : imports)
+		{
+			dependentsMap.computeIfAbsent(
+				anImport, k -> ConcurrentHashMap.newKeySet()).add(key);
+		}
+	}
+
+	/**
+	 * Answer the qualified names of the modules that directly import the
+	 * named module.
+	 *
+	 * @param name
+	 *        The {@link ResolvedModuleName} of the module.
+	 * @return The direct dependents.
+	 */
+	public @NotNull Set<String> directDependents (
+		final @NotNull ResolvedModuleName name)
+	{
+		final Set<String> dependents =
+			dependentsMap.get(name.qualifiedName());
+		return dependents == null
+			? Collections.emptySet()
+			: Collections.unmodifiableSet(new HashSet<>(dependents));
+	}
+
+	/**
+	 * Answer the qualified names of the named module and of every module that
+	 * depends on it, directly or indirectly, in breadth-first order.
+	 *
+	 * @param name
+	 *        The {@link ResolvedModuleName} of the module.
+	 * @return The module and its transitive dependents.
+	 */
+	public @NotNull List<String> transitiveDependents (
+		final @NotNull ResolvedModuleName name)
+	{
+		return transitiveDependents(name.qualifiedName(), dependentsMap);
+	}
+
+	/**
+	 * Answer the named module and every module that depends on it, directly
+	 * or indirectly, in breadth-first order.
+	 *
+	 * @param qualifiedName
+	 *        The qualified name of the module.
+	 * @param dependentsMap
+	 *        The {@link Map} from each module to its direct dependents.
+	 * @return The module and its transitive dependents.
+	 */
+	static @NotNull List<String> transitiveDependents (
+		final @NotNull String qualifiedName,
+		final @NotNull Map<String, Set<String>> dependentsMap)
+	{
+		final Set<String> visited = new LinkedHashSet<>();
+		final Deque<String> queue = new ArrayDeque<>();
+		queue.add(qualifiedName);
+		while (!queue.isEmpty())
+		{
+			final String next = queue.removeFirst();
+			if (visited.add(next))
+			{
+				final Set<String> dependents = dependentsMap.get(next);
+				if (dependents != null)
+				{
+					queue.addAll(dependents);
+				}
+			}
+		}
+		return new ArrayList<>(visited);
+	}
+
+	/**
+	 * Answer the recorded source size of the named module.
+	 *
+	 * @param qualifiedName
+	 *        The qualified module name.
+	 * @return The size in bytes, or {@code null} if it has not been compiled.
+	 */
+	public @Nullable Long sourceSize (final @NotNull String qualifiedName)
+	{
+		return sizeMap.get(qualifiedName);
+	}
+
+	/**
+	 * Answer the {@link Impact} of editing the named module: it and every
+	 * module that depends on it would have to be recompiled. Compile times
+	 * come from the roots' {@linkplain AvailComponent#lastCompileTiming
+	 * compile time stores}.
+	 *
+	 * @param name
+	 *        The {@link ResolvedModuleName} of the edited module.
+	 * @return The {@code Impact}.
+	 */
+	public @NotNull Impact impactOf (final @NotNull ResolvedModuleName name)
+	{
+		final List<String> modules = transitiveDependents(name);
+		long bytes = 0;
+		long millis = 0;
+		int untimed = 0;
+		for (final String module : modules)
+		{
+			final Long size = sizeMap.get(module);
+			if (size != null)
+			{
+				bytes += size;
+			}
+			// Every dependent was recorded; only the edited module may not
+			// have been.
+			final ResolvedModuleName resolved =
+				nameMap.getOrDefault(module, name);
+			final Timing timing = component.lastCompileTiming(resolved);
+			if (timing != null)
+			{
+				millis += timing.millis;
+			}
+			else
+			{
+				untimed++;
+			}
+		}
+		return new Impact(modules, bytes, millis, untimed);
+	}
+
+	/**
+	 * Construct a {@link ReverseDependencyIndex}.
+	 *
+	 * @param component
+	 *        The {@link AvailComponent} whose modules are indexed.
+	 */
+	ReverseDependencyIndex (final @NotNull AvailComponent component)
+	{
+		this.component = component;
+	}
+}
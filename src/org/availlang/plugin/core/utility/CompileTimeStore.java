@@ -0,0 +1,312 @@
+/*
+ * CompileTimeStore.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.core.utility;
+import com.avail.builder.ModuleRoot;
+import com.avail.builder.ResolvedModuleName;
+import com.avail.persistence.IndexedRepositoryManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@code CompileTimeStore} remembers how long each module of a single
+ * {@link ModuleRoot} took to compile the last time it was compiled, along
+ * with the source digest and size it was compiled from. Builds use it to
+ * predict how long the modules that still need compiling will take.
+ *
+ * <p>
+ * The store is kept next to the root's {@link IndexedRepositoryManager}
+ * file.
+ * </p>
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class CompileTimeStore
+{
+	/**
+	 * The suffix appended to the name of a repository file to produce the
+	 * name of its {@link CompileTimeStore} file.
+	 */
+	public static final @NotNull String fileSuffix = ".timings";
+
+	/**
+	 * The version of the store file format. Files with any other version are
+	 * ignored.
+	 */
+	private static final int formatVersion = 1;
+
+	/**
+	 * A {@code Timing} is the time a module took to compile from a
+	 * particular version of its source.
+	 */
+	public static final class Timing
+	{
+		/**
+		 * The digest of the source that was compiled.
+		 */
+		public final @NotNull byte[] digest;
+
+		/**
+		 * The size of the source that was compiled, in bytes.
+		 */
+		public final long size;
+
+		/**
+		 * The wall-clock compile time, in milliseconds.
+		 */
+		public final long millis;
+
+		/**
+		 * Construct a {@link Timing}.
+		 *
+		 * @param digest
+		 *        The digest of the source that was compiled.
+		 * @param size
+		 *        The size of the source, in bytes.
+		 * @param millis
+		 *        The compile time, in milliseconds.
+		 */
+		Timing (
+			final @NotNull byte[] digest,
+			final long size,
+			final long millis)
+		{
+			this.digest = digest;
+			this.size = size;
+			this.millis = millis;
+		}
+	}
+
+	/**
+	 * The {@link File} the store is kept in.
+	 */
+	private final @NotNull File storeFile;
+
+	/**
+	 * The {@link Map} from {@linkplain ResolvedModuleName#qualifiedName()
+	 * qualified module name} to its most recent {@link Timing}.
+	 */
+	private final @NotNull Map<String, Timing> timings =
+		new ConcurrentHashMap<>();
+
+	/**
+	 * Has the contents of this store changed since it was last {@linkplain
+	 * #save() saved}?
+	 */
+	private volatile boolean isDirty = false;
+
+	/**
+	 * Record the time a module took to compile.
+	 *
+	 * @param qualifiedName
+	 *        The qualified name of the module.
+	 * @param digest
+	 *        The digest of the source that was compiled.
+	 * @param size
+	 *        The size of the source, in bytes.
+	 * @param millis
+	 *        The compile time, in milliseconds.
+	 */
+	public void record (
+		final @NotNull String qualifiedName,
+		final @NotNull byte[] digest,
+		final long size,
+		final long millis)
+	{
+		timings.put(qualifiedName, new Timing(digest, size, millis));
+		isDirty = true;
+	}
+
+	/**
+	 * Answer the most recent {@link Timing} of the named module, whatever
+	 * source it was compiled from.
+	 *
+	 * @param qualifiedName
+	 *        The qualified name of the module.
+	 * @return The {@code Timing}, or {@code null} if the module has never
+	 *         been timed.
+	 */
+	public @Nullable Timing lastTiming (final @NotNull String qualifiedName)
+	{
+		return timings.get(qualifiedName);
+	}
+
+	/**
+	 * Answer the time the named module took to compile from the source with
+	 * the given digest.
+	 *
+	 * @param qualifiedName
+	 *        The qualified name of the module.
+	 * @param digest
+	 *        The source digest.
+	 * @return The compile time in milliseconds, or {@code null} if that
+	 *         source has not been timed.
+	 */
+	public @Nullable Long compileTime (
+		final @NotNull String qualifiedName,
+		final @NotNull byte[] digest)
+	{
+		final Timing timing = timings.get(qualifiedName);
+		return timing != null && Arrays.equals(timing.digest, digest)
+			? timing.millis
+			: null;
+	}
+
+	/**
+	 * Answer the average compile time per source byte over every timed
+	 * module, in milliseconds.
+	 *
+	 * @return The rate, or {@code 0} if nothing has been timed.
+	 */
+	public double millisPerByte ()
+	{
+		long bytes = 0;
+		long millis = 0;
+		for (final Timing timing : timings.values())
+		{
+			bytes += timing.size;
+			millis += timing.millis;
+		}
+		return bytes == 0 ? 0 : (double) millis / bytes;
+	}
+
+	/**
+	 * Read the store from its {@link #storeFile}.
+	 *
+	 * @return {@code true} if the store was read; {@code false} if there is
+	 *         no usable store file.
+	 */
+	public synchronized boolean load ()
+	{
+		timings.clear();
+		if (!storeFile.isFile())
+		{
+			return false;
+		}
+		try (final DataInputStream in = new DataInputStream(
+			new BufferedInputStream(new FileInputStream(storeFile))))
+		{
+			if (in.readInt() != formatVersion)
+			{
+				return false;
+			}
+			final int count = in.readInt();
+			for (int i = 0; i < count; i++)
+			{
+				final String name = in.readUTF();
+				final byte[] digest = new byte[in.readUnsignedByte()];
+				in.readFully(digest);
+				final long size = in.readLong();
+				final long millis = in.readLong();
+				timings.put(name, new Timing(digest, size, millis));
+			}
+			isDirty = false;
+			return true;
+		}
+		catch (final IOException e)
+		{
+			timings.clear();
+			return false;
+		}
+	}
+
+	/**
+	 * Write the store to its {@link #storeFile} if it has changed since it
+	 * was last read or written.
+	 */
+	public synchronized void save ()
+	{
+		if (!isDirty)
+		{
+			return;
+		}
+		isDirty = false;
+		final File temp = new File(storeFile.getPath() + ".tmp");
+		try
+		{
+			try (final DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(temp))))
+			{
+				final List<Map.Entry<String, Timing>> snapshot =
+					new ArrayList<>(timings.entrySet());
+				out.writeInt(formatVersion);
+				out.writeInt(snapshot.size());
+				for (final Map.Entry<String, Timing> mapEntry : snapshot)
+				{
+					final Timing timing = mapEntry.getValue();
+					out.writeUTF(mapEntry.getKey());
+					out.writeByte(timing.digest.length);
+					out.write(timing.digest);
+					out.writeLong(timing.size);
+					out.writeLong(timing.millis);
+				}
+			}
+			Files.move(
+				temp.toPath(),
+				storeFile.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (final IOException e)
+		{
+			isDirty = true;
+			//noinspection ResultOfMethodCallIgnored
+			temp.delete();
+		}
+	}
+
+	/**
+	 * Construct a {@link CompileTimeStore}.
+	 *
+	 * @param repositoryFile
+	 *        The {@link File} of the {@link IndexedRepositoryManager} whose
+	 *        modules are timed; the store is kept beside it.
+	 */
+	public CompileTimeStore (final @NotNull File repositoryFile)
+	{
+		this.storeFile = new File(repositoryFile.getPath() + fileSuffix);
+	}
+}
@@ -0,0 +1,429 @@
+/*
+ * EntryPointIndex.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.core.utility;
+import com.avail.builder.ModuleRoot;
+import com.avail.builder.ResolvedModuleName;
+import com.avail.linking.EntryPoint;
+import com.avail.persistence.IndexedRepositoryManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * An {@code EntryPointIndex} is the persistent index of the {@linkplain
+ * EntryPoint#methodName entry point names} of every module of a single
+ * {@link ModuleRoot}, keyed by {@linkplain ResolvedModuleName#qualifiedName()
+ * module name} and the digest of the source they were read from.
+ *
+ * <p>
+ * The index is stored next to the root's {@link IndexedRepositoryManager}
+ * file. It is updated incrementally whenever a module is compiled or loaded,
+ * and whenever a source file changes, so the entry point menus are answered
+ * from memory without reading any source, header, or repository. Modules
+ * without entry points are indexed too, so that a module whose digest still
+ * matches its source never has to be examined again.
+ * </p>
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class EntryPointIndex
+{
+	/**
+	 * The suffix appended to the name of a repository file to produce the
+	 * name of its {@link EntryPointIndex} file.
+	 */
+	public static final @NotNull String fileSuffix = ".entrypoints";
+
+	/**
+	 * The version of the index file format. Files with any other version
+	 * are ignored and rebuilt.
+	 */
+	private static final int formatVersion = 2;
+
+	/**
+	 * The {@link File} the index is stored in.
+	 */
+	private final @NotNull File indexFile;
+
+	/**
+	 * An {@code Entry} is the source digest and entry points of one module.
+	 */
+	private static final class Entry
+	{
+		/**
+		 * The digest of the source the entry points were read from.
+		 */
+		final @NotNull byte[] digest;
+
+		/**
+		 * The {@linkplain EntryPoint#methodName entry point names}.
+		 */
+		final @NotNull List<String> entryPoints;
+
+		/**
+		 * Construct an {@link Entry}.
+		 *
+		 * @param digest
+		 *        The digest of the source the entry points were read from.
+		 * @param entryPoints
+		 *        The {@linkplain EntryPoint#methodName entry point names}.
+		 */
+		Entry (
+			final @NotNull byte[] digest,
+			final @NotNull List<String> entryPoints)
+		{
+			this.digest = digest;
+			this.entryPoints = Collections.unmodifiableList(entryPoints);
+		}
+	}
+
+	/**
+	 * The {@link Map} from {@linkplain ResolvedModuleName#qualifiedName()
+	 * qualified module name} to {@link Entry}.
+	 */
+	private final @NotNull Map<String, Entry> entries =
+		new ConcurrentHashMap<>();
+
+	/**
+	 * Has the contents of this {@link EntryPointIndex} changed since it was
+	 * last {@linkplain #save() saved}?
+	 */
+	private volatile boolean isDirty = false;
+
+	/**
+	 * Does the index cover every module of its root? This is {@code true}
+	 * once it has been read from its file or {@linkplain #markComplete()
+	 * populated}, and {@code false} while it may still be missing modules.
+	 */
+	private volatile boolean isComplete;
+
+	/**
+	 * The {@link ModuleEntryPoints} of every indexed module that has entry
+	 * points, as last {@linkplain #moduleEntryPoints(Function) answered}, or
+	 * {@code null} if the index has changed since.
+	 */
+	private volatile @Nullable List<ModuleEntryPoints> moduleEntryPoints;
+
+	/**
+	 * Note that the index has changed.
+	 */
+	private void changed ()
+	{
+		isDirty = true;
+		moduleEntryPoints = null;
+	}
+
+	/**
+	 * Record the entry points of a module as they were read from the source
+	 * with the given digest.
+	 *
+	 * @param qualifiedName
+	 *        The {@linkplain ResolvedModuleName#qualifiedName() qualified
+	 *        module name}.
+	 * @param digest
+	 *        The digest of the module's source.
+	 * @param entryPoints
+	 *        The module's {@linkplain EntryPoint#methodName entry point
+	 *        names}, which may be empty.
+	 */
+	public void put (
+		final @NotNull String qualifiedName,
+		final @NotNull byte[] digest,
+		final @NotNull List<String> entryPoints)
+	{
+		final Entry old = entries.get(qualifiedName);
+		if (old == null
+			|| !Arrays.equals(old.digest, digest)
+			|| !old.entryPoints.equals(entryPoints))
+		{
+			entries.put(
+				qualifiedName, new Entry(digest, new ArrayList<>(entryPoints)));
+			changed();
+		}
+	}
+
+	/**
+	 * Forget the module with the given {@linkplain
+	 * ResolvedModuleName#qualifiedName() qualified name}, and every module
+	 * within it if it is a package.
+	 *
+	 * @param qualifiedName
+	 *        The qualified module name.
+	 */
+	public void remove (final @NotNull String qualifiedName)
+	{
+		final String prefix = qualifiedName + "/";
+		if (entries.keySet().removeIf(
+			key -> key.equals(qualifiedName) || key.startsWith(prefix)))
+		{
+			changed();
+		}
+	}
+
+	/**
+	 * Forget every module. The index is no longer {@linkplain #isComplete()
+	 * complete} until it is populated again.
+	 */
+	public void clear ()
+	{
+		entries.clear();
+		isComplete = false;
+		changed();
+	}
+
+	/**
+	 * Answer the {@linkplain EntryPoint#methodName entry point names} of the
+	 * named module.
+	 *
+	 * @param qualifiedName
+	 *        The {@linkplain ResolvedModuleName#qualifiedName() qualified
+	 *        module name}.
+	 * @return A {@link List}, or {@code null} if the module is not indexed.
+	 */
+	public @Nullable List<String> entryPoints (
+		final @NotNull String qualifiedName)
+	{
+		final Entry entry = entries.get(qualifiedName);
+		return entry == null ? null : entry.entryPoints;
+	}
+
+	/**
+	 * Answer the digest of the source that the named module's entry points
+	 * were read from.
+	 *
+	 * @param qualifiedName
+	 *        The {@linkplain ResolvedModuleName#qualifiedName() qualified
+	 *        module name}.
+	 * @return The digest, or {@code null} if the module is not indexed.
+	 */
+	public @Nullable byte[] digest (final @NotNull String qualifiedName)
+	{
+		final Entry entry = entries.get(qualifiedName);
+		return entry == null ? null : entry.digest;
+	}
+
+	/**
+	 * Answer the {@linkplain ResolvedModuleName#qualifiedName() qualified
+	 * names} of every indexed module.
+	 *
+	 * @return A {@link List}.
+	 */
+	public @NotNull List<String> qualifiedNames ()
+	{
+		return new ArrayList<>(entries.keySet());
+	}
+
+	/**
+	 * Answer the {@link ModuleEntryPoints} of every indexed module that has
+	 * entry points. The answer is computed only once after each change to
+	 * the index, so asking again costs nothing. Modules whose names no
+	 * longer resolve are forgotten.
+	 *
+	 * @param resolve
+	 *        The {@link Function} that resolves a qualified module name, or
+	 *        answers {@code null} if it cannot be resolved.
+	 * @return An unmodifiable {@link List}.
+	 */
+	public @NotNull List<ModuleEntryPoints> moduleEntryPoints (
+		final @NotNull Function<String, ResolvedModuleName> resolve)
+	{
+		final List<ModuleEntryPoints> known = moduleEntryPoints;
+		if (known != null)
+		{
+			return known;
+		}
+		final List<ModuleEntryPoints> answer = new ArrayList<>();
+		final List<String> missing = new ArrayList<>();
+		entries.forEach((qualifiedName, entry) ->
+		{
+			if (entry.entryPoints.isEmpty())
+			{
+				return;
+			}
+			final ResolvedModuleName name = resolve.apply(qualifiedName);
+			if (name == null)
+			{
+				missing.add(qualifiedName);
+			}
+			else
+			{
+				answer.add(new ModuleEntryPoints(entry.entryPoints, name));
+			}
+		});
+		missing.forEach(this::remove);
+		answer.sort((a, b) -> a.resolvedModuleName().qualifiedName()
+			.compareTo(b.resolvedModuleName().qualifiedName()));
+		final List<ModuleEntryPoints> unmodifiable =
+			Collections.unmodifiableList(answer);
+		moduleEntryPoints = unmodifiable;
+		return unmodifiable;
+	}
+
+	/**
+	 * Does the index cover every module of its root?
+	 *
+	 * @return {@code true} if it was read from its file or has been
+	 *         {@linkplain #markComplete() populated}; {@code false} otherwise.
+	 */
+	public boolean isComplete ()
+	{
+		return isComplete;
+	}
+
+	/**
+	 * Record that every module of the root has been indexed.
+	 */
+	public void markComplete ()
+	{
+		isComplete = true;
+	}
+
+	/**
+	 * Read the index from its {@link #indexFile}. This only happens during
+	 * construction, so no entry recorded in memory is ever discarded.
+	 */
+	private void load ()
+	{
+		if (!indexFile.isFile())
+		{
+			return;
+		}
+		try (final DataInputStream in = new DataInputStream(
+			new BufferedInputStream(new FileInputStream(indexFile))))
+		{
+			if (in.readInt() != formatVersion)
+			{
+				return;
+			}
+			final int count = in.readInt();
+			for (int i = 0; i < count; i++)
+			{
+				final String name = in.readUTF();
+				final byte[] digest = new byte[in.readUnsignedByte()];
+				in.readFully(digest);
+				final int entryPointCount = in.readInt();
+				final List<String> entryPoints =
+					new ArrayList<>(entryPointCount);
+				for (int j = 0; j < entryPointCount; j++)
+				{
+					entryPoints.add(in.readUTF());
+				}
+				entries.put(name, new Entry(digest, entryPoints));
+			}
+			isComplete = true;
+		}
+		catch (final IOException e)
+		{
+			// Start empty; the index will be populated again.
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Write the index to its {@link #indexFile} if it has changed since it
+	 * was last read or written.
+	 */
+	public synchronized void save ()
+	{
+		if (!isDirty)
+		{
+			return;
+		}
+		isDirty = false;
+		final File temp = new File(indexFile.getPath() + ".tmp");
+		try
+		{
+			try (final DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(temp))))
+			{
+				final List<Map.Entry<String, Entry>> snapshot =
+					new ArrayList<>(entries.entrySet());
+				out.writeInt(formatVersion);
+				out.writeInt(snapshot.size());
+				for (final Map.Entry<String, Entry> mapEntry : snapshot)
+				{
+					final Entry entry = mapEntry.getValue();
+					out.writeUTF(mapEntry.getKey());
+					out.writeByte(entry.digest.length);
+					out.write(entry.digest);
+					out.writeInt(entry.entryPoints.size());
+					for (final String entryPoint : entry.entryPoints)
+					{
+						out.writeUTF(entryPoint);
+					}
+				}
+			}
+			Files.move(
+				temp.toPath(),
+				indexFile.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (final IOException e)
+		{
+			// The index can always be populated again.
+			isDirty = true;
+			//noinspection ResultOfMethodCallIgnored
+			temp.delete();
+		}
+	}
+
+	/**
+	 * Construct an {@link EntryPointIndex}, reading any entries saved by an
+	 * earlier session.
+	 *
+	 * @param repositoryFile
+	 *        The {@link File} of the {@link IndexedRepositoryManager} of the
+	 *        root whose modules are indexed. The index is stored next to it.
+	 */
+	public EntryPointIndex (final @NotNull File repositoryFile)
+	{
+		this.indexFile = new File(repositoryFile.getPath() + fileSuffix);
+		load();
+	}
+}
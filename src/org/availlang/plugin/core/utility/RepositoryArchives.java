@@ -0,0 +1,173 @@
+/*
+ * RepositoryArchives.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.core.utility;
+import com.avail.persistence.IndexedRepositoryManager;
+import com.avail.persistence.IndexedRepositoryManager.ModuleArchive;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code RepositoryArchives} enumerates the {@link ModuleArchive}s that an
+ * {@link IndexedRepositoryManager} holds, whether or not their modules still
+ * exist on disk. {@code IndexedRepositoryManager} only answers an archive by
+ * name, so the names are read from its private module map; if a future
+ * version of Avail renames that map, the archives cannot be enumerated and
+ * callers fall back to the modules they know of.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public final class RepositoryArchives
+{
+	/**
+	 * The {@link Logger} for failures to read the module map.
+	 */
+	private static final @NotNull Logger log =
+		Logger.getInstance(RepositoryArchives.class);
+
+	/**
+	 * The number of times the module map is copied before giving up, should
+	 * the builder keep changing it meanwhile.
+	 */
+	private static final int copyAttempts = 5;
+
+	/**
+	 * The private {@link Field} of {@link IndexedRepositoryManager} that maps
+	 * root-relative module names to their {@link ModuleArchive}s, or {@code
+	 * null} if it could not be found.
+	 */
+	private static final @Nullable Field moduleMapField = moduleMapField();
+
+	/**
+	 * Answer the accessible module map {@link Field} of {@link
+	 * IndexedRepositoryManager}.
+	 *
+	 * @return The {@code Field}, or {@code null} if there is none.
+	 */
+	private static @Nullable Field moduleMapField ()
+	{
+		try
+		{
+			final Field field =
+				IndexedRepositoryManager.class.getDeclaredField("moduleMap");
+			field.setAccessible(true);
+			return field;
+		}
+		catch (final NoSuchFieldException|SecurityException e)
+		{
+			log.warn("Avail repository archives cannot be enumerated", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Answer the root-relative names of every {@link ModuleArchive} in the
+	 * given repository, sorted so that each package precedes the modules
+	 * within it.
+	 *
+	 * @param repository
+	 *        The open {@link IndexedRepositoryManager}.
+	 * @return The names, or {@code null} if the archives cannot be
+	 *         enumerated.
+	 */
+	public static @Nullable List<String> archiveNames (
+		final @NotNull IndexedRepositoryManager repository)
+	{
+		final Field field = moduleMapField;
+		if (field == null)
+		{
+			return null;
+		}
+		for (int attempt = 0; attempt < copyAttempts; attempt++)
+		{
+			try
+			{
+				final Map<?, ?> moduleMap = (Map<?, ?>) field.get(repository);
+				final List<String> names = new ArrayList<>();
+				for (final Object key : moduleMap.keySet())
+				{
+					names.add((String) key);
+				}
+				Collections.sort(names);
+				return names;
+			}
+			catch (final ConcurrentModificationException e)
+			{
+				// The builder added an archive meanwhile; copy it again.
+			}
+			catch (final IllegalAccessException|ClassCastException e)
+			{
+				log.warn("Avail repository archives cannot be enumerated", e);
+				return null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Answer whether the archive with the given name is that of a package,
+	 * judging only by whether other archives lie within it. This serves for
+	 * archives whose modules no longer exist and so cannot be resolved.
+	 *
+	 * @param name
+	 *        The root-relative name of the archive.
+	 * @param names
+	 *        The {@linkplain #archiveNames(IndexedRepositoryManager) sorted
+	 *        names} of every archive in the repository.
+	 * @return {@code true} if some archive lies within it; {@code false}
+	 *         otherwise.
+	 */
+	public static boolean hasMembers (
+		final @NotNull String name,
+		final @NotNull List<String> names)
+	{
+		final String prefix = name + "/";
+		final int index = Collections.binarySearch(names, prefix);
+		final int next = index >= 0 ? index : -index - 1;
+		return next < names.size() && names.get(next).startsWith(prefix);
+	}
+
+	/**
+	 * Forbid instantiation.
+	 */
+	private RepositoryArchives ()
+	{
+		// No implementation required.
+	}
+}
@@ -0,0 +1,447 @@
+/*
+ * SourceDigestCache.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.core.utility;
+import com.avail.builder.ModuleRoot;
+import com.avail.persistence.IndexedRepositoryManager;
+import com.avail.persistence.IndexedRepositoryManager.ModuleArchive;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A {@code SourceDigestCache} remembers the SHA-256 digests of the source
+ * files of a single {@link ModuleRoot}, keyed by path, size, and modification
+ * time. These are the same digests that {@link
+ * ModuleArchive#digestForFile(com.avail.builder.ResolvedModuleName)} computes
+ * to select a compiled module version, so once a file has been hashed, asking
+ * whether it is up to date costs only a {@code stat}.
+ *
+ * <p>
+ * The cache is stored next to the root's {@link IndexedRepositoryManager}
+ * file. Files are hashed through memory-mapped regions, and many files can be
+ * {@linkplain #fill(Collection, BooleanSupplier) hashed in parallel} on the
+ * cache's own pool, which is shut down when the cache is {@linkplain
+ * #dispose() disposed}.
+ * </p>
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class SourceDigestCache
+{
+	/**
+	 * The suffix appended to the name of a repository file to produce the
+	 * name of its {@link SourceDigestCache} file.
+	 */
+	public static final @NotNull String fileSuffix = ".digests";
+
+	/**
+	 * The version of the cache file format. Files with any other version are
+	 * ignored.
+	 */
+	private static final int formatVersion = 1;
+
+	/**
+	 * The name of the digest algorithm, which must match the one used by
+	 * {@link ModuleArchive}.
+	 */
+	private static final @NotNull String algorithm = "SHA-256";
+
+	/**
+	 * The size of the regions mapped at once while hashing a file.
+	 */
+	private static final int mappingSize = 16 * 1024 * 1024;
+
+	/**
+	 * An {@code Entry} is the digest of a file along with the size and
+	 * modification time of the file when it was hashed.
+	 */
+	private static final class Entry
+	{
+		/**
+		 * The size of the file.
+		 */
+		final long size;
+
+		/**
+		 * The modification time of the file.
+		 */
+		final long lastModified;
+
+		/**
+		 * The SHA-256 digest of the file's contents.
+		 */
+		final @NotNull byte[] digest;
+
+		/**
+		 * Construct an {@link Entry}.
+		 *
+		 * @param size
+		 *        The size of the file.
+		 * @param lastModified
+		 *        The modification time of the file.
+		 * @param digest
+		 *        The digest of the file's contents.
+		 */
+		Entry (
+			final long size,
+			final long lastModified,
+			final @NotNull byte[] digest)
+		{
+			this.size = size;
+			this.lastModified = lastModified;
+			this.digest = digest;
+		}
+	}
+
+	/**
+	 * The {@link File} the cache is stored in.
+	 */
+	private final @NotNull File cacheFile;
+
+	/**
+	 * The {@link Map} from the system-independent absolute path of each
+	 * hashed file to its {@link Entry}.
+	 */
+	private final @NotNull Map<String, Entry> entries =
+		new ConcurrentHashMap<>();
+
+	/**
+	 * Has the contents of this cache changed since it was last {@linkplain
+	 * #save() saved}?
+	 */
+	private volatile boolean isDirty = false;
+
+	/**
+	 * The {@link ForkJoinPool} used to hash files in parallel. Its threads
+	 * are only started when files need hashing.
+	 */
+	private final @NotNull ForkJoinPool hashPool = new ForkJoinPool(
+		Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+	/**
+	 * Answer the key of the given {@link File} in the {@link #entries}.
+	 *
+	 * @param file
+	 *        The {@code File}.
+	 * @return The key.
+	 */
+	private static @NotNull String key (final @NotNull File file)
+	{
+		return file.getAbsolutePath().replace(File.separatorChar, '/');
+	}
+
+	/**
+	 * Answer the digest of the given source file, hashing it only if it has
+	 * changed size or modification time since it was last hashed.
+	 *
+	 * @param file
+	 *        The source {@link File}.
+	 * @return The SHA-256 digest, or {@code null} if the file could not be
+	 *         read.
+	 */
+	public @Nullable byte[] digest (final @NotNull File file)
+	{
+		final String key = key(file);
+		final long size = file.length();
+		final long lastModified = file.lastModified();
+		final Entry entry = entries.get(key);
+		if (entry != null
+			&& entry.size == size
+			&& entry.lastModified == lastModified)
+		{
+			return entry.digest;
+		}
+		final byte[] digest;
+		try
+		{
+			digest = hash(file);
+		}
+		catch (final IOException e)
+		{
+			entries.remove(key);
+			return null;
+		}
+		entries.put(key, new Entry(size, lastModified, digest));
+		isDirty = true;
+		return digest;
+	}
+
+	/**
+	 * Answer the digest recorded for the given file if it is still current,
+	 * without hashing anything.
+	 *
+	 * @param file
+	 *        The source {@link File}.
+	 * @return The digest, or {@code null} if it is unknown or stale.
+	 */
+	public @Nullable byte[] cachedDigest (final @NotNull File file)
+	{
+		final Entry entry = entries.get(key(file));
+		return entry != null
+				&& entry.size == file.length()
+				&& entry.lastModified == file.lastModified()
+			? entry.digest
+			: null;
+	}
+
+	/**
+	 * Hash every given file whose digest is not current, in parallel.
+	 *
+	 * @param files
+	 *        The source {@link File}s.
+	 * @param isCanceled
+	 *        A {@link BooleanSupplier} that answers {@code true} once the
+	 *        work should be abandoned.
+	 * @return The number of files that were hashed.
+	 */
+	public int fill (
+		final @NotNull Collection<File> files,
+		final @NotNull BooleanSupplier isCanceled)
+	{
+		final List<File> stale = new ArrayList<>();
+		for (final File file : files)
+		{
+			if (cachedDigest(file) == null)
+			{
+				stale.add(file);
+			}
+		}
+		try
+		{
+			hashPool.submit(() -> stale.parallelStream().forEach(file ->
+			{
+				if (!isCanceled.getAsBoolean())
+				{
+					digest(file);
+				}
+			})).join();
+		}
+		catch (final RejectedExecutionException|CancellationException e)
+		{
+			// The cache was disposed; its project is closing.
+			return 0;
+		}
+		return stale.size();
+	}
+
+	/**
+	 * Shut down the {@link #hashPool}, abandoning any {@linkplain
+	 * #fill(Collection, BooleanSupplier) fill} in progress. Digests can
+	 * still be read and {@linkplain #save() saved} afterward, but no more
+	 * files are hashed in parallel.
+	 */
+	public void dispose ()
+	{
+		hashPool.shutdownNow();
+	}
+
+	/**
+	 * Forget the digest of the file at the given path.
+	 *
+	 * @param path
+	 *        The system-independent absolute path of the file.
+	 */
+	public void invalidate (final @NotNull String path)
+	{
+		if (entries.remove(path) != null)
+		{
+			isDirty = true;
+		}
+	}
+
+	/**
+	 * Forget every digest.
+	 */
+	public void clear ()
+	{
+		if (!entries.isEmpty())
+		{
+			entries.clear();
+			isDirty = true;
+		}
+	}
+
+	/**
+	 * Compute the SHA-256 digest of a file by mapping it into memory.
+	 *
+	 * @param file
+	 *        The {@link File}.
+	 * @return The digest.
+	 * @throws IOException
+	 *         If the file could not be read.
+	 */
+	private static @NotNull byte[] hash (final @NotNull File file)
+	throws IOException
+	{
+		final MessageDigest messageDigest;
+		try
+		{
+			messageDigest = MessageDigest.getInstance(algorithm);
+		}
+		catch (final NoSuchAlgorithmException e)
+		{
+			throw new IOException(e);
+		}
+		try (final FileChannel channel =
+			FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			final long size = channel.size();
+			for (long position = 0; position < size; position += mappingSize)
+			{
+				final MappedByteBuffer buffer = channel.map(
+					FileChannel.MapMode.READ_ONLY,
+					position,
+					Math.min(mappingSize, size - position));
+				messageDigest.update(buffer);
+			}
+		}
+		return messageDigest.digest();
+	}
+
+	/**
+	 * Read the cache from its {@link #cacheFile}. This only happens during
+	 * construction, so no digest computed in memory is ever discarded.
+	 */
+	private void load ()
+	{
+		if (!cacheFile.isFile())
+		{
+			return;
+		}
+		try (final DataInputStream in = new DataInputStream(
+			new BufferedInputStream(new FileInputStream(cacheFile))))
+		{
+			if (in.readInt() != formatVersion)
+			{
+				return;
+			}
+			final int count = in.readInt();
+			for (int i = 0; i < count; i++)
+			{
+				final String path = in.readUTF();
+				final long size = in.readLong();
+				final long lastModified = in.readLong();
+				final byte[] digest = new byte[in.readUnsignedByte()];
+				in.readFully(digest);
+				entries.put(path, new Entry(size, lastModified, digest));
+			}
+		}
+		catch (final IOException e)
+		{
+			// Start empty; the sources will be hashed again as needed.
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Write the cache to its {@link #cacheFile} if it has changed since it
+	 * was last read or written.
+	 */
+	public synchronized void save ()
+	{
+		if (!isDirty)
+		{
+			return;
+		}
+		isDirty = false;
+		final File temp = new File(cacheFile.getPath() + ".tmp");
+		try
+		{
+			try (final DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(temp))))
+			{
+				final List<Map.Entry<String, Entry>> snapshot =
+					new ArrayList<>(entries.entrySet());
+				out.writeInt(formatVersion);
+				out.writeInt(snapshot.size());
+				for (final Map.Entry<String, Entry> mapEntry : snapshot)
+				{
+					final Entry entry = mapEntry.getValue();
+					out.writeUTF(mapEntry.getKey());
+					out.writeLong(entry.size);
+					out.writeLong(entry.lastModified);
+					out.writeByte(entry.digest.length);
+					out.write(entry.digest);
+				}
+			}
+			Files.move(
+				temp.toPath(),
+				cacheFile.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (final IOException e)
+		{
+			// The cache can always be rebuilt by hashing the sources again.
+			isDirty = true;
+			//noinspection ResultOfMethodCallIgnored
+			temp.delete();
+		}
+	}
+
+	/**
+	 * Construct a {@link SourceDigestCache}, reading any digests saved by an
+	 * earlier session.
+	 *
+	 * @param repositoryFile
+	 *        The {@link File} of the {@link IndexedRepositoryManager} of the
+	 *        root whose sources are hashed. The cache is stored next to it.
+	 */
+	public SourceDigestCache (final @NotNull File repositoryFile)
+	{
+		this.cacheFile = new File(repositoryFile.getPath() + fileSuffix);
+		load();
+	}
+}
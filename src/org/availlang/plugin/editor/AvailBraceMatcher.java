@@ -0,0 +1,84 @@
+/*
+ * AvailBraceMatcher.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.editor;
+import com.intellij.lang.BracePair;
+import com.intellij.lang.PairedBraceMatcher;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static org.availlang.plugin.lexer.AvailTokenTypes.*;
+
+/**
+ * An {@code AvailBraceMatcher} is a {@link PairedBraceMatcher} for the
+ * parentheses, brackets, braces, and guillemets of Avail source.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class AvailBraceMatcher
+implements PairedBraceMatcher
+{
+	/**
+	 * The {@link BracePair}s. Square brackets delimit blocks, so they are
+	 * structural.
+	 */
+	private static final @NotNull BracePair[] pairs =
+	{
+		new BracePair(LEFT_PAREN, RIGHT_PAREN, false),
+		new BracePair(LEFT_BRACKET, RIGHT_BRACKET, true),
+		new BracePair(LEFT_BRACE, RIGHT_BRACE, false),
+		new BracePair(LEFT_GUILLEMET, RIGHT_GUILLEMET, false)
+	};
+
+	@Override
+	public @NotNull BracePair[] getPairs ()
+	{
+		return pairs;
+	}
+
+	@Override
+	public boolean isPairedBracesAllowedBeforeType (
+		final @NotNull IElementType leftBraceType,
+		final @Nullable IElementType contextType)
+	{
+		return true;
+	}
+
+	@Override
+	public int getCodeConstructStart (
+		final PsiFile file,
+		final int openingBraceOffset)
+	{
+		return openingBraceOffset;
+	}
+}
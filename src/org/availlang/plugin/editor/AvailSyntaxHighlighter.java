@@ -0,0 +1,138 @@
+/*
+ * AvailSyntaxHighlighter.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.editor;
+import com.intellij.lexer.Lexer;
+import com.intellij.openapi.editor.DefaultLanguageHighlighterColors;
+import com.intellij.openapi.editor.HighlighterColors;
+import com.intellij.openapi.editor.colors.TextAttributesKey;
+import com.intellij.openapi.fileTypes.SyntaxHighlighterBase;
+import com.intellij.psi.tree.IElementType;
+import org.availlang.plugin.lexer.AvailLexer;
+import org.availlang.plugin.lexer.AvailTokenTypes;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.intellij.openapi.editor.colors.TextAttributesKey.createTextAttributesKey;
+
+/**
+ * An {@code AvailSyntaxHighlighter} is a {@link SyntaxHighlighterBase} that
+ * colors Avail source according to the {@link AvailLexer}'s {@linkplain
+ * AvailTokenTypes tokens}.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class AvailSyntaxHighlighter
+extends SyntaxHighlighterBase
+{
+	/**
+	 * The {@link TextAttributesKey} for comments.
+	 */
+	public static final @NotNull TextAttributesKey COMMENT =
+		createTextAttributesKey(
+			"AVAIL_COMMENT", DefaultLanguageHighlighterColors.BLOCK_COMMENT);
+
+	/**
+	 * The {@link TextAttributesKey} for string literals.
+	 */
+	public static final @NotNull TextAttributesKey STRING =
+		createTextAttributesKey(
+			"AVAIL_STRING", DefaultLanguageHighlighterColors.STRING);
+
+	/**
+	 * The {@link TextAttributesKey} for numeric literals.
+	 */
+	public static final @NotNull TextAttributesKey NUMBER =
+		createTextAttributesKey(
+			"AVAIL_NUMBER", DefaultLanguageHighlighterColors.NUMBER);
+
+	/**
+	 * The {@link TextAttributesKey} for header keywords.
+	 */
+	public static final @NotNull TextAttributesKey KEYWORD =
+		createTextAttributesKey(
+			"AVAIL_KEYWORD", DefaultLanguageHighlighterColors.KEYWORD);
+
+	/**
+	 * The {@link TextAttributesKey} for operator characters.
+	 */
+	public static final @NotNull TextAttributesKey OPERATOR =
+		createTextAttributesKey(
+			"AVAIL_OPERATOR",
+			DefaultLanguageHighlighterColors.OPERATION_SIGN);
+
+	/**
+	 * The {@link TextAttributesKey} for brackets of all kinds.
+	 */
+	public static final @NotNull TextAttributesKey BRACES =
+		createTextAttributesKey(
+			"AVAIL_BRACES", DefaultLanguageHighlighterColors.BRACES);
+
+	/**
+	 * The {@link TextAttributesKey} for illegal characters.
+	 */
+	public static final @NotNull TextAttributesKey BAD_CHARACTER =
+		createTextAttributesKey(
+			"AVAIL_BAD_CHARACTER", HighlighterColors.BAD_CHARACTER);
+
+	/**
+	 * The {@link Map} from token type to the {@link TextAttributesKey}s used
+	 * to highlight it.
+	 */
+	private static final @NotNull Map<IElementType, TextAttributesKey>
+		attributes = new HashMap<>();
+
+	static
+	{
+		attributes.put(AvailTokenTypes.COMMENT, COMMENT);
+		attributes.put(AvailTokenTypes.STRING, STRING);
+		attributes.put(AvailTokenTypes.NUMBER, NUMBER);
+		attributes.put(AvailTokenTypes.KEYWORD, KEYWORD);
+		attributes.put(AvailTokenTypes.BAD_CHARACTER, BAD_CHARACTER);
+		fillMap(attributes, AvailTokenTypes.OPERATORS, OPERATOR);
+		fillMap(attributes, AvailTokenTypes.BRACES, BRACES);
+	}
+
+	@Override
+	public @NotNull Lexer getHighlightingLexer ()
+	{
+		return new AvailLexer();
+	}
+
+	@Override
+	public @NotNull TextAttributesKey[] getTokenHighlights (
+		final IElementType tokenType)
+	{
+		return pack(attributes.get(tokenType));
+	}
+}
@@ -92,7 +92,6 @@ extends SettingsEditor<EntryPointRunConfiguration>
 	{
 		final AvailComponent component =
 			Nulls.stripNull(project.getComponent(AvailComponent.class));
-		component.refresh();
 		List<String> rootNames =
 			new ArrayList<>(component.moduleRoots().rootNames());
 		Collections.sort(rootNames);
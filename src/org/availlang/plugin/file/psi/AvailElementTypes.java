@@ -0,0 +1,140 @@
+/*
+ * AvailElementTypes.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.file.psi;
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * {@code AvailElementTypes} holds the {@link IElementType}s of the composite
+ * elements built by the {@link org.availlang.plugin.parser.AvailParser
+ * AvailParser}.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public final class AvailElementTypes
+{
+	/**
+	 * The module header: everything before the {@code Body} section.
+	 */
+	public static final @NotNull IElementType MODULE_HEADER =
+		new AvailElementType("MODULE_HEADER");
+
+	/**
+	 * The {@code Module} section, which names the module.
+	 */
+	public static final @NotNull IElementType MODULE_SECTION =
+		new AvailElementType("MODULE_SECTION");
+
+	/**
+	 * The {@code Versions} section.
+	 */
+	public static final @NotNull IElementType VERSIONS_SECTION =
+		new AvailElementType("VERSIONS_SECTION");
+
+	/**
+	 * The {@code Extends} section.
+	 */
+	public static final @NotNull IElementType EXTENDS_SECTION =
+		new AvailElementType("EXTENDS_SECTION");
+
+	/**
+	 * The {@code Uses} section.
+	 */
+	public static final @NotNull IElementType USES_SECTION =
+		new AvailElementType("USES_SECTION");
+
+	/**
+	 * The {@code Names} section.
+	 */
+	public static final @NotNull IElementType NAMES_SECTION =
+		new AvailElementType("NAMES_SECTION");
+
+	/**
+	 * The {@code Entries} section.
+	 */
+	public static final @NotNull IElementType ENTRIES_SECTION =
+		new AvailElementType("ENTRIES_SECTION");
+
+	/**
+	 * The {@code Pragma} section.
+	 */
+	public static final @NotNull IElementType PRAGMA_SECTION =
+		new AvailElementType("PRAGMA_SECTION");
+
+	/**
+	 * The {@code Body} section: the keyword followed by the top-level
+	 * {@link #STATEMENT}s.
+	 */
+	public static final @NotNull IElementType BODY_SECTION =
+		new AvailElementType("BODY_SECTION");
+
+	/**
+	 * A top-level statement of the module body, which is lazily parsed and
+	 * can be reparsed by itself.
+	 */
+	public static final @NotNull AvailStatementElementType STATEMENT =
+		new AvailStatementElementType();
+
+	/**
+	 * Answer the {@link IElementType} of the header section introduced by the
+	 * given keyword.
+	 *
+	 * @param keyword
+	 *        The text of the keyword.
+	 * @return The section's element type, or {@code null} if the keyword
+	 *         does not introduce a header section.
+	 */
+	public static @Nullable IElementType headerSection (
+		final @NotNull String keyword)
+	{
+		switch (keyword)
+		{
+			case "Module": return MODULE_SECTION;
+			case "Versions": return VERSIONS_SECTION;
+			case "Extends": return EXTENDS_SECTION;
+			case "Uses": return USES_SECTION;
+			case "Names": return NAMES_SECTION;
+			case "Entries": return ENTRIES_SECTION;
+			case "Pragma": return PRAGMA_SECTION;
+			default: return null;
+		}
+	}
+
+	/**
+	 * Forbid instantiation.
+	 */
+	private AvailElementTypes ()
+	{
+		// No implementation required.
+	}
+}
@@ -30,12 +30,7 @@
  * POSSIBILITY OF SUCH DAMAGE.
  */
 package org.availlang.plugin.file.psi;
-import com.avail.builder.ModuleName;
-import com.avail.builder.ModuleNameResolver;
-import com.avail.builder.ModuleRoot;
-import com.avail.builder.ModuleRoots;
 import com.avail.builder.ResolvedModuleName;
-import com.avail.builder.UnresolvedDependencyException;
 import com.intellij.extapi.psi.PsiFileBase;
 import com.intellij.openapi.fileTypes.FileType;
 import com.intellij.psi.FileViewProvider;
@@ -46,7 +41,6 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
-import java.io.File;
 
 /**
  * An {@code AvailPsiFile} is a {@link PsiFileBase}.
@@ -86,42 +80,8 @@ extends PsiFileBase
 	{
 		if (resolvedModuleName == null)
 		{
-			final String path = getVirtualFile().getPath();
-			final AvailComponent component =
-				AvailComponent.getInstance(getProject());
-			final ModuleNameResolver resolver =
-				component.resolver();
-			final ModuleRoots roots = component.moduleRoots();
-			for (final ModuleRoot root : roots.roots())
-			{
-				final File sourceDirectory = root.sourceDirectory();
-				if (sourceDirectory != null)
-				{
-					final String sourceDirectoryPath =
-						sourceDirectory.getPath();
-					if (path.startsWith(sourceDirectoryPath))
-					{
-						final String fullyQualifiedName = String.format(
-							"/%s/%s",
-							root.name(),
-							path
-								.substring(sourceDirectoryPath.length() + 1)
-								.replace(".avail", ""));
-						final ModuleName moduleName =
-							new ModuleName(fullyQualifiedName);
-						try
-						{
-							resolvedModuleName =
-								resolver.resolve(moduleName, null);
-						}
-						catch (final UnresolvedDependencyException e)
-						{
-							// Nothing.
-						}
-						break;
-					}
-				}
-			}
+			resolvedModuleName = AvailComponent.getInstance(getProject())
+				.resolvedModuleNameForPath(getVirtualFile().getPath());
 		}
 		return resolvedModuleName;
 	}
@@ -0,0 +1,154 @@
+/*
+ * AvailStatementElementType.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.file.psi;
+import com.intellij.lang.ASTNode;
+import com.intellij.lang.Language;
+import com.intellij.lang.LanguageParserDefinitions;
+import com.intellij.lang.PsiBuilder;
+import com.intellij.lang.PsiBuilderFactory;
+import com.intellij.lexer.Lexer;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.tree.IReparseableElementType;
+import org.availlang.plugin.language.AvailLanguage;
+import org.availlang.plugin.lexer.AvailLexer;
+import org.availlang.plugin.lexer.AvailTokenTypes;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An {@code AvailStatementElementType} is the {@link IReparseableElementType}
+ * of a top-level statement of an Avail module body. The parser collapses each
+ * statement, so its contents are only parsed when they are needed, and an edit
+ * inside a statement reparses only that statement, provided that the edited
+ * text is {@linkplain #isParsable(CharSequence, Language, Project) still a
+ * single statement}.
+ *
+ * <p>
+ * A statement is always lexed as body text, with a {@linkplain
+ * AvailLexer#AvailLexer(boolean) lexer that does not start in the header},
+ * so its tokens are the same whether it was parsed with the whole file or
+ * reparsed alone.
+ * </p>
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class AvailStatementElementType
+extends IReparseableElementType
+{
+	@Override
+	protected ASTNode doParseContents (
+		final @NotNull ASTNode chameleon,
+		final @NotNull PsiElement psi)
+	{
+		final Project project = psi.getProject();
+		final Language language = getLanguageForParser(psi);
+		final PsiBuilder builder =
+			PsiBuilderFactory.getInstance().createBuilder(
+				project,
+				chameleon,
+				new AvailLexer(false),
+				language,
+				chameleon.getChars());
+		return LanguageParserDefinitions.INSTANCE.forLanguage(language)
+			.createParser(project)
+			.parse(this, builder)
+			.getFirstChildNode();
+	}
+
+	@Override
+	public boolean isParsable (
+		final @NotNull CharSequence buffer,
+		final @NotNull Language fileLanguage,
+		final @NotNull Project project)
+	{
+		return isSingleStatement(buffer);
+	}
+
+	/**
+	 * Is the text exactly one top-level statement? It must start with a
+	 * significant token, end with the only semicolon outside of any
+	 * brackets, and keep its brackets balanced. An unterminated string
+	 * literal extends to the end of the text, so it is rejected because the
+	 * text does not then end with a semicolon. An unterminated comment is
+	 * rejected because it might be closed beyond the text.
+	 *
+	 * @param buffer
+	 *        The text.
+	 * @return {@code true} if it is; {@code false} otherwise.
+	 */
+	public static boolean isSingleStatement (final @NotNull CharSequence buffer)
+	{
+		final Lexer lexer = new AvailLexer(false);
+		lexer.start(buffer);
+		int depth = 0;
+		IElementType last = null;
+		boolean first = true;
+		for (IElementType type = lexer.getTokenType();
+			type != null;
+			lexer.advance(), type = lexer.getTokenType())
+		{
+			if (first
+				&& (type == AvailTokenTypes.WHITESPACE
+					|| type == AvailTokenTypes.COMMENT))
+			{
+				return false;
+			}
+			first = false;
+			if ((lexer.getState() & AvailLexer.unterminatedState) != 0)
+			{
+				// An unterminated comment might be closed beyond the text.
+				return false;
+			}
+			if (last == AvailTokenTypes.SEMICOLON && depth == 0)
+			{
+				// Something follows the terminating semicolon.
+				return false;
+			}
+			depth += AvailTokenTypes.depthChange(type);
+			if (depth < 0)
+			{
+				return false;
+			}
+			last = type;
+		}
+		return depth == 0 && last == AvailTokenTypes.SEMICOLON;
+	}
+
+	/**
+	 * Construct an {@link AvailStatementElementType}.
+	 */
+	AvailStatementElementType ()
+	{
+		super("STATEMENT", AvailLanguage.soleInstance);
+	}
+}
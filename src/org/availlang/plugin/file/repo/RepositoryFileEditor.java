@@ -0,0 +1,583 @@
+/*
+ * RepositoryFileEditor.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.file.repo;
+import com.avail.builder.ModuleRoot;
+import com.avail.builder.ResolvedModuleName;
+import com.avail.persistence.IndexedRepositoryManager;
+import com.avail.persistence.IndexedRepositoryManager.ModuleArchive;
+import com.avail.persistence.IndexedRepositoryManager.ModuleVersion;
+import com.intellij.codeHighlighting.BackgroundEditorHighlighter;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.fileEditor.FileEditor;
+import com.intellij.openapi.fileEditor.FileEditorLocation;
+import com.intellij.openapi.fileEditor.FileEditorState;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.UserDataHolderBase;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.treeStructure.Tree;
+import com.intellij.util.ui.JBUI;
+import org.availlang.plugin.core.AvailComponent;
+import org.availlang.plugin.core.utility.RepositoryArchives;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeWillExpandListener;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.MutableTreeNode;
+import javax.swing.tree.TreePath;
+import java.awt.BorderLayout;
+import java.beans.PropertyChangeListener;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@code RepositoryFileEditor} is a read-only {@link FileEditor} that shows
+ * the structure of an Avail repository file: the module archives it holds,
+ * the compiled versions of each module, and their sizes, imports, and entry
+ * points.
+ *
+ * <p>
+ * Nothing is read up front but the file's header, which is memory-mapped.
+ * Each node of the tree reads its children on a pooled thread the first
+ * time it is expanded, so even a very large repository opens at once and
+ * only the archives actually looked at are ever decoded. The archives are
+ * read through the {@link IndexedRepositoryManager} that the {@link
+ * AvailComponent} already has open for the file, so viewing a repository
+ * never contends with the builder for it.
+ * </p>
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class RepositoryFileEditor
+extends UserDataHolderBase
+implements FileEditor
+{
+	/**
+	 * The number of bytes of the file's header that are mapped to show its
+	 * identifying text.
+	 */
+	private static final int headerLength = 64;
+
+	/**
+	 * The repository {@link VirtualFile}.
+	 */
+	private final @NotNull VirtualFile file;
+
+	/**
+	 * The {@link JPanel} that holds the header and the tree.
+	 */
+	private final @NotNull JPanel panel = new JPanel(new BorderLayout());
+
+	/**
+	 * The {@link DefaultTreeModel} of the tree.
+	 */
+	private final @NotNull DefaultTreeModel model;
+
+	/**
+	 * The {@link Tree} that shows the repository's structure.
+	 */
+	private final @NotNull Tree tree;
+
+	/**
+	 * Whether the editor has been {@linkplain #dispose() disposed}.
+	 */
+	private volatile boolean disposed = false;
+
+	/**
+	 * A {@code LazyNode} is a {@link DefaultMutableTreeNode} whose children
+	 * are not read until it is first expanded. Until then it holds a single
+	 * placeholder child, so that it can be expanded at all.
+	 */
+	private abstract static class LazyNode
+	extends DefaultMutableTreeNode
+	{
+		/**
+		 * Whether the children have been requested.
+		 */
+		boolean loadStarted = false;
+
+		/**
+		 * Read the children of this node. This runs on a pooled thread.
+		 *
+		 * @return The {@link List} of child {@link MutableTreeNode}s.
+		 */
+		abstract @NotNull List<MutableTreeNode> loadChildren ();
+
+		/**
+		 * Construct a {@link LazyNode}.
+		 *
+		 * @param label
+		 *        The text shown for the node.
+		 */
+		LazyNode (final @NotNull String label)
+		{
+			super(label);
+			add(leaf("Loading…"));
+		}
+	}
+
+	/**
+	 * A {@code RootNode} is the {@link LazyNode} of the {@link ModuleRoot}
+	 * whose repository is shown. Its children are an {@link ArchiveNode} for
+	 * each archive in the repository, including those of modules that have
+	 * since been deleted or renamed, and those of roots without sources. If
+	 * the archives cannot be {@linkplain RepositoryArchives enumerated}, the
+	 * root's modules on disk are shown instead.
+	 */
+	private static class RootNode
+	extends LazyNode
+	{
+		/**
+		 * The {@link AvailComponent} that knows the root's modules.
+		 */
+		private final @NotNull AvailComponent component;
+
+		/**
+		 * The {@link ModuleRoot}.
+		 */
+		private final @NotNull ModuleRoot root;
+
+		/**
+		 * The root's open {@link IndexedRepositoryManager}.
+		 */
+		private final @NotNull IndexedRepositoryManager repository;
+
+		@Override
+		@NotNull List<MutableTreeNode> loadChildren ()
+		{
+			List<String> names = RepositoryArchives.archiveNames(repository);
+			if (names == null)
+			{
+				names = new ArrayList<>();
+				for (final ResolvedModuleName name :
+					component.moduleTree().allResolvedNames(root))
+				{
+					names.add(name.rootRelativeName());
+				}
+			}
+			final List<MutableTreeNode> children = new ArrayList<>();
+			for (final String name : names)
+			{
+				children.add(new ArchiveNode(repository, name));
+			}
+			if (children.isEmpty())
+			{
+				children.add(leaf("No modules"));
+			}
+			return children;
+		}
+
+		/**
+		 * Construct a {@link RootNode}.
+		 *
+		 * @param component
+		 *        The {@link AvailComponent} that knows the root's modules.
+		 * @param root
+		 *        The {@link ModuleRoot}.
+		 * @param repository
+		 *        The root's open {@link IndexedRepositoryManager}.
+		 */
+		RootNode (
+			final @NotNull AvailComponent component,
+			final @NotNull ModuleRoot root,
+			final @NotNull IndexedRepositoryManager repository)
+		{
+			super("/" + root.name());
+			this.component = component;
+			this.root = root;
+			this.repository = repository;
+		}
+	}
+
+	/**
+	 * An {@code ArchiveNode} is the {@link LazyNode} of one {@link
+	 * ModuleArchive}. Its children are the archive's compiled {@linkplain
+	 * ModuleVersion versions}, which are only decoded when it is expanded.
+	 */
+	private static class ArchiveNode
+	extends LazyNode
+	{
+		/**
+		 * The {@link IndexedRepositoryManager} that holds the archive.
+		 */
+		private final @NotNull IndexedRepositoryManager repository;
+
+		/**
+		 * The root-relative name of the archived module.
+		 */
+		private final @NotNull String name;
+
+		@Override
+		@NotNull List<MutableTreeNode> loadChildren ()
+		{
+			final ModuleArchive archive = repository.getArchive(name);
+			final List<MutableTreeNode> children = new ArrayList<>();
+			int index = 1;
+			for (final ModuleVersion version :
+				archive.getAllKnownVersions().values())
+			{
+				children.add(versionNode(index++, version));
+			}
+			if (children.isEmpty())
+			{
+				children.add(leaf("No compiled versions"));
+			}
+			return children;
+		}
+
+		/**
+		 * Construct an {@link ArchiveNode}.
+		 *
+		 * @param repository
+		 *        The {@link IndexedRepositoryManager} that holds the
+		 *        archive.
+		 * @param name
+		 *        The root-relative name of the archived module.
+		 */
+		ArchiveNode (
+			final @NotNull IndexedRepositoryManager repository,
+			final @NotNull String name)
+		{
+			super(name);
+			this.repository = repository;
+			this.name = name;
+		}
+	}
+
+	/**
+	 * Answer a {@link DefaultMutableTreeNode} that cannot have children.
+	 *
+	 * @param label
+	 *        The text shown for the node.
+	 * @return A leaf node.
+	 */
+	private static @NotNull DefaultMutableTreeNode leaf (
+		final @NotNull String label)
+	{
+		return new DefaultMutableTreeNode(label, false);
+	}
+
+	/**
+	 * Answer a node describing one {@link ModuleVersion}, whose children list
+	 * its imports and entry points. The version has already been decoded, so
+	 * there is nothing left to read lazily.
+	 *
+	 * @param index
+	 *        The one-based position of the version in its archive.
+	 * @param version
+	 *        The {@code ModuleVersion}.
+	 * @return The node.
+	 */
+	private static @NotNull DefaultMutableTreeNode versionNode (
+		final int index,
+		final @NotNull ModuleVersion version)
+	{
+		final List<String> imports = version.getImports();
+		final List<String> entryPoints = version.getEntryPoints();
+		final DefaultMutableTreeNode node = new DefaultMutableTreeNode(
+			String.format(
+				"Version %d — %s of source",
+				index,
+				StringUtil.formatFileSize(version.getModuleSize())));
+		node.add(listNode("Imports", imports));
+		node.add(listNode("Entry points", entryPoints));
+		return node;
+	}
+
+	/**
+	 * Answer a node, labeled with the count of the given strings, that has a
+	 * leaf child for each of them.
+	 *
+	 * @param label
+	 *        The text shown for the node.
+	 * @param items
+	 *        The strings to list.
+	 * @return The node.
+	 */
+	private static @NotNull DefaultMutableTreeNode listNode (
+		final @NotNull String label,
+		final @NotNull List<String> items)
+	{
+		final DefaultMutableTreeNode node = new DefaultMutableTreeNode(
+			String.format("%s (%d)", label, items.size()),
+			!items.isEmpty());
+		items.forEach(item -> node.add(leaf(item)));
+		return node;
+	}
+
+	/**
+	 * Read the children of the given {@link LazyNode} on a pooled thread,
+	 * unless that has already begun, and then replace its placeholder with
+	 * them on the event dispatch thread.
+	 *
+	 * @param node
+	 *        The {@code LazyNode} being expanded.
+	 */
+	private void load (final @NotNull LazyNode node)
+	{
+		if (node.loadStarted)
+		{
+			return;
+		}
+		node.loadStarted = true;
+		ApplicationManager.getApplication().executeOnPooledThread(() ->
+		{
+			List<MutableTreeNode> children;
+			try
+			{
+				children = node.loadChildren();
+			}
+			catch (final RuntimeException e)
+			{
+				children = Collections.singletonList(
+					leaf("Could not read: " + e.getLocalizedMessage()));
+			}
+			final List<MutableTreeNode> loaded = children;
+			ApplicationManager.getApplication().invokeLater(() ->
+			{
+				if (disposed)
+				{
+					return;
+				}
+				node.removeAllChildren();
+				loaded.forEach(node::add);
+				model.nodeStructureChanged(node);
+			});
+		});
+	}
+
+	/**
+	 * Answer a description of the repository file: the identifying text at
+	 * the start of its memory-mapped header, and its size.
+	 *
+	 * @param ioFile
+	 *        The repository {@link File}.
+	 * @return The description.
+	 */
+	private static @NotNull String describeHeader (final @NotNull File ioFile)
+	{
+		try (final FileChannel channel =
+			FileChannel.open(ioFile.toPath(), StandardOpenOption.READ))
+		{
+			final long size = channel.size();
+			final MappedByteBuffer buffer = channel.map(
+				MapMode.READ_ONLY, 0, Math.min(size, headerLength));
+			final StringBuilder text = new StringBuilder();
+			while (buffer.hasRemaining())
+			{
+				final int b = buffer.get() & 0xFF;
+				if (b < 0x20 || b >= 0x7F)
+				{
+					break;
+				}
+				text.append((char) b);
+			}
+			return String.format(
+				"%s — %s",
+				text.length() == 0 ? "Unrecognized header" : text,
+				StringUtil.formatFileSize(size));
+		}
+		catch (final IOException e)
+		{
+			return "Could not read: " + e.getLocalizedMessage();
+		}
+	}
+
+	/**
+	 * Answer the root node of the tree: the {@link RootNode} of the {@link
+	 * ModuleRoot} that keeps its repository in the given file, or a leaf
+	 * explaining why there is none.
+	 *
+	 * @param project
+	 *        The {@link Project} whose {@link AvailComponent} knows the
+	 *        roots.
+	 * @param ioFile
+	 *        The repository {@link File}.
+	 * @return The root node.
+	 */
+	private static @NotNull DefaultMutableTreeNode rootNode (
+		final @NotNull Project project,
+		final @NotNull File ioFile)
+	{
+		final AvailComponent component = AvailComponent.getInstance(project);
+		final ModuleRoot root = component.moduleRootForRepository(ioFile);
+		if (root == null)
+		{
+			return leaf("Not the repository of a configured Avail root");
+		}
+		final IndexedRepositoryManager repository = root.repository();
+		if (repository == null)
+		{
+			return leaf("The repository of /" + root.name() + " is not open");
+		}
+		return new RootNode(component, root, repository);
+	}
+
+	@Override
+	public @NotNull JComponent getComponent ()
+	{
+		return panel;
+	}
+
+	@Override
+	public @Nullable JComponent getPreferredFocusedComponent ()
+	{
+		return tree;
+	}
+
+	@Override
+	public @NotNull String getName ()
+	{
+		return "Repository";
+	}
+
+	@Override
+	public void setState (final @NotNull FileEditorState state)
+	{
+		// There is no state to restore.
+	}
+
+	@Override
+	public boolean isModified ()
+	{
+		return false;
+	}
+
+	@Override
+	public boolean isValid ()
+	{
+		return file.isValid();
+	}
+
+	@Override
+	public void selectNotify ()
+	{
+		// Nothing is refreshed on selection.
+	}
+
+	@Override
+	public void deselectNotify ()
+	{
+		// Nothing is released on deselection.
+	}
+
+	@Override
+	public void addPropertyChangeListener (
+		final @NotNull PropertyChangeListener listener)
+	{
+		// The editor is read-only, so its properties never change.
+	}
+
+	@Override
+	public void removePropertyChangeListener (
+		final @NotNull PropertyChangeListener listener)
+	{
+		// The editor is read-only, so its properties never change.
+	}
+
+	@Override
+	public @Nullable BackgroundEditorHighlighter getBackgroundHighlighter ()
+	{
+		return null;
+	}
+
+	@Override
+	public @Nullable FileEditorLocation getCurrentLocation ()
+	{
+		return null;
+	}
+
+	@Override
+	public void dispose ()
+	{
+		disposed = true;
+	}
+
+	/**
+	 * Construct a {@link RepositoryFileEditor}.
+	 *
+	 * @param project
+	 *        The {@link Project} in which the file is opened.
+	 * @param file
+	 *        The repository {@link VirtualFile}.
+	 */
+	RepositoryFileEditor (
+		final @NotNull Project project,
+		final @NotNull VirtualFile file)
+	{
+		this.file = file;
+		final File ioFile = VfsUtilCore.virtualToIoFile(file);
+		final DefaultMutableTreeNode rootNode = rootNode(project, ioFile);
+		this.model = new DefaultTreeModel(rootNode, true);
+		this.tree = new Tree(model);
+		// Only the visible rows are ever measured or painted.
+		tree.setLargeModel(true);
+		tree.addTreeWillExpandListener(new TreeWillExpandListener()
+		{
+			@Override
+			public void treeWillExpand (final TreeExpansionEvent event)
+			{
+				final Object node = event.getPath().getLastPathComponent();
+				if (node instanceof LazyNode)
+				{
+					load((LazyNode) node);
+				}
+			}
+
+			@Override
+			public void treeWillCollapse (final TreeExpansionEvent event)
+			{
+				// Collapsed nodes keep their children.
+			}
+		});
+		final JBLabel header = new JBLabel(describeHeader(ioFile));
+		header.setBorder(JBUI.Borders.empty(4));
+		panel.add(header, BorderLayout.NORTH);
+		panel.add(new JBScrollPane(tree), BorderLayout.CENTER);
+		tree.expandPath(new TreePath(rootNode));
+	}
+}
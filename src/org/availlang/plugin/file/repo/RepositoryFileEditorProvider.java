@@ -0,0 +1,89 @@
+/*
+ * RepositoryFileEditorProvider.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.file.repo;
+import com.intellij.openapi.fileEditor.FileEditor;
+import com.intellij.openapi.fileEditor.FileEditorPolicy;
+import com.intellij.openapi.fileEditor.FileEditorProvider;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.availlang.plugin.file.AvailRepoFileType;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@code RepositoryFileEditorProvider} is a {@link FileEditorProvider} that
+ * opens {@linkplain AvailRepoFileType Avail repository files} in a read-only
+ * {@link RepositoryFileEditor} instead of showing their binary content.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class RepositoryFileEditorProvider
+implements FileEditorProvider, DumbAware
+{
+	/**
+	 * The {@linkplain #getEditorTypeId() type id} of the {@link
+	 * RepositoryFileEditor}.
+	 */
+	private static final @NotNull String editorTypeId =
+		"avail-repository-viewer";
+
+	@Override
+	public boolean accept (
+		final @NotNull Project project,
+		final @NotNull VirtualFile file)
+	{
+		return file.getFileType() == AvailRepoFileType.soleInstance
+			&& file.isInLocalFileSystem();
+	}
+
+	@Override
+	public @NotNull FileEditor createEditor (
+		final @NotNull Project project,
+		final @NotNull VirtualFile file)
+	{
+		return new RepositoryFileEditor(project, file);
+	}
+
+	@Override
+	public @NotNull String getEditorTypeId ()
+	{
+		return editorTypeId;
+	}
+
+	@Override
+	public @NotNull FileEditorPolicy getPolicy ()
+	{
+		// A repository is binary, so the default text editor has nothing
+		// useful to show.
+		return FileEditorPolicy.HIDE_DEFAULT_EDITOR;
+	}
+}
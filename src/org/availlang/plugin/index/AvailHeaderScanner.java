@@ -0,0 +1,314 @@
+/*
+ * AvailHeaderScanner.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.index;
+import com.intellij.psi.tree.IElementType;
+import org.availlang.plugin.index.AvailModuleHeader.Import;
+import org.availlang.plugin.lexer.AvailLexer;
+import org.availlang.plugin.lexer.AvailTokenTypes;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An {@code AvailHeaderScanner} extracts the {@link AvailModuleHeader} from
+ * Avail source text. It only runs the {@link AvailLexer} over the header and
+ * stops at the {@code Body} keyword, so the cost does not depend on the size
+ * of the module body.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public final class AvailHeaderScanner
+{
+	/**
+	 * Scan the header of the given Avail source.
+	 *
+	 * @param text
+	 *        The source text.
+	 * @return The {@link AvailModuleHeader}, or {@code null} if the text does
+	 *         not start with a {@code Module} section.
+	 */
+	public static @Nullable AvailModuleHeader scan (
+		final @NotNull CharSequence text)
+	{
+		final AvailLexer lexer = new AvailLexer();
+		lexer.start(text);
+		String moduleName = null;
+		final List<String> versions = new ArrayList<>();
+		final List<Import> extendsImports = new ArrayList<>();
+		final List<Import> usesImports = new ArrayList<>();
+		final List<String> names = new ArrayList<>();
+		final List<String> entries = new ArrayList<>();
+		String section = null;
+		int depth = 0;
+		String importName = null;
+		List<String> importNames = new ArrayList<>();
+		for (IElementType type = lexer.getTokenType();
+			type != null;
+			lexer.advance(), type = lexer.getTokenType())
+		{
+			if (type == AvailTokenTypes.WHITESPACE
+				|| type == AvailTokenTypes.COMMENT)
+			{
+				continue;
+			}
+			if (type == AvailTokenTypes.KEYWORD)
+			{
+				final String keyword = text.subSequence(
+					lexer.getTokenStart(), lexer.getTokenEnd()).toString();
+				if (section == null && !keyword.equals("Module"))
+				{
+					return null;
+				}
+				if (importName != null)
+				{
+					addImport(
+						section, importName, importNames,
+						extendsImports, usesImports);
+					importName = null;
+					importNames = new ArrayList<>();
+				}
+				if (keyword.equals("Body"))
+				{
+					break;
+				}
+				section = keyword;
+				depth = 0;
+				continue;
+			}
+			if (section == null)
+			{
+				return null;
+			}
+			depth += AvailTokenTypes.depthChange(type);
+			if (type != AvailTokenTypes.STRING)
+			{
+				continue;
+			}
+			final String string = stringValue(
+				text, lexer.getTokenStart(), lexer.getTokenEnd());
+			switch (section)
+			{
+				case "Module":
+					if (moduleName == null)
+					{
+						moduleName = string;
+					}
+					break;
+				case "Versions":
+					versions.add(string);
+					break;
+				case "Names":
+					names.add(string);
+					break;
+				case "Entries":
+					entries.add(string);
+					break;
+				case "Extends":
+				case "Uses":
+					if (depth == 0)
+					{
+						if (importName != null)
+						{
+							addImport(
+								section, importName, importNames,
+								extendsImports, usesImports);
+							importNames = new ArrayList<>();
+						}
+						importName = string;
+					}
+					else
+					{
+						importNames.add(string);
+					}
+					break;
+				default:
+					// Pragmas are not indexed.
+					break;
+			}
+		}
+		if (importName != null)
+		{
+			addImport(
+				section, importName, importNames,
+				extendsImports, usesImports);
+		}
+		if (moduleName == null)
+		{
+			return null;
+		}
+		return new AvailModuleHeader(
+			moduleName, versions, extendsImports, usesImports, names, entries);
+	}
+
+	/**
+	 * Record an {@link Import} in the list for its section.
+	 *
+	 * @param section
+	 *        The keyword of the section, {@code Extends} or {@code Uses}.
+	 * @param moduleName
+	 *        The name of the imported module.
+	 * @param names
+	 *        The names listed for the imported module.
+	 * @param extendsImports
+	 *        The {@code Extends} imports.
+	 * @param usesImports
+	 *        The {@code Uses} imports.
+	 */
+	private static void addImport (
+		final @Nullable String section,
+		final @NotNull String moduleName,
+		final @NotNull List<String> names,
+		final @NotNull List<Import> extendsImports,
+		final @NotNull List<Import> usesImports)
+	{
+		final Import anImport = new Import(moduleName, names);
+		if ("Extends".equals(section))
+		{
+			extendsImports.add(anImport);
+		}
+		else
+		{
+			usesImports.add(anImport);
+		}
+	}
+
+	/**
+	 * Answer the value of the string literal in the given range of the text,
+	 * interpreting its escape sequences.
+	 *
+	 * @param text
+	 *        The source text.
+	 * @param start
+	 *        The offset of the opening quote.
+	 * @param end
+	 *        The end of the literal.
+	 * @return The string.
+	 */
+	static @NotNull String stringValue (
+		final @NotNull CharSequence text,
+		final int start,
+		final int end)
+	{
+		final StringBuilder builder = new StringBuilder(end - start);
+		final int limit =
+			end - start >= 2 && text.charAt(end - 1) == '"' ? end - 1 : end;
+		int i = start + 1;
+		while (i < limit)
+		{
+			final char c = text.charAt(i++);
+			if (c != '\\' || i >= limit)
+			{
+				builder.append(c);
+				continue;
+			}
+			final char escape = text.charAt(i++);
+			switch (escape)
+			{
+				case 'n': builder.append('\n'); break;
+				case 'r': builder.append('\r'); break;
+				case 't': builder.append('\t'); break;
+				case '|':
+					// A line continuation; the preceding whitespace is not
+					// part of the string.
+					while (builder.length() > 0
+						&& Character.isWhitespace(
+							builder.charAt(builder.length() - 1)))
+					{
+						builder.setLength(builder.length() - 1);
+					}
+					break;
+				case '(':
+					i = appendCodePoints(text, i, limit, builder);
+					break;
+				default: builder.append(escape); break;
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Append the code points of a <code>\(…)</code> escape sequence, a comma
+	 * separated list of hexadecimal numbers.
+	 *
+	 * @param text
+	 *        The source text.
+	 * @param offset
+	 *        The offset just after the opening parenthesis.
+	 * @param limit
+	 *        The end of the string's contents.
+	 * @param builder
+	 *        The {@link StringBuilder} to append to.
+	 * @return The offset just after the closing parenthesis.
+	 */
+	private static int appendCodePoints (
+		final @NotNull CharSequence text,
+		final int offset,
+		final int limit,
+		final @NotNull StringBuilder builder)
+	{
+		int i = offset;
+		int codePoint = 0;
+		boolean any = false;
+		while (i < limit)
+		{
+			final char c = text.charAt(i++);
+			final int digit = Character.digit(c, 16);
+			if (digit >= 0)
+			{
+				codePoint = (codePoint << 4) + digit;
+				any = true;
+				continue;
+			}
+			if (any && Character.isValidCodePoint(codePoint))
+			{
+				builder.appendCodePoint(codePoint);
+			}
+			codePoint = 0;
+			any = false;
+			if (c == ')')
+			{
+				break;
+			}
+		}
+		return i;
+	}
+
+	/**
+	 * Forbid instantiation.
+	 */
+	private AvailHeaderScanner ()
+	{
+		// No implementation required.
+	}
+}
@@ -0,0 +1,362 @@
+/*
+ * AvailModuleHeader.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.index;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.IOUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An {@code AvailModuleHeader} is the information in the header of an Avail
+ * module, as recovered from its source by the {@link AvailHeaderScanner}
+ * without compiling it.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public final class AvailModuleHeader
+{
+	/**
+	 * An {@code Import} is a module named in the {@code Extends} or {@code
+	 * Uses} section of a header, along with the names listed for it, if
+	 * any.
+	 */
+	public static final class Import
+	{
+		/**
+		 * The name of the imported module, as written in the header.
+		 */
+		public final @NotNull String moduleName;
+
+		/**
+		 * The names listed for the imported module, as written in the header.
+		 * Empty if the whole module is imported.
+		 */
+		public final @NotNull List<String> names;
+
+		/**
+		 * Construct an {@link Import}.
+		 *
+		 * @param moduleName
+		 *        The name of the imported module.
+		 * @param names
+		 *        The names listed for the imported module.
+		 */
+		public Import (
+			final @NotNull String moduleName,
+			final @NotNull List<String> names)
+		{
+			this.moduleName = moduleName;
+			this.names = Collections.unmodifiableList(names);
+		}
+
+		@Override
+		public boolean equals (final Object o)
+		{
+			if (this == o)
+			{
+				return true;
+			}
+			if (!(o instanceof Import))
+			{
+				return false;
+			}
+			final Import other = (Import) o;
+			return moduleName.equals(other.moduleName)
+				&& names.equals(other.names);
+		}
+
+		@Override
+		public int hashCode ()
+		{
+			return Objects.hash(moduleName, names);
+		}
+
+		@Override
+		public String toString ()
+		{
+			return names.isEmpty()
+				? moduleName
+				: moduleName + " " + names;
+		}
+	}
+
+	/**
+	 * The name in the {@code Module} section.
+	 */
+	public final @NotNull String moduleName;
+
+	/**
+	 * The {@code Versions} of the module.
+	 */
+	public final @NotNull List<String> versions;
+
+	/**
+	 * The {@code Extends} {@link Import}s.
+	 */
+	public final @NotNull List<Import> extendsImports;
+
+	/**
+	 * The {@code Uses} {@link Import}s.
+	 */
+	public final @NotNull List<Import> usesImports;
+
+	/**
+	 * The exported {@code Names}.
+	 */
+	public final @NotNull List<String> names;
+
+	/**
+	 * The {@code Entries}: the names of the module's entry points.
+	 */
+	public final @NotNull List<String> entries;
+
+	/**
+	 * Answer the {@linkplain Import#moduleName names} of every module imported
+	 * by either {@code Extends} or {@code Uses}.
+	 *
+	 * @return A {@link List} of module names, as written in the header.
+	 */
+	public @NotNull List<String> importedModuleNames ()
+	{
+		final List<String> imported =
+			new ArrayList<>(extendsImports.size() + usesImports.size());
+		extendsImports.forEach(i -> imported.add(i.moduleName));
+		usesImports.forEach(i -> imported.add(i.moduleName));
+		return imported;
+	}
+
+	@Override
+	public boolean equals (final Object o)
+	{
+		if (this == o)
+		{
+			return true;
+		}
+		if (!(o instanceof AvailModuleHeader))
+		{
+			return false;
+		}
+		final AvailModuleHeader other = (AvailModuleHeader) o;
+		return moduleName.equals(other.moduleName)
+			&& versions.equals(other.versions)
+			&& extendsImports.equals(other.extendsImports)
+			&& usesImports.equals(other.usesImports)
+			&& names.equals(other.names)
+			&& entries.equals(other.entries);
+	}
+
+	@Override
+	public int hashCode ()
+	{
+		return Objects.hash(
+			moduleName, versions, extendsImports, usesImports, names, entries);
+	}
+
+	@Override
+	public String toString ()
+	{
+		return String.format(
+			"Module %s (Extends %s, Uses %s, Entries %s)",
+			moduleName,
+			extendsImports,
+			usesImports,
+			entries);
+	}
+
+	/**
+	 * Construct an {@link AvailModuleHeader}.
+	 *
+	 * @param moduleName
+	 *        The name in the {@code Module} section.
+	 * @param versions
+	 *        The {@code Versions} of the module.
+	 * @param extendsImports
+	 *        The {@code Extends} {@link Import}s.
+	 * @param usesImports
+	 *        The {@code Uses} {@code Import}s.
+	 * @param names
+	 *        The exported {@code Names}.
+	 * @param entries
+	 *        The {@code Entries}.
+	 */
+	public AvailModuleHeader (
+		final @NotNull String moduleName,
+		final @NotNull List<String> versions,
+		final @NotNull List<Import> extendsImports,
+		final @NotNull List<Import> usesImports,
+		final @NotNull List<String> names,
+		final @NotNull List<String> entries)
+	{
+		this.moduleName = moduleName;
+		this.versions = Collections.unmodifiableList(versions);
+		this.extendsImports = Collections.unmodifiableList(extendsImports);
+		this.usesImports = Collections.unmodifiableList(usesImports);
+		this.names = Collections.unmodifiableList(names);
+		this.entries = Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * The {@link DataExternalizer} that stores {@link AvailModuleHeader}s in
+	 * the {@link AvailModuleHeaderIndex}.
+	 */
+	public static final @NotNull DataExternalizer<AvailModuleHeader>
+		externalizer = new DataExternalizer<AvailModuleHeader>()
+	{
+		@Override
+		public void save (
+			final @NotNull DataOutput out,
+			final AvailModuleHeader header)
+		throws IOException
+		{
+			IOUtil.writeUTF(out, header.moduleName);
+			writeStrings(out, header.versions);
+			writeImports(out, header.extendsImports);
+			writeImports(out, header.usesImports);
+			writeStrings(out, header.names);
+			writeStrings(out, header.entries);
+		}
+
+		@Override
+		public AvailModuleHeader read (final @NotNull DataInput in)
+		throws IOException
+		{
+			final String moduleName = IOUtil.readUTF(in);
+			final List<String> versions = readStrings(in);
+			final List<Import> extendsImports = readImports(in);
+			final List<Import> usesImports = readImports(in);
+			final List<String> names = readStrings(in);
+			final List<String> entries = readStrings(in);
+			return new AvailModuleHeader(
+				moduleName,
+				versions,
+				extendsImports,
+				usesImports,
+				names,
+				entries);
+		}
+
+		/**
+		 * Write a {@link List} of strings.
+		 *
+		 * @param out
+		 *        The {@link DataOutput}.
+		 * @param strings
+		 *        The strings.
+		 * @throws IOException
+		 *         If the strings could not be written.
+		 */
+		private void writeStrings (
+			final @NotNull DataOutput out,
+			final @NotNull List<String> strings)
+		throws IOException
+		{
+			out.writeInt(strings.size());
+			for (final String string : strings)
+			{
+				IOUtil.writeUTF(out, string);
+			}
+		}
+
+		/**
+		 * Read a {@link List} of strings.
+		 *
+		 * @param in
+		 *        The {@link DataInput}.
+		 * @return The strings.
+		 * @throws IOException
+		 *         If the strings could not be read.
+		 */
+		private @NotNull List<String> readStrings (final @NotNull DataInput in)
+		throws IOException
+		{
+			final int count = in.readInt();
+			final List<String> strings = new ArrayList<>(count);
+			for (int i = 0; i < count; i++)
+			{
+				strings.add(IOUtil.readUTF(in));
+			}
+			return strings;
+		}
+
+		/**
+		 * Write a {@link List} of {@link Import}s.
+		 *
+		 * @param out
+		 *        The {@link DataOutput}.
+		 * @param imports
+		 *        The {@code Import}s.
+		 * @throws IOException
+		 *         If the imports could not be written.
+		 */
+		private void writeImports (
+			final @NotNull DataOutput out,
+			final @NotNull List<Import> imports)
+		throws IOException
+		{
+			out.writeInt(imports.size());
+			for (final Import anImport : imports)
+			{
+				IOUtil.writeUTF(out, anImport.moduleName);
+				writeStrings(out, anImport.names);
+			}
+		}
+
+		/**
+		 * Read a {@link List} of {@link Import}s.
+		 *
+		 * @param in
+		 *        The {@link DataInput}.
+		 * @return The {@code Import}s.
+		 * @throws IOException
+		 *         If the imports could not be read.
+		 */
+		private @NotNull List<Import> readImports (final @NotNull DataInput in)
+		throws IOException
+		{
+			final int count = in.readInt();
+			final List<Import> imports = new ArrayList<>(count);
+			for (int i = 0; i < count; i++)
+			{
+				final String moduleName = IOUtil.readUTF(in);
+				imports.add(new Import(moduleName, readStrings(in)));
+			}
+			return imports;
+		}
+	};
+}
@@ -0,0 +1,167 @@
+/*
+ * AvailModuleHeaderIndex.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.index;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.DataIndexer;
+import com.intellij.util.indexing.DefaultFileTypeSpecificInputFilter;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.FileBasedIndexExtension;
+import com.intellij.util.indexing.FileContent;
+import com.intellij.util.indexing.ID;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import org.availlang.plugin.file.AvailFileType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An {@code AvailModuleHeaderIndex} is a {@link FileBasedIndexExtension} that
+ * maps the local name of every Avail module, the name of its file without the
+ * extension, to its {@link AvailModuleHeader}. The headers are recovered by the
+ * {@link AvailHeaderScanner}, so no module is compiled, and IntelliJ only
+ * reindexes files that change.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class AvailModuleHeaderIndex
+extends FileBasedIndexExtension<String, AvailModuleHeader>
+{
+	/**
+	 * The {@link ID} of the index.
+	 */
+	public static final @NotNull ID<String, AvailModuleHeader> NAME =
+		ID.create("org.availlang.plugin.moduleHeader");
+
+	/**
+	 * The version of the index. Increment it whenever the indexer or the
+	 * {@linkplain AvailModuleHeader#externalizer stored format} changes.
+	 */
+	private static final int version = 1;
+
+	@Override
+	public @NotNull ID<String, AvailModuleHeader> getName ()
+	{
+		return NAME;
+	}
+
+	@Override
+	public @NotNull DataIndexer<String, AvailModuleHeader, FileContent>
+		getIndexer ()
+	{
+		return inputData ->
+		{
+			final AvailModuleHeader header =
+				AvailHeaderScanner.scan(inputData.getContentAsText());
+			if (header == null)
+			{
+				return Collections.emptyMap();
+			}
+			return Collections.singletonMap(
+				inputData.getFile().getNameWithoutExtension(), header);
+		};
+	}
+
+	@Override
+	public @NotNull KeyDescriptor<String> getKeyDescriptor ()
+	{
+		return EnumeratorStringDescriptor.INSTANCE;
+	}
+
+	@Override
+	public @NotNull DataExternalizer<AvailModuleHeader> getValueExternalizer ()
+	{
+		return AvailModuleHeader.externalizer;
+	}
+
+	@Override
+	public int getVersion ()
+	{
+		return version;
+	}
+
+	@Override
+	public @NotNull FileBasedIndex.InputFilter getInputFilter ()
+	{
+		return new DefaultFileTypeSpecificInputFilter(
+			AvailFileType.soleInstance);
+	}
+
+	@Override
+	public boolean dependsOnFileContent ()
+	{
+		return true;
+	}
+
+	/**
+	 * Answer the {@link AvailModuleHeader} of the given Avail source file.
+	 *
+	 * @param project
+	 *        The {@link Project}.
+	 * @param file
+	 *        The {@link VirtualFile} of the module.
+	 * @return The header, or {@code null} if the file has none or is not yet
+	 *         indexed.
+	 */
+	public static @Nullable AvailModuleHeader header (
+		final @NotNull Project project,
+		final @NotNull VirtualFile file)
+	{
+		final Map<String, AvailModuleHeader> data =
+			FileBasedIndex.getInstance().getFileData(NAME, file, project);
+		return data.get(file.getNameWithoutExtension());
+	}
+
+	/**
+	 * Answer the {@link AvailModuleHeader}s of every module in the {@link
+	 * Project} with the given local name.
+	 *
+	 * @param project
+	 *        The {@code Project}.
+	 * @param localName
+	 *        The local name of the module.
+	 * @return The headers, one per module with that name.
+	 */
+	public static @NotNull List<AvailModuleHeader> headers (
+		final @NotNull Project project,
+		final @NotNull String localName)
+	{
+		return FileBasedIndex.getInstance().getValues(
+			NAME, localName, GlobalSearchScope.allScope(project));
+	}
+}
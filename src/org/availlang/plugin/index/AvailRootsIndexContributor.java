@@ -0,0 +1,79 @@
+/*
+ * AvailRootsIndexContributor.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.index;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.indexing.IndexableSetContributor;
+import org.availlang.plugin.core.AvailComponent;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An {@code AvailRootsIndexContributor} is an {@link IndexableSetContributor}
+ * that adds the source directories of every configured Avail root to the
+ * files that IntelliJ indexes, so that the {@link AvailModuleHeaderIndex}
+ * also covers roots, such as the SDK's, that lie outside the project content.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class AvailRootsIndexContributor
+extends IndexableSetContributor
+{
+	@Override
+	public @NotNull Set<VirtualFile> getAdditionalRootsToIndex ()
+	{
+		return Collections.emptySet();
+	}
+
+	@Override
+	public @NotNull Set<VirtualFile> getAdditionalProjectRootsToIndex (
+		final @NotNull Project project)
+	{
+		final Set<VirtualFile> roots = new HashSet<>();
+		for (final File directory :
+			AvailComponent.getInstance(project).sourceDirectories())
+		{
+			final VirtualFile root =
+				LocalFileSystem.getInstance().findFileByIoFile(directory);
+			if (root != null)
+			{
+				roots.add(root);
+			}
+		}
+		return roots;
+	}
+}
@@ -35,17 +35,106 @@ import com.intellij.psi.tree.IElementType;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import static org.availlang.plugin.lexer.AvailTokenTypes.*;
+
 /**
- * An {@link AvailLexer} is a {@link LexerBase}.
+ * An {@link AvailLexer} is a {@link LexerBase} that splits Avail source into
+ * the {@linkplain AvailTokenTypes tokens} needed for highlighting, brace
+ * matching, and indexing.
+ *
+ * <p>
+ * Avail's grammar is defined by the modules themselves, so this lexer does not
+ * attempt to reproduce the compiler's lexical scanners. It recognizes
+ * whitespace, nested comments, string literals with escapes, numeric
+ * literals, alphanumeric tokens, and treats every other character, including
+ * the Unicode operator characters Avail favors, as a token by itself.
+ * </p>
+ *
+ * <p>
+ * The header keywords are only {@linkplain AvailTokenTypes#KEYWORD keywords}
+ * up to and including {@code Body}; in the body they are ordinary
+ * identifiers. A lexer for whole files starts in the header at offset
+ * {@code 0}; one {@linkplain #AvailLexer(boolean) made for body text}, such
+ * as a single top-level statement, only starts in the header if its initial
+ * state says so. An unterminated comment does not swallow the rest of the file:
+ * its opening <code>/*</code> is a {@linkplain AvailTokenTypes#BAD_CHARACTER
+ * bad character}, and lexing continues just after it.
+ * </p>
+ *
+ * <p>
+ * Every token, even a comment or string that spans many lines, is produced
+ * whole. A body token is in the initial state ({@code 0}), so it is a valid
+ * restart point for incremental relexing. A header token is in the {@link
+ * #headerState}, so an edit in the header relexes from the start of the file,
+ * and a token that follows an unterminated comment is in the {@link
+ * #unterminatedState}, so an edit anywhere after it relexes from that
+ * comment. Scanning reads the {@link CharSequence} directly and allocates
+ * nothing.
+ * </p>
  *
  * @author Richard Arriaga &lt;rich@availlang.org&gt;
  */
 public class AvailLexer extends LexerBase
 {
-	private CharSequence buffer;
-	private int startOffset = 0;
-	private int endOffset = 0;
-	private int initialState = 0;
+	/**
+	 * The state bit of a token in the module header, which is not a restart
+	 * point for incremental relexing.
+	 */
+	public static final int headerState = 1;
+
+	/**
+	 * The state bit of a token that follows an unterminated comment, which
+	 * is not a restart point for incremental relexing.
+	 */
+	public static final int unterminatedState = 2;
+
+	/**
+	 * The text being lexed.
+	 */
+	private CharSequence buffer = "";
+
+	/**
+	 * The offset at which lexing stops.
+	 */
+	private int bufferEnd = 0;
+
+	/**
+	 * The start offset of the current token.
+	 */
+	private int tokenStart = 0;
+
+	/**
+	 * The end offset of the current token.
+	 */
+	private int tokenEnd = 0;
+
+	/**
+	 * The {@link IElementType} of the current token, or {@code null} at the
+	 * end of the buffer.
+	 */
+	private @Nullable IElementType tokenType;
+
+	/**
+	 * The state at the start of the current token.
+	 */
+	private int tokenState = 0;
+
+	/**
+	 * Whether the next token is in the module header, that is, the {@code
+	 * Body} keyword has not yet been seen.
+	 */
+	private boolean inHeader = true;
+
+	/**
+	 * Whether an unterminated comment precedes the next token.
+	 */
+	private boolean afterUnterminated = false;
+
+	/**
+	 * Whether lexing from offset {@code 0} starts in the module header. This
+	 * is {@code false} for a lexer of text taken from the body.
+	 */
+	private final boolean startsInHeader;
 
 	@Override
 	public void start (
@@ -55,40 +144,50 @@ public class AvailLexer extends LexerBase
 		final int initialState)
 	{
 		this.buffer = buffer;
-		this.startOffset = startOffset;
-		this.endOffset = endOffset;
-		this.initialState = initialState;
+		this.bufferEnd = endOffset;
+		this.tokenStart = startOffset;
+		this.tokenEnd = startOffset;
+		// Relexing only restarts in the header from the start of the buffer,
+		// and the highlighter's initial state is that of an empty buffer.
+		// Body text, even from its own start, is only in the header if the
+		// initial state says so.
+		this.inHeader = (initialState & headerState) != 0
+			|| (startsInHeader && startOffset == 0);
+		this.afterUnterminated = (initialState & unterminatedState) != 0;
+		locateToken();
 	}
 
 	@Override
 	public int getState ()
 	{
-		return 0;
+		// Tokens are never split, so only the header and an unterminated
+		// comment need to be remembered. There is no state past the end.
+		return tokenType == null ? 0 : tokenState;
 	}
 
 	@Override
-	public @Nullable
-	IElementType getTokenType ()
+	public @Nullable IElementType getTokenType ()
 	{
-		return null;
+		return tokenType;
 	}
 
 	@Override
 	public int getTokenStart ()
 	{
-		return 0;
+		return tokenStart;
 	}
 
 	@Override
 	public int getTokenEnd ()
 	{
-		return 0;
+		return tokenEnd;
 	}
 
 	@Override
 	public void advance ()
 	{
-
+		tokenStart = tokenEnd;
+		locateToken();
 	}
 
 	@Override
@@ -100,6 +199,398 @@ public class AvailLexer extends LexerBase
 	@Override
 	public int getBufferEnd ()
 	{
-		return 0;
+		return bufferEnd;
+	}
+
+	/**
+	 * Answer the code point at the given offset, which must be less than
+	 * {@link #bufferEnd}.
+	 *
+	 * @param offset
+	 *        The offset.
+	 * @return The code point.
+	 */
+	private int codePointAt (final int offset)
+	{
+		final char c = buffer.charAt(offset);
+		if (Character.isHighSurrogate(c) && offset + 1 < bufferEnd)
+		{
+			final char next = buffer.charAt(offset + 1);
+			if (Character.isLowSurrogate(next))
+			{
+				return Character.toCodePoint(c, next);
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Is the character at the given offset, which may be past the end of the
+	 * buffer, the specified character?
+	 *
+	 * @param offset
+	 *        The offset.
+	 * @param c
+	 *        The expected character.
+	 * @return {@code true} if it is; {@code false} otherwise.
+	 */
+	private boolean charIs (final int offset, final char c)
+	{
+		return offset < bufferEnd && buffer.charAt(offset) == c;
+	}
+
+	/**
+	 * Is the character at the given offset, which may be past the end of the
+	 * buffer, a decimal digit?
+	 *
+	 * @param offset
+	 *        The offset.
+	 * @return {@code true} if it is; {@code false} otherwise.
+	 */
+	private boolean isDigitAt (final int offset)
+	{
+		if (offset >= bufferEnd)
+		{
+			return false;
+		}
+		final char c = buffer.charAt(offset);
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * Scan the token that starts at {@link #tokenStart}, setting {@link
+	 * #tokenEnd} and {@link #tokenType}.
+	 */
+	private void locateToken ()
+	{
+		final int start = tokenStart;
+		if (start >= bufferEnd)
+		{
+			tokenEnd = bufferEnd;
+			tokenType = null;
+			return;
+		}
+		tokenState = (inHeader ? headerState : 0)
+			| (afterUnterminated ? unterminatedState : 0);
+		final int codePoint = codePointAt(start);
+		final int width = Character.charCount(codePoint);
+		if (Character.isWhitespace(codePoint)
+			|| Character.isSpaceChar(codePoint))
+		{
+			tokenType = WHITESPACE;
+			tokenEnd = scanWhitespace(start + width);
+		}
+		else if (codePoint == '/' && charIs(start + 1, '*'))
+		{
+			tokenEnd = scanComment(start + 2);
+			if (tokenEnd < 0)
+			{
+				tokenType = BAD_CHARACTER;
+				tokenEnd = start + 2;
+				afterUnterminated = true;
+			}
+			else
+			{
+				tokenType = COMMENT;
+			}
+		}
+		else if (codePoint == '"')
+		{
+			tokenType = STRING;
+			tokenEnd = scanString(start + 1);
+		}
+		else if (codePoint >= '0' && codePoint <= '9')
+		{
+			tokenType = NUMBER;
+			tokenEnd = scanNumber(start + 1);
+		}
+		else if (Character.isLetter(codePoint) || codePoint == '_')
+		{
+			tokenEnd = scanAlphanumeric(start + width);
+			if (inHeader && isKeyword(start, tokenEnd))
+			{
+				tokenType = KEYWORD;
+				inHeader = !regionMatches(start, tokenEnd, "Body");
+			}
+			else
+			{
+				tokenType = IDENTIFIER;
+			}
+		}
+		else
+		{
+			tokenEnd = start + width;
+			tokenType = operatorType(codePoint);
+		}
+	}
+
+	/**
+	 * Answer the {@link IElementType} of a single-character token.
+	 *
+	 * @param codePoint
+	 *        The character.
+	 * @return The token type.
+	 */
+	private static @NotNull IElementType operatorType (final int codePoint)
+	{
+		switch (codePoint)
+		{
+			case ';': return SEMICOLON;
+			case ',': return COMMA;
+			case '(': return LEFT_PAREN;
+			case ')': return RIGHT_PAREN;
+			case '[': return LEFT_BRACKET;
+			case ']': return RIGHT_BRACKET;
+			case '{': return LEFT_BRACE;
+			case '}': return RIGHT_BRACE;
+			case '«': return LEFT_GUILLEMET;
+			case '»': return RIGHT_GUILLEMET;
+			default:
+				return Character.isISOControl(codePoint)
+						|| Character.getType(codePoint) == Character.UNASSIGNED
+						|| Character.getType(codePoint) == Character.SURROGATE
+					? BAD_CHARACTER
+					: OPERATOR;
+		}
+	}
+
+	/**
+	 * Scan the rest of a run of whitespace.
+	 *
+	 * @param offset
+	 *        The offset just after the first whitespace character.
+	 * @return The end of the run.
+	 */
+	private int scanWhitespace (final int offset)
+	{
+		int i = offset;
+		while (i < bufferEnd)
+		{
+			final int codePoint = codePointAt(i);
+			if (!Character.isWhitespace(codePoint)
+				&& !Character.isSpaceChar(codePoint))
+			{
+				break;
+			}
+			i += Character.charCount(codePoint);
+		}
+		return i;
+	}
+
+	/**
+	 * Scan the rest of a comment, which may contain nested comments.
+	 *
+	 * @param offset
+	 *        The offset just after the opening <code>/*</code>.
+	 * @return The end of the comment, or {@code -1} if it is unterminated.
+	 */
+	private int scanComment (final int offset)
+	{
+		int depth = 1;
+		int i = offset;
+		while (i < bufferEnd)
+		{
+			final char c = buffer.charAt(i);
+			if (c == '*' && charIs(i + 1, '/'))
+			{
+				i += 2;
+				if (--depth == 0)
+				{
+					return i;
+				}
+			}
+			else if (c == '/' && charIs(i + 1, '*'))
+			{
+				i += 2;
+				depth++;
+			}
+			else
+			{
+				i++;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Scan the rest of a string literal. A backslash escapes the following
+	 * character; the escape <code>\(…)</code>, which lists code points, is
+	 * scanned through its closing parenthesis. An unterminated string extends
+	 * to the end of the buffer.
+	 *
+	 * @param offset
+	 *        The offset just after the opening quote.
+	 * @return The end of the string literal.
+	 */
+	private int scanString (final int offset)
+	{
+		int i = offset;
+		while (i < bufferEnd)
+		{
+			final char c = buffer.charAt(i);
+			if (c == '"')
+			{
+				return i + 1;
+			}
+			if (c == '\\')
+			{
+				i++;
+				if (charIs(i, '('))
+				{
+					while (i < bufferEnd
+						&& buffer.charAt(i) != ')'
+						&& buffer.charAt(i) != '"')
+					{
+						i++;
+					}
+					if (charIs(i, ')'))
+					{
+						i++;
+					}
+					continue;
+				}
+			}
+			i++;
+		}
+		return bufferEnd;
+	}
+
+	/**
+	 * Scan the rest of a numeric literal: digits, an optional fraction, and an
+	 * optional exponent.
+	 *
+	 * @param offset
+	 *        The offset just after the first digit.
+	 * @return The end of the numeric literal.
+	 */
+	private int scanNumber (final int offset)
+	{
+		int i = offset;
+		while (isDigitAt(i))
+		{
+			i++;
+		}
+		if (charIs(i, '.') && isDigitAt(i + 1))
+		{
+			i += 2;
+			while (isDigitAt(i))
+			{
+				i++;
+			}
+		}
+		if (charIs(i, 'e') || charIs(i, 'E'))
+		{
+			int exponent = i + 1;
+			if (charIs(exponent, '+') || charIs(exponent, '-'))
+			{
+				exponent++;
+			}
+			if (isDigitAt(exponent))
+			{
+				i = exponent + 1;
+				while (isDigitAt(i))
+				{
+					i++;
+				}
+			}
+		}
+		return i;
+	}
+
+	/**
+	 * Scan the rest of an alphanumeric token.
+	 *
+	 * @param offset
+	 *        The offset just after the first character.
+	 * @return The end of the token.
+	 */
+	private int scanAlphanumeric (final int offset)
+	{
+		int i = offset;
+		while (i < bufferEnd)
+		{
+			final int codePoint = codePointAt(i);
+			if (!Character.isLetterOrDigit(codePoint) && codePoint != '_')
+			{
+				break;
+			}
+			i += Character.charCount(codePoint);
+		}
+		return i;
+	}
+
+	/**
+	 * Is the alphanumeric token in the given range one of the {@linkplain
+	 * AvailTokenTypes#keywords header keywords}?
+	 *
+	 * @param start
+	 *        The start of the token.
+	 * @param end
+	 *        The end of the token.
+	 * @return {@code true} if it is; {@code false} otherwise.
+	 */
+	private boolean isKeyword (final int start, final int end)
+	{
+		for (final String keyword : keywords)
+		{
+			if (regionMatches(start, end, keyword))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Is the token in the given range exactly the given word?
+	 *
+	 * @param start
+	 *        The start of the token.
+	 * @param end
+	 *        The end of the token.
+	 * @param word
+	 *        The word.
+	 * @return {@code true} if it is; {@code false} otherwise.
+	 */
+	private boolean regionMatches (
+		final int start,
+		final int end,
+		final @NotNull String word)
+	{
+		final int length = end - start;
+		if (word.length() != length)
+		{
+			return false;
+		}
+		for (int i = 0; i < length; i++)
+		{
+			if (word.charAt(i) != buffer.charAt(start + i))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Construct an {@link AvailLexer} for whole files, which starts in the
+	 * module header at offset {@code 0}.
+	 */
+	public AvailLexer ()
+	{
+		this(true);
+	}
+
+	/**
+	 * Construct an {@link AvailLexer}.
+	 *
+	 * @param startsInHeader
+	 *        Whether lexing from offset {@code 0} starts in the module
+	 *        header. This must be {@code false} for text taken from the
+	 *        module body, such as a single top-level statement.
+	 */
+	public AvailLexer (final boolean startsInHeader)
+	{
+		this.startsInHeader = startsInHeader;
 	}
 }
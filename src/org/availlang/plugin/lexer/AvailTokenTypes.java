@@ -0,0 +1,237 @@
+/*
+ * AvailTokenTypes.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.lexer;
+import com.intellij.psi.TokenType;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.tree.TokenSet;
+import org.availlang.plugin.file.psi.AvailElementType;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * {@code AvailTokenTypes} holds the {@link IElementType}s of the tokens
+ * produced by the {@link AvailLexer}.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public final class AvailTokenTypes
+{
+	/**
+	 * A run of whitespace.
+	 */
+	public static final @NotNull IElementType WHITESPACE =
+		TokenType.WHITE_SPACE;
+
+	/**
+	 * A character that may not appear in Avail source, or the opening
+	 * <code>/*</code> of an unterminated comment.
+	 */
+	public static final @NotNull IElementType BAD_CHARACTER =
+		TokenType.BAD_CHARACTER;
+
+	/**
+	 * A (possibly nested) comment: <code>/* … *&#47;</code>.
+	 */
+	public static final @NotNull IElementType COMMENT =
+		new AvailElementType("COMMENT");
+
+	/**
+	 * A string literal, including its quotes and escape sequences.
+	 */
+	public static final @NotNull IElementType STRING =
+		new AvailElementType("STRING");
+
+	/**
+	 * A numeric literal.
+	 */
+	public static final @NotNull IElementType NUMBER =
+		new AvailElementType("NUMBER");
+
+	/**
+	 * A keyword that introduces a section of the module header.
+	 */
+	public static final @NotNull IElementType KEYWORD =
+		new AvailElementType("KEYWORD");
+
+	/**
+	 * An alphanumeric token that is not a keyword.
+	 */
+	public static final @NotNull IElementType IDENTIFIER =
+		new AvailElementType("IDENTIFIER");
+
+	/**
+	 * A single operator character, such as {@code ←} or {@code ∀}.
+	 */
+	public static final @NotNull IElementType OPERATOR =
+		new AvailElementType("OPERATOR");
+
+	/**
+	 * The statement terminator {@code ;}.
+	 */
+	public static final @NotNull IElementType SEMICOLON =
+		new AvailElementType("SEMICOLON");
+
+	/**
+	 * The comma {@code ,}.
+	 */
+	public static final @NotNull IElementType COMMA =
+		new AvailElementType("COMMA");
+
+	/**
+	 * An opening parenthesis.
+	 */
+	public static final @NotNull IElementType LEFT_PAREN =
+		new AvailElementType("LEFT_PAREN");
+
+	/**
+	 * A closing parenthesis.
+	 */
+	public static final @NotNull IElementType RIGHT_PAREN =
+		new AvailElementType("RIGHT_PAREN");
+
+	/**
+	 * An opening square bracket, which starts a block.
+	 */
+	public static final @NotNull IElementType LEFT_BRACKET =
+		new AvailElementType("LEFT_BRACKET");
+
+	/**
+	 * A closing square bracket, which ends a block.
+	 */
+	public static final @NotNull IElementType RIGHT_BRACKET =
+		new AvailElementType("RIGHT_BRACKET");
+
+	/**
+	 * An opening brace.
+	 */
+	public static final @NotNull IElementType LEFT_BRACE =
+		new AvailElementType("LEFT_BRACE");
+
+	/**
+	 * A closing brace.
+	 */
+	public static final @NotNull IElementType RIGHT_BRACE =
+		new AvailElementType("RIGHT_BRACE");
+
+	/**
+	 * An opening guillemet, {@code «}.
+	 */
+	public static final @NotNull IElementType LEFT_GUILLEMET =
+		new AvailElementType("LEFT_GUILLEMET");
+
+	/**
+	 * A closing guillemet, {@code »}.
+	 */
+	public static final @NotNull IElementType RIGHT_GUILLEMET =
+		new AvailElementType("RIGHT_GUILLEMET");
+
+	/**
+	 * The {@link TokenSet} of whitespace tokens.
+	 */
+	public static final @NotNull TokenSet WHITESPACES =
+		TokenSet.create(WHITESPACE);
+
+	/**
+	 * The {@link TokenSet} of comment tokens.
+	 */
+	public static final @NotNull TokenSet COMMENTS = TokenSet.create(COMMENT);
+
+	/**
+	 * The {@link TokenSet} of string literal tokens.
+	 */
+	public static final @NotNull TokenSet STRINGS = TokenSet.create(STRING);
+
+	/**
+	 * The {@link TokenSet} of bracketing tokens.
+	 */
+	public static final @NotNull TokenSet BRACES = TokenSet.create(
+		LEFT_PAREN, RIGHT_PAREN,
+		LEFT_BRACKET, RIGHT_BRACKET,
+		LEFT_BRACE, RIGHT_BRACE,
+		LEFT_GUILLEMET, RIGHT_GUILLEMET);
+
+	/**
+	 * The {@link TokenSet} of individual operator characters.
+	 */
+	public static final @NotNull TokenSet OPERATORS =
+		TokenSet.create(OPERATOR, SEMICOLON, COMMA);
+
+	/**
+	 * The keywords that introduce the sections of a module header. They are
+	 * not reserved words, but they are highlighted as such within the header.
+	 */
+	static final @NotNull String[] keywords =
+	{
+		"Module",
+		"Versions",
+		"Extends",
+		"Uses",
+		"Names",
+		"Entries",
+		"Pragma",
+		"Body"
+	};
+
+	/**
+	 * Answer the change in bracket nesting depth caused by a token.
+	 *
+	 * @param type
+	 *        The {@link IElementType} of the token.
+	 * @return {@code 1} for an opening bracket, {@code -1} for a closing
+	 *         bracket, and {@code 0} otherwise.
+	 */
+	public static int depthChange (final @NotNull IElementType type)
+	{
+		if (type == LEFT_PAREN
+			|| type == LEFT_BRACKET
+			|| type == LEFT_BRACE
+			|| type == LEFT_GUILLEMET)
+		{
+			return 1;
+		}
+		if (type == RIGHT_PAREN
+			|| type == RIGHT_BRACKET
+			|| type == RIGHT_BRACE
+			|| type == RIGHT_GUILLEMET)
+		{
+			return -1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Forbid instantiation.
+	 */
+	private AvailTokenTypes ()
+	{
+		// No implementation required.
+	}
+}
@@ -33,12 +33,23 @@ package org.availlang.plugin.parser;
 import com.intellij.lang.ASTNode;
 import com.intellij.lang.PsiBuilder;
 import com.intellij.lang.PsiParser;
-import com.intellij.psi.impl.source.tree.java.PsiEmptyExpressionImpl;
 import com.intellij.psi.tree.IElementType;
+import org.availlang.plugin.file.psi.AvailElementTypes;
+import org.availlang.plugin.lexer.AvailTokenTypes;
 import org.jetbrains.annotations.NotNull;
 
 /**
- * An {@code AvailParser} is a {@link PsiParser}.
+ * An {@code AvailParser} is a {@link PsiParser} that recovers the coarse
+ * structure of an Avail module: the sections of the {@linkplain
+ * AvailElementTypes#MODULE_HEADER module header} and the top-level
+ * {@linkplain AvailElementTypes#STATEMENT statements} of the body.
+ *
+ * <p>
+ * The body's grammar is defined by the modules it imports, so statements are
+ * only delimited, at each semicolon outside of any brackets, and not parsed
+ * further. Each statement is collapsed into a lazily parsed, reparseable
+ * element, so an edit inside one statement reparses only that statement.
+ * </p>
  *
  * @author Richard Arriaga &lt;rich@availlang.org&gt;
  */
@@ -48,8 +59,113 @@ public class AvailParser implements PsiParser
 	public @NotNull ASTNode parse (
 		@NotNull final IElementType root, @NotNull final PsiBuilder builder)
 	{
-		// TODO build me for real.
-//		return builder.getTreeBuilt();
-		return new PsiEmptyExpressionImpl();
+		final PsiBuilder.Marker rootMarker = builder.mark();
+		if (root == AvailElementTypes.STATEMENT)
+		{
+			// Reparsing the contents of a single collapsed statement.
+			while (!builder.eof())
+			{
+				builder.advanceLexer();
+			}
+		}
+		else
+		{
+			parseHeader(builder);
+			if (!builder.eof())
+			{
+				parseBody(builder);
+			}
+		}
+		rootMarker.done(root);
+		return builder.getTreeBuilt();
+	}
+
+	/**
+	 * Is the current token the given header keyword?
+	 *
+	 * @param builder
+	 *        The {@link PsiBuilder}.
+	 * @param keyword
+	 *        The keyword.
+	 * @return {@code true} if it is; {@code false} otherwise.
+	 */
+	private static boolean atKeyword (
+		final @NotNull PsiBuilder builder,
+		final @NotNull String keyword)
+	{
+		return builder.getTokenType() == AvailTokenTypes.KEYWORD
+			&& keyword.equals(builder.getTokenText());
+	}
+
+	/**
+	 * Parse the module header, up to but excluding the {@code Body} keyword.
+	 * Each section extends from its keyword to the next keyword.
+	 *
+	 * @param builder
+	 *        The {@link PsiBuilder}.
+	 */
+	private static void parseHeader (final @NotNull PsiBuilder builder)
+	{
+		final PsiBuilder.Marker header = builder.mark();
+		if (!atKeyword(builder, "Module"))
+		{
+			builder.error("Expected Module");
+		}
+		while (!builder.eof() && !atKeyword(builder, "Body"))
+		{
+			final String text = builder.getTokenText();
+			final IElementType section =
+				builder.getTokenType() == AvailTokenTypes.KEYWORD
+						&& text != null
+					? AvailElementTypes.headerSection(text)
+					: null;
+			if (section == null)
+			{
+				final PsiBuilder.Marker error = builder.mark();
+				builder.advanceLexer();
+				error.error("Expected a header section keyword");
+				continue;
+			}
+			final PsiBuilder.Marker sectionMarker = builder.mark();
+			builder.advanceLexer();
+			while (!builder.eof()
+				&& builder.getTokenType() != AvailTokenTypes.KEYWORD)
+			{
+				builder.advanceLexer();
+			}
+			sectionMarker.done(section);
+		}
+		header.done(AvailElementTypes.MODULE_HEADER);
+	}
+
+	/**
+	 * Parse the {@code Body} keyword and split the rest of the module into
+	 * collapsed top-level statements.
+	 *
+	 * @param builder
+	 *        The {@link PsiBuilder}.
+	 */
+	private static void parseBody (final @NotNull PsiBuilder builder)
+	{
+		final PsiBuilder.Marker body = builder.mark();
+		builder.advanceLexer();
+		while (!builder.eof())
+		{
+			final PsiBuilder.Marker statement = builder.mark();
+			int depth = 0;
+			while (!builder.eof())
+			{
+				final IElementType type = builder.getTokenType();
+				assert type != null;
+				depth = Math.max(0, depth + AvailTokenTypes.depthChange(type));
+				builder.advanceLexer();
+				if (type == AvailTokenTypes.SEMICOLON && depth == 0)
+				{
+					break;
+				}
+			}
+			statement.collapse(AvailElementTypes.STATEMENT);
+		}
+		body.done(AvailElementTypes.BODY_SECTION);
 	}
-}
\ No newline at end of file
+}
@@ -43,6 +43,7 @@ import com.intellij.psi.tree.IFileElementType;
 import com.intellij.psi.tree.TokenSet;
 import org.availlang.plugin.language.AvailLanguage;
 import org.availlang.plugin.lexer.AvailLexer;
+import org.availlang.plugin.lexer.AvailTokenTypes;
 import org.availlang.plugin.file.psi.AvailPsiFile;
 import org.jetbrains.annotations.NotNull;
 
@@ -76,18 +77,25 @@ implements ParserDefinition
 		return fileElementType;
 	}
 
+	@NotNull
+	@Override
+	public TokenSet getWhitespaceTokens ()
+	{
+		return AvailTokenTypes.WHITESPACES;
+	}
+
 	@NotNull
 	@Override
 	public TokenSet getCommentTokens ()
 	{
-		return TokenSet.EMPTY;
+		return AvailTokenTypes.COMMENTS;
 	}
 
 	@NotNull
 	@Override
 	public TokenSet getStringLiteralElements ()
 	{
-		return TokenSet.EMPTY;
+		return AvailTokenTypes.STRINGS;
 	}
 
 	@NotNull
@@ -35,6 +35,7 @@ import com.avail.io.ConsoleInputChannel;
 import com.avail.io.TextInterface;
 import com.avail.utility.Nulls;
 import com.intellij.execution.impl.ConsoleViewImpl;
+import com.intellij.openapi.util.Disposer;
 import org.availlang.plugin.core.AvailComponent;
 import org.jetbrains.annotations.NotNull;
 
@@ -63,6 +64,12 @@ public class AvailPluginTextStream
 	 */
 	private ConsoleViewImpl consoleView;
 
+	/**
+	 * The {@link TranscriptStore} that holds the output shown in the {@link
+	 * #consoleView}.
+	 */
+	private TranscriptStore transcript;
+
 	/**
 	 * The {@link TextInterface}.
 	 */
@@ -87,13 +94,21 @@ public class AvailPluginTextStream
 	public void setConsoleView (final @NotNull ConsoleViewImpl consoleView)
 	{
 		this.consoleView = consoleView;
+		final TranscriptStore newTranscript =
+			new TranscriptStore(availComponent.getProject(), consoleView);
+		Disposer.register(consoleView, newTranscript::dispose);
+		this.transcript = newTranscript;
 		this.textInterface =
 			new TextInterface(
 				new ConsoleInputChannel(System.in),
-				new PluginConsoleOutputChannel(consoleView, StreamStyle.OUT),
-				new PluginConsoleOutputChannel(consoleView, StreamStyle.ERR));
-		availComponent.runtime().setTextInterface(textInterface);
-		availComponent.builder().setTextInterface(textInterface);
+				new PluginConsoleOutputChannel(newTranscript, StreamStyle.OUT),
+				new PluginConsoleOutputChannel(newTranscript, StreamStyle.ERR));
+		final TextInterface newTextInterface = textInterface;
+		availComponent.builderFuture().thenAccept(builder ->
+		{
+			availComponent.runtime().setTextInterface(newTextInterface);
+			builder.setTextInterface(newTextInterface);
+		});
 		try
 		{
 			System.setOut(new BuildPrintStream(
@@ -120,6 +135,17 @@ public class AvailPluginTextStream
 		return Nulls.stripNull(consoleView);
 	}
 
+	/**
+	 * Answer the {@link TranscriptStore} that holds the output shown in the
+	 * {@link #consoleView()}.
+	 *
+	 * @return A {@code TranscriptStore}.
+	 */
+	public @NotNull TranscriptStore transcript ()
+	{
+		return Nulls.stripNull(transcript);
+	}
+
 	/**
 	 * Write text to the transcript with the given {@link StreamStyle}.
 	 *
@@ -132,7 +158,7 @@ public class AvailPluginTextStream
 	{
 		int size = text.length();
 		assert size > 0;
-		consoleView.print(text, streamStyle.consoleViewContentType);
+		transcript.append(text, streamStyle);
 	}
 
 	/**
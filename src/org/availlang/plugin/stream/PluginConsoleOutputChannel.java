@@ -29,28 +29,53 @@
  * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
  * POSSIBILITY OF SUCH DAMAGE.
  */
-
 package org.availlang.plugin.stream;
 
 import com.avail.io.TextOutputChannel;
 import com.intellij.execution.ui.ConsoleView;
 import com.intellij.execution.ui.ConsoleViewContentType;
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.NotNull;
 
 import javax.annotation.Nullable;
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.PrintStream;
-import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.channels.CompletionHandler;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * A {@code PluginConsoleOutputChannel} provides a faux {@linkplain
  * TextOutputChannel asynchronous interface} to a synchronous {@linkplain
  * PrintStream output stream} for the Avail plugin.
  *
+ * <p>
+ * Output is not sent to the {@link ConsoleView} as it is written. Bytes are
+ * collected in a reusable buffer and decoded as UTF-8 by a persistent {@link
+ * CharsetDecoder}, which holds back any incomplete trailing sequence until
+ * the rest of it arrives. The text decoded by each write is added to a
+ * lock-free queue of chunks, so writers never contend with the thread that
+ * drains it. The queue is drained to the {@link TranscriptStore}, which
+ * shows it in the console, at most every {@link #flushIntervalMillis}
+ * milliseconds, or as soon as {@link #flushThreshold} characters are
+ * pending, so that a chatty program produces a few large {@linkplain
+ * ConsoleView#print(String, ConsoleViewContentType) prints} rather than one
+ * per byte. Writers are throttled once {@link #maximumPending} characters
+ * are waiting for the console.
+ * </p>
+ *
  * @author Richard Arriaga &lt;rich@availlang.org&gt;
  */
 public final class PluginConsoleOutputChannel
@@ -58,15 +83,88 @@ extends ByteArrayOutputStream
 implements TextOutputChannel
 {
 	/**
-	 * The {@link ConsoleView} to {@linkplain ConsoleView#print(String,
-	 * ConsoleViewContentType) output} the text to.
+	 * The longest time, in milliseconds, that written text waits before it
+	 * is sent to the {@link ConsoleView}.
+	 */
+	private static final long flushIntervalMillis = 16;
+
+	/**
+	 * The number of pending characters that causes an immediate flush.
+	 */
+	private static final int flushThreshold = 64 * 1024;
+
+	/**
+	 * The number of pending characters beyond which writers wait for the
+	 * {@link ConsoleView} to catch up.
+	 */
+	private static final int maximumPending = 16 * flushThreshold;
+
+	/**
+	 * The size, in bytes and characters, of the {@link #undecoded} and
+	 * {@link #decoded} buffers.
+	 */
+	private static final int bufferSize = 8192;
+
+	/**
+	 * The sink that receives each drained chunk of text. It {@linkplain
+	 * TranscriptStore#append(String, StreamStyle) appends} the text to the
+	 * {@link TranscriptStore}.
+	 */
+	private final @NotNull Consumer<String> sink;
+
+	/**
+	 * The decoded chunks of text that have not yet been sent to the {@link
+	 * #sink}.
+	 */
+	private final @NotNull Queue<String> pendingChunks =
+		new ConcurrentLinkedQueue<>();
+
+	/**
+	 * The number of characters in the {@link #pendingChunks}.
+	 */
+	private final @NotNull AtomicLong pendingSize = new AtomicLong(0);
+
+	/**
+	 * Whether a flush of the {@link #pendingChunks} has been scheduled but
+	 * has not yet started.
 	 */
-	private final @NotNull ConsoleView consoleView;
+	private final @NotNull AtomicBoolean flushScheduled =
+		new AtomicBoolean(false);
 
 	/**
-	 * The {@link StreamStyle} for the output.
+	 * The lock that serializes {@linkplain #drain() drains}.
 	 */
-	private final @NotNull StreamStyle streamStyle;
+	private final @NotNull Object drainLock = new Object();
+
+	/**
+	 * The monitor that writers wait on while too much output is pending.
+	 */
+	private final @NotNull Object backPressureMonitor = new Object();
+
+	/**
+	 * The {@link CharsetDecoder} for bytes written to this stream. It is
+	 * never reset, so it may be fed a UTF-8 sequence in pieces. Guarded by
+	 * {@code this}.
+	 */
+	private final @NotNull CharsetDecoder decoder =
+		StandardCharsets.UTF_8.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	/**
+	 * The bytes written to this stream that have not yet been decoded. Only
+	 * an incomplete trailing UTF-8 sequence is left here between writes. The
+	 * buffer is kept in write mode. Guarded by {@code this}.
+	 */
+	private final @NotNull ByteBuffer undecoded =
+		ByteBuffer.allocate(bufferSize);
+
+	/**
+	 * The reusable buffer into which the {@link #decoder} writes. It is empty
+	 * between writes. Guarded by {@code this}.
+	 */
+	private final @NotNull CharBuffer decoded =
+		CharBuffer.allocate(bufferSize);
 
 	@Override
 	public boolean isOpen ()
@@ -82,10 +180,9 @@ implements TextOutputChannel
 		final @Nullable A attachment,
 		final CompletionHandler<Integer, A> handler)
 	{
-		consoleView.print(
-			buffer.toString(),
-			streamStyle.consoleViewContentType);
-		handler.completed(buffer.limit(), attachment);
+		final int size = buffer.remaining();
+		enqueue(buffer);
+		handler.completed(size, attachment);
 	}
 
 	@Override
@@ -94,57 +191,206 @@ implements TextOutputChannel
 		final @Nullable A attachment,
 		final CompletionHandler<Integer, A> handler)
 	{
-		consoleView.print(
-			data,
-			streamStyle.consoleViewContentType);
+		enqueue(data);
 		handler.completed(data.length(), attachment);
 	}
 
+	@Override
+	public void flush ()
+	{
+		drain();
+	}
+
 	@Override
 	public void close ()
 	{
-		// Do nothing.
+		// Do nothing beyond sending whatever is pending.
+		drain();
 	}
 
 	/**
-	 * Transfer any data in my buffer into the updateQueue, starting up a UI
-	 * task to transfer them to the document as needed.
+	 * Add the text to the {@link #pendingChunks}, scheduling a flush to the
+	 * {@link #sink}. If too much text is already pending, then wait (unless
+	 * this is the event dispatch thread) for the console to catch up.
+	 *
+	 * @param text
+	 *        The text to output.
 	 */
-	private void queueForTranscript ()
+	private void enqueue (final @NotNull CharSequence text)
 	{
-		final String text;
-		try
+		final int length = text.length();
+		if (length == 0)
 		{
-			text = toString(StandardCharsets.UTF_8.name());
+			return;
 		}
-		catch (final UnsupportedEncodingException e)
+		awaitCapacity();
+		pendingChunks.add(text.toString());
+		final long size = pendingSize.addAndGet(length);
+		if (size >= flushThreshold)
 		{
-			assert false : "Somehow Java doesn't support characters";
-			throw new RuntimeException(e);
+			scheduleFlush(0);
 		}
-		if (text.isEmpty())
+		else
+		{
+			scheduleFlush(flushIntervalMillis);
+		}
+	}
+
+	/**
+	 * Block the current thread while more than {@link #maximumPending}
+	 * characters are waiting to be printed. The event dispatch thread is
+	 * never blocked, since the console may need it to make progress.
+	 */
+	private void awaitCapacity ()
+	{
+		if (pendingSize.get() < maximumPending)
+		{
+			return;
+		}
+		final Application application = ApplicationManager.getApplication();
+		if (application != null && application.isDispatchThread())
 		{
-			// Nothing new to display.
 			return;
 		}
-		reset();
-		consoleView.print(text, streamStyle.consoleViewContentType);
+		scheduleFlush(0);
+		synchronized (backPressureMonitor)
+		{
+			while (pendingSize.get() >= maximumPending)
+			{
+				try
+				{
+					backPressureMonitor.wait(flushIntervalMillis);
+				}
+				catch (final InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Arrange for the {@link #pendingChunks} to be {@linkplain #drain()
+	 * drained} after the specified delay, unless a flush is already
+	 * scheduled.
+	 *
+	 * @param delayMillis
+	 *        The delay, in milliseconds.
+	 */
+	private void scheduleFlush (final long delayMillis)
+	{
+		if (flushScheduled.compareAndSet(false, true))
+		{
+			AppExecutorUtil.getAppScheduledExecutorService().schedule(
+				() ->
+				{
+					flushScheduled.set(false);
+					drain();
+				},
+				delayMillis,
+				TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Send all of the {@link #pendingChunks} to the {@link #sink} as a single
+	 * chunk, then release any writers waiting for {@linkplain
+	 * #awaitCapacity() capacity}.
+	 */
+	private void drain ()
+	{
+		// Only one drain may run at a time, so that chunks reach the console
+		// in the order in which they were written. Writers never take this
+		// lock; they only add to the queue.
+		synchronized (drainLock)
+		{
+			String chunk = pendingChunks.poll();
+			if (chunk == null)
+			{
+				return;
+			}
+			final StringBuilder builder = new StringBuilder(
+				(int) Math.min(pendingSize.get(), Integer.MAX_VALUE));
+			long drained = 0;
+			while (chunk != null)
+			{
+				builder.append(chunk);
+				drained += chunk.length();
+				chunk = pendingChunks.poll();
+			}
+			pendingSize.addAndGet(-drained);
+			sink.accept(builder.toString());
+		}
+		synchronized (backPressureMonitor)
+		{
+			backPressureMonitor.notifyAll();
+		}
+	}
+
+	/**
+	 * Decode as much of the {@link #undecoded} bytes as possible, through
+	 * the reusable {@link #decoded} buffer, and {@linkplain
+	 * #enqueue(CharSequence) enqueue} the resulting text. An incomplete UTF-8
+	 * sequence at the end is left in {@code undecoded} for the next write.
+	 * The caller must hold the monitor.
+	 */
+	private void decodeBuffered ()
+	{
+		undecoded.flip();
+		CoderResult result;
+		do
+		{
+			result = decoder.decode(undecoded, decoded, false);
+			decoded.flip();
+			enqueue(decoded);
+			decoded.clear();
+		}
+		while (result.isOverflow());
+		undecoded.compact();
+	}
+
+	/**
+	 * Decode the given bytes, together with any bytes left {@link
+	 * #undecoded} by the previous write, and {@linkplain
+	 * #enqueue(CharSequence) enqueue} the resulting text. The caller must
+	 * hold the monitor.
+	 *
+	 * @param b
+	 *        The byte array.
+	 * @param off
+	 *        The offset of the first byte to decode.
+	 * @param len
+	 *        The number of bytes to decode.
+	 */
+	private void decode (final @NotNull byte[] b, final int off, final int len)
+	{
+		int offset = off;
+		int remaining = len;
+		while (remaining > 0)
+		{
+			// At most three bytes of an incomplete sequence are ever left in
+			// the buffer, so this always makes progress.
+			final int count = Math.min(undecoded.remaining(), remaining);
+			undecoded.put(b, offset, count);
+			offset += count;
+			remaining -= count;
+			decodeBuffered();
+		}
 	}
 
 	@Override
 	public synchronized void write (final int b)
 	{
-		super.write(b);
-		queueForTranscript();
+		undecoded.put((byte) b);
+		decodeBuffered();
 	}
 
 	@Override
 	public synchronized void write (final @Nullable byte[] b)
-	throws IOException
 	{
 		assert b != null;
-		super.write(b);
-		queueForTranscript();
+		decode(b, 0, b.length);
 	}
 
 	@Override
@@ -154,24 +400,34 @@ implements TextOutputChannel
 		final int len)
 	{
 		assert b != null;
-		super.write(b, off, len);
-		queueForTranscript();
+		decode(b, off, len);
+	}
+
+	/**
+	 * Construct a {@link PluginConsoleOutputChannel} that sends its text to
+	 * the given sink.
+	 *
+	 * @param sink
+	 *        The sink that receives each drained chunk of text.
+	 */
+	PluginConsoleOutputChannel (final @NotNull Consumer<String> sink)
+	{
+		this.sink = sink;
 	}
 
 	/**
 	 * Construct a {@link PluginConsoleOutputChannel}.
 	 *
-	 * @param consoleView
-	 *        The {@link ConsoleView} to {@linkplain ConsoleView#print(String,
-	 *         ConsoleViewContentType) output} the text to.
+	 * @param transcript
+	 *        The {@link TranscriptStore} to {@linkplain
+	 *        TranscriptStore#append(String, StreamStyle) append} the text to.
 	 * @param streamStyle
 	 *        The {@link StreamStyle} for the output.
 	 */
 	PluginConsoleOutputChannel (
-		final @NotNull ConsoleView consoleView,
+		final @NotNull TranscriptStore transcript,
 		final @NotNull StreamStyle streamStyle)
 	{
-		this.consoleView = consoleView;
-		this.streamStyle = streamStyle;
+		this(text -> transcript.append(text, streamStyle));
 	}
 }
@@ -0,0 +1,598 @@
+/*
+ * TranscriptStore.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.stream;
+
+import com.intellij.execution.ui.ConsoleView;
+import com.intellij.ide.util.PropertiesComponent;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A {@code TranscriptStore} is the backing store of the Avail console. Every
+ * piece of output is appended to a log file on disk, but only a bounded window
+ * of the most recent output, at most {@link #capacity} bytes, is kept in
+ * memory and shown in the {@link ConsoleView}, whatever the IDE's own console
+ * cycle buffer allows. When the window overflows, the oldest output is
+ * dropped from it until it is three quarters full and the view is repainted
+ * from what remains, so the view is repainted at most once for every quarter
+ * of the capacity that is written. All of the output remains available from
+ * the log file, which is {@linkplain #read(long, int) paged} and {@linkplain
+ * #search(String, int) searched} through memory-mapped regions on demand.
+ *
+ * <p>
+ * The capacity is the project {@link PropertiesComponent} value {@value
+ * #capacityKey}, which defaults to {@link #defaultCapacity} bytes.
+ * </p>
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public final class TranscriptStore
+{
+	/**
+	 * The {@link Logger} for failures of the log file.
+	 */
+	private static final @NotNull Logger log =
+		Logger.getInstance(TranscriptStore.class);
+
+	/**
+	 * The {@link PropertiesComponent} key of the in-memory capacity in
+	 * bytes.
+	 */
+	public static final @NotNull String capacityKey =
+		"avail.console.transcriptCapacity";
+
+	/**
+	 * The in-memory capacity, in bytes, used when none is configured.
+	 */
+	public static final int defaultCapacity = 4 * 1024 * 1024;
+
+	/**
+	 * The size, in bytes, of the regions of the log file that are mapped at
+	 * once when paging or searching.
+	 */
+	private static final int pageSize = 4 * 1024 * 1024;
+
+	/**
+	 * A {@code Segment} is a run of output in a single {@link StreamStyle}
+	 * that is part of the in-memory window.
+	 */
+	private static final class Segment
+	{
+		/**
+		 * The {@link StreamStyle} of the text.
+		 */
+		final @NotNull StreamStyle style;
+
+		/**
+		 * The text.
+		 */
+		final @NotNull String text;
+
+		/**
+		 * The size of the text in the log file, in bytes.
+		 */
+		final int size;
+
+		/**
+		 * Construct a {@link Segment}.
+		 *
+		 * @param style
+		 *        The {@link StreamStyle} of the text.
+		 * @param text
+		 *        The text.
+		 * @param size
+		 *        The size of the text in the log file, in bytes.
+		 */
+		Segment (
+			final @NotNull StreamStyle style,
+			final @NotNull String text,
+			final int size)
+		{
+			this.style = style;
+			this.text = text;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * A {@code Match} is an occurrence of a search string in the log file.
+	 */
+	public static final class Match
+	{
+		/**
+		 * The position of the match in the log file, in bytes.
+		 */
+		public final long position;
+
+		/**
+		 * The full line of output containing the match.
+		 */
+		public final @NotNull String line;
+
+		/**
+		 * Construct a {@link Match}.
+		 *
+		 * @param position
+		 *        The position of the match in the log file, in bytes.
+		 * @param line
+		 *        The full line of output containing the match.
+		 */
+		Match (final long position, final @NotNull String line)
+		{
+			this.position = position;
+			this.line = line;
+		}
+	}
+
+	/**
+	 * The {@link ConsoleView} that shows the in-memory window.
+	 */
+	private final @NotNull ConsoleView consoleView;
+
+	/**
+	 * The log {@link File} that holds all output.
+	 */
+	private final @NotNull File logFile;
+
+	/**
+	 * The maximum number of bytes of output kept in memory.
+	 */
+	private final long capacity;
+
+	/**
+	 * The {@link FileChannel} used to append to and map the {@link #logFile},
+	 * or {@code null} if it could not be opened. Guarded by {@code this}.
+	 */
+	private @Nullable FileChannel channel;
+
+	/**
+	 * The in-memory window of recent output. Guarded by {@code this}.
+	 */
+	private final @NotNull Deque<Segment> window = new ArrayDeque<>();
+
+	/**
+	 * The number of bytes in the {@link #window}. Guarded by {@code this}.
+	 */
+	private long windowSize = 0;
+
+	/**
+	 * The number of bytes written to the {@link #logFile}. Guarded by {@code
+	 * this}.
+	 */
+	private long size = 0;
+
+	/**
+	 * Answer the log {@link File} that holds all output.
+	 *
+	 * @return A {@code File}.
+	 */
+	public @NotNull File logFile ()
+	{
+		return logFile;
+	}
+
+	/**
+	 * Answer the number of bytes of output written so far.
+	 *
+	 * @return The size of the transcript, in bytes.
+	 */
+	public synchronized long size ()
+	{
+		return size;
+	}
+
+	/**
+	 * Append text to the transcript, showing it in the {@link #consoleView}
+	 * and keeping it in the in-memory {@link #window}.
+	 *
+	 * @param text
+	 *        The text to append.
+	 * @param style
+	 *        The {@link StreamStyle} of the text.
+	 */
+	public synchronized void append (
+		final @NotNull String text,
+		final @NotNull StreamStyle style)
+	{
+		if (text.isEmpty())
+		{
+			return;
+		}
+		final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		if (channel != null)
+		{
+			try
+			{
+				final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+				while (buffer.hasRemaining())
+				{
+					channel.write(buffer);
+				}
+			}
+			catch (final IOException e)
+			{
+				log.warn("Avail console transcript could not be written", e);
+				closeChannel();
+			}
+		}
+		size += bytes.length;
+		window.addLast(new Segment(style, text, bytes.length));
+		windowSize += bytes.length;
+		if (windowSize <= capacity)
+		{
+			consoleView.print(text, style.consoleViewContentType);
+			return;
+		}
+		// Drop the oldest output until the window is three quarters full, so
+		// that the view is not repainted on every subsequent write.
+		final long target = capacity - capacity / 4;
+		while (windowSize > target && window.size() > 1)
+		{
+			windowSize -= window.removeFirst().size;
+		}
+		repaint();
+	}
+
+	/**
+	 * Clear the {@link #consoleView} and print the {@link #window} into it,
+	 * preceded by a note about where the earlier output can be found.
+	 * Adjacent segments in the same {@link StreamStyle} are printed
+	 * together. The caller must hold the monitor.
+	 */
+	private void repaint ()
+	{
+		consoleView.clear();
+		consoleView.print(
+			String.format(
+				"[%,d earlier bytes of output are available from "
+					+ "Show Earlier Output]%n",
+				size - windowSize),
+			StreamStyle.INFO.consoleViewContentType);
+		final StringBuilder run = new StringBuilder();
+		StreamStyle runStyle = null;
+		for (final Segment segment : window)
+		{
+			if (segment.style != runStyle && runStyle != null)
+			{
+				consoleView.print(
+					run.toString(), runStyle.consoleViewContentType);
+				run.setLength(0);
+			}
+			runStyle = segment.style;
+			run.append(segment.text);
+		}
+		if (runStyle != null)
+		{
+			consoleView.print(run.toString(), runStyle.consoleViewContentType);
+		}
+	}
+
+	/**
+	 * Map the given region of the log file. The caller must hold the monitor.
+	 *
+	 * @param position
+	 *        The position of the region, in bytes.
+	 * @param length
+	 *        The length of the region, in bytes.
+	 * @return A {@link MappedByteBuffer}.
+	 * @throws IOException
+	 *         If the region could not be mapped.
+	 */
+	private @NotNull MappedByteBuffer map (
+		final long position,
+		final int length)
+	throws IOException
+	{
+		if (channel == null)
+		{
+			throw new IOException("The transcript log file is unavailable");
+		}
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+	}
+
+	/**
+	 * Read a page of the transcript from the log file.
+	 *
+	 * @param position
+	 *        The position of the first byte to read.
+	 * @param length
+	 *        The maximum number of bytes to read.
+	 * @return The text. Any character split by the ends of the page is
+	 *         replaced.
+	 * @throws IOException
+	 *         If the log file could not be read.
+	 */
+	public synchronized @NotNull String read (
+		final long position,
+		final int length)
+	throws IOException
+	{
+		final long start = Math.max(0, Math.min(position, size));
+		final int count = (int) Math.min(length, size - start);
+		if (count == 0)
+		{
+			return "";
+		}
+		return StandardCharsets.UTF_8.decode(map(start, count)).toString();
+	}
+
+	/**
+	 * Search the transcript, as it stood when the search began, for a
+	 * string. The log file is mapped one {@link #pageSize page} at a time,
+	 * just before that page is scanned. Each page is mapped while holding
+	 * the monitor, but scanned without it, so output can still be appended
+	 * during a long search. The search stops early if the current {@link
+	 * ProgressIndicator} is canceled, or if the transcript is cleared.
+	 *
+	 * @param target
+	 *        The string to find.
+	 * @param limit
+	 *        The maximum number of {@link Match}es to answer.
+	 * @return The {@link Match}es, in the order they occur.
+	 * @throws IOException
+	 *         If the log file could not be read.
+	 */
+	public @NotNull List<Match> search (
+		final @NotNull String target,
+		final int limit)
+	throws IOException
+	{
+		final List<Match> matches = new ArrayList<>();
+		final byte[] pattern = target.getBytes(StandardCharsets.UTF_8);
+		if (pattern.length == 0 || pattern.length > pageSize)
+		{
+			return matches;
+		}
+		final long end = size();
+		final ProgressIndicator indicator =
+			ProgressManager.getInstance().getProgressIndicator();
+		long pageStart = 0;
+		try
+		{
+			while (pageStart < end && matches.size() < limit)
+			{
+				if (indicator != null)
+				{
+					indicator.setFraction((double) pageStart / end);
+				}
+				final int pageLength =
+					(int) Math.min(pageSize, end - pageStart);
+				final MappedByteBuffer page;
+				synchronized (this)
+				{
+					if (pageStart + pageLength > size)
+					{
+						// The transcript was cleared meanwhile.
+						break;
+					}
+					page = map(pageStart, pageLength);
+				}
+				final int last = pageLength - pattern.length;
+				for (int i = 0; i <= last && matches.size() < limit; i++)
+				{
+					if ((i & 0xFFFF) == 0)
+					{
+						ProgressManager.checkCanceled();
+					}
+					if (matchesAt(page, i, pattern))
+					{
+						final long position = pageStart + i;
+						matches.add(new Match(position, lineAt(position)));
+						i += pattern.length - 1;
+					}
+				}
+				if (pageStart + pageLength >= end)
+				{
+					break;
+				}
+				// Overlap the pages so that matches spanning a boundary are
+				// found.
+				pageStart += pageLength - pattern.length + 1;
+			}
+		}
+		catch (final InternalError e)
+		{
+			// A mapped page faulted because the log was cleared meanwhile.
+			throw new IOException("The transcript was cleared", e);
+		}
+		return matches;
+	}
+
+	/**
+	 * Does the pattern occur in the buffer at the given index?
+	 *
+	 * @param buffer
+	 *        The {@link ByteBuffer}.
+	 * @param index
+	 *        The index in the buffer.
+	 * @param pattern
+	 *        The bytes to look for.
+	 * @return {@code true} if it does; {@code false} otherwise.
+	 */
+	private static boolean matchesAt (
+		final @NotNull ByteBuffer buffer,
+		final int index,
+		final @NotNull byte[] pattern)
+	{
+		for (int j = 0; j < pattern.length; j++)
+		{
+			if (buffer.get(index + j) != pattern[j])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Answer the line of the log file that contains the given position,
+	 * limited to a few hundred bytes on either side of it.
+	 *
+	 * @param position
+	 *        The position in the log file.
+	 * @return The line, without its line terminator.
+	 * @throws IOException
+	 *         If the log file could not be read.
+	 */
+	private @NotNull String lineAt (final long position)
+	throws IOException
+	{
+		final int radius = 256;
+		final long start = Math.max(0, position - radius);
+		final MappedByteBuffer region;
+		synchronized (this)
+		{
+			region = map(start, (int) Math.min(2 * radius, size - start));
+		}
+		final ByteBuffer prefix = region.duplicate();
+		prefix.limit((int) (position - start));
+		final String text =
+			StandardCharsets.UTF_8.decode(region.duplicate()).toString();
+		final int offset = StandardCharsets.UTF_8.decode(prefix).length();
+		final int lineStart = text.lastIndexOf('\n', offset - 1) + 1;
+		int lineEnd = text.indexOf('\n', offset);
+		if (lineEnd < 0)
+		{
+			lineEnd = text.length();
+		}
+		return text.substring(lineStart, lineEnd).trim();
+	}
+
+	/**
+	 * Clear the transcript, both in memory and on disk.
+	 */
+	public synchronized void clear ()
+	{
+		window.clear();
+		windowSize = 0;
+		size = 0;
+		if (channel != null)
+		{
+			try
+			{
+				channel.truncate(0);
+			}
+			catch (final IOException e)
+			{
+				log.warn("Avail console transcript could not be cleared", e);
+				closeChannel();
+			}
+		}
+		consoleView.clear();
+	}
+
+	/**
+	 * Close the log file and delete it.
+	 */
+	public synchronized void dispose ()
+	{
+		closeChannel();
+		//noinspection ResultOfMethodCallIgnored
+		logFile.delete();
+	}
+
+	/**
+	 * Close the {@link #channel}, after which output is only kept in memory.
+	 */
+	private void closeChannel ()
+	{
+		if (channel != null)
+		{
+			try
+			{
+				channel.close();
+			}
+			catch (final IOException e)
+			{
+				// Nothing more can be done with it.
+			}
+			channel = null;
+		}
+	}
+
+	/**
+	 * Construct a {@link TranscriptStore} for the given {@link Project}'s
+	 * console. The log file is kept in the IDE's system directory and is
+	 * truncated when the store is created.
+	 *
+	 * @param project
+	 *        The {@code Project}.
+	 * @param consoleView
+	 *        The {@link ConsoleView} that shows the in-memory window.
+	 */
+	public TranscriptStore (
+		final @NotNull Project project,
+		final @NotNull ConsoleView consoleView)
+	{
+		this.consoleView = consoleView;
+		this.capacity = Math.max(
+			1024,
+			PropertiesComponent.getInstance(project).getInt(
+				capacityKey, defaultCapacity));
+		final File directory = new File(PathManager.getSystemPath(), "avail");
+		this.logFile = new File(
+			directory, project.getLocationHash() + "-console.log");
+		try
+		{
+			//noinspection ResultOfMethodCallIgnored
+			directory.mkdirs();
+			this.channel = FileChannel.open(
+				logFile.toPath(),
+				StandardOpenOption.CREATE,
+				StandardOpenOption.READ,
+				StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		}
+		catch (final IOException e)
+		{
+			log.warn("Avail console transcript could not be opened", e);
+			this.channel = null;
+		}
+	}
+}
@@ -37,9 +37,11 @@ import com.intellij.execution.ui.ConsoleView;
 import com.intellij.execution.ui.ConsoleViewContentType;
 import com.intellij.execution.ui.RunnerLayoutUi;
 import com.intellij.execution.ui.layout.PlaceInGrid;
+import com.intellij.openapi.actionSystem.ActionManager;
 import com.intellij.openapi.actionSystem.ActionPlaces;
 import com.intellij.openapi.actionSystem.DefaultActionGroup;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowFactory;
 import com.intellij.ui.components.JBScrollPane;
@@ -97,8 +99,18 @@ implements ToolWindowFactory
 		this.toolWindow = toolWindow;
 		this.myProject = project;
 		this.consoleView = new ConsoleViewImpl(project, false);
+		final SimpleToolWindowPanel panel =
+			new SimpleToolWindowPanel(false, true);
+		final DefaultActionGroup toolbarActions = new DefaultActionGroup();
+		toolbarActions.addAll(consoleView.createConsoleActions());
+		toolbarActions.add(new SearchTranscriptAction(project));
+		toolbarActions.add(new ShowEarlierOutputAction(project));
+		panel.setToolbar(
+			ActionManager.getInstance().createActionToolbar(
+				ActionPlaces.UNKNOWN, toolbarActions, false).getComponent());
+		panel.setContent(consoleView.getComponent());
 		ContentFactory contentFactory = ContentFactory.SERVICE.getInstance();
-		this.content = contentFactory.createContent(consoleView, "", false);
+		this.content = contentFactory.createContent(panel, "", false);
 		toolWindow.getContentManager().addContent(content);
 		consoleView.getComponent();
 		final AvailComponent component =
@@ -0,0 +1,150 @@
+/*
+ * SearchTranscriptAction.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.ui.console;
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import org.availlang.plugin.core.AvailComponent;
+import org.availlang.plugin.stream.TranscriptStore;
+import org.availlang.plugin.stream.TranscriptStore.Match;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@code SearchTranscriptAction} searches the whole {@link TranscriptStore}
+ * of the Avail console, including output that is no longer shown in the
+ * console, and lists the lines that match.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class SearchTranscriptAction
+extends AnAction
+{
+	/**
+	 * The maximum number of matches to list.
+	 */
+	private static final int matchLimit = 100;
+
+	/**
+	 * The {@link Project} whose console is searched.
+	 */
+	private final @NotNull Project project;
+
+	@Override
+	public void actionPerformed (final @NotNull AnActionEvent e)
+	{
+		final String target = Messages.showInputDialog(
+			project,
+			"Search the complete Avail console output for:",
+			"Search Avail Transcript",
+			Messages.getQuestionIcon());
+		if (target == null || target.isEmpty())
+		{
+			return;
+		}
+		final TranscriptStore transcript =
+			AvailComponent.getInstance(project).outputStream.transcript();
+		final List<Match> matches = new ArrayList<>();
+		final IOException[] failure = new IOException[1];
+		final ProgressManager manager = ProgressManager.getInstance();
+		final boolean completed = manager.runProcessWithProgressSynchronously(
+			() ->
+			{
+				try
+				{
+					matches.addAll(transcript.search(target, matchLimit));
+				}
+				catch (final IOException ex)
+				{
+					failure[0] = ex;
+				}
+			},
+			"Searching Avail Transcript",
+			true,
+			project);
+		if (!completed)
+		{
+			return;
+		}
+		if (failure[0] != null)
+		{
+			Messages.showErrorDialog(
+				project,
+				failure[0].getLocalizedMessage(),
+				"Search Avail Transcript");
+			return;
+		}
+		if (matches.isEmpty())
+		{
+			Messages.showInfoMessage(
+				project,
+				String.format("\"%s\" was not found.", target),
+				"Search Avail Transcript");
+			return;
+		}
+		final StringBuilder builder = new StringBuilder();
+		for (final Match match : matches)
+		{
+			builder.append(String.format(
+				"%,12d: %s%n", match.position, match.line));
+		}
+		if (matches.size() == matchLimit)
+		{
+			builder.append(String.format(
+				"(only the first %d matches are shown)%n", matchLimit));
+		}
+		Messages.showInfoMessage(
+			project, builder.toString(), "Search Avail Transcript");
+	}
+
+	/**
+	 * Construct a {@link SearchTranscriptAction}.
+	 *
+	 * @param project
+	 *        The {@link Project} whose console is searched.
+	 */
+	SearchTranscriptAction (final @NotNull Project project)
+	{
+		super(
+			"Search Transcript",
+			"Search all Avail console output, including output no longer "
+				+ "shown",
+			AllIcons.Actions.Find);
+		this.project = project;
+	}
+}
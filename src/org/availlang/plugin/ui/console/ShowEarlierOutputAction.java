@@ -0,0 +1,169 @@
+/*
+ * ShowEarlierOutputAction.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.ui.console;
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogBuilder;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.util.ui.JBUI;
+import org.availlang.plugin.core.AvailComponent;
+import org.availlang.plugin.stream.TranscriptStore;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.AbstractAction;
+import javax.swing.JTextArea;
+import java.awt.Font;
+import java.awt.event.ActionEvent;
+import java.io.IOException;
+
+/**
+ * A {@code ShowEarlierOutputAction} pages through the whole {@link
+ * TranscriptStore} of the Avail console, including output that the console
+ * no longer shows, one page at a time. It starts at the most recent page.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class ShowEarlierOutputAction
+extends AnAction
+{
+	/**
+	 * The number of bytes of output shown per page.
+	 */
+	private static final int pageSize = 256 * 1024;
+
+	/**
+	 * The title of the dialog.
+	 */
+	private static final @NotNull String title = "Earlier Avail Output";
+
+	/**
+	 * The {@link Project} whose console output is shown.
+	 */
+	private final @NotNull Project project;
+
+	/**
+	 * Show the page of the transcript that starts at the given position.
+	 *
+	 * @param transcript
+	 *        The {@link TranscriptStore} to read.
+	 * @param textArea
+	 *        The {@link JTextArea} in which to show the page.
+	 * @param position
+	 *        The position of the page in the transcript, in bytes.
+	 * @return {@code true} if the page was read; {@code false} otherwise.
+	 */
+	private boolean showPage (
+		final @NotNull TranscriptStore transcript,
+		final @NotNull JTextArea textArea,
+		final long position)
+	{
+		try
+		{
+			textArea.setText(transcript.read(position, pageSize));
+			textArea.setCaretPosition(0);
+			return true;
+		}
+		catch (final IOException e)
+		{
+			Messages.showErrorDialog(
+				project, e.getLocalizedMessage(), title);
+			return false;
+		}
+	}
+
+	@Override
+	public void actionPerformed (final @NotNull AnActionEvent e)
+	{
+		final TranscriptStore transcript =
+			AvailComponent.getInstance(project).outputStream.transcript();
+		final JTextArea textArea = new JTextArea();
+		textArea.setEditable(false);
+		textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+		final long[] position =
+			{Math.max(0, transcript.size() - pageSize)};
+		if (!showPage(transcript, textArea, position[0]))
+		{
+			return;
+		}
+		final JBScrollPane scrollPane = new JBScrollPane(textArea);
+		scrollPane.setPreferredSize(JBUI.size(800, 500));
+		final DialogBuilder dialogBuilder = new DialogBuilder(project);
+		dialogBuilder.setTitle(title);
+		dialogBuilder.setCenterPanel(scrollPane);
+		dialogBuilder.removeAllActions();
+		dialogBuilder.addAction(new AbstractAction("Earlier")
+		{
+			@Override
+			public void actionPerformed (final ActionEvent event)
+			{
+				if (position[0] > 0)
+				{
+					position[0] = Math.max(0, position[0] - pageSize);
+					showPage(transcript, textArea, position[0]);
+				}
+			}
+		});
+		dialogBuilder.addAction(new AbstractAction("Later")
+		{
+			@Override
+			public void actionPerformed (final ActionEvent event)
+			{
+				if (position[0] + pageSize < transcript.size())
+				{
+					position[0] += pageSize;
+					showPage(transcript, textArea, position[0]);
+				}
+			}
+		});
+		dialogBuilder.addOkAction();
+		dialogBuilder.show();
+	}
+
+	/**
+	 * Construct a {@link ShowEarlierOutputAction}.
+	 *
+	 * @param project
+	 *        The {@link Project} whose console output is shown.
+	 */
+	ShowEarlierOutputAction (final @NotNull Project project)
+	{
+		super(
+			"Show Earlier Output",
+			"Page through all Avail console output, including output no "
+				+ "longer shown",
+			AllIcons.Actions.Preview);
+		this.project = project;
+	}
+}
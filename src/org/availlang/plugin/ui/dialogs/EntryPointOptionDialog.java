@@ -30,8 +30,6 @@
  * POSSIBILITY OF SUCH DAMAGE.
  */
 package org.availlang.plugin.ui.dialogs;
-import com.avail.builder.AvailBuilder;
-import com.avail.builder.AvailBuilder.LoadedModule;
 import com.avail.linking.EntryPoint;
 import com.intellij.ide.util.ChooseElementsDialog;
 import com.intellij.openapi.project.Project;
@@ -40,7 +38,6 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -119,16 +116,6 @@ extends ChooseElementsDialog<String>
 	private static List<String> calculateEntryPoints (
 		final @NotNull Project project)
 	{
-		final List<String> entryPoints = new ArrayList<>();
-		final AvailBuilder builder =
-			AvailComponent.getInstance(project).builder();
-		for (final LoadedModule loadedModule : builder.loadedModulesCopy())
-		{
-			if (!loadedModule.entryPoints().isEmpty())
-			{
-				entryPoints.addAll(loadedModule.entryPoints());
-			}
-		}
-		return entryPoints;
+		return AvailComponent.getInstance(project).availableEntryPoints();
 	}
 }
@@ -0,0 +1,240 @@
+/*
+ * RepositorySpaceDialog.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.ui.dialogs;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogBuilder;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import com.intellij.util.ui.JBUI;
+import org.availlang.plugin.build.RepositorySpace;
+import org.availlang.plugin.build.RepositorySpace.Entry;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.AbstractAction;
+import javax.swing.table.AbstractTableModel;
+import java.awt.event.ActionEvent;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * A {@code RepositorySpaceDialog} shows a {@link RepositorySpace} as a
+ * sortable table, and can export it to a CSV file.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class RepositorySpaceDialog
+{
+	/**
+	 * The {@link DialogBuilder} that is to be shown.
+	 */
+	private final @NotNull DialogBuilder dialogBuilder;
+
+	/**
+	 * A {@code SpaceTableModel} is the read-only {@link AbstractTableModel}
+	 * of the {@link Entry}s of a {@link RepositorySpace}. Its numeric columns
+	 * answer numbers, so that they sort by value.
+	 */
+	private static class SpaceTableModel
+	extends AbstractTableModel
+	{
+		/**
+		 * The names of the columns.
+		 */
+		private static final @NotNull String[] columnNames =
+			{
+				"Kind",
+				"Name",
+				"Versions",
+				"Source bytes",
+				"Current bytes",
+				"File bytes"
+			};
+
+		/**
+		 * The {@link Entry}s, one per row.
+		 */
+		private final @NotNull List<Entry> entries;
+
+		@Override
+		public String getColumnName (final int column)
+		{
+			return columnNames[column];
+		}
+
+		@Override
+		public Class<?> getColumnClass (final int column)
+		{
+			switch (column)
+			{
+				case 0:
+				case 1:
+					return String.class;
+				case 2:
+					return Integer.class;
+				default:
+					return Long.class;
+			}
+		}
+
+		@Override
+		public int getRowCount ()
+		{
+			return entries.size();
+		}
+
+		@Override
+		public int getColumnCount ()
+		{
+			return columnNames.length;
+		}
+
+		@Override
+		public Object getValueAt (final int row, final int column)
+		{
+			final Entry entry = entries.get(row);
+			switch (column)
+			{
+				case 0:
+					return entry.kind.label;
+				case 1:
+					return entry.name;
+				case 2:
+					return entry.versions();
+				case 3:
+					return entry.sourceBytes();
+				case 4:
+					return entry.currentBytes();
+				default:
+					return entry.fileBytes;
+			}
+		}
+
+		/**
+		 * Construct a {@link SpaceTableModel}.
+		 *
+		 * @param entries
+		 *        The {@link Entry}s, one per row.
+		 */
+		SpaceTableModel (final @NotNull List<Entry> entries)
+		{
+			this.entries = entries;
+		}
+	}
+
+	/**
+	 * Ask for a file, and write the {@link RepositorySpace} to it as CSV.
+	 *
+	 * @param project
+	 *        The {@link Project} in which to ask.
+	 * @param space
+	 *        The {@code RepositorySpace} to export.
+	 */
+	private static void exportCsv (
+		final @NotNull Project project,
+		final @NotNull RepositorySpace space)
+	{
+		final VirtualFileWrapper wrapper = FileChooserFactory.getInstance()
+			.createSaveFileDialog(
+				new FileSaverDescriptor(
+					"Export Repository Space",
+					"Save the repository space analysis as CSV",
+					"csv"),
+				project)
+			.save(null, "repository-space.csv");
+		if (wrapper == null)
+		{
+			return;
+		}
+		try (final Writer writer = Files.newBufferedWriter(
+			wrapper.getFile().toPath(), StandardCharsets.UTF_8))
+		{
+			space.writeCsv(writer);
+		}
+		catch (final IOException e)
+		{
+			Messages.showErrorDialog(
+				project,
+				"Could not export: " + e.getLocalizedMessage(),
+				"Export Repository Space");
+		}
+	}
+
+	/**
+	 * Show the {@link RepositorySpaceDialog}.
+	 */
+	public void show ()
+	{
+		dialogBuilder.show();
+	}
+
+	/**
+	 * Construct a {@link RepositorySpaceDialog}.
+	 *
+	 * @param project
+	 *        The {@link Project} whose repositories were analyzed.
+	 * @param title
+	 *        The dialog title.
+	 * @param space
+	 *        The {@link RepositorySpace} to show.
+	 */
+	public RepositorySpaceDialog (
+		final @NotNull Project project,
+		final @NotNull String title,
+		final @NotNull RepositorySpace space)
+	{
+		final JBTable table = new JBTable(
+			new SpaceTableModel(space.entries()));
+		table.setAutoCreateRowSorter(true);
+		final JBScrollPane scrollPane = new JBScrollPane(table);
+		scrollPane.setPreferredSize(JBUI.size(800, 500));
+		this.dialogBuilder = new DialogBuilder(project);
+		this.dialogBuilder.setTitle(title);
+		this.dialogBuilder.setCenterPanel(scrollPane);
+		this.dialogBuilder.removeAllActions();
+		this.dialogBuilder.addAction(new AbstractAction("Export CSV…")
+		{
+			@Override
+			public void actionPerformed (final ActionEvent event)
+			{
+				exportCsv(project, space);
+			}
+		});
+		this.dialogBuilder.addOkAction();
+	}
+}
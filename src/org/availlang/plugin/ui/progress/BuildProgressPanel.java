@@ -0,0 +1,217 @@
+/*
+ * BuildProgressPanel.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.ui.progress;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import com.intellij.util.ui.JBUI;
+import org.availlang.plugin.build.BuildProgress;
+import org.availlang.plugin.build.BuildProgress.ModuleProgress;
+import org.availlang.plugin.core.AvailTaskQueue;
+import org.availlang.plugin.ui.model.SimpleTableModel;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@code BuildProgressPanel} shows a {@link BuildProgress}: the modules
+ * being compiled and how far along each is, how many modules have finished,
+ * the build's throughput, and the slowest modules of the build. Below them
+ * it shows the depth and wait times of the {@link AvailTaskQueue}. It
+ * samples both on a fixed timer rather than being notified of every change.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+class BuildProgressPanel
+extends JPanel
+implements Disposable
+{
+	/**
+	 * The interval, in milliseconds, between samples of the {@link
+	 * BuildProgress}.
+	 */
+	private static final int refreshInterval = 250;
+
+	/**
+	 * The {@link BuildProgress} shown.
+	 */
+	private final @NotNull BuildProgress buildProgress;
+
+	/**
+	 * The {@link AvailTaskQueue} whose metrics are shown.
+	 */
+	private final @NotNull AvailTaskQueue taskQueue;
+
+	/**
+	 * The {@link JBLabel} that summarizes the build.
+	 */
+	private final @NotNull JBLabel summary = new JBLabel();
+
+	/**
+	 * The {@link JBLabel} that shows the {@link AvailTaskQueue#metrics()}.
+	 */
+	private final @NotNull JBLabel queueSummary = new JBLabel();
+
+	/**
+	 * The {@link SimpleTableModel} of the modules being compiled.
+	 */
+	private final @NotNull SimpleTableModel activeModel =
+		readOnlyModel("Compiling", "Size", "Progress", "Time");
+
+	/**
+	 * The {@link SimpleTableModel} of the slowest finished modules.
+	 */
+	private final @NotNull SimpleTableModel slowestModel =
+		readOnlyModel("Slowest Modules", "Size", "Time");
+
+	/**
+	 * The {@link Timer} that samples the {@link BuildProgress}.
+	 */
+	private final @NotNull Timer timer;
+
+	/**
+	 * Whether the last sample was taken while a build was running. One more
+	 * sample is taken after a build finishes, and then sampling idles until
+	 * the next build.
+	 */
+	private boolean wasBuilding = true;
+
+	/**
+	 * Answer a {@link SimpleTableModel} whose cells cannot be edited.
+	 *
+	 * @param columnNames
+	 *        The names of the columns.
+	 * @return A {@code SimpleTableModel}.
+	 */
+	private static @NotNull SimpleTableModel readOnlyModel (
+		final @NotNull String... columnNames)
+	{
+		return new SimpleTableModel(columnNames)
+		{
+			@Override
+			public boolean isCellEditable (final int row, final int column)
+			{
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Take a sample of the {@link AvailTaskQueue} and the {@link
+	 * BuildProgress} and show them, if the panel is visible and anything
+	 * could have changed.
+	 */
+	private void refresh ()
+	{
+		if (!isShowing())
+		{
+			return;
+		}
+		queueSummary.setText("Task queue: " + taskQueue.metrics());
+		final boolean isBuilding = buildProgress.isBuilding();
+		if (!isBuilding && !wasBuilding)
+		{
+			return;
+		}
+		wasBuilding = isBuilding;
+		summary.setText(String.format(
+			"%s%s — %,d modules finished, %s/s, %s elapsed",
+			buildProgress.label(),
+			isBuilding ? "" : " (finished)",
+			buildProgress.completedModules(),
+			StringUtil.formatFileSize(buildProgress.bytesPerSecond()),
+			StringUtil.formatDuration(buildProgress.elapsedMillis())));
+		final List<List<String>> activeRows = activeModel.rows();
+		activeRows.clear();
+		for (final ModuleProgress module : buildProgress.activeModules())
+		{
+			activeRows.add(Arrays.asList(
+				module.name,
+				StringUtil.formatFileSize(module.size),
+				module.size == 0
+					? "-"
+					: (module.position() * 100L / module.size) + "%",
+				StringUtil.formatDuration(module.elapsedMillis())));
+		}
+		activeModel.fireTableDataChanged();
+		final List<List<String>> slowestRows = slowestModel.rows();
+		slowestRows.clear();
+		for (final ModuleProgress module : buildProgress.slowestModules())
+		{
+			slowestRows.add(Arrays.asList(
+				module.name,
+				StringUtil.formatFileSize(module.size),
+				StringUtil.formatDuration(module.elapsedMillis())));
+		}
+		slowestModel.fireTableDataChanged();
+	}
+
+	@Override
+	public void dispose ()
+	{
+		timer.stop();
+	}
+
+	/**
+	 * Construct a {@link BuildProgressPanel}.
+	 *
+	 * @param buildProgress
+	 *        The {@link BuildProgress} to show.
+	 * @param taskQueue
+	 *        The {@link AvailTaskQueue} whose metrics are shown.
+	 */
+	BuildProgressPanel (
+		final @NotNull BuildProgress buildProgress,
+		final @NotNull AvailTaskQueue taskQueue)
+	{
+		super(new BorderLayout());
+		this.buildProgress = buildProgress;
+		this.taskQueue = taskQueue;
+		summary.setBorder(JBUI.Borders.empty(4));
+		queueSummary.setBorder(JBUI.Borders.empty(4));
+		final JSplitPane tables = new JSplitPane(
+			JSplitPane.HORIZONTAL_SPLIT,
+			new JBScrollPane(new JBTable(activeModel)),
+			new JBScrollPane(new JBTable(slowestModel)));
+		tables.setResizeWeight(0.6);
+		add(summary, BorderLayout.NORTH);
+		add(tables, BorderLayout.CENTER);
+		add(queueSummary, BorderLayout.SOUTH);
+		this.timer = new Timer(refreshInterval, event -> refresh());
+		timer.start();
+	}
+}
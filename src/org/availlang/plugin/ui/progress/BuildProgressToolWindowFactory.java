@@ -0,0 +1,67 @@
+/*
+ * BuildProgressToolWindowFactory.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.ui.progress;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import org.availlang.plugin.build.BuildProgress;
+import org.availlang.plugin.core.AvailComponent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@code BuildProgressToolWindowFactory} is a {@link ToolWindowFactory}
+ * that creates the "Avail Build Progress" {@link ToolWindow}, which shows the
+ * {@link BuildProgress} of the current or most recent Avail build and the
+ * state of the Avail task queue.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class BuildProgressToolWindowFactory
+implements ToolWindowFactory
+{
+	@Override
+	public void createToolWindowContent (
+		final @NotNull Project project,
+		final @NotNull ToolWindow toolWindow)
+	{
+		final AvailComponent component = AvailComponent.getInstance(project);
+		final BuildProgressPanel panel = new BuildProgressPanel(
+			component.buildProgress(), component.taskQueue());
+		final Content content = ContentFactory.SERVICE.getInstance()
+			.createContent(panel, "", false);
+		Disposer.register(content, panel);
+		toolWindow.getContentManager().addContent(content);
+	}
+}
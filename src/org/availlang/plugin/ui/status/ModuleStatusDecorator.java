@@ -0,0 +1,97 @@
+/*
+ * ModuleStatusDecorator.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.ui.status;
+import com.intellij.ide.projectView.PresentationData;
+import com.intellij.ide.projectView.ProjectViewNode;
+import com.intellij.ide.projectView.ProjectViewNodeDecorator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.packageDependencies.ui.PackageDependenciesNode;
+import com.intellij.ui.ColoredTreeCellRenderer;
+import org.availlang.plugin.core.AvailComponent;
+import org.availlang.plugin.core.ModuleStatus;
+import org.availlang.plugin.core.ModuleStatusService;
+import org.availlang.plugin.core.ModuleStatusService.Decoration;
+import org.availlang.plugin.core.utility.CompileTimeStore.Timing;
+
+/**
+ * A {@code ModuleStatusDecorator} is a {@link ProjectViewNodeDecorator} that
+ * shows the {@link ModuleStatus} of each Avail module and package, as
+ * computed by the {@link ModuleStatusService}, next to its name in the
+ * project view, and the time the module last took to compile in its
+ * tooltip. The module and its compile time come from the service's cached
+ * {@link Decoration} of the node's file.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public class ModuleStatusDecorator
+implements ProjectViewNodeDecorator
+{
+	@Override
+	public void decorate (
+		final ProjectViewNode node,
+		final PresentationData data)
+	{
+		final Project project = node.getProject();
+		if (project == null)
+		{
+			return;
+		}
+		final Decoration decoration =
+			ModuleStatuses.decorationOf(project, node.getVirtualFile());
+		if (decoration == null)
+		{
+			return;
+		}
+		final ModuleStatus status = AvailComponent.getInstance(project)
+			.moduleStatusService().status(decoration.name);
+		if (status != null)
+		{
+			data.setLocationString(status.label);
+		}
+		final Timing timing = decoration.timing;
+		if (timing != null)
+		{
+			data.setTooltip(
+				"Last compile time: "
+					+ StringUtil.formatDuration(timing.millis));
+		}
+	}
+
+	@Override
+	public void decorate (
+		final PackageDependenciesNode node,
+		final ColoredTreeCellRenderer cellRenderer)
+	{
+		// Dependency views are not decorated.
+	}
+}
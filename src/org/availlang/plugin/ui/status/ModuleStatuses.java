@@ -0,0 +1,111 @@
+/*
+ * ModuleStatuses.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.ui.status;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.availlang.plugin.core.AvailComponent;
+import org.availlang.plugin.core.ModuleStatus;
+import org.availlang.plugin.core.ModuleStatusService;
+import org.availlang.plugin.core.ModuleStatusService.Decoration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * {@code ModuleStatuses} finds the {@link ModuleStatus} and {@link Decoration}
+ * of the Avail module or package that a {@link VirtualFile} represents, for
+ * display in the project view and editor tabs. Both come from the {@link
+ * ModuleStatusService}, which caches them, so asking during a repaint is
+ * cheap.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+final class ModuleStatuses
+{
+	/**
+	 * Answer the {@link ModuleStatus} of the module that the given file
+	 * represents. A package directory is represented by its representative
+	 * module.
+	 *
+	 * @param project
+	 *        The {@link Project}.
+	 * @param file
+	 *        The {@link VirtualFile}.
+	 * @return The status, or {@code null} if the file is not an Avail module
+	 *         or its status is not yet known.
+	 */
+	static @Nullable ModuleStatus statusOf (
+		final @NotNull Project project,
+		final @Nullable VirtualFile file)
+	{
+		final Decoration decoration = decorationOf(project, file);
+		return decoration == null
+			? null
+			: AvailComponent.getInstance(project).moduleStatusService()
+				.status(decoration.name);
+	}
+
+	/**
+	 * Answer the {@link Decoration} of the module that the given file
+	 * represents. A package directory is represented by its representative
+	 * module.
+	 *
+	 * @param project
+	 *        The {@link Project}.
+	 * @param file
+	 *        The {@link VirtualFile}.
+	 * @return The decoration, or {@code null} if the file is not an Avail
+	 *         module or the builder is not yet ready.
+	 */
+	static @Nullable Decoration decorationOf (
+		final @NotNull Project project,
+		final @Nullable VirtualFile file)
+	{
+		if (file == null || project.isDisposed())
+		{
+			return null;
+		}
+		final AvailComponent component = AvailComponent.getInstance(project);
+		if (!component.isBuilderReady())
+		{
+			return null;
+		}
+		return component.moduleStatusService().decoration(file);
+	}
+
+	/**
+	 * Forbid instantiation.
+	 */
+	private ModuleStatuses ()
+	{
+		// No implementation required.
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * BuildEstimateTest.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.build;
+
+import com.avail.builder.ModuleName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link BuildEstimate}.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public final class BuildEstimateTest
+{
+	/**
+	 * Answer an estimate of a diamond: {@code /root/A} imports
+	 * {@code /root/B} and {@code /root/C}, which both import {@code /root/D}.
+	 *
+	 * @return The estimate.
+	 */
+	private static BuildEstimate diamond ()
+	{
+		final Map<String, Long> predictions = new HashMap<>();
+		predictions.put("/root/A", 10L);
+		predictions.put("/root/B", 30L);
+		predictions.put("/root/C", 5L);
+		predictions.put("/root/D", 20L);
+		final Map<String, List<String>> imports = new HashMap<>();
+		imports.put("/root/A", Arrays.asList("/root/B", "/root/C"));
+		imports.put("/root/B", Collections.singletonList("/root/D"));
+		imports.put("/root/C", Collections.singletonList("/root/D"));
+		imports.put("/root/D", Collections.emptyList());
+		return new BuildEstimate(predictions, imports);
+	}
+
+	/**
+	 * A module's critical path is its own time plus the longest critical
+	 * path among its imports.
+	 */
+	@Test
+	void criticalPathFollowsLongestImport ()
+	{
+		final BuildEstimate estimate = diamond();
+		assertEquals(20, estimate.criticalPathMillis("/root/D"));
+		assertEquals(50, estimate.criticalPathMillis("/root/B"));
+		assertEquals(25, estimate.criticalPathMillis("/root/C"));
+		assertEquals(60, estimate.criticalPathMillis("/root/A"));
+		assertEquals(4, estimate.moduleCount());
+		assertTrue(estimate.isUseful());
+	}
+
+	/**
+	 * Modules that are not expected to compile add nothing to a critical
+	 * path, and an import cycle does not recurse forever.
+	 */
+	@Test
+	void criticalPathSurvivesCyclesAndLoadedModules ()
+	{
+		final Map<String, List<String>> imports = new HashMap<>();
+		imports.put("/root/X", Arrays.asList("/root/Y", "/root/Loaded"));
+		imports.put("/root/Y", Collections.singletonList("/root/X"));
+		final BuildEstimate estimate = new BuildEstimate(
+			Collections.singletonMap("/root/X", 7L), imports);
+		assertEquals(7, estimate.criticalPathMillis("/root/X"));
+		assertEquals(7, estimate.criticalPathMillis("/root/Y"));
+		assertEquals(0, estimate.criticalPathMillis("/root/Loaded"));
+	}
+
+	/**
+	 * An estimate with nothing to compile predicts nothing.
+	 */
+	@Test
+	void emptyEstimateIsNotUseful ()
+	{
+		final BuildEstimate estimate = new BuildEstimate(
+			Collections.emptyMap(), Collections.emptyMap());
+		assertFalse(estimate.isUseful());
+		assertEquals(0, estimate.moduleCount());
+		assertEquals(
+			0, estimate.remainingMillis(new BuildProgress(p -> {})));
+	}
+
+	/**
+	 * Before anything has finished, the whole prediction remains.
+	 */
+	@Test
+	void remainingBeforeProgressIsTotal ()
+	{
+		final BuildProgress progress = new BuildProgress(p -> {});
+		progress.buildStarted("test");
+		assertEquals(65, diamond().remainingMillis(progress));
+	}
+
+	/**
+	 * A module being compiled counts only its unelapsed time.
+	 */
+	@Test
+	void remainingDiscountsActiveModules ()
+	{
+		final BuildProgress progress = new BuildProgress(p -> {});
+		progress.buildStarted("test");
+		progress.moduleProgress(new ModuleName("/root/D"), 100, 50);
+		final long remaining = diamond().remainingMillis(progress);
+		assertTrue(remaining <= 65, "remaining = " + remaining);
+		assertTrue(remaining >= 45, "remaining = " + remaining);
+	}
+
+	/**
+	 * Finished modules drop out of the remaining time, which is scaled down
+	 * for parallel compilation, but never below one module per processor.
+	 */
+	@Test
+	void remainingDropsFinishedModules ()
+	{
+		final BuildProgress progress = new BuildProgress(p -> {});
+		progress.buildStarted("test");
+		progress.moduleProgress(new ModuleName("/root/D"), 100, 100);
+		final long remaining = diamond().remainingMillis(progress);
+		final long floor =
+			(long) (45.0d / Runtime.getRuntime().availableProcessors());
+		assertTrue(remaining <= 45, "remaining = " + remaining);
+		assertTrue(remaining >= floor, "remaining = " + remaining);
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * RepositorySpaceTest.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.build;
+
+import org.availlang.plugin.build.RepositorySpace.Entry;
+import org.availlang.plugin.build.RepositorySpace.Kind;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests of {@link RepositorySpace}.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public final class RepositorySpaceTest
+{
+	/**
+	 * Answer the {@link Entry}s of a {@link RepositorySpace} by name.
+	 *
+	 * @param space
+	 *        The {@code RepositorySpace}.
+	 * @return The {@link Map} from name to {@code Entry}.
+	 */
+	private static Map<String, Entry> byName (final RepositorySpace space)
+	{
+		final Map<String, Entry> map = new HashMap<>();
+		for (final Entry entry : space.entries())
+		{
+			map.put(entry.name, entry);
+		}
+		return map;
+	}
+
+	/**
+	 * Each version counts toward its module, every package containing it,
+	 * and its root; only versions of the current source count as current.
+	 */
+	@Test
+	void versionsAggregateUpward ()
+	{
+		final RepositorySpace space = new RepositorySpace();
+		space.addRoot("root", 5000L);
+		final Entry pkg = space.addModule("/root/Pkg", true);
+		space.addVersion(pkg, 100, true);
+		final Entry inner = space.addModule("/root/Pkg/Inner", true);
+		final Entry deep = space.addModule("/root/Pkg/Inner/Deep", false);
+		space.addVersion(deep, 40, false);
+		space.addVersion(deep, 50, true);
+		final Entry top = space.addModule("/root/Top", false);
+		space.addVersion(top, 7, false);
+
+		final Map<String, Entry> entries = byName(space);
+		final Entry root = entries.get("/root");
+		assertEquals(4, root.versions());
+		assertEquals(197, root.sourceBytes());
+		assertEquals(150, root.currentBytes());
+		assertEquals(Long.valueOf(5000), root.fileBytes);
+		assertEquals(3, pkg.versions());
+		assertEquals(190, pkg.sourceBytes());
+		assertEquals(150, pkg.currentBytes());
+		assertEquals(2, inner.versions());
+		assertEquals(90, inner.sourceBytes());
+		assertEquals(2, deep.versions());
+		assertEquals(50, deep.currentBytes());
+		assertEquals(1, top.versions());
+		assertEquals(0, top.currentBytes());
+		assertNull(top.fileBytes);
+
+		final Entry second = entries.get("/root/Pkg/Inner/Deep #2");
+		assertEquals(Kind.VERSION, second.kind);
+		assertEquals(50, second.sourceBytes());
+		assertEquals(Collections.singletonList(root), space.roots());
+	}
+
+	/**
+	 * A module without compiled versions is listed but adds nothing.
+	 */
+	@Test
+	void moduleWithoutVersions ()
+	{
+		final RepositorySpace space = new RepositorySpace();
+		space.addRoot("root", null);
+		space.addModule(
+			"/root/Empty", false, Collections.emptyMap(), null);
+		final List<Entry> entries = space.entries();
+		assertEquals(2, entries.size());
+		assertEquals(Kind.MODULE, entries.get(1).kind);
+		assertEquals(0, entries.get(0).versions());
+	}
+
+	/**
+	 * The CSV has a header and one quoted row per entry, with embedded
+	 * quotes doubled and an unknown file size left empty.
+	 *
+	 * @throws IOException
+	 *         Never, since it writes to a {@link StringBuilder}.
+	 */
+	@Test
+	void csvEscapesQuotes ()
+	throws IOException
+	{
+		final RepositorySpace space = new RepositorySpace();
+		space.addRoot("root", 12L);
+		final Entry module = space.addModule("/root/Say \"Hi\", Bye", false);
+		space.addVersion(module, 9, true);
+		final StringBuilder csv = new StringBuilder();
+		space.writeCsv(csv);
+		assertEquals(
+			"kind,name,versions,source_bytes,current_bytes,file_bytes\n"
+				+ "\"Root\",\"/root\",1,9,9,12\n"
+				+ "\"Module\",\"/root/Say \"\"Hi\"\", Bye\",1,9,9,\n"
+				+ "\"Version\",\"/root/Say \"\"Hi\"\", Bye #1\",1,9,9,\n",
+			csv.toString());
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * AvailModuleTreeBenchmark.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.core;
+
+import com.avail.AvailRuntime;
+import com.avail.builder.AvailBuilder;
+import com.avail.builder.ModuleNameResolver;
+import com.avail.builder.ModuleRoot;
+import com.avail.builder.ModuleRoots;
+import com.avail.persistence.IndexedRepositoryManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * A scanning benchmark for {@link AvailModuleTree}, over a generated root of
+ * ten thousand modules, that compares a parallel scan with a sequential one.
+ * It is skipped unless the {@code avail.benchmarks} system property is
+ * {@code true}.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public final class AvailModuleTreeBenchmark
+{
+	/**
+	 * The number of packages in the generated root.
+	 */
+	private static final int packageCount = 100;
+
+	/**
+	 * The number of modules, besides the representative, in each package.
+	 */
+	private static final int modulesPerPackage = 100;
+
+	/**
+	 * The number of top-level modules in the generated root.
+	 */
+	private static final int topLevelModules = 10;
+
+	/**
+	 * The number of scans run before measuring.
+	 */
+	private static final int warmUpPasses = 3;
+
+	/**
+	 * The number of measured scans.
+	 */
+	private static final int measuredPasses = 5;
+
+	/**
+	 * The temporary directory that holds the generated root.
+	 */
+	private static @Nullable Path directory;
+
+	/**
+	 * The generated {@link ModuleRoot}.
+	 */
+	private static @Nullable ModuleRoot root;
+
+	/**
+	 * The {@link ModuleNameResolver} for the generated root.
+	 */
+	private static ModuleNameResolver resolver;
+
+	/**
+	 * The {@link AvailRuntime} that the {@link #builder} runs in.
+	 */
+	private static @Nullable AvailRuntime runtime;
+
+	/**
+	 * The {@link AvailBuilder} that the tree nodes refer to.
+	 */
+	private static AvailBuilder builder;
+
+	/**
+	 * Generate the module root, and create the resolver and builder, unless
+	 * the benchmark was not requested.
+	 *
+	 * @throws IOException
+	 *         If the root could not be written.
+	 */
+	@BeforeAll
+	static void generateRoot ()
+	throws IOException
+	{
+		assumeTrue(Boolean.getBoolean("avail.benchmarks"));
+		directory = Files.createTempDirectory("avail-module-tree-benchmark");
+		final Path source = Files.createDirectory(directory.resolve("bench"));
+		AvailModuleTreeTest.writeRoot(
+			source, packageCount, modulesPerPackage, topLevelModules);
+		root = new ModuleRoot(
+			"bench",
+			directory.resolve("bench.repo").toFile(),
+			source.toFile());
+		final ModuleRoots roots = new ModuleRoots("");
+		roots.addRoot(root);
+		resolver = new ModuleNameResolver(roots);
+		runtime = new AvailRuntime(resolver);
+		builder = new AvailBuilder(runtime);
+	}
+
+	/**
+	 * Destroy the runtime and delete the generated root, if they were
+	 * created.
+	 *
+	 * @throws IOException
+	 *         If the root could not be deleted.
+	 */
+	@AfterAll
+	static void deleteRoot ()
+	throws IOException
+	{
+		if (runtime != null)
+		{
+			runtime.destroy();
+		}
+		if (root != null)
+		{
+			final IndexedRepositoryManager repository = root.repository();
+			if (repository != null)
+			{
+				repository.close();
+			}
+		}
+		if (directory != null)
+		{
+			try (final Stream<Path> paths = Files.walk(directory))
+			{
+				paths.sorted(Comparator.reverseOrder())
+					.map(Path::toFile)
+					.forEach(File::delete);
+			}
+		}
+	}
+
+	/**
+	 * Scan the generated root with the given number of threads, and report
+	 * the rate.
+	 *
+	 * @param label
+	 *        The label for the report.
+	 * @param parallelism
+	 *        The number of scanning threads.
+	 */
+	private static void measure (
+		final @NotNull String label,
+		final int parallelism)
+	{
+		final ModuleRoot moduleRoot = root;
+		assert moduleRoot != null;
+		final AvailModuleTree tree =
+			new AvailModuleTree(() -> resolver, () -> builder, parallelism);
+		try
+		{
+			for (int pass = 0; pass < warmUpPasses; pass++)
+			{
+				tree.rebuild();
+			}
+			long best = Long.MAX_VALUE;
+			for (int pass = 0; pass < measuredPasses; pass++)
+			{
+				final long start = System.nanoTime();
+				tree.rebuild();
+				best = Math.min(best, System.nanoTime() - start);
+			}
+			final int modules = tree.allResolvedNames(moduleRoot).size();
+			assertEquals(
+				packageCount * (modulesPerPackage + 1) + topLevelModules,
+				modules);
+			System.out.printf(
+				"AvailModuleTree %s: %,d modules in %,d ms "
+					+ "(%,.0f modules/sec)%n",
+				label,
+				modules,
+				best / 1_000_000L,
+				modules * 1.0e9 / best);
+		}
+		finally
+		{
+			tree.dispose();
+		}
+	}
+
+	/**
+	 * Compare a sequential scan with a scan on every processor.
+	 */
+	@Test
+	public void scan ()
+	{
+		measure("sequential", 1);
+		final int processors = Runtime.getRuntime().availableProcessors();
+		measure(processors + " threads", processors);
+	}
+}
@@ -0,0 +1,273 @@
+/*
+ * AvailModuleTreeTest.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.core;
+
+import com.avail.AvailRuntime;
+import com.avail.builder.AvailBuilder;
+import com.avail.builder.ModuleNameResolver;
+import com.avail.builder.ModuleRoot;
+import com.avail.builder.ModuleRoots;
+import com.avail.persistence.IndexedRepositoryManager;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static com.avail.utility.Nulls.stripNull;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests for {@link AvailModuleTree}, over a small generated root.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public final class AvailModuleTreeTest
+{
+	/**
+	 * The number of packages in the generated root.
+	 */
+	private static final int packageCount = 10;
+
+	/**
+	 * The number of modules, besides the representative, in each package.
+	 */
+	private static final int modulesPerPackage = 10;
+
+	/**
+	 * The number of top-level modules in the generated root.
+	 */
+	private static final int topLevelModules = 5;
+
+	/**
+	 * The temporary directory that holds the generated root.
+	 */
+	private static Path directory;
+
+	/**
+	 * The generated {@link ModuleRoot}.
+	 */
+	private static ModuleRoot root;
+
+	/**
+	 * The {@link ModuleNameResolver} for the generated root.
+	 */
+	private static ModuleNameResolver resolver;
+
+	/**
+	 * The {@link AvailRuntime} that the {@link #builder} runs in.
+	 */
+	private static AvailRuntime runtime;
+
+	/**
+	 * The {@link AvailBuilder} that the tree nodes refer to.
+	 */
+	private static AvailBuilder builder;
+
+	/**
+	 * Write an empty module.
+	 *
+	 * @param file
+	 *        The module {@link Path}.
+	 * @param name
+	 *        The local name of the module.
+	 * @throws IOException
+	 *         If the file could not be written.
+	 */
+	private static void writeModule (
+		final @NotNull Path file,
+		final @NotNull String name)
+	throws IOException
+	{
+		Files.write(
+			file,
+			Collections.singletonList("Module \"" + name + "\"\nBody\n"),
+			StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Write the source directory of a generated root: packages {@code P0},
+	 * {@code P1}, …, each holding its representative and modules {@code M0},
+	 * {@code M1}, …, followed by top-level modules {@code T0}, {@code T1},
+	 * ….
+	 *
+	 * @param source
+	 *        The source directory, which must already exist.
+	 * @param packageCount
+	 *        The number of packages.
+	 * @param modulesPerPackage
+	 *        The number of modules, besides the representative, in each
+	 *        package.
+	 * @param topLevelModules
+	 *        The number of top-level modules.
+	 * @throws IOException
+	 *         If the root could not be written.
+	 */
+	static void writeRoot (
+		final @NotNull Path source,
+		final int packageCount,
+		final int modulesPerPackage,
+		final int topLevelModules)
+	throws IOException
+	{
+		for (int p = 0; p < packageCount; p++)
+		{
+			final String packageName = "P" + p;
+			final Path packageDirectory =
+				Files.createDirectory(source.resolve(packageName + ".avail"));
+			writeModule(
+				packageDirectory.resolve(packageName + ".avail"), packageName);
+			for (int m = 0; m < modulesPerPackage; m++)
+			{
+				final String moduleName = "M" + m;
+				writeModule(
+					packageDirectory.resolve(moduleName + ".avail"),
+					moduleName);
+			}
+		}
+		for (int m = 0; m < topLevelModules; m++)
+		{
+			final String moduleName = "T" + m;
+			writeModule(source.resolve(moduleName + ".avail"), moduleName);
+		}
+	}
+
+	/**
+	 * Generate the module root, and create the resolver and builder.
+	 *
+	 * @throws IOException
+	 *         If the root could not be written.
+	 */
+	@BeforeAll
+	static void generateRoot ()
+	throws IOException
+	{
+		directory = Files.createTempDirectory("avail-module-tree");
+		final Path source = Files.createDirectory(directory.resolve("bench"));
+		writeRoot(source, packageCount, modulesPerPackage, topLevelModules);
+		root = new ModuleRoot(
+			"bench",
+			directory.resolve("bench.repo").toFile(),
+			source.toFile());
+		final ModuleRoots roots = new ModuleRoots("");
+		roots.addRoot(root);
+		resolver = new ModuleNameResolver(roots);
+		runtime = new AvailRuntime(resolver);
+		builder = new AvailBuilder(runtime);
+	}
+
+	/**
+	 * Destroy the runtime and delete the generated root.
+	 *
+	 * @throws IOException
+	 *         If the root could not be deleted.
+	 */
+	@AfterAll
+	static void deleteRoot ()
+	throws IOException
+	{
+		runtime.destroy();
+		final IndexedRepositoryManager repository = root.repository();
+		if (repository != null)
+		{
+			repository.close();
+		}
+		try (final Stream<Path> paths = Files.walk(directory))
+		{
+			paths.sorted(Comparator.reverseOrder())
+				.map(Path::toFile)
+				.forEach(File::delete);
+		}
+	}
+
+	/**
+	 * Every module and package representative is found.
+	 */
+	@Test
+	public void findsEveryModule ()
+	{
+		final AvailModuleTree tree =
+			new AvailModuleTree(() -> resolver, () -> builder);
+		try
+		{
+			assertEquals(
+				packageCount * (modulesPerPackage + 1) + topLevelModules,
+				tree.allResolvedNames(root).size());
+			assertEquals(
+				packageCount + topLevelModules,
+				tree.topLevelResolvedNames(root).size());
+		}
+		finally
+		{
+			tree.dispose();
+		}
+	}
+
+	/**
+	 * Modules and package representatives are answered by path, without
+	 * the resolver.
+	 */
+	@Test
+	public void answersResolvedNamesByPath ()
+	{
+		final AvailModuleTree tree =
+			new AvailModuleTree(() -> resolver, () -> builder);
+		try
+		{
+			tree.ensureBuilt();
+			final String source = stripNull(root.sourceDirectory())
+				.getAbsolutePath().replace(File.separatorChar, '/');
+			assertEquals(
+				"/bench/P3/M7",
+				stripNull(tree.resolvedModuleName(
+					source + "/P3.avail/M7.avail")).qualifiedName());
+			assertEquals(
+				"/bench/P3/P3",
+				stripNull(tree.resolvedModuleName(
+					source + "/P3.avail/P3.avail")).qualifiedName());
+			assertNull(tree.resolvedModuleName(source + "/Missing.avail"));
+		}
+		finally
+		{
+			tree.dispose();
+		}
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * ReverseDependencyIndexTest.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests of {@link ReverseDependencyIndex}.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public final class ReverseDependencyIndexTest
+{
+	/**
+	 * The {@link Map} from each module to its imports.
+	 */
+	private Map<String, Set<String>> importsMap;
+
+	/**
+	 * The {@link Map} from each module to its direct dependents.
+	 */
+	private Map<String, Set<String>> dependentsMap;
+
+	/**
+	 * Record that the named module imports the others.
+	 *
+	 * @param key
+	 *        The qualified name of the module.
+	 * @param imports
+	 *        The qualified names of its imports.
+	 */
+	private void imports (final String key, final String... imports)
+	{
+		ReverseDependencyIndex.replaceImports(
+			key,
+			new HashSet<>(Arrays.asList(imports)),
+			importsMap,
+			dependentsMap);
+	}
+
+	/**
+	 * Answer the named module and its transitive dependents.
+	 *
+	 * @param key
+	 *        The qualified name of the module.
+	 * @return The module and its transitive dependents.
+	 */
+	private List<String> dependents (final String key)
+	{
+		return ReverseDependencyIndex.transitiveDependents(
+			key, dependentsMap);
+	}
+
+	/**
+	 * Record a small graph: {@code /root/App} imports {@code /root/Ui} and
+	 * {@code /root/Core}, {@code /root/Ui} imports {@code /root/Core}, and
+	 * {@code /root/Core} imports {@code /root/Base}.
+	 */
+	@BeforeEach
+	void recordGraph ()
+	{
+		importsMap = new HashMap<>();
+		dependentsMap = new HashMap<>();
+		imports("/root/Base");
+		imports("/root/Core", "/root/Base");
+		imports("/root/Ui", "/root/Core");
+		imports("/root/App", "/root/Ui", "/root/Core");
+	}
+
+	/**
+	 * Every direct and indirect dependent is answered once, after the module
+	 * itself and nearer dependents first.
+	 */
+	@Test
+	void transitiveDependentsAreBreadthFirst ()
+	{
+		assertEquals(
+			Arrays.asList("/root/Base", "/root/Core"),
+			dependents("/root/Base").subList(0, 2));
+		assertEquals(
+			new HashSet<>(Arrays.asList(
+				"/root/Base", "/root/Core", "/root/Ui", "/root/App")),
+			new HashSet<>(dependents("/root/Base")));
+		assertEquals(4, dependents("/root/Base").size());
+		assertEquals(
+			Collections.singletonList("/root/App"),
+			dependents("/root/App"));
+	}
+
+	/**
+	 * A module that nothing has recorded is its own only dependent.
+	 */
+	@Test
+	void unknownModuleHasNoDependents ()
+	{
+		assertEquals(
+			Collections.singletonList("/root/Other"),
+			dependents("/root/Other"));
+	}
+
+	/**
+	 * Re-recording a module's imports drops the edges it no longer has.
+	 */
+	@Test
+	void replacedImportsDropStaleEdges ()
+	{
+		imports("/root/Core");
+		assertEquals(
+			Collections.singletonList("/root/Base"),
+			dependents("/root/Base"));
+		assertEquals(3, dependents("/root/Core").size());
+	}
+
+	/**
+	 * An import cycle does not make the walk loop.
+	 */
+	@Test
+	void cyclesTerminate ()
+	{
+		imports("/root/Base", "/root/App");
+		assertEquals(4, dependents("/root/Core").size());
+		assertEquals(4, dependents("/root/Base").size());
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * CompileTimeStoreTest.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.core.utility;
+
+import org.availlang.plugin.core.utility.CompileTimeStore.Timing;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link CompileTimeStore}.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public final class CompileTimeStoreTest
+{
+	/**
+	 * The temporary directory that holds the store file.
+	 */
+	private Path directory;
+
+	/**
+	 * The (nonexistent) repository file that the store is kept next to.
+	 */
+	private File repositoryFile;
+
+	/**
+	 * Create the temporary directory.
+	 *
+	 * @throws IOException
+	 *         If it could not be created.
+	 */
+	@BeforeEach
+	void createDirectory ()
+	throws IOException
+	{
+		directory = Files.createTempDirectory("avail-compile-times");
+		repositoryFile = directory.resolve("root.repo").toFile();
+	}
+
+	/**
+	 * Delete the temporary directory.
+	 *
+	 * @throws IOException
+	 *         If it could not be deleted.
+	 */
+	@AfterEach
+	void deleteDirectory ()
+	throws IOException
+	{
+		try (final Stream<Path> paths = Files.walk(directory))
+		{
+			paths.sorted(Comparator.reverseOrder())
+				.map(Path::toFile)
+				.forEach(File::delete);
+		}
+	}
+
+	/**
+	 * Timings survive a save and a fresh load.
+	 */
+	@Test
+	void roundTrip ()
+	{
+		final CompileTimeStore store = new CompileTimeStore(repositoryFile);
+		store.record("/root/A", new byte[] {1, 2, 3}, 1000, 250);
+		store.record("/root/B", new byte[] {4}, 3000, 50);
+		store.save();
+		final CompileTimeStore loaded = new CompileTimeStore(repositoryFile);
+		assertTrue(loaded.load());
+		final Timing timing = loaded.lastTiming("/root/A");
+		assertNotNull(timing);
+		assertArrayEquals(new byte[] {1, 2, 3}, timing.digest);
+		assertEquals(1000, timing.size);
+		assertEquals(250, timing.millis);
+		assertEquals(
+			Long.valueOf(50), loaded.compileTime("/root/B", new byte[] {4}));
+		assertNull(loaded.lastTiming("/root/C"));
+	}
+
+	/**
+	 * A recorded time only answers for the source it was compiled from.
+	 */
+	@Test
+	void compileTimeNeedsMatchingDigest ()
+	{
+		final CompileTimeStore store = new CompileTimeStore(repositoryFile);
+		store.record("/root/A", new byte[] {1, 2, 3}, 1000, 250);
+		assertEquals(
+			Long.valueOf(250),
+			store.compileTime("/root/A", new byte[] {1, 2, 3}));
+		assertNull(store.compileTime("/root/A", new byte[] {1, 2, 4}));
+		assertNull(store.compileTime("/root/B", new byte[] {1, 2, 3}));
+	}
+
+	/**
+	 * The average compile time per byte is taken over every timed module.
+	 */
+	@Test
+	void millisPerByte ()
+	{
+		final CompileTimeStore store = new CompileTimeStore(repositoryFile);
+		assertEquals(0, store.millisPerByte(), 0);
+		store.record("/root/A", new byte[] {1}, 1000, 100);
+		store.record("/root/B", new byte[] {2}, 3000, 500);
+		assertEquals(0.15, store.millisPerByte(), 1e-9);
+	}
+
+	/**
+	 * A store with nothing recorded writes no file, and loading a missing
+	 * file fails.
+	 */
+	@Test
+	void cleanStoreIsNotSaved ()
+	{
+		final CompileTimeStore store = new CompileTimeStore(repositoryFile);
+		store.save();
+		assertFalse(new File(
+			repositoryFile.getPath() + CompileTimeStore.fileSuffix).exists());
+		assertFalse(store.load());
+	}
+
+	/**
+	 * A store file in an unknown format is ignored rather than misread.
+	 *
+	 * @throws IOException
+	 *         If the file could not be written.
+	 */
+	@Test
+	void unknownFormatIsIgnored ()
+	throws IOException
+	{
+		final File storeFile =
+			new File(repositoryFile.getPath() + CompileTimeStore.fileSuffix);
+		try (final DataOutputStream out =
+			new DataOutputStream(new FileOutputStream(storeFile)))
+		{
+			out.writeInt(99);
+			out.writeInt(0);
+		}
+		final CompileTimeStore store = new CompileTimeStore(repositoryFile);
+		store.record("/root/A", new byte[] {1}, 10, 10);
+		assertFalse(store.load());
+		assertNull(store.lastTiming("/root/A"));
+	}
+}
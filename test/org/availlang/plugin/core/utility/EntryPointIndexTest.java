@@ -0,0 +1,159 @@
+/*
+ * EntryPointIndexTest.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.core.utility;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link EntryPointIndex}.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public final class EntryPointIndexTest
+{
+	/**
+	 * The temporary directory that holds the index file.
+	 */
+	private Path directory;
+
+	/**
+	 * The (nonexistent) repository file that the index is stored next to.
+	 */
+	private File repositoryFile;
+
+	/**
+	 * Create the temporary directory.
+	 *
+	 * @throws IOException
+	 *         If it could not be created.
+	 */
+	@BeforeEach
+	void createDirectory ()
+	throws IOException
+	{
+		directory = Files.createTempDirectory("avail-entry-points");
+		repositoryFile = directory.resolve("root.repo").toFile();
+	}
+
+	/**
+	 * Delete the temporary directory.
+	 *
+	 * @throws IOException
+	 *         If it could not be deleted.
+	 */
+	@AfterEach
+	void deleteDirectory ()
+	throws IOException
+	{
+		try (final Stream<Path> paths = Files.walk(directory))
+		{
+			paths.sorted(Comparator.reverseOrder())
+				.map(Path::toFile)
+				.forEach(File::delete);
+		}
+	}
+
+	/**
+	 * Entries, including modules without entry points, survive a save and a
+	 * fresh load, and a loaded index is complete.
+	 */
+	@Test
+	void roundTrip ()
+	{
+		final EntryPointIndex index = new EntryPointIndex(repositoryFile);
+		assertFalse(index.isComplete());
+		index.put("/root/A", new byte[] {1, 2, 3}, Arrays.asList("a", "b"));
+		index.put("/root/B", new byte[] {4}, Collections.emptyList());
+		index.save();
+		final EntryPointIndex loaded = new EntryPointIndex(repositoryFile);
+		assertTrue(loaded.isComplete());
+		assertEquals(Arrays.asList("a", "b"), loaded.entryPoints("/root/A"));
+		assertArrayEquals(new byte[] {1, 2, 3}, loaded.digest("/root/A"));
+		assertEquals(Collections.emptyList(), loaded.entryPoints("/root/B"));
+		assertNull(loaded.entryPoints("/root/C"));
+	}
+
+	/**
+	 * Removing a package forgets the modules within it, but not a sibling
+	 * whose name merely shares its prefix.
+	 */
+	@Test
+	void removePackage ()
+	{
+		final EntryPointIndex index = new EntryPointIndex(repositoryFile);
+		index.put("/root/P", new byte[] {1}, Collections.emptyList());
+		index.put("/root/P/M", new byte[] {2}, Collections.singletonList("m"));
+		index.put("/root/PQ", new byte[] {3}, Collections.singletonList("q"));
+		index.remove("/root/P");
+		assertNull(index.digest("/root/P"));
+		assertNull(index.digest("/root/P/M"));
+		assertEquals(
+			Collections.singletonList("q"), index.entryPoints("/root/PQ"));
+	}
+
+	/**
+	 * A file written in another format is ignored, leaving the index empty
+	 * and incomplete so that it is populated again.
+	 *
+	 * @throws IOException
+	 *         If the file could not be written.
+	 */
+	@Test
+	void unknownFormatIsIgnored ()
+	throws IOException
+	{
+		Files.write(
+			new File(repositoryFile.getPath() + EntryPointIndex.fileSuffix)
+				.toPath(),
+			new byte[] {0, 0, 0, 99, 0, 0, 0, 0});
+		final EntryPointIndex index = new EntryPointIndex(repositoryFile);
+		assertFalse(index.isComplete());
+		assertTrue(index.qualifiedNames().isEmpty());
+	}
+}
@@ -0,0 +1,297 @@
+/*
+ * AvailLexerTest.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.lexer;
+
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.availlang.plugin.lexer.AvailTokenTypes.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Tests and a throughput benchmark for {@link AvailLexer}.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public final class AvailLexerTest
+{
+	/**
+	 * The approximate number of characters lexed by the benchmark.
+	 */
+	private static final int benchmarkSize = 16 * 1024 * 1024;
+
+	/**
+	 * A small module, used to build larger texts.
+	 */
+	private static final @NotNull String header =
+		"Module \"Sample\"\n"
+			+ "Versions \"1.0\"\n"
+			+ "Uses \"Avail\"\n"
+			+ "Names \"Uses\", \"frobnicate_\"\n"
+			+ "Body\n";
+
+	/**
+	 * A statement of a module body, used to build larger texts.
+	 */
+	private static final @NotNull String statement =
+		"/* Frobnicate a /* nested */ value. */\n"
+			+ "Method \"frobnicate_\" is [x : integer | "
+			+ "Print: “x + 1.5e3” ++ \"\\n\"; x × 2] : integer;\n";
+
+	/**
+	 * Lex the whole text, answering the token types and texts.
+	 *
+	 * @param text
+	 *        The text.
+	 * @return One {@code "TYPE:text"} string per token, except whitespace.
+	 */
+	private static @NotNull List<String> tokens (final @NotNull String text)
+	{
+		return tokens(text, 0, 0);
+	}
+
+	/**
+	 * Lex the text from the given offset and state, answering the token
+	 * types and texts.
+	 *
+	 * @param text
+	 *        The text.
+	 * @param startOffset
+	 *        The offset at which to start.
+	 * @param initialState
+	 *        The initial state.
+	 * @return One {@code "TYPE:text"} string per token, except whitespace.
+	 */
+	private static @NotNull List<String> tokens (
+		final @NotNull String text,
+		final int startOffset,
+		final int initialState)
+	{
+		final AvailLexer lexer = new AvailLexer();
+		lexer.start(text, startOffset, text.length(), initialState);
+		final List<String> tokens = new ArrayList<>();
+		for (IElementType type = lexer.getTokenType();
+			type != null;
+			lexer.advance(), type = lexer.getTokenType())
+		{
+			if (type != WHITESPACE)
+			{
+				tokens.add(type + ":" + text.substring(
+					lexer.getTokenStart(), lexer.getTokenEnd()));
+			}
+		}
+		return tokens;
+	}
+
+	/**
+	 * An unterminated comment is a bad character, and the text after it is
+	 * still lexed.
+	 */
+	@Test
+	public void unterminatedCommentDoesNotSwallowFile ()
+	{
+		assertEquals(
+			Arrays.asList(
+				"IDENTIFIER:x",
+				"BAD_CHARACTER:/*",
+				"IDENTIFIER:y",
+				"COMMENT:/* z */",
+				"SEMICOLON:;"),
+			tokens("x /* y /* z */;"));
+	}
+
+	/**
+	 * Tokens after an unterminated comment are not restart points.
+	 */
+	@Test
+	public void unterminatedCommentStateFollows ()
+	{
+		final String text = "Body\nx /* y;";
+		final AvailLexer lexer = new AvailLexer();
+		lexer.start(text);
+		while (lexer.getTokenType() != BAD_CHARACTER)
+		{
+			lexer.advance();
+		}
+		assertEquals(0, lexer.getState());
+		lexer.advance();
+		assertNotEquals(
+			0, lexer.getState() & AvailLexer.unterminatedState);
+	}
+
+	/**
+	 * A nested, terminated comment is a single token.
+	 */
+	@Test
+	public void nestedComment ()
+	{
+		assertEquals(
+			Arrays.asList("COMMENT:/* a /* b */ c */", "IDENTIFIER:d"),
+			tokens("/* a /* b */ c */ d"));
+	}
+
+	/**
+	 * Header keywords are keywords in the header, but identifiers in the
+	 * body.
+	 */
+	@Test
+	public void keywordsOnlyInHeader ()
+	{
+		assertEquals(
+			Arrays.asList(
+				"KEYWORD:Module",
+				"STRING:\"M\"",
+				"KEYWORD:Uses",
+				"STRING:\"Avail\"",
+				"KEYWORD:Body",
+				"IDENTIFIER:Uses",
+				"IDENTIFIER:Names",
+				"SEMICOLON:;"),
+			tokens("Module \"M\"\nUses \"Avail\"\nBody\nUses Names;"));
+	}
+
+	/**
+	 * Restarting in the body, from a token in the initial state, treats
+	 * header keywords as identifiers; restarting in the header state treats
+	 * them as keywords.
+	 */
+	@Test
+	public void restartStates ()
+	{
+		final String text = "Module \"M\"\nBody\nUses;";
+		final int body = text.indexOf("Uses");
+		assertEquals(
+			Arrays.asList("IDENTIFIER:Uses", "SEMICOLON:;"),
+			tokens(text, body, 0));
+		assertEquals(
+			Arrays.asList("KEYWORD:Uses", "SEMICOLON:;"),
+			tokens(text, body, AvailLexer.headerState));
+	}
+
+	/**
+	 * A lexer made for body text treats header keywords, including {@code
+	 * Body}, as identifiers even from offset {@code 0}, so a reparsed
+	 * statement lexes as it did within its file.
+	 */
+	@Test
+	public void bodyLexerNeverStartsInHeader ()
+	{
+		final String text = "Uses Body Names;";
+		final AvailLexer lexer = new AvailLexer(false);
+		lexer.start(text);
+		final List<String> tokens = new ArrayList<>();
+		for (IElementType type = lexer.getTokenType();
+			type != null;
+			lexer.advance(), type = lexer.getTokenType())
+		{
+			assertEquals(0, lexer.getState());
+			if (type != WHITESPACE)
+			{
+				tokens.add(type + ":" + text.substring(
+					lexer.getTokenStart(), lexer.getTokenEnd()));
+			}
+		}
+		assertEquals(
+			Arrays.asList(
+				"IDENTIFIER:Uses",
+				"IDENTIFIER:Body",
+				"IDENTIFIER:Names",
+				"SEMICOLON:;"),
+			tokens);
+	}
+
+	/**
+	 * Every body token is a restart point, and no header token is.
+	 */
+	@Test
+	public void bodyTokensAreRestartPoints ()
+	{
+		final String text = header + statement;
+		final int body = text.indexOf("Body") + "Body".length();
+		final AvailLexer lexer = new AvailLexer();
+		lexer.start(text);
+		for (IElementType type = lexer.getTokenType();
+			type != null;
+			lexer.advance(), type = lexer.getTokenType())
+		{
+			assertEquals(
+				lexer.getTokenStart() < body ? AvailLexer.headerState : 0,
+				lexer.getState());
+		}
+		// The highlighter's initial state is that of an empty buffer.
+		lexer.start("");
+		assertEquals(0, lexer.getState());
+	}
+
+	/**
+	 * Report the rate at which a large module is lexed.
+	 */
+	@Test
+	public void benchmarkThroughput ()
+	{
+		final StringBuilder builder = new StringBuilder(
+			benchmarkSize + statement.length() + header.length());
+		builder.append(header);
+		while (builder.length() < benchmarkSize)
+		{
+			builder.append(statement);
+		}
+		final String text = builder.toString();
+		final AvailLexer lexer = new AvailLexer();
+		// Warm up, then measure.
+		long tokens = 0;
+		long nanos = 0;
+		for (int pass = 0; pass < 4; pass++)
+		{
+			tokens = 0;
+			final long start = System.nanoTime();
+			lexer.start(text);
+			while (lexer.getTokenType() != null)
+			{
+				tokens++;
+				lexer.advance();
+			}
+			nanos = System.nanoTime() - start;
+		}
+		assertEquals(text.length(), lexer.getTokenStart());
+		System.out.printf(
+			"AvailLexer: %,.1f MB/sec, %,.0f tokens/sec%n",
+			text.length() * 1.0e9 / nanos / (1024 * 1024),
+			tokens * 1.0e9 / nanos);
+	}
+}
@@ -0,0 +1,276 @@
+/*
+ * PluginConsoleOutputChannelBenchmark.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.stream;
+
+import org.availlang.plugin.stream.PluginConsoleOutputChannelTest.CollectingSink;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Throughput benchmarks for {@link PluginConsoleOutputChannel}, each run
+ * against both the channel and a {@linkplain BaselineChannel baseline} that
+ * decodes and sends its whole buffer on every write, as the channel once
+ * did. They are skipped unless the {@code avail.benchmarks} system property
+ * is {@code true}; {@code avail.benchmarks.lines} sets the number of lines
+ * written by each run.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public final class PluginConsoleOutputChannelBenchmark
+{
+	/**
+	 * The number of lines written by each run.
+	 */
+	private static final int benchmarkLines =
+		Integer.getInteger("avail.benchmarks.lines", 200_000);
+
+	/**
+	 * The line written by each benchmark.
+	 */
+	private static final byte[] line =
+		"The quick brown fox jumps over the lazy dog.\n".getBytes(
+			StandardCharsets.UTF_8);
+
+	/**
+	 * A {@code BaselineChannel} decodes its whole buffer and sends the text
+	 * to its sink on every write.
+	 */
+	private static final class BaselineChannel
+	extends ByteArrayOutputStream
+	{
+		/**
+		 * The sink that receives the text of each write.
+		 */
+		private final @NotNull Consumer<String> sink;
+
+		/**
+		 * Decode the buffer and send it to the {@link #sink}.
+		 */
+		private void send ()
+		{
+			final String text;
+			try
+			{
+				text = toString(StandardCharsets.UTF_8.name());
+			}
+			catch (final UnsupportedEncodingException e)
+			{
+				throw new RuntimeException(e);
+			}
+			if (!text.isEmpty())
+			{
+				reset();
+				sink.accept(text);
+			}
+		}
+
+		@Override
+		public synchronized void write (final int b)
+		{
+			super.write(b);
+			send();
+		}
+
+		@Override
+		public synchronized void write (
+			final byte[] b,
+			final int off,
+			final int len)
+		{
+			super.write(b, off, len);
+			send();
+		}
+
+		/**
+		 * Construct a {@link BaselineChannel}.
+		 *
+		 * @param sink
+		 *        The sink that receives the text of each write.
+		 */
+		BaselineChannel (final @NotNull Consumer<String> sink)
+		{
+			this.sink = sink;
+		}
+	}
+
+	/**
+	 * A {@code Writer} writes the benchmark lines to a stream.
+	 */
+	@FunctionalInterface
+	private interface Writer
+	{
+		/**
+		 * Write one line to the stream.
+		 *
+		 * @param stream
+		 *        The stream.
+		 */
+		void writeLine (final @NotNull OutputStream stream);
+	}
+
+	/**
+	 * Write {@link #benchmarkLines} lines to the stream, flush it, and
+	 * report the rate at which they reached the sink.
+	 *
+	 * @param label
+	 *        The label for the report.
+	 * @param stream
+	 *        The stream to write to.
+	 * @param sink
+	 *        The sink behind the stream.
+	 * @param writer
+	 *        How to write each line.
+	 */
+	private static void run (
+		final @NotNull String label,
+		final @NotNull OutputStream stream,
+		final @NotNull CollectingSink sink,
+		final @NotNull Writer writer)
+	{
+		final long start = System.nanoTime();
+		for (int i = 0; i < benchmarkLines; i++)
+		{
+			writer.writeLine(stream);
+		}
+		if (stream instanceof PluginConsoleOutputChannel)
+		{
+			((PluginConsoleOutputChannel) stream).flush();
+		}
+		final long nanos = System.nanoTime() - start;
+		assertEquals((long) benchmarkLines * line.length, sink.text().length());
+		System.out.printf(
+			"%s: %,.0f lines/sec in %,d chunks%n",
+			label,
+			benchmarkLines * 1.0e9 / nanos,
+			sink.chunks());
+	}
+
+	/**
+	 * Write a line one byte at a time, as a {@link java.io.PrintStream} over
+	 * an unbuffered program would.
+	 *
+	 * @param stream
+	 *        The stream.
+	 */
+	private static void writeBytes (final @NotNull OutputStream stream)
+	{
+		for (final byte b : line)
+		{
+			try
+			{
+				stream.write(b);
+			}
+			catch (final IOException e)
+			{
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	/**
+	 * Write a whole line at once.
+	 *
+	 * @param stream
+	 *        The stream.
+	 */
+	private static void writeLine (final @NotNull OutputStream stream)
+	{
+		try
+		{
+			stream.write(line, 0, line.length);
+		}
+		catch (final IOException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Skip the benchmarks unless they were requested.
+	 */
+	@BeforeEach
+	public void requireOptIn ()
+	{
+		assumeTrue(Boolean.getBoolean("avail.benchmarks"));
+	}
+
+	/**
+	 * Compare lines written one byte at a time.
+	 */
+	@Test
+	public void byteWrites ()
+	{
+		final CollectingSink baselineSink = new CollectingSink();
+		run(
+			"baseline byte writes",
+			new BaselineChannel(baselineSink::accept),
+			baselineSink,
+			PluginConsoleOutputChannelBenchmark::writeBytes);
+		final CollectingSink sink = new CollectingSink();
+		run(
+			"channel byte writes",
+			new PluginConsoleOutputChannel(sink::accept),
+			sink,
+			PluginConsoleOutputChannelBenchmark::writeBytes);
+	}
+
+	/**
+	 * Compare lines written a whole line at a time.
+	 */
+	@Test
+	public void lineWrites ()
+	{
+		final CollectingSink baselineSink = new CollectingSink();
+		run(
+			"baseline line writes",
+			new BaselineChannel(baselineSink::accept),
+			baselineSink,
+			PluginConsoleOutputChannelBenchmark::writeLine);
+		final CollectingSink sink = new CollectingSink();
+		run(
+			"channel line writes",
+			new PluginConsoleOutputChannel(sink::accept),
+			sink,
+			PluginConsoleOutputChannelBenchmark::writeLine);
+	}
+}
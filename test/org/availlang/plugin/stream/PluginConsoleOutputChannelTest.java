@@ -0,0 +1,193 @@
+/*
+ * PluginConsoleOutputChannelTest.java
+ * Copyright © 1993-2018, The Avail Foundation, LLC.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of the contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.availlang.plugin.stream;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for {@link PluginConsoleOutputChannel}.
+ *
+ * @author Richard Arriaga &lt;rich@availlang.org&gt;
+ */
+public final class PluginConsoleOutputChannelTest
+{
+	/**
+	 * A {@code CollectingSink} accumulates the text that a {@link
+	 * PluginConsoleOutputChannel} drains, in place of a {@link
+	 * TranscriptStore}.
+	 */
+	static final class CollectingSink
+	{
+		/**
+		 * The text received so far.
+		 */
+		private final @NotNull StringBuilder text = new StringBuilder();
+
+		/**
+		 * The number of chunks received so far.
+		 */
+		private int chunks = 0;
+
+		/**
+		 * Accept a drained chunk of text.
+		 *
+		 * @param chunk
+		 *        The text.
+		 */
+		synchronized void accept (final @NotNull String chunk)
+		{
+			text.append(chunk);
+			chunks++;
+		}
+
+		/**
+		 * Answer the text received so far.
+		 *
+		 * @return The text.
+		 */
+		synchronized @NotNull String text ()
+		{
+			return text.toString();
+		}
+
+		/**
+		 * Answer the number of chunks received so far.
+		 *
+		 * @return The number of chunks.
+		 */
+		synchronized int chunks ()
+		{
+			return chunks;
+		}
+	}
+
+	/**
+	 * Multi-byte characters written one byte at a time are decoded whole.
+	 */
+	@Test
+	public void decodesSplitSequences ()
+	{
+		final CollectingSink sink = new CollectingSink();
+		final PluginConsoleOutputChannel channel =
+			new PluginConsoleOutputChannel(sink::accept);
+		final String expected = "π ≈ 3.14159, Avail™ 😀\n";
+		for (final byte b : expected.getBytes(StandardCharsets.UTF_8))
+		{
+			channel.write(b);
+		}
+		channel.flush();
+		assertEquals(expected, sink.text());
+	}
+
+	/**
+	 * A sequence split across two array writes is decoded whole.
+	 */
+	@Test
+	public void decodesSequencesAcrossWrites ()
+	{
+		final CollectingSink sink = new CollectingSink();
+		final PluginConsoleOutputChannel channel =
+			new PluginConsoleOutputChannel(sink::accept);
+		final byte[] bytes = "a€b".getBytes(StandardCharsets.UTF_8);
+		channel.write(bytes, 0, 2);
+		channel.write(bytes, 2, bytes.length - 2);
+		channel.flush();
+		assertEquals("a€b", sink.text());
+	}
+
+	/**
+	 * Malformed input is replaced rather than dropped or thrown.
+	 */
+	@Test
+	public void replacesMalformedInput ()
+	{
+		final CollectingSink sink = new CollectingSink();
+		final PluginConsoleOutputChannel channel =
+			new PluginConsoleOutputChannel(sink::accept);
+		channel.write(new byte[] {'x', (byte) 0xFF, 'y'});
+		channel.flush();
+		assertEquals("x�y", sink.text());
+	}
+
+	/**
+	 * Text written concurrently by several threads all reaches the sink,
+	 * and each write arrives intact.
+	 *
+	 * @throws InterruptedException
+	 *         If the test is interrupted.
+	 */
+	@Test
+	public void concurrentWritersLoseNothing ()
+	throws InterruptedException
+	{
+		final CollectingSink sink = new CollectingSink();
+		final PluginConsoleOutputChannel channel =
+			new PluginConsoleOutputChannel(sink::accept);
+		final int writers = 4;
+		final int lines = 10_000;
+		final Thread[] threads = new Thread[writers];
+		for (int t = 0; t < writers; t++)
+		{
+			final byte[] line = ("writer " + t + "\n").getBytes(
+				StandardCharsets.UTF_8);
+			threads[t] = new Thread(() ->
+			{
+				for (int i = 0; i < lines; i++)
+				{
+					channel.write(line, 0, line.length);
+				}
+			});
+			threads[t].start();
+		}
+		for (final Thread thread : threads)
+		{
+			thread.join();
+		}
+		channel.flush();
+		final String[] received = sink.text().split("\n");
+		assertEquals(writers * lines, received.length);
+		final int[] counts = new int[writers];
+		for (final String line : received)
+		{
+			counts[Integer.parseInt(line.substring("writer ".length()))]++;
+		}
+		for (final int count : counts)
+		{
+			assertEquals(lines, count);
+		}
+	}
+}